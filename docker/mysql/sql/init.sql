@@ -1499,6 +1499,23 @@ CREATE TABLE `schedule_job_expand` (
                                        UNIQUE KEY `index_job_id` (`job_id`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8 COLLATE=utf8_bin;
 
+-- ----------------------------
+-- Table structure for schedule_job_engine_log
+-- ----------------------------
+DROP TABLE IF EXISTS `schedule_job_engine_log`;
+CREATE TABLE `schedule_job_engine_log` (
+  `id` int(11) NOT NULL AUTO_INCREMENT,
+  `job_id` varchar(64) COLLATE utf8_bin NOT NULL COMMENT '工作任务id',
+  `chunk_offset` bigint(20) NOT NULL COMMENT '分片在日志中的起始字符位置',
+  `chunk_length` int(11) NOT NULL COMMENT '分片解压后的字符数',
+  `content` mediumblob NOT NULL COMMENT 'gzip压缩后的分片内容',
+  `gmt_create` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '新增时间',
+  `gmt_modified` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '修改时间',
+  `is_deleted` tinyint(1) NOT NULL DEFAULT '0' COMMENT '0正常 1逻辑删除',
+  PRIMARY KEY (`id`),
+  UNIQUE KEY `index_job_id_offset` (`job_id`,`chunk_offset`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8 COLLATE=utf8_bin;
+
 -- ----------------------------
 -- Table structure for schedule_job_graph_trigger
 -- ----------------------------
@@ -26,6 +26,8 @@ import com.dtstack.taier.pluginapi.constrant.ConfigConstant;
 import com.dtstack.taier.pluginapi.util.MD5Util;
 import com.dtstack.taier.pluginapi.util.MathUtil;
 import com.dtstack.taier.pluginapi.util.PublicUtil;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Maps;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
@@ -50,10 +52,17 @@ public class ClientCache {
     private static final String MD5_ZIP_KEY = "md5zip";
     private String pluginPath;
 
+    private ClientProxyConfig proxyConfig = new ClientProxyConfig();
+
     private Map<String, IClient> defaultClientMap = Maps.newConcurrentMap();
 
     private Map<String, Map<String, IClient>> cache = Maps.newConcurrentMap();
 
+    /**
+     * 插件信息到客户端的索引, 命中时不再解析插件信息和计算 md5
+     */
+    private Cache<String, IClient> pluginInfoClientCache = CacheBuilder.newBuilder().maximumSize(1000).build();
+
     private static ClientCache singleton = new ClientCache();
 
     private ClientCache() {
@@ -64,6 +73,12 @@ public class ClientCache {
         return singleton;
     }
 
+    public static ClientCache getInstance(String pluginPath, ClientProxyConfig proxyConfig) {
+        singleton.pluginPath = pluginPath;
+        singleton.proxyConfig = proxyConfig;
+        return singleton;
+    }
+
     /**
      *
      * @param pluginInfo 集群配置信息
@@ -75,6 +90,10 @@ public class ClientCache {
             if (StringUtils.isBlank(pluginInfo)) {
                 throw new RdosDefineException("plugin info is empty");
             }
+            IClient pluginInfoClient = pluginInfoClientCache.getIfPresent(pluginInfo);
+            if (pluginInfoClient != null) {
+                return pluginInfoClient;
+            }
 
             Properties properties = PublicUtil.jsonStrToObjectWithOutNull(pluginInfo, Properties.class);
             typeName = properties.getProperty(ConfigConstant.TYPE_NAME_KEY);
@@ -98,13 +117,13 @@ public class ClientCache {
                 synchronized (clientMap) {
                     client = clientMap.get(md5sum);
                     if (client == null) {
-                        client = ClientFactory.buildPluginClient(pluginInfo, pluginPath);
+                        client = ClientFactory.buildPluginClient(pluginInfo, pluginPath, proxyConfig);
                         client.init(properties);
                         clientMap.putIfAbsent(md5sum, client);
                     }
                 }
             }
-
+            pluginInfoClientCache.put(pluginInfo, client);
             return client;
         } catch (Throwable e) {
             LOGGER.error("------- typeName {}  plugin info {} get client error ", typeName, pluginInfo, e);
@@ -121,7 +140,7 @@ public class ClientCache {
                     if (defaultClient == null) {
                         JSONObject pluginInfo = new JSONObject();
                         pluginInfo.put(ConfigConstant.TYPE_NAME_KEY, typeName);
-                        defaultClient = ClientFactory.buildPluginClient(pluginInfo.toJSONString(), pluginPath);
+                        defaultClient = ClientFactory.buildPluginClient(pluginInfo.toJSONString(), pluginPath, proxyConfig);
                         defaultClientMap.putIfAbsent(typeName, defaultClient);
                     }
                 }
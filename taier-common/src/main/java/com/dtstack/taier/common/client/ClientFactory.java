@@ -42,7 +42,7 @@ public class ClientFactory {
 
     private static Map<String, ClassLoader> pluginClassLoader = Maps.newConcurrentMap();
 
-    public static IClient createPluginClass(ClassLoader classLoader) throws Exception {
+    public static IClient createPluginClass(ClassLoader classLoader, ClientProxyConfig proxyConfig) throws Exception {
         return ClassLoaderCallBackMethod.callbackAndReset(()-> {
             ServiceLoader<IClient> serviceLoader = ServiceLoader.load(IClient.class);
 
@@ -52,11 +52,11 @@ public class ClientFactory {
             if (matchingClient.size() != 1) {
                 throw new RuntimeException("zero or more than one plugin client found" + matchingClient);
             }
-            return new ClientProxy(matchingClient.get(0));
+            return new ClientProxy(matchingClient.get(0), proxyConfig);
         }, classLoader, true);
     }
 
-    public static IClient buildPluginClient(String pluginInfo,String pluginPath) throws Exception {
+    public static IClient buildPluginClient(String pluginInfo, String pluginPath, ClientProxyConfig proxyConfig) throws Exception {
         Map<String, Object> params = PublicUtil.jsonStrToObject(pluginInfo, Map.class);
         String clientTypeStr = MathUtil.getString(params.get(ConfigConstant.TYPE_NAME_KEY));
         if (StringUtils.isBlank(clientTypeStr)) {
@@ -72,7 +72,7 @@ public class ClientFactory {
             return createDtClassLoader(pluginFile);
         });
 
-        return ClientFactory.createPluginClass(classLoader);
+        return ClientFactory.createPluginClass(classLoader, proxyConfig);
     }
 
 
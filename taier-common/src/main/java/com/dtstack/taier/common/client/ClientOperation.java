@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dtstack.taier.common.client;
+
+/**
+ * 插件客户端调用分类
+ * ClientProxy 为每类调用使用独立的线程池和超时时间, 某一类调用积压(如 flink per-job 提交上传 hdfs)不会阻塞其他类
+ */
+public enum ClientOperation {
+
+    /**
+     * 客户端初始化
+     */
+    INIT,
+
+    /**
+     * 任务提交
+     */
+    SUBMIT,
+
+    /**
+     * 任务状态
+     */
+    STATUS,
+
+    /**
+     * 任务日志、checkpoint
+     */
+    LOG,
+
+    /**
+     * 任务停止
+     */
+    CANCEL,
+
+    /**
+     * 资源判断
+     */
+    JUDGE,
+
+    /**
+     * 连通性测试、查询、文件等其他调用
+     */
+    OTHER
+}
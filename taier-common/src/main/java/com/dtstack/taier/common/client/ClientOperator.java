@@ -29,10 +29,14 @@ import com.dtstack.taier.pluginapi.enums.TaskStatus;
 import com.dtstack.taier.pluginapi.exception.ExceptionUtil;
 import com.dtstack.taier.pluginapi.pojo.*;
 import com.google.common.base.Strings;
+import com.google.common.collect.Maps;
+import org.apache.commons.collections.CollectionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 
 /**
@@ -54,10 +58,14 @@ public class ClientOperator {
     }
 
     public static ClientOperator getInstance(String pluginPath) {
+        return getInstance(pluginPath, new ClientProxyConfig());
+    }
+
+    public static ClientOperator getInstance(String pluginPath, ClientProxyConfig proxyConfig) {
         if (singleton == null) {
             synchronized (ClientOperator.class) {
                 if (singleton == null) {
-                    clientCache = ClientCache.getInstance(pluginPath);
+                    clientCache = ClientCache.getInstance(pluginPath, proxyConfig);
                     LOGGER.info("init client operator plugin path {}",pluginPath);
                     singleton = new ClientOperator();
                 }
@@ -90,6 +98,30 @@ public class ClientOperator {
     }
 
 
+    /**
+     * 批量获取同一插件下的任务状态, 插件查询失败时全部返回 NOTFOUND 交由上层计数处理
+     *
+     * @param pluginInfo     插件信息
+     * @param jobIdentifiers 任务标识
+     * @return key: jobId, value: 任务状态
+     */
+    public Map<String, TaskStatus> getBatchJobStatus(String pluginInfo, List<JobIdentifier> jobIdentifiers) {
+        if (null == pluginInfo || CollectionUtils.isEmpty(jobIdentifiers)) {
+            throw new IllegalArgumentException("pluginInfo|jobIdentifiers is null.");
+        }
+
+        try {
+            IClient client = clientCache.getClient(pluginInfo);
+            Map<String, TaskStatus> result = client.getBatchJobStatus(jobIdentifiers);
+            return result == null ? Maps.newHashMap() : result;
+        } catch (Exception e) {
+            LOGGER.error("getBatchStatus happens error, size:{}", jobIdentifiers.size(), e);
+            Map<String, TaskStatus> notFound = Maps.newHashMapWithExpectedSize(jobIdentifiers.size());
+            jobIdentifiers.forEach(jobIdentifier -> notFound.put(jobIdentifier.getJobId(), TaskStatus.NOTFOUND));
+            return notFound;
+        }
+    }
+
     public String getEngineLog(String pluginInfo, JobIdentifier jobIdentifier) {
         checkoutOperator(pluginInfo, jobIdentifier);
 
@@ -129,6 +161,45 @@ public class ClientOperator {
         return client.cancelJob(jobIdentifier);
     }
 
+    /**
+     * 批量停止同一插件下的任务, 插件调用失败时全部返回失败结果交由上层重试
+     *
+     * @param pluginInfo 插件信息
+     * @param jobClients 任务
+     * @return key: jobId, value: 停止结果
+     */
+    public Map<String, JobResult> stopJobs(String pluginInfo, List<JobClient> jobClients) {
+        Map<String, JobResult> resultMap = Maps.newHashMapWithExpectedSize(jobClients.size());
+        List<JobIdentifier> jobIdentifiers = new ArrayList<>(jobClients.size());
+        for (JobClient jobClient : jobClients) {
+            if (jobClient.getEngineTaskId() == null && jobClient.getApplicationId() == null) {
+                resultMap.put(jobClient.getJobId(), JobResult.createSuccessResult(jobClient.getJobId()));
+                continue;
+            }
+            JobIdentifier jobIdentifier = new JobIdentifier(jobClient.getEngineTaskId(), jobClient.getApplicationId(), jobClient.getJobId()
+                    , jobClient.getTenantId(), jobClient.getTaskType(), jobClient.getDeployMode(), jobClient.getUserId(), pluginInfo, jobClient.getComponentVersion());
+            jobIdentifier.setForceCancel(jobClient.getForceCancel());
+            checkoutOperator(pluginInfo, jobIdentifier);
+            jobIdentifier.setTimeout(getCheckoutTimeout(jobClient));
+            jobIdentifiers.add(jobIdentifier);
+        }
+        if (jobIdentifiers.isEmpty()) {
+            return resultMap;
+        }
+
+        try {
+            IClient client = clientCache.getClient(pluginInfo);
+            Map<String, JobResult> result = client.cancelJobs(jobIdentifiers);
+            if (result != null) {
+                resultMap.putAll(result);
+            }
+        } catch (Exception e) {
+            LOGGER.error("stopJobs happens error, size:{}", jobIdentifiers.size(), e);
+            jobIdentifiers.forEach(jobIdentifier -> resultMap.put(jobIdentifier.getJobId(), JobResult.createErrorResult(e)));
+        }
+        return resultMap;
+    }
+
     public Long getCheckoutTimeout(JobClient jobClient) {
         Long timeout = ConfigConstant.DEFAULT_CHECKPOINT_TIMEOUT;
         Properties taskProps = jobClient.getConfProperties();
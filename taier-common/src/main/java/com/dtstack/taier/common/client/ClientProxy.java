@@ -34,9 +34,15 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
 
 /**
  * 代理IClient实现类的proxy
@@ -50,22 +56,34 @@ public class ClientProxy implements IClient {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ClientProxy.class);
 
-    private IClient targetClient;
+    /**
+     * 批量停止时单个任务最多等待代理超时时间的百分比
+     */
+    private static final long CANCEL_WAIT_PERCENT = 80;
 
-    private ExecutorService executorService;
+    private IClient targetClient;
 
-    private long timeout = 300000;
+    /**
+     * 每类调用独立的线程池, 互不阻塞
+     */
+    private final Map<ClientOperation, OperationExecutor> executors = new EnumMap<>(ClientOperation.class);
 
     public ClientProxy(IClient targetClient) {
+        this(targetClient, new ClientProxyConfig());
+    }
+
+    public ClientProxy(IClient targetClient, ClientProxyConfig proxyConfig) {
         this.targetClient = targetClient;
-        executorService = new ThreadPoolExecutor(10, 10, 0L, TimeUnit.MILLISECONDS,
-                new LinkedBlockingQueue<Runnable>(), new CustomThreadFactory(targetClient.getClass().getSimpleName() + "_" + this.getClass().getSimpleName()));
+        String namePrefix = targetClient.getClass().getSimpleName() + "_" + this.getClass().getSimpleName();
+        for (ClientOperation operation : ClientOperation.values()) {
+            executors.put(operation, new OperationExecutor(operation, proxyConfig.getThreads(operation), proxyConfig.getTimeout(operation), namePrefix));
+        }
     }
 
     @Override
     public void init(Properties prop) throws Exception {
         try {
-            CompletableFuture.supplyAsync(() -> {
+            getExecutor(ClientOperation.INIT).execute(() -> {
                 try {
                     return ClassLoaderCallBackMethod.callbackAndReset(new CallBack<String>() {
                         @Override
@@ -77,10 +95,10 @@ public class ClientProxy implements IClient {
                 } catch (Exception e) {
                     throw new RdosDefineException(e);
                 }
-            }, executorService).get(timeout, TimeUnit.MILLISECONDS);
+            });
         } catch (Exception e) {
             // 初始化失败,关闭线程池
-            executorService.shutdown();
+            executors.values().forEach(OperationExecutor::shutdown);
             throw new RdosDefineException(e);
         }
     }
@@ -88,7 +106,7 @@ public class ClientProxy implements IClient {
     @Override
     public JobResult submitJob(JobClient jobClient) {
         try {
-            return CompletableFuture.supplyAsync(() -> {
+            return getExecutor(ClientOperation.SUBMIT).execute(() -> {
                 try {
                     return ClassLoaderCallBackMethod.callbackAndReset(new CallBack<JobResult>() {
 
@@ -100,7 +118,7 @@ public class ClientProxy implements IClient {
                 } catch (Exception e) {
                     throw new RdosDefineException(e);
                 }
-            }, executorService).get(timeout, TimeUnit.MILLISECONDS);
+            });
         } catch (InterruptedException | ExecutionException | TimeoutException e) {
             throw new RdosDefineException(e);
         }
@@ -109,7 +127,7 @@ public class ClientProxy implements IClient {
     @Override
     public JobResult cancelJob(JobIdentifier jobIdentifier) {
         try {
-            return CompletableFuture.supplyAsync(() -> {
+            return getExecutor(ClientOperation.CANCEL).execute(() -> {
                 try {
                     return ClassLoaderCallBackMethod.callbackAndReset(new CallBack<JobResult>() {
 
@@ -121,7 +139,42 @@ public class ClientProxy implements IClient {
                 } catch (Exception e) {
                     throw new RdosDefineException(e);
                 }
-            }, executorService).get(timeout, TimeUnit.MILLISECONDS);
+            });
+        } catch (InterruptedException | ExecutionException | TimeoutException e) {
+            throw new RdosDefineException(e);
+        }
+    }
+
+    /**
+     * 插件内并行停止后统一等待, 单个任务的等待时间限制在代理超时时间内, 剩余时间留给状态查询, 避免整批超时
+     */
+    @Override
+    public Map<String, JobResult> cancelJobs(List<JobIdentifier> jobIdentifiers) {
+        OperationExecutor cancelExecutor = getExecutor(ClientOperation.CANCEL);
+        long maxJobTimeout = cancelExecutor.timeout * CANCEL_WAIT_PERCENT / 100;
+        // 在副本上限制超时, 不修改调用方的对象
+        List<JobIdentifier> cancelIdentifiers = new ArrayList<>(jobIdentifiers.size());
+        for (JobIdentifier jobIdentifier : jobIdentifiers) {
+            JobIdentifier cancelIdentifier = jobIdentifier.copy();
+            if (cancelIdentifier.getTimeout() == null || cancelIdentifier.getTimeout() > maxJobTimeout) {
+                cancelIdentifier.setTimeout(maxJobTimeout);
+            }
+            cancelIdentifiers.add(cancelIdentifier);
+        }
+        try {
+            return cancelExecutor.execute(() -> {
+                try {
+                    return ClassLoaderCallBackMethod.callbackAndReset(new CallBack<Map<String, JobResult>>() {
+
+                        @Override
+                        public Map<String, JobResult> execute() throws Exception {
+                            return targetClient.cancelJobs(cancelIdentifiers);
+                        }
+                    }, targetClient.getClass().getClassLoader(), true);
+                } catch (Exception e) {
+                    throw new RdosDefineException(e);
+                }
+            });
         } catch (InterruptedException | ExecutionException | TimeoutException e) {
             throw new RdosDefineException(e);
         }
@@ -130,7 +183,7 @@ public class ClientProxy implements IClient {
     @Override
     public TaskStatus getJobStatus(JobIdentifier jobIdentifier) throws IOException {
         try {
-            return CompletableFuture.supplyAsync(() -> {
+            return getExecutor(ClientOperation.STATUS).execute(() -> {
                 try {
                     return ClassLoaderCallBackMethod.callbackAndReset(new CallBack<TaskStatus>() {
 
@@ -142,7 +195,28 @@ public class ClientProxy implements IClient {
                 } catch (Exception e) {
                     throw new RdosDefineException(e);
                 }
-            }, executorService).get(timeout, TimeUnit.MILLISECONDS);
+            });
+        } catch (InterruptedException | ExecutionException | TimeoutException e) {
+            throw new RdosDefineException(e);
+        }
+    }
+
+    @Override
+    public Map<String, TaskStatus> getBatchJobStatus(List<JobIdentifier> jobIdentifiers) throws IOException {
+        try {
+            return getExecutor(ClientOperation.STATUS).execute(() -> {
+                try {
+                    return ClassLoaderCallBackMethod.callbackAndReset(new CallBack<Map<String, TaskStatus>>() {
+
+                        @Override
+                        public Map<String, TaskStatus> execute() throws Exception {
+                            return targetClient.getBatchJobStatus(jobIdentifiers);
+                        }
+                    }, targetClient.getClass().getClassLoader(), true);
+                } catch (Exception e) {
+                    throw new RdosDefineException(e);
+                }
+            });
         } catch (InterruptedException | ExecutionException | TimeoutException e) {
             throw new RdosDefineException(e);
         }
@@ -151,7 +225,7 @@ public class ClientProxy implements IClient {
     @Override
     public String getJobMaster(JobIdentifier jobIdentifier) {
         try {
-            return CompletableFuture.supplyAsync(() -> {
+            return getExecutor(ClientOperation.STATUS).execute(() -> {
                 try {
                     return ClassLoaderCallBackMethod.callbackAndReset(new CallBack<String>() {
 
@@ -163,7 +237,7 @@ public class ClientProxy implements IClient {
                 } catch (Exception e) {
                     throw new RdosDefineException(e);
                 }
-            }, executorService).get(timeout, TimeUnit.MILLISECONDS);
+            });
         } catch (InterruptedException | ExecutionException | TimeoutException e) {
             throw new RdosDefineException(e);
         }
@@ -172,7 +246,7 @@ public class ClientProxy implements IClient {
     @Override
     public String getMessageByHttp(String path) {
         try {
-            return CompletableFuture.supplyAsync(() -> {
+            return getExecutor(ClientOperation.LOG).execute(() -> {
                 try {
                     return ClassLoaderCallBackMethod.callbackAndReset(new CallBack<String>() {
 
@@ -184,7 +258,7 @@ public class ClientProxy implements IClient {
                 } catch (Exception e) {
                     throw new RdosDefineException(e);
                 }
-            }, executorService).get(timeout, TimeUnit.MILLISECONDS);
+            });
         } catch (InterruptedException | ExecutionException | TimeoutException e) {
             throw new RdosDefineException(e);
         }
@@ -193,7 +267,7 @@ public class ClientProxy implements IClient {
     @Override
     public String getJobLog(JobIdentifier jobIdentifier) {
         try {
-            return CompletableFuture.supplyAsync(() -> {
+            return getExecutor(ClientOperation.LOG).execute(() -> {
                 try {
                     return ClassLoaderCallBackMethod.callbackAndReset(new CallBack<String>() {
 
@@ -205,7 +279,7 @@ public class ClientProxy implements IClient {
                 } catch (Exception e) {
                     throw new RdosDefineException(e);
                 }
-            }, executorService).get(timeout, TimeUnit.MILLISECONDS);
+            });
         } catch (InterruptedException | ExecutionException | TimeoutException e) {
             throw new RdosDefineException(e);
         }
@@ -214,7 +288,7 @@ public class ClientProxy implements IClient {
     @Override
     public JudgeResult judgeSlots(JobClient jobClient) {
         try {
-            return CompletableFuture.supplyAsync(() -> {
+            return getExecutor(ClientOperation.JUDGE).execute(() -> {
                 try {
                     return ClassLoaderCallBackMethod.callbackAndReset(new CallBack<JudgeResult>() {
 
@@ -226,7 +300,7 @@ public class ClientProxy implements IClient {
                 } catch (Exception e) {
                     return getJudgeResultWithException(e, e);
                 }
-            }, executorService).get(timeout, TimeUnit.MILLISECONDS);
+            });
         } catch (InterruptedException | ExecutionException | TimeoutException e) {
             return getJudgeResultWithException(e, e.getCause());
         }
@@ -247,7 +321,7 @@ public class ClientProxy implements IClient {
     @Override
     public String getCheckpoints(JobIdentifier jobIdentifier) {
         try {
-            return CompletableFuture.supplyAsync(() -> {
+            return getExecutor(ClientOperation.LOG).execute(() -> {
                 try {
                     return ClassLoaderCallBackMethod.callbackAndReset(new CallBack<String>() {
 
@@ -259,7 +333,7 @@ public class ClientProxy implements IClient {
                 } catch (Exception e) {
                     throw new RdosDefineException(e);
                 }
-            }, executorService).get(timeout, TimeUnit.MILLISECONDS);
+            });
         } catch (InterruptedException | ExecutionException | TimeoutException e) {
             throw new RdosDefineException(e);
         }
@@ -268,14 +342,14 @@ public class ClientProxy implements IClient {
     @Override
     public ComponentTestResult testConnect(String pluginInfo) {
         try {
-            return CompletableFuture.supplyAsync(() -> {
+            return getExecutor(ClientOperation.OTHER).execute(() -> {
                 try {
                     return ClassLoaderCallBackMethod.callbackAndReset(() -> targetClient.testConnect(pluginInfo),
                             targetClient.getClass().getClassLoader(), true);
                 } catch (Exception e) {
                     throw new RdosDefineException(e);
                 }
-            }, executorService).get(timeout, TimeUnit.MILLISECONDS);
+            });
         } catch (InterruptedException | ExecutionException | TimeoutException e) {
             throw new RdosDefineException(e);
         }
@@ -284,14 +358,14 @@ public class ClientProxy implements IClient {
     @Override
     public List<List<Object>> executeQuery(String sql, String database) {
         try {
-            return CompletableFuture.supplyAsync(() -> {
+            return getExecutor(ClientOperation.OTHER).execute(() -> {
                 try {
                     return ClassLoaderCallBackMethod.callbackAndReset(() -> targetClient.executeQuery(sql,database),
                             targetClient.getClass().getClassLoader(), true);
                 } catch (Exception e) {
                     throw new RdosDefineException(e);
                 }
-            }, executorService).get(timeout, TimeUnit.MILLISECONDS);
+            });
         } catch (InterruptedException | ExecutionException | TimeoutException e) {
             throw new RdosDefineException(e);
         }
@@ -300,14 +374,14 @@ public class ClientProxy implements IClient {
     @Override
     public String uploadStringToHdfs(String bytes, String hdfsPath) {
         try {
-            return CompletableFuture.supplyAsync(() -> {
+            return getExecutor(ClientOperation.OTHER).execute(() -> {
                 try {
                     return ClassLoaderCallBackMethod.callbackAndReset(() -> targetClient.uploadStringToHdfs(bytes,hdfsPath),
                             targetClient.getClass().getClassLoader(), true);
                 } catch (Exception e) {
                     throw new RdosDefineException(e);
                 }
-            }, executorService).get(timeout, TimeUnit.MILLISECONDS);
+            });
         } catch (InterruptedException | ExecutionException | TimeoutException e) {
             throw new RdosDefineException(e);
         }
@@ -316,14 +390,14 @@ public class ClientProxy implements IClient {
     @Override
     public ClusterResource getClusterResource() {
         try {
-            return CompletableFuture.supplyAsync(() -> {
+            return getExecutor(ClientOperation.JUDGE).execute(() -> {
                 try {
                     return ClassLoaderCallBackMethod.callbackAndReset(() -> targetClient.getClusterResource(),
                             targetClient.getClass().getClassLoader(), true);
                 } catch (Exception e) {
                     throw new RdosDefineException(e);
                 }
-            }, executorService).get(timeout, TimeUnit.MILLISECONDS);
+            });
         } catch (InterruptedException | ExecutionException | TimeoutException e) {
             throw new RdosDefineException(e);
         }
@@ -342,13 +416,13 @@ public class ClientProxy implements IClient {
     @Override
     public CheckResult grammarCheck(JobClient jobClient) {
         try {
-            return CompletableFuture.supplyAsync(() -> {
+            return getExecutor(ClientOperation.OTHER).execute(() -> {
                 try {
                     return ClassLoaderCallBackMethod.callbackAndReset(() -> targetClient.grammarCheck(jobClient), targetClient.getClass().getClassLoader(), true);
                 } catch (Exception e) {
                     throw new RdosDefineException(e);
                 }
-            }, executorService).get(timeout, TimeUnit.MILLISECONDS);
+            });
         } catch (InterruptedException | ExecutionException | TimeoutException e) {
             throw new RdosDefineException(e);
         }
@@ -357,16 +431,149 @@ public class ClientProxy implements IClient {
     @Override
     public List<FileResult> listFile(String path,boolean isPathPattern) {
         try {
-            return CompletableFuture.supplyAsync(() -> {
+            return getExecutor(ClientOperation.OTHER).execute(() -> {
                 try {
                     return ClassLoaderCallBackMethod.callbackAndReset(() -> targetClient.listFile(path,isPathPattern), targetClient.getClass().getClassLoader(), true);
                 } catch (Exception e) {
                     throw new RdosDefineException(e);
                 }
-            }, executorService).get(timeout, TimeUnit.MILLISECONDS);
+            });
         } catch (InterruptedException | ExecutionException | TimeoutException e) {
             throw new RdosDefineException(e);
         }
     }
 
+    private OperationExecutor getExecutor(ClientOperation operation) {
+        return executors.get(operation);
+    }
+
+    /**
+     * 各类调用的线程池指标
+     *
+     * @return key: 调用分类, value: 指标
+     */
+    public Map<ClientOperation, ExecutorMetrics> getExecutorMetrics() {
+        Map<ClientOperation, ExecutorMetrics> metrics = new EnumMap<>(ClientOperation.class);
+        executors.forEach((operation, executor) -> metrics.put(operation, executor.getMetrics()));
+        return metrics;
+    }
+
+    private static class OperationExecutor {
+
+        private final ClientOperation operation;
+
+        private final ThreadPoolExecutor executor;
+
+        private final long timeout;
+
+        private final LongAdder completedCount = new LongAdder();
+
+        private final LongAdder timeoutCount = new LongAdder();
+
+        private final LongAdder totalLatency = new LongAdder();
+
+        private final LongAccumulator maxLatency = new LongAccumulator(Long::max, 0);
+
+        private OperationExecutor(ClientOperation operation, int threads, long timeout, String namePrefix) {
+            this.operation = operation;
+            this.timeout = timeout;
+            this.executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), new CustomThreadFactory(namePrefix + "_" + operation.name().toLowerCase()));
+            // 客户端按插件信息缓存, 数量较多, 空闲时回收线程
+            this.executor.allowCoreThreadTimeOut(true);
+        }
+
+        private <T> T execute(Supplier<T> supplier) throws InterruptedException, ExecutionException, TimeoutException {
+            long submitTime = System.currentTimeMillis();
+            CompletableFuture<T> future = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return supplier.get();
+                } finally {
+                    // 包含排队时间
+                    long latency = System.currentTimeMillis() - submitTime;
+                    completedCount.increment();
+                    totalLatency.add(latency);
+                    maxLatency.accumulate(latency);
+                }
+            }, executor);
+            try {
+                return future.get(timeout, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                timeoutCount.increment();
+                LOGGER.warn("client {} operation timeout {}ms, {}", operation, timeout, getMetrics());
+                throw e;
+            }
+        }
+
+        private ExecutorMetrics getMetrics() {
+            long completed = completedCount.sum();
+            return new ExecutorMetrics(executor.getQueue().size(), executor.getActiveCount(), completed,
+                    timeoutCount.sum(), completed == 0 ? 0 : totalLatency.sum() / completed, maxLatency.get());
+        }
+
+        private void shutdown() {
+            executor.shutdown();
+        }
+    }
+
+    public static class ExecutorMetrics {
+
+        private final int queueSize;
+
+        private final int activeCount;
+
+        private final long completedCount;
+
+        private final long timeoutCount;
+
+        private final long avgLatency;
+
+        private final long maxLatency;
+
+        public ExecutorMetrics(int queueSize, int activeCount, long completedCount, long timeoutCount, long avgLatency, long maxLatency) {
+            this.queueSize = queueSize;
+            this.activeCount = activeCount;
+            this.completedCount = completedCount;
+            this.timeoutCount = timeoutCount;
+            this.avgLatency = avgLatency;
+            this.maxLatency = maxLatency;
+        }
+
+        public int getQueueSize() {
+            return queueSize;
+        }
+
+        public int getActiveCount() {
+            return activeCount;
+        }
+
+        public long getCompletedCount() {
+            return completedCount;
+        }
+
+        public long getTimeoutCount() {
+            return timeoutCount;
+        }
+
+        public long getAvgLatency() {
+            return avgLatency;
+        }
+
+        public long getMaxLatency() {
+            return maxLatency;
+        }
+
+        @Override
+        public String toString() {
+            return "ExecutorMetrics{" +
+                    "queueSize=" + queueSize +
+                    ", activeCount=" + activeCount +
+                    ", completedCount=" + completedCount +
+                    ", timeoutCount=" + timeoutCount +
+                    ", avgLatency=" + avgLatency +
+                    ", maxLatency=" + maxLatency +
+                    '}';
+        }
+    }
+
 }
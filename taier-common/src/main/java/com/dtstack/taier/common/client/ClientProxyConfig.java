@@ -0,0 +1,53 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dtstack.taier.common.client;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * ClientProxy 各类调用的线程数和超时时间
+ */
+public class ClientProxyConfig {
+
+    private static final int DEFAULT_THREADS = 10;
+
+    private static final long DEFAULT_TIMEOUT = 300000;
+
+    private final Map<ClientOperation, Integer> threads = new EnumMap<>(ClientOperation.class);
+
+    private final Map<ClientOperation, Long> timeouts = new EnumMap<>(ClientOperation.class);
+
+    public ClientProxyConfig setThreads(ClientOperation operation, int threadNum) {
+        threads.put(operation, Math.max(threadNum, 1));
+        return this;
+    }
+
+    public ClientProxyConfig setTimeout(ClientOperation operation, long timeout) {
+        timeouts.put(operation, timeout);
+        return this;
+    }
+
+    public int getThreads(ClientOperation operation) {
+        return threads.getOrDefault(operation, DEFAULT_THREADS);
+    }
+
+    public long getTimeout(ClientOperation operation) {
+        return timeouts.getOrDefault(operation, DEFAULT_TIMEOUT);
+    }
+}
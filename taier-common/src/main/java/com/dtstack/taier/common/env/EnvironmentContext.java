@@ -76,6 +76,9 @@ public class EnvironmentContext implements InitializingBean {
     @Value("${job.acquire.queue.job.interval:3000}")
     private int jobAcquireQueueJobInterval;
 
+    @Value("${job.readiness.reconcile.interval:60000}")
+    private long jobReadinessReconcileInterval;
+
     @Value("${job.cyc.time.gap:2}")
     private int jobCycTimeGap;
 
@@ -142,6 +145,9 @@ public class EnvironmentContext implements InitializingBean {
     @Value("${task.status.dealer.pool.size:5}")
     private int taskStatusDealerPoolSize;
 
+    @Value("${task.status.batch.size:200}")
+    private int taskStatusBatchSize;
+
     @Value("${test.connect.timeout:60}")
     private int testConnectTimeout;
 
@@ -226,6 +232,12 @@ public class EnvironmentContext implements InitializingBean {
     @Value("${job.graph.task.limit.size:50}")
     private Integer jobGraphTaskLimitSize;
 
+    /**
+     * 生成周期实例前一次性加载任务依赖、工作流子任务和前一天实例key到内存
+     */
+    @Value("${job.graph.preload:true}")
+    private boolean jobGraphPreload;
+
     @Value("${select.limit:50}")
     private Integer selectLimit;
 
@@ -244,12 +256,72 @@ public class EnvironmentContext implements InitializingBean {
     @Value("${plugin.path:#{systemProperties['user.dir']}/pluginLibs}")
     private String pluginPath;
 
+    @Value("${plugin.client.submit.threads:10}")
+    private int pluginClientSubmitThreads;
+
+    @Value("${plugin.client.submit.timeout:300000}")
+    private long pluginClientSubmitTimeout;
+
+    @Value("${plugin.client.status.threads:10}")
+    private int pluginClientStatusThreads;
+
+    @Value("${plugin.client.status.timeout:300000}")
+    private long pluginClientStatusTimeout;
+
+    @Value("${plugin.client.log.threads:5}")
+    private int pluginClientLogThreads;
+
+    @Value("${plugin.client.log.timeout:300000}")
+    private long pluginClientLogTimeout;
+
+    @Value("${plugin.client.cancel.threads:5}")
+    private int pluginClientCancelThreads;
+
+    @Value("${plugin.client.cancel.timeout:300000}")
+    private long pluginClientCancelTimeout;
+
+    @Value("${plugin.client.judge.threads:5}")
+    private int pluginClientJudgeThreads;
+
+    @Value("${plugin.client.judge.timeout:300000}")
+    private long pluginClientJudgeTimeout;
+
     @Value("${stopLimit:100000}")
     private Integer stopLimit;
 
     @Value("${logs.limit.num:10000}")
     private Integer logsLimitNum;
 
+    /**
+     * 下载的最大行数, 小于等于 0 时不限制
+     */
+    @Value("${download.max.rows:0}")
+    private long downloadMaxRows;
+
+    /**
+     * 下载的最大字节数(压缩前), 小于等于 0 时不限制
+     */
+    @Value("${download.max.bytes:0}")
+    private long downloadMaxBytes;
+
+    /**
+     * 数据源元数据缓存过期时间(毫秒), 小于等于 0 时不缓存
+     */
+    @Value("${datasource.meta.cache.ttl:600000}")
+    private long datasourceMetaCacheTtl;
+
+    /**
+     * 数据源元数据缓存后台刷新间隔(毫秒)
+     */
+    @Value("${datasource.meta.cache.refresh:120000}")
+    private long datasourceMetaCacheRefresh;
+
+    /**
+     * 数据源元数据缓存最多保存的条目数(表名、字段等按个数计)
+     */
+    @Value("${datasource.meta.cache.max.weight:2000000}")
+    private long datasourceMetaCacheMaxWeight;
+
     @Override
     public void afterPropertiesSet() throws Exception {
         ClientCache.setUserDir(getDataSourcePluginPath());
@@ -333,6 +405,10 @@ public class EnvironmentContext implements InitializingBean {
         return jobAcquireQueueJobInterval;
     }
 
+    public long getJobReadinessReconcileInterval() {
+        return jobReadinessReconcileInterval;
+    }
+
     public int getJobCycTimeGap() {
         return jobCycTimeGap;
     }
@@ -418,6 +494,10 @@ public class EnvironmentContext implements InitializingBean {
         return taskStatusDealerPoolSize;
     }
 
+    public int getTaskStatusBatchSize() {
+        return taskStatusBatchSize;
+    }
+
     public int getTestConnectTimeout() {
         return testConnectTimeout;
     }
@@ -530,6 +610,10 @@ public class EnvironmentContext implements InitializingBean {
         return jobGraphTaskLimitSize;
     }
 
+    public boolean isJobGraphPreload() {
+        return jobGraphPreload;
+    }
+
     public String getCreateTableType() {
         return createTableType;
     }
@@ -550,6 +634,46 @@ public class EnvironmentContext implements InitializingBean {
         return pluginPath;
     }
 
+    public int getPluginClientSubmitThreads() {
+        return pluginClientSubmitThreads;
+    }
+
+    public long getPluginClientSubmitTimeout() {
+        return pluginClientSubmitTimeout;
+    }
+
+    public int getPluginClientStatusThreads() {
+        return pluginClientStatusThreads;
+    }
+
+    public long getPluginClientStatusTimeout() {
+        return pluginClientStatusTimeout;
+    }
+
+    public int getPluginClientLogThreads() {
+        return pluginClientLogThreads;
+    }
+
+    public long getPluginClientLogTimeout() {
+        return pluginClientLogTimeout;
+    }
+
+    public int getPluginClientCancelThreads() {
+        return pluginClientCancelThreads;
+    }
+
+    public long getPluginClientCancelTimeout() {
+        return pluginClientCancelTimeout;
+    }
+
+    public int getPluginClientJudgeThreads() {
+        return pluginClientJudgeThreads;
+    }
+
+    public long getPluginClientJudgeTimeout() {
+        return pluginClientJudgeTimeout;
+    }
+
     public int getLogPoolSize() {
         return jobLogPool;
     }
@@ -566,6 +690,26 @@ public class EnvironmentContext implements InitializingBean {
         this.logsLimitNum = logsLimitNum;
     }
 
+    public long getDownloadMaxRows() {
+        return downloadMaxRows;
+    }
+
+    public long getDownloadMaxBytes() {
+        return downloadMaxBytes;
+    }
+
+    public long getDatasourceMetaCacheTtl() {
+        return datasourceMetaCacheTtl;
+    }
+
+    public long getDatasourceMetaCacheRefresh() {
+        return datasourceMetaCacheRefresh;
+    }
+
+    public long getDatasourceMetaCacheMaxWeight() {
+        return datasourceMetaCacheMaxWeight;
+    }
+
     public int getStopLimit() {
         return stopLimit;
     }
@@ -0,0 +1,119 @@
+package com.dtstack.taier.dao.domain;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+
+import java.io.Serializable;
+import java.sql.Timestamp;
+
+/**
+ * 实例引擎日志分片, 每个分片 gzip 压缩后存储
+ */
+@TableName(value = "schedule_job_engine_log")
+public class ScheduleJobEngineLog implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @TableId(value="id", type= IdType.AUTO)
+    private Long id;
+
+    /**
+     * 实例id
+     */
+    private String jobId;
+
+    /**
+     * 分片在日志中的起始字符位置
+     */
+    private Long chunkOffset;
+
+    /**
+     * 分片解压后的字符数
+     */
+    private Integer chunkLength;
+
+    /**
+     * gzip 压缩后的分片内容
+     */
+    private byte[] content;
+
+    /**
+     * 创建时间
+     */
+    private Timestamp gmtCreate;
+
+    /**
+     * 最近一次修改时间
+     */
+    private Timestamp gmtModified;
+
+    /**
+     * 是否逻辑删除
+     */
+    private Integer isDeleted;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public void setJobId(String jobId) {
+        this.jobId = jobId;
+    }
+
+    public Long getChunkOffset() {
+        return chunkOffset;
+    }
+
+    public void setChunkOffset(Long chunkOffset) {
+        this.chunkOffset = chunkOffset;
+    }
+
+    public Integer getChunkLength() {
+        return chunkLength;
+    }
+
+    public void setChunkLength(Integer chunkLength) {
+        this.chunkLength = chunkLength;
+    }
+
+    public byte[] getContent() {
+        return content;
+    }
+
+    public void setContent(byte[] content) {
+        this.content = content;
+    }
+
+    public Timestamp getGmtCreate() {
+        return gmtCreate;
+    }
+
+    public void setGmtCreate(Timestamp gmtCreate) {
+        this.gmtCreate = gmtCreate;
+    }
+
+    public Timestamp getGmtModified() {
+        return gmtModified;
+    }
+
+    public void setGmtModified(Timestamp gmtModified) {
+        this.gmtModified = gmtModified;
+    }
+
+    public Integer getIsDeleted() {
+        return isDeleted;
+    }
+
+    public void setIsDeleted(Integer isDeleted) {
+        this.isDeleted = isDeleted;
+    }
+}
@@ -0,0 +1,7 @@
+package com.dtstack.taier.dao.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.dtstack.taier.dao.domain.ScheduleJobEngineLog;
+
+public interface ScheduleJobEngineLogMapper extends BaseMapper<ScheduleJobEngineLog> {
+}
@@ -111,5 +111,14 @@ public interface ScheduleJobMapper extends BaseMapper<ScheduleJob> {
      */
     Integer updateJobStatusAndExecTime(@Param("jobId") String jobId, @Param("status") int status);
 
+    /**
+     * 批量更新实例状态
+     *
+     * @param jobIds 实例 id
+     * @param status 状态
+     * @return 更新数
+     */
+    Integer updateJobStatusAndExecTimeByJobIds(@Param("jobIds") List<String> jobIds, @Param("status") int status);
+
 
 }
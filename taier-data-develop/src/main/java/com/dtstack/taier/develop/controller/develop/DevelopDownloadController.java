@@ -24,7 +24,7 @@ public class DevelopDownloadController {
     @ApiOperation("下载job日志")
     public void downloadJobLog(DevelopDownloadJobLogVO vo, HttpServletResponse response) {
         developDownloadService.handleDownload(response, DownloadType.DEVELOP_LOG, vo.getJobId(),
-                vo.getTenantId(), vo.getTaskType());
+                vo.getTenantId(), vo.getTaskType(), vo.getFormat(), vo.getCompress());
     }
 
 }
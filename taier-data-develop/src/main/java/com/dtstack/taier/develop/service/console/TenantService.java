@@ -32,6 +32,7 @@ import com.dtstack.taier.dao.pager.Sort;
 import com.dtstack.taier.develop.mapstruct.console.TenantTransfer;
 import com.dtstack.taier.develop.service.develop.impl.DevelopCatalogueService;
 import com.dtstack.taier.develop.vo.console.ClusterTenantVO;
+import com.dtstack.taier.scheduler.service.ClusterService;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -64,6 +65,9 @@ public class TenantService {
     @Autowired
     private DevelopCatalogueService developCatalogueService;
 
+    @Autowired
+    private ClusterService clusterService;
+
     public PageResult<List<ClusterTenantVO>> pageQuery(Long clusterId,
                                                        String tenantName,
                                                        int pageSize,
@@ -91,6 +95,7 @@ public class TenantService {
             updateTenantQueue(tenantId, clusterId, queueName);
         }
         initDataDevelop(tenantId, tenant.getCreateUserId());
+        clusterService.clearPluginInfoCache();
     }
 
     private void checkTenantBindStatus(Long tenantId) {
@@ -140,6 +145,7 @@ public class TenantService {
         if (result == 0) {
             throw new RdosDefineException("The update engine queue failed");
         }
+        clusterService.clearPluginInfoCache();
     }
 
     public List<Tenant> listAllTenant() {
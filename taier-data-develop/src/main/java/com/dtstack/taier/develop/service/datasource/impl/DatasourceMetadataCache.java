@@ -0,0 +1,240 @@
+package com.dtstack.taier.develop.service.datasource.impl;
+
+import com.dtstack.taier.common.env.EnvironmentContext;
+import com.dtstack.taier.common.exception.RdosDefineException;
+import com.dtstack.taier.common.thread.RdosThreadFactory;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.cache.Weigher;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * 数据源元数据缓存(节点内存)
+ * 缓存数据源连接信息和表、字段、schema、分区, 按数据源隔离. 预览的是表数据, 不缓存. 过期时间和总条目数有上限,
+ * 超过刷新间隔的条目在后台异步刷新, 刷新期间仍返回旧值. 数据源修改或删除时该数据源的缓存全部失效,
+ * 其他节点上的缓存在过期时间内可能仍是旧值
+ */
+@Component
+public class DatasourceMetadataCache implements InitializingBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DatasourceMetadataCache.class);
+
+    public static final String SOURCE = "source";
+
+    public static final String TABLE = "table";
+
+    public static final String COLUMN = "column";
+
+    public static final String SCHEMA = "schema";
+
+    public static final String PARTITION = "partition";
+
+    private static final int REFRESH_THREADS = 2;
+
+    /**
+     * 缓存不允许 null 值
+     */
+    private static final Object NULL_VALUE = new Object();
+
+    @Autowired
+    private EnvironmentContext environmentContext;
+
+    /**
+     * key: 数据源id, value: 缓存版本, 失效时递增, 旧版本的条目不会再被读取
+     */
+    private final Map<Long, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    private LoadingCache<MetadataKey, Object> cache;
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        long ttl = environmentContext.getDatasourceMetaCacheTtl();
+        if (ttl <= 0) {
+            LOGGER.info("datasource metadata cache disabled");
+            return;
+        }
+        CacheBuilder<MetadataKey, Object> builder = CacheBuilder.newBuilder()
+                .maximumWeight(environmentContext.getDatasourceMetaCacheMaxWeight())
+                .weigher((Weigher<MetadataKey, Object>) (key, value) -> weigh(value))
+                .expireAfterWrite(ttl, TimeUnit.MILLISECONDS);
+        long refresh = environmentContext.getDatasourceMetaCacheRefresh();
+        if (refresh > 0 && refresh < ttl) {
+            builder.refreshAfterWrite(refresh, TimeUnit.MILLISECONDS);
+        }
+        // 同一个条目同时只有一个刷新任务, 队列长度不超过缓存条目数
+        CacheLoader<MetadataKey, Object> loader = CacheLoader.asyncReloading(new CacheLoader<MetadataKey, Object>() {
+            @Override
+            public Object load(MetadataKey key) throws Exception {
+                Object value = key.loader.call();
+                return value == null ? NULL_VALUE : value;
+            }
+        }, Executors.newFixedThreadPool(REFRESH_THREADS, new RdosThreadFactory("datasource_meta_refresh")));
+        cache = builder.build(loader);
+    }
+
+    /**
+     * 获取缓存的元数据, 不存在时同步加载
+     *
+     * @param sourceId 数据源id
+     * @param kind     元数据类型
+     * @param loader   加载方法, 后台刷新时也会调用
+     * @param args     查询参数
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(Long sourceId, String kind, Callable<T> loader, Object... args) {
+        if (cache == null) {
+            return call(loader);
+        }
+        MetadataKey key = new MetadataKey(sourceId, generation(sourceId), kind, Arrays.asList(args), loader);
+        try {
+            Object value = cache.get(key);
+            return value == NULL_VALUE ? null : (T) value;
+        } catch (ExecutionException | UncheckedExecutionException | ExecutionError e) {
+            throw unwrap(e);
+        }
+    }
+
+    /**
+     * 获取表名列表, 只复用模糊查询表名完全相同的结果.
+     * 远程的模糊匹配语义(大小写、通配符)与数据源类型有关, 不在内存中按更短的输入过滤
+     *
+     * @param sourceId 数据源id
+     * @param schema   schema
+     * @param pattern  模糊查询表名
+     * @param loader   按模糊查询表名加载
+     */
+    public List<String> listTables(Long sourceId, String schema, String pattern, Function<String, List<String>> loader) {
+        List<String> tables = get(sourceId, TABLE, () -> {
+            List<String> result = loader.apply(pattern);
+            return result == null ? new ArrayList<String>() : result;
+        }, schema, pattern);
+        return new ArrayList<>(tables);
+    }
+
+    /**
+     * 数据源修改或删除后使其缓存失效, 事务中调用时提交后再失效一次, 避免提交前加载到旧数据
+     *
+     * @param sourceId 数据源id
+     */
+    public void invalidate(Long sourceId) {
+        doInvalidate(sourceId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    doInvalidate(sourceId);
+                }
+            });
+        }
+    }
+
+    private void doInvalidate(Long sourceId) {
+        if (sourceId == null || cache == null) {
+            return;
+        }
+        generations.computeIfAbsent(sourceId, k -> new AtomicLong()).incrementAndGet();
+        cache.asMap().keySet().removeIf(key -> sourceId.equals(key.sourceId));
+        LOGGER.info("invalidate datasource {} metadata cache", sourceId);
+    }
+
+    private long generation(Long sourceId) {
+        AtomicLong generation = generations.get(sourceId);
+        return generation == null ? 0L : generation.get();
+    }
+
+    private static int weigh(Object value) {
+        if (value instanceof Collection) {
+            return ((Collection<?>) value).size() + 1;
+        }
+        if (value instanceof Map) {
+            return ((Map<?, ?>) value).size() + 1;
+        }
+        return 1;
+    }
+
+    private static <T> T call(Callable<T> loader) {
+        try {
+            return loader.call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RdosDefineException(e.getMessage(), e);
+        }
+    }
+
+    private static RuntimeException unwrap(Exception e) {
+        Throwable cause = e.getCause() == null ? e : e.getCause();
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new RdosDefineException(cause.getMessage(), cause);
+    }
+
+    private static class MetadataKey {
+
+        private final Long sourceId;
+
+        private final long generation;
+
+        private final String kind;
+
+        private final List<Object> args;
+
+        /**
+         * 不参与 equals/hashCode
+         */
+        private final Callable<?> loader;
+
+        MetadataKey(Long sourceId, long generation, String kind, List<Object> args, Callable<?> loader) {
+            this.sourceId = sourceId;
+            this.generation = generation;
+            this.kind = kind;
+            this.args = args;
+            this.loader = loader;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            MetadataKey that = (MetadataKey) o;
+            return generation == that.generation && Objects.equals(sourceId, that.sourceId)
+                    && Objects.equals(kind, that.kind) && Objects.equals(args, that.args);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(sourceId, generation, kind, args);
+        }
+    }
+}
@@ -54,6 +54,7 @@ import com.google.common.collect.Sets;
 import com.jcraft.jsch.SftpException;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.collections.MapUtils;
+import org.apache.commons.lang.BooleanUtils;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang3.tuple.Pair;
@@ -123,8 +124,13 @@ public class DatasourceService {
     @Autowired
     private EnvironmentContext environmentContext;
 
+    @Autowired
+    private DatasourceMetadataCache datasourceMetadataCache;
+
 
     private static final String IS_OPEN_CDB = "select * from v$database";
+
+    private static final int TABLE_LIST_LIMIT = 5000;
     public static final String JDBC_URL = "jdbcUrl";
     public static final String JDBC_USERNAME = "username";
     public static final String JDBC_PASSWORD = "password";
@@ -555,6 +561,7 @@ public class DatasourceService {
             }
             dsInfo.setGmtCreate(DateTime.now().toDate());
             dsInfoService.updateById(dsInfo);
+            datasourceMetadataCache.invalidate(dsInfo.getId());
         } else {
             // add 存在授权产品操作
             dsInfo.setCreateUserId(dataSourceVO.getUserId());
@@ -1346,26 +1353,13 @@ public class DatasourceService {
             if (source == null) {
                 throw new RdosDefineException(ErrorCode.CAN_NOT_FIND_DATA_SOURCE);
             }
-            if (part ==null){
-                part = false;
-            }
-            JSONObject dataJson = JSONObject.parseObject(source.getDataJson());
-            Map<String, Object> kerberosConfig = fillKerberosConfig(source.getId());
-            IClient iClient = ClientCache.getClient(source.getType());
-            SqlQueryDTO sqlQueryDTO = SqlQueryDTO.builder()
-                    .tableName(tableName)
-                    .schema(schema)
-                    .filterPartitionColumns(part)
-                    .build();
-            ISourceDTO iSourceDTO = SourceDTOType.getSourceDTO(dataJson, source.getType(), kerberosConfig, Maps.newHashMap());
-            List<ColumnMetaDTO> columnMetaData = iClient.getColumnMetaData(iSourceDTO, sqlQueryDTO);
-            List<JSONObject> list = new ArrayList<>();
-            if (CollectionUtils.isNotEmpty(columnMetaData)) {
-                for (ColumnMetaDTO columnMetaDTO : columnMetaData) {
-                    JSONObject jsonObject = JSON.parseObject(JSON.toJSONString(columnMetaDTO));
-                    jsonObject.put("isPart",columnMetaDTO.getPart());
-                    list.add(jsonObject);
-                }
+            boolean filterPart = BooleanUtils.isTrue(part);
+            List<JSONObject> columns = datasourceMetadataCache.get(source.getId(), DatasourceMetadataCache.COLUMN,
+                    () -> loadTableColumn(source, tableName, filterPart, schema), schema, tableName, filterPart);
+            // 调用方可能修改返回的字段信息
+            List<JSONObject> list = new ArrayList<>(columns.size());
+            for (JSONObject column : columns) {
+                list.add((JSONObject) column.clone());
             }
             return list;
         } catch (DtCenterDefException e) {
@@ -1375,6 +1369,43 @@ public class DatasourceService {
         }
     }
 
+    private List<JSONObject> loadTableColumn(DevelopDataSource source, String tableName, boolean part, String schema) {
+        IClient iClient = ClientCache.getClient(source.getType());
+        SqlQueryDTO sqlQueryDTO = SqlQueryDTO.builder()
+                .tableName(tableName)
+                .schema(schema)
+                .filterPartitionColumns(part)
+                .build();
+        List<ColumnMetaDTO> columnMetaData = iClient.getColumnMetaData(getCachedSourceDTO(source.getId()), sqlQueryDTO);
+        List<JSONObject> list = new ArrayList<>();
+        if (CollectionUtils.isNotEmpty(columnMetaData)) {
+            for (ColumnMetaDTO columnMetaDTO : columnMetaData) {
+                JSONObject jsonObject = JSON.parseObject(JSON.toJSONString(columnMetaDTO));
+                jsonObject.put("isPart",columnMetaDTO.getPart());
+                list.add(jsonObject);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * 元数据浏览使用的数据源信息和 kerberos 配置, 缓存后不再每次查询数据库和检查 sftp 上的 kerberos 文件
+     *
+     * @param sourceId 数据源id
+     * @return left: 数据源, right: kerberos 配置
+     */
+    private Pair<DevelopDataSource, Map<String, Object>> getCachedSource(Long sourceId) {
+        return datasourceMetadataCache.get(sourceId, DatasourceMetadataCache.SOURCE,
+                () -> Pair.of(getOne(sourceId), fillKerberosConfig(sourceId)));
+    }
+
+    private ISourceDTO getCachedSourceDTO(Long sourceId) {
+        Pair<DevelopDataSource, Map<String, Object>> cachedSource = getCachedSource(sourceId);
+        DevelopDataSource source = cachedSource.getLeft();
+        return SourceDTOType.getSourceDTO(JSON.parseObject(source.getDataJson()), source.getType(),
+                new HashMap<>(cachedSource.getRight()), Maps.newHashMap());
+    }
+
     public DevelopDataSource getOne(Long id) {
         DsInfo dsInfo = dsInfoService.getOneById(id);
         DevelopDataSource developDataSource = new DevelopDataSource();
@@ -1393,21 +1424,15 @@ public class DatasourceService {
      * @return
      */
     public List<String> tablelist(Long sourceId, String schema, String name) {
-        List<String> tables = new ArrayList<>();
-        DevelopDataSource source = getOne(sourceId);
-        String dataJson = source.getDataJson();
-        JSONObject json = JSON.parseObject(dataJson);
-        //查询的db
-        String dataSource = schema;
-
-        IClient client = ClientCache.getClient(source.getType());
-        ISourceDTO sourceDTO = SourceDTOType.getSourceDTO(json, source.getType(), fillKerberosConfig(source.getId()), Maps.newHashMap());
-        SqlQueryDTO sqlQueryDTO = SqlQueryDTO.builder().tableNamePattern(name).limit(5000).build();
-        sqlQueryDTO.setView(true);
-        sqlQueryDTO.setSchema(dataSource);
-        //如果是hive类型的数据源  过滤脏数据表 和 临时表
-        tables = client.getTableList(sourceDTO, sqlQueryDTO);
-        return tables;
+        return datasourceMetadataCache.listTables(sourceId, schema, name, pattern -> {
+            DevelopDataSource source = getCachedSource(sourceId).getLeft();
+            IClient client = ClientCache.getClient(source.getType());
+            SqlQueryDTO sqlQueryDTO = SqlQueryDTO.builder().tableNamePattern(pattern).limit(TABLE_LIST_LIMIT).build();
+            sqlQueryDTO.setView(true);
+            //查询的db
+            sqlQueryDTO.setSchema(schema);
+            return client.getTableList(getCachedSourceDTO(sourceId), sqlQueryDTO);
+        });
     }
 
 
@@ -1459,7 +1484,7 @@ public class DatasourceService {
      */
     public List<JSONObject> tablecolumn(Long userId, Long sourceId, String tableName, Boolean isIncludePart, String schema) {
 
-        final DevelopDataSource source = this.getOne(sourceId);
+        final DevelopDataSource source = getCachedSource(sourceId).getLeft();
         final StringBuffer newTableName = new StringBuffer();
         if (DataSourceType.SQLServer.getVal().equals(source.getType()) && StringUtils.isNotBlank(tableName)){
             if (tableName.indexOf("[") == -1){
@@ -1590,25 +1615,23 @@ public class DatasourceService {
 
 
     public Set<String> getHivePartitions(Long sourceId, String tableName) {
-
-        DevelopDataSource source = getOne(sourceId);
-        JSONObject json = JSON.parseObject(source.getDataJson());
-        Map<String, Object> kerberosConfig = this.fillKerberosConfig(sourceId);
-
-        ISourceDTO sourceDTO = SourceDTOType.getSourceDTO(json, source.getType(), kerberosConfig, Maps.newHashMap());
-        IClient iClient = ClientCache.getClient(source.getType());
-        List<ColumnMetaDTO> partitionColumn = iClient.getPartitionColumn(sourceDTO, SqlQueryDTO.builder().tableName(tableName).build());
-
-        Set<String> partitionNameSet = Sets.newHashSet();
-        //格式化分区信息 与hive保持一致
-        if (CollectionUtils.isNotEmpty(partitionColumn)){
-            StringJoiner tempJoiner = new StringJoiner("=/","","=");
-            for (ColumnMetaDTO column : partitionColumn) {
-                tempJoiner.add(column.getKey());
+        Set<String> partitionNameSet = datasourceMetadataCache.get(sourceId, DatasourceMetadataCache.PARTITION, () -> {
+            DevelopDataSource source = getCachedSource(sourceId).getLeft();
+            IClient iClient = ClientCache.getClient(source.getType());
+            List<ColumnMetaDTO> partitionColumn = iClient.getPartitionColumn(getCachedSourceDTO(sourceId), SqlQueryDTO.builder().tableName(tableName).build());
+
+            Set<String> partitionNames = Sets.newHashSet();
+            //格式化分区信息 与hive保持一致
+            if (CollectionUtils.isNotEmpty(partitionColumn)){
+                StringJoiner tempJoiner = new StringJoiner("=/","","=");
+                for (ColumnMetaDTO column : partitionColumn) {
+                    tempJoiner.add(column.getKey());
+                }
+                partitionNames.add(tempJoiner.toString());
             }
-            partitionNameSet.add(tempJoiner.toString());
-        }
-        return partitionNameSet;
+            return partitionNames;
+        }, tableName);
+        return Sets.newHashSet(partitionNameSet);
     }
 
     /**
@@ -1621,7 +1644,7 @@ public class DatasourceService {
      */
     public JSONObject preview(Long sourceId, String tableName, String schema) {
 
-        DevelopDataSource source = getOne(sourceId);
+        DevelopDataSource source = getCachedSource(sourceId).getLeft();
         StringBuffer newTableName = new StringBuffer();
         if (DataSourceType.SQLServer.getVal().equals(source.getType()) && StringUtils.isNotBlank(tableName)){
             if (tableName.indexOf("[") == -1){
@@ -1632,37 +1655,36 @@ public class DatasourceService {
                 tableName = newTableName.substring(0,newTableName.length()-1);
             }
         }
-        String dataJson = source.getDataJson();
-        JSONObject json = JSON.parseObject(dataJson);
-        //获取字段信息
-        List<String> columnList = new ArrayList<String>();
-        //获取数据
-        List<List<String>> dataList = new ArrayList<List<String>>();
         try {
-            Map<String, Object> kerberosConfig = fillKerberosConfig(source.getId());
-            List<JSONObject> columnJson = getTableColumn(source, tableName, schema);
-            if (CollectionUtils.isNotEmpty(columnJson)) {
-                for (JSONObject columnMetaDTO : columnJson) {
-                    columnList.add(columnMetaDTO.getString("key"));
-                }
-            }
-            IClient iClient = ClientCache.getClient(source.getType());
-            ISourceDTO iSourceDTO = SourceDTOType.getSourceDTO(json, source.getType(), kerberosConfig, Maps.newHashMap());
-            SqlQueryDTO sqlQueryDTO = SqlQueryDTO.builder().schema(schema).tableName(tableName).previewNum(3).build();
-            dataList = iClient.getPreview(iSourceDTO, sqlQueryDTO);
-            if (DataSourceType.getRDBMS().contains(source.getType())) {
-                //因为会把字段名也会返回 所以要去除第一行
-                dataList = dataList.subList(1, dataList.size());
-            }
+            // 预览的是表数据, 不缓存
+            return loadPreview(source, tableName, schema);
         } catch (Exception e) {
             LOGGER.error("datasource preview end with error.", e);
             throw new RdosDefineException(String.format("%s获取预览数据失败", source.getDataName()), e);
         }
+    }
+
+    private JSONObject loadPreview(DevelopDataSource source, String tableName, String schema) {
+        //获取字段信息
+        List<String> columnList = new ArrayList<String>();
+        List<JSONObject> columnJson = getTableColumn(source, tableName, schema);
+        if (CollectionUtils.isNotEmpty(columnJson)) {
+            for (JSONObject columnMetaDTO : columnJson) {
+                columnList.add(columnMetaDTO.getString("key"));
+            }
+        }
+        //获取数据
+        IClient iClient = ClientCache.getClient(source.getType());
+        SqlQueryDTO sqlQueryDTO = SqlQueryDTO.builder().schema(schema).tableName(tableName).previewNum(3).build();
+        List<List<Object>> dataList = iClient.getPreview(getCachedSourceDTO(source.getId()), sqlQueryDTO);
+        if (DataSourceType.getRDBMS().contains(source.getType())) {
+            //因为会把字段名也会返回 所以要去除第一行
+            dataList = dataList.subList(1, dataList.size());
+        }
 
         JSONObject preview = new JSONObject(2);
         preview.put("columnList", columnList);
         preview.put("dataList", dataList);
-
         return preview;
     }
 
@@ -1672,12 +1694,12 @@ public class DatasourceService {
      * @return
      */
     public List<String> getAllSchemas(Long sourceId, String schema) {
-        DevelopDataSource source = getOne(sourceId);
-        String dataJson = source.getDataJson();
-        JSONObject json = JSON.parseObject(dataJson);
-        ISourceDTO sourceDTO = SourceDTOType.getSourceDTO(json, source.getType(), fillKerberosConfig(sourceId), Maps.newHashMap());
-        IClient client = ClientCache.getClient(source.getType());
-        return client.getAllDatabases(sourceDTO, SqlQueryDTO.builder().schema(schema).build());
+        List<String> schemas = datasourceMetadataCache.get(sourceId, DatasourceMetadataCache.SCHEMA, () -> {
+            DevelopDataSource source = getCachedSource(sourceId).getLeft();
+            IClient client = ClientCache.getClient(source.getType());
+            return client.getAllDatabases(getCachedSourceDTO(sourceId), SqlQueryDTO.builder().schema(schema).build());
+        }, schema);
+        return schemas == null ? null : new ArrayList<>(schemas);
     }
 
     /**
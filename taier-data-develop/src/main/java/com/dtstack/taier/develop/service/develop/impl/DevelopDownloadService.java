@@ -19,27 +19,35 @@
 package com.dtstack.taier.develop.service.develop.impl;
 
 import com.dtstack.taier.common.enums.DownloadType;
+import com.dtstack.taier.common.env.EnvironmentContext;
 import com.dtstack.taier.common.exception.RdosDefineException;
 import com.dtstack.taier.dao.domain.ScheduleJobExpand;
 import com.dtstack.taier.develop.dto.devlop.ExecuteResultVO;
 import com.dtstack.taier.develop.service.develop.ITaskRunner;
 import com.dtstack.taier.develop.service.develop.TaskConfiguration;
 import com.dtstack.taier.develop.service.schedule.JobExpandService;
+import com.dtstack.taier.develop.utils.develop.common.DownloadWriter;
 import com.dtstack.taier.develop.utils.develop.common.IDownload;
+import com.dtstack.taier.scheduler.service.ScheduleJobEngineLogService;
+import org.apache.commons.lang3.BooleanUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import javax.servlet.http.HttpServletResponse;
-import java.io.BufferedOutputStream;
 import java.io.FileNotFoundException;
-import java.io.OutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
+import java.util.Collection;
+import java.util.List;
 import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 
 /**
@@ -57,23 +65,34 @@ public class DevelopDownloadService {
 
     public static final Integer DEFAULT_LOG_PREVIEW_BYTES = 16383;
 
+    private static final String GZIP_SUFFIX = ".gz";
+
     @Autowired
     private JobExpandService jobExpandService;
 
+    @Autowired
+    private ScheduleJobEngineLogService scheduleJobEngineLogService;
+
     @Autowired
     private TaskConfiguration taskConfiguration;
 
+    @Autowired
+    private EnvironmentContext environmentContext;
+
     /**
      * 文件下载处理
      *
      * @param response
      * @param downloadType
      * @param jobId
+     * @param format       行数据格式 csv/tsv, 默认 csv
+     * @param compress     是否 gzip 压缩
      */
     public void handleDownload(HttpServletResponse response, DownloadType downloadType, String jobId,
-                               Long tenantId, Integer taskType) {
+                               Long tenantId, Integer taskType, String format, Boolean compress) {
         ITaskRunner taskRunner = taskConfiguration.get(taskType);
-        String downFileName = getDownloadFileName(downloadType);
+        boolean gzip = BooleanUtils.isTrue(compress);
+        String downFileName = getDownloadFileName(downloadType) + (gzip ? GZIP_SUFFIX : "");
         try {
             downFileName = URLEncoder.encode(downFileName, "UTF8");
         } catch (UnsupportedEncodingException e) {
@@ -84,42 +103,28 @@ public class DevelopDownloadService {
         response.setHeader("Pragma", "no-cache");
         response.setHeader("Cache-Control", "no-cache");
 
-        IDownload iDownload = taskRunner.logDownLoad(tenantId, jobId, Integer.MAX_VALUE);
-        try {
+        IDownload iDownload = null;
+        try (DownloadWriter writer = new DownloadWriter(response.getOutputStream(), DownloadWriter.Format.of(format), gzip,
+                environmentContext.getDownloadMaxRows(), environmentContext.getDownloadMaxBytes())) {
+            iDownload = taskRunner.logDownLoad(tenantId, jobId, Integer.MAX_VALUE);
             if (iDownload == null) {
-                try (OutputStream os = response.getOutputStream(); BufferedOutputStream bos = new BufferedOutputStream(os)) {
-                    ExecuteResultVO executeResultVO = taskRunner.runLog(jobId, taskType, tenantId, null);
-                    if (null != executeResultVO && StringUtils.isNotBlank(executeResultVO.getMsg())) {
-                        bos.write(executeResultVO.getMsg().getBytes());
-                    }
-                } catch (Exception e) {
-                    LOGGER.error("download error，{}", jobId, e);
+                ExecuteResultVO executeResultVO = taskRunner.runLog(jobId, taskType, tenantId, null);
+                if (null != executeResultVO && StringUtils.isNotBlank(executeResultVO.getMsg())) {
+                    writer.writeText(executeResultVO.getMsg());
                 }
+            } else if (iDownload instanceof SyncDownload) {
+                writeFileWithSyncLog(writer, iDownload);
             } else {
-                if (iDownload instanceof SyncDownload) {
-                    writeFileWithSyncLog(response, iDownload);
-                } else {
-                    try (OutputStream os = response.getOutputStream(); BufferedOutputStream bos = new BufferedOutputStream(os)) {
-                        while (!iDownload.reachedEnd()) {
-                            Object row = iDownload.readNext();
-                            bos.write(row.toString().getBytes());
-                        }
-                    } catch (Exception e) {
-                        LOGGER.error("download error，{}", jobId, e);
-                    }
-                }
+                writeFileWithRows(writer, iDownload, jobId);
+            }
+            if (writer.isTruncated()) {
+                LOGGER.info("download {} truncated, rows:{} bytes:{}", jobId, writer.getRows(), writer.getBytes());
             }
+        } catch (IOException e) {
+            // 写入失败说明客户端已断开, 停止读取并关闭下载器
+            LOGGER.warn("download {} cancelled: {}", jobId, e.getMessage());
         } catch (Exception e) {
             LOGGER.error("download error，{}", jobId, e);
-            if (e instanceof FileNotFoundException) {
-                writeFileWithEngineLog(response, jobId);
-            } else {
-                try (OutputStream os = response.getOutputStream(); BufferedOutputStream bos = new BufferedOutputStream(os)) {
-                    bos.write(String.format("下载文件异常:", e.getMessage()).getBytes());
-                } catch (Exception e1) {
-                    LOGGER.error("download error，{}", jobId, e1);
-                }
-            }
         } finally {
             if (iDownload != null) {
                 try {
@@ -132,61 +137,102 @@ public class DevelopDownloadService {
     }
 
     /**
-     * 输出engine提供的日志
-     *
-     * @param response
-     * @param jobId
+     * 逐行输出下载器的数据, 同一时间只持有一行
+     * 读取异常时响应头已经发出, 在内容末尾写入异常信息; 读取第一行前日志文件不存在时输出 engine 提供的日志
      */
-    private void writeFileWithEngineLog(HttpServletResponse response, String jobId) {
-        //hdfs没有日志就下载engine里的日志
-        try (OutputStream os = response.getOutputStream(); BufferedOutputStream bos = new BufferedOutputStream(os)) {
-            String log = getLog(jobId);
-            if (StringUtils.isNotBlank(log)) {
-                bos.write(log.getBytes());
+    private void writeFileWithRows(DownloadWriter writer, IDownload iDownload, String jobId) throws IOException {
+        boolean header = false;
+        try {
+            while (!iDownload.reachedEnd()) {
+                Object row = iDownload.readNext();
+                if (!header && (row instanceof Collection || row instanceof Object[])) {
+                    // 结果数据第一行输出字段名
+                    writer.writeRow(getMetaInfo(iDownload));
+                }
+                header = true;
+                if (!writer.writeRow(row)) {
+                    break;
+                }
             }
-        }catch (Exception e) {
-            LOGGER.error("下载engineLog异常，{}", e);
+        } catch (RuntimeException e) {
+            if (writer.getRows() == 0 && ExceptionUtils.indexOfThrowable(e, FileNotFoundException.class) >= 0) {
+                LOGGER.warn("download {} file not found, write engine log", jobId);
+                writeFileWithEngineLog(writer, jobId);
+                return;
+            }
+            LOGGER.error("download error，{}", jobId, e);
+            writer.writeText(String.format("%n下载文件异常:%s", e.getMessage()));
+        }
+    }
+
+    private List<String> getMetaInfo(IDownload iDownload) {
+        try {
+            return iDownload.getMetaInfo();
+        } catch (Exception e) {
+            throw new RdosDefineException("下载器getMetaInfo失败", e);
         }
     }
 
     /**
-     * 获取log
+     * 输出engine提供的日志, 运行日志逐个分片输出
      *
+     * @param writer
      * @param jobId
      */
-    private String getLog(String jobId){
-        StringBuilder log = new StringBuilder();
+    private void writeFileWithEngineLog(DownloadWriter writer, String jobId) throws IOException {
         //hdfs没有日志就下载engine里的日志
-        if (StringUtils.isNotBlank(jobId)) {
-            ScheduleJobExpand scheduleJobExpand = jobExpandService.selectOneByJobId(jobId);
-            if (Objects.nonNull(scheduleJobExpand)) {
-                log.append("=====================提交日志========================\n");
-                if (StringUtils.isNotBlank(scheduleJobExpand.getLogInfo())) {
-                    log.append(scheduleJobExpand.getLogInfo().replace("\\n", "\n").replace("\\t", " "));
-                }
-                log.append("\n\n\n");
-                if (StringUtils.isNotBlank(scheduleJobExpand.getEngineLog())) {
-                    log.append("=====================运行日志========================\n");
-                    log.append(scheduleJobExpand.getEngineLog().replace("\\n", "\n").replace("\\t", " "));
-                    log.append("\n\n\n");
+        if (StringUtils.isBlank(jobId)) {
+            return;
+        }
+        ScheduleJobExpand scheduleJobExpand = jobExpandService.selectOneByJobId(jobId);
+        if (Objects.isNull(scheduleJobExpand)) {
+            return;
+        }
+        writer.writeText("=====================提交日志========================\n");
+        writer.writeEscapedText(scheduleJobExpand.getLogInfo());
+        writer.writeText("\n\n\n");
+
+        AtomicBoolean started = new AtomicBoolean(false);
+        try {
+            boolean exists = scheduleJobEngineLogService.forEachChunk(jobId, chunk -> {
+                try {
+                    return writeEngineLogChunk(writer, chunk, started);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
                 }
+            });
+            // 没有分片记录的历史实例读取 engine_log 字段
+            if (!exists) {
+                writeEngineLogChunk(writer, scheduleJobExpand.getEngineLog(), started);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        if (started.get()) {
+            writer.writeText("\n\n\n");
+        }
+    }
+
+    private boolean writeEngineLogChunk(DownloadWriter writer, String chunk, AtomicBoolean started) throws IOException {
+        if (!started.get()) {
+            if (StringUtils.isBlank(chunk)) {
+                return true;
             }
+            started.set(true);
+            writer.writeText("=====================运行日志========================\n");
         }
-        return log.toString();
+        return writer.writeEscapedText(chunk);
     }
 
     /**
      * 输出数据同步任务日志
-     * @param response
+     * @param writer
      * @param downloadInvoke
      */
-    private void writeFileWithSyncLog(HttpServletResponse response, IDownload downloadInvoke) {
-        try (OutputStream os = response.getOutputStream(); BufferedOutputStream bos = new BufferedOutputStream(os)) {
-            String logInfo = ((SyncDownload) downloadInvoke).getLogInfo()
-                    .replace("\\n\"","\n").replace("\\n\\t","\n");
-            bos.write(logInfo.getBytes());
-        } catch (Exception e) {
-            LOGGER.error("下载数据同步任务运行日志异常，{}", e);
+    private void writeFileWithSyncLog(DownloadWriter writer, IDownload downloadInvoke) throws IOException {
+        String logInfo = ((SyncDownload) downloadInvoke).getLogInfo();
+        if (logInfo != null) {
+            writer.writeText(logInfo.replace("\\n\"","\n").replace("\\n\\t","\n"));
         }
     }
 
@@ -11,6 +11,7 @@ import com.dtstack.taier.dao.mapper.DevelopTaskMapper;
 import com.dtstack.taier.develop.dto.devlop.FlinkServerLogVO;
 import com.dtstack.taier.develop.dto.devlop.ServerLogsVO;
 import com.dtstack.taier.scheduler.service.ScheduleActionService;
+import com.dtstack.taier.scheduler.service.ScheduleJobEngineLogService;
 import com.dtstack.taier.scheduler.service.ScheduleJobExpandService;
 import com.dtstack.taier.scheduler.vo.action.ActionRetryLogVO;
 import org.apache.commons.collections.CollectionUtils;
@@ -38,6 +39,9 @@ public class FlinkServerLogService {
     @Autowired
     private ScheduleJobExpandService scheduleJobExpandService;
 
+    @Autowired
+    private ScheduleJobEngineLogService scheduleJobEngineLogService;
+
     @Autowired
     private FlinkRuntimeLogService flinkRuntimeLogService;
 
@@ -110,7 +114,8 @@ public class FlinkServerLogService {
         scheduleJobExpand.setLogInfo(logInfo);
         if (task.getTaskType().equals(EScheduleJobType.DATA_ACQUISITION.getVal())) {
             if (StringUtils.isNotEmpty(scheduleJobExpand.getJobId())) {
-                String engineLog = scheduleJobExpand.getEngineLog() == null ? "" : scheduleJobExpand.getEngineLog() + "\n";
+                String engineLog = scheduleJobEngineLogService.preview(scheduleJobExpand.getJobId(), scheduleJobExpand.getEngineLog());
+                engineLog = engineLog == null ? "" : engineLog + "\n";
                 //yarn日志下载
                 downLoadUrl = String.format(DOWNLOAD_LOG, task.getJobId(), task.getTaskType(), taskManagerId);
                 scheduleJobExpand.setEngineLog(engineLog + flinkRuntimeLogService.loadJobLogWithEngineJob(logsVO.getTenantId(), task.getTaskType(), scheduleJob.getApplicationId(), null, taskManagerId));
@@ -128,7 +133,7 @@ public class FlinkServerLogService {
     public String getFailoverLogsByTaskId(ServerLogsVO logsVO) {
         Task task = developTaskMapper.selectById(logsVO.getTaskId());
         ScheduleJobExpand  scheduleJobExpand = scheduleJobExpandService.getByJobId(task.getJobId());
-        return scheduleJobExpand.getEngineLog();
+        return scheduleJobEngineLogService.preview(task.getJobId(), scheduleJobExpand.getEngineLog());
     }
 
 }
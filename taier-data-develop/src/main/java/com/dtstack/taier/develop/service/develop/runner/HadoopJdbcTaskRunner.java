@@ -256,7 +256,7 @@ public abstract class HadoopJdbcTaskRunner extends JdbcTaskRunner {
     public String scheduleRunLog(String jobId) {
         ScheduleJobExpand jobExpand = jobExpandService.selectOneByJobId(jobId);
         String logInfo = jobExpand.getLogInfo();
-        String engineLog = jobExpand.getEngineLog();
+        String engineLog = scheduleJobEngineLogService.preview(jobId, jobExpand.getEngineLog());
 
         StringBuilder logBuild = new StringBuilder();
         if (StringUtils.isNotBlank(logInfo)) {
@@ -26,6 +26,7 @@ import com.dtstack.taier.pluginapi.enums.TaskStatus;
 import com.dtstack.taier.scheduler.service.ClusterService;
 import com.dtstack.taier.scheduler.service.ComponentService;
 import com.dtstack.taier.scheduler.service.ScheduleActionService;
+import com.dtstack.taier.scheduler.service.ScheduleJobEngineLogService;
 import com.google.common.collect.Lists;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -60,6 +61,9 @@ public abstract class JdbcTaskRunner implements ITaskRunner {
     @Autowired
     protected JobExpandService jobExpandService;
 
+    @Autowired
+    protected ScheduleJobEngineLogService scheduleJobEngineLogService;
+
     @Autowired
     protected DevelopTaskService developTaskService;
 
@@ -20,6 +20,7 @@ import com.dtstack.taier.scheduler.enums.RestartType;
 import com.dtstack.taier.scheduler.jobdealer.JobStopDealer;
 import com.dtstack.taier.scheduler.server.action.restart.RestartJobRunnable;
 import com.dtstack.taier.scheduler.server.pipeline.JobParamReplace;
+import com.dtstack.taier.scheduler.service.ScheduleJobEngineLogService;
 import com.dtstack.taier.scheduler.service.ScheduleTaskShadeInfoService;
 import org.apache.commons.collections.CollectionUtils;
 import org.slf4j.Logger;
@@ -60,6 +61,9 @@ public class ActionService {
     @Autowired
     private JobExpandService jobExpandService;
 
+    @Autowired
+    private ScheduleJobEngineLogService scheduleJobEngineLogService;
+
     @Autowired
     private EnvironmentContext environmentContext;
 
@@ -186,7 +190,7 @@ public class ActionService {
 
             if (scheduleJobExpand != null) {
                 jobLogVO.setLogInfo(scheduleJobExpand.getLogInfo());
-                jobLogVO.setEngineLog(scheduleJobExpand.getEngineLog());
+                jobLogVO.setEngineLog(scheduleJobEngineLogService.preview(jobId, scheduleJobExpand.getEngineLog()));
             }
         }
 
@@ -39,6 +39,8 @@ import com.dtstack.taier.scheduler.enums.FillDataTypeEnum;
 import com.dtstack.taier.scheduler.enums.FillGeneratStatusEnum;
 import com.dtstack.taier.scheduler.enums.FillJobTypeEnum;
 import com.dtstack.taier.scheduler.enums.JobPhaseStatus;
+import com.dtstack.taier.scheduler.event.ScheduleJobBatchEvent;
+import com.dtstack.taier.scheduler.event.ScheduleJobEventPublisher;
 import com.dtstack.taier.scheduler.server.action.fill.FillDataRunnable;
 import com.dtstack.taier.scheduler.server.action.fill.FillDataThreadPoolExecutor;
 import com.google.common.collect.Lists;
@@ -663,6 +665,7 @@ public class JobService extends ServiceImpl<ScheduleJobMapper, ScheduleJob> {
         updateScheduleJob.setPhaseStatus(JobPhaseStatus.CREATE.getCode());
         getBaseMapper().update(updateScheduleJob, Wrappers.lambdaQuery(ScheduleJob.class)
                 .eq(ScheduleJob::getJobId, jobId));
+        ScheduleJobEventPublisher.getInstance().publishBatchEvent(new ScheduleJobBatchEvent(jobId, TaskStatus.UNSUBMIT.getStatus()));
         LOGGER.info("jobId:{} update job status:{}.", jobId, TaskStatus.UNSUBMIT.getStatus());
         return true;
     }
@@ -0,0 +1,338 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dtstack.taier.develop.utils.develop.common;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 下载内容的流式输出
+ * 字符先放入复用的字符缓冲区, 再按 UTF-8 编码到复用的字节缓冲区后直接写入输出流, 内存占用与下载内容大小无关.
+ * 写入输出流是阻塞的, 客户端读取慢时读取端同步等待; 客户端断开时写入抛出 IOException, 调用方据此停止读取.
+ * 行数和字节数(压缩前)达到上限后停止写入, 字节数按缓冲区粒度判断
+ */
+public class DownloadWriter implements Closeable {
+
+    private static final int CHAR_BUFFER_SIZE = 8192;
+
+    private static final int BYTE_BUFFER_SIZE = 3 * CHAR_BUFFER_SIZE;
+
+    public enum Format {
+
+        /**
+         * 字段包含分隔符、引号或换行时用双引号包裹, 引号转义为两个引号
+         */
+        CSV(',', "\r\n"),
+
+        /**
+         * 字段中的制表符、换行和反斜杠转义为 \t \n \r \\
+         */
+        TSV('\t', "\n");
+
+        private final char delimiter;
+
+        private final String lineSeparator;
+
+        Format(char delimiter, String lineSeparator) {
+            this.delimiter = delimiter;
+            this.lineSeparator = lineSeparator;
+        }
+
+        public static Format of(String name) {
+            for (Format format : values()) {
+                if (format.name().equalsIgnoreCase(name)) {
+                    return format;
+                }
+            }
+            return CSV;
+        }
+    }
+
+    private final OutputStream out;
+
+    private final GZIPOutputStream gzipOut;
+
+    private final Format format;
+
+    private final long maxRows;
+
+    private final long maxBytes;
+
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+    private final CharBuffer charBuffer = CharBuffer.allocate(CHAR_BUFFER_SIZE);
+
+    private final ByteBuffer byteBuffer = ByteBuffer.allocate(BYTE_BUFFER_SIZE);
+
+    private long rows;
+
+    private long bytes;
+
+    private boolean truncated;
+
+    /**
+     * 上一段转义文本以反斜杠结尾
+     */
+    private boolean pendingBackslash;
+
+    /**
+     * @param out      输出流
+     * @param format   行数据格式
+     * @param gzip     是否 gzip 压缩
+     * @param maxRows  最大行数, 小于等于 0 时不限制
+     * @param maxBytes 最大字节数(压缩前), 小于等于 0 时不限制
+     */
+    public DownloadWriter(OutputStream out, Format format, boolean gzip, long maxRows, long maxBytes) throws IOException {
+        this.gzipOut = gzip ? new GZIPOutputStream(out, BYTE_BUFFER_SIZE) : null;
+        this.out = gzip ? gzipOut : out;
+        this.format = format;
+        this.maxRows = maxRows;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * 写入一行数据, 集合和数组按字段输出并转义, 其他对象原样输出(日志行)
+     *
+     * @return false 已达到上限, 该行未写入
+     */
+    public boolean writeRow(Object row) throws IOException {
+        if (truncated || (maxRows > 0 && rows >= maxRows)) {
+            truncated = true;
+            return false;
+        }
+        appendPendingBackslash();
+        if (row instanceof Collection) {
+            writeFields(((Collection<?>) row).toArray());
+        } else if (row instanceof Object[]) {
+            writeFields((Object[]) row);
+        } else if (row != null) {
+            append(row.toString());
+        }
+        rows++;
+        return !truncated;
+    }
+
+    /**
+     * 原样写入文本
+     *
+     * @return false 已达到上限
+     */
+    public boolean writeText(String text) throws IOException {
+        if (text != null) {
+            appendPendingBackslash();
+            append(text);
+        }
+        return !truncated;
+    }
+
+    /**
+     * 写入数据库中转义存储的日志: "\n" 还原为换行, "\t" 替换为空格, 转义符跨越两次调用时同样处理
+     *
+     * @return false 已达到上限
+     */
+    public boolean writeEscapedText(String text) throws IOException {
+        if (text == null) {
+            return !truncated;
+        }
+        for (int i = 0; i < text.length() && !truncated; i++) {
+            char c = text.charAt(i);
+            if (pendingBackslash) {
+                pendingBackslash = false;
+                if (c == 'n') {
+                    append('\n');
+                } else if (c == 't') {
+                    append(' ');
+                } else if (c == '\\') {
+                    append('\\');
+                    pendingBackslash = true;
+                } else {
+                    append('\\');
+                    append(c);
+                }
+            } else if (c == '\\') {
+                pendingBackslash = true;
+            } else {
+                append(c);
+            }
+        }
+        return !truncated;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getBytes() {
+        return bytes + byteBuffer.position();
+    }
+
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            appendPendingBackslash();
+            encode(true);
+            drain();
+            if (gzipOut != null) {
+                gzipOut.finish();
+            }
+            out.flush();
+        } finally {
+            out.close();
+        }
+    }
+
+    private void appendPendingBackslash() throws IOException {
+        if (pendingBackslash) {
+            pendingBackslash = false;
+            append('\\');
+        }
+    }
+
+    private void writeFields(Object[] fields) throws IOException {
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                append(format.delimiter);
+            }
+            if (fields[i] != null) {
+                writeField(fields[i].toString());
+            }
+        }
+        append(format.lineSeparator);
+    }
+
+    private void writeField(String field) throws IOException {
+        if (format == Format.CSV) {
+            if (!needQuote(field)) {
+                append(field);
+                return;
+            }
+            append('"');
+            for (int i = 0; i < field.length(); i++) {
+                char c = field.charAt(i);
+                if (c == '"') {
+                    append('"');
+                }
+                append(c);
+            }
+            append('"');
+            return;
+        }
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            switch (c) {
+                case '\t':
+                    append("\\t");
+                    break;
+                case '\n':
+                    append("\\n");
+                    break;
+                case '\r':
+                    append("\\r");
+                    break;
+                case '\\':
+                    append("\\\\");
+                    break;
+                default:
+                    append(c);
+            }
+        }
+    }
+
+    private boolean needQuote(String field) {
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c == format.delimiter || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void append(char c) throws IOException {
+        if (!charBuffer.hasRemaining()) {
+            encode(false);
+        }
+        if (!truncated) {
+            charBuffer.put(c);
+        }
+    }
+
+    private void append(String text) throws IOException {
+        int pos = 0;
+        while (pos < text.length() && !truncated) {
+            if (!charBuffer.hasRemaining()) {
+                encode(false);
+                continue;
+            }
+            int end = Math.min(text.length(), pos + charBuffer.remaining());
+            charBuffer.put(text, pos, end);
+            pos = end;
+        }
+    }
+
+    /**
+     * 编码字符缓冲区中的内容, 字节缓冲区满时写入输出流. 未成对的代理字符留在字符缓冲区等待下一次编码
+     */
+    private void encode(boolean endOfInput) throws IOException {
+        charBuffer.flip();
+        while (true) {
+            CoderResult result = encoder.encode(charBuffer, byteBuffer, endOfInput);
+            if (result.isOverflow()) {
+                drain();
+            } else {
+                break;
+            }
+        }
+        if (endOfInput) {
+            while (encoder.flush(byteBuffer).isOverflow()) {
+                drain();
+            }
+            encoder.reset();
+        }
+        charBuffer.compact();
+        if (maxBytes > 0 && getBytes() >= maxBytes) {
+            truncated = true;
+        }
+    }
+
+    private void drain() throws IOException {
+        byteBuffer.flip();
+        int length = byteBuffer.remaining();
+        if (length > 0) {
+            out.write(byteBuffer.array(), byteBuffer.arrayOffset() + byteBuffer.position(), length);
+            bytes += length;
+        }
+        byteBuffer.clear();
+    }
+}
@@ -16,6 +16,12 @@ public class DevelopDownloadJobLogVO extends DtInsightAuthParam {
     @ApiModelProperty(value = "行数", example = "1000")
     private Integer byteNum;
 
+    @ApiModelProperty(value = "行数据格式 csv/tsv", example = "csv")
+    private String format;
+
+    @ApiModelProperty(value = "是否 gzip 压缩", example = "false")
+    private Boolean compress;
+
     public String getJobId() {
         return jobId;
     }
@@ -39,4 +45,20 @@ public class DevelopDownloadJobLogVO extends DtInsightAuthParam {
     public void setByteNum(Integer byteNum) {
         this.byteNum = byteNum;
     }
+
+    public String getFormat() {
+        return format;
+    }
+
+    public void setFormat(String format) {
+        this.format = format;
+    }
+
+    public Boolean getCompress() {
+        return compress;
+    }
+
+    public void setCompress(Boolean compress) {
+        this.compress = compress;
+    }
 }
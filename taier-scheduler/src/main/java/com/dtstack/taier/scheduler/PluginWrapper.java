@@ -51,18 +51,17 @@ public class PluginWrapper {
         pluginInfo.put(DEPLOY_MODEL,deployMode.getType());
         return pluginInfo;
     }
-    public Map<String, Object> wrapperPluginInfo(Integer taskType,String componentVersion, Long tenantId,Integer deployMode) {
-        String componentVersionValue = scheduleDictService.convertVersionNameToValue(componentVersion, taskType);
-        return clusterService.pluginInfoJSON(tenantId, taskType, deployMode, componentVersionValue);
+    public String wrapperPluginInfo(Integer taskType, String componentVersion, Long tenantId, Integer deployMode) {
+        return clusterService.getCachePluginInfo(tenantId, taskType, deployMode, componentVersion);
     }
 
     public void wrapperJobClient(JobClient jobClient) {
-        Map<String, Object> pluginInfo = wrapperPluginInfo(jobClient.getTaskType(), jobClient.getTaskParams(), jobClient.getComputeType().getType(),
-                jobClient.getComponentVersion(), jobClient.getTenantId());
-        jobClient.setPluginInfo(JSONObject.toJSONString(pluginInfo));
-        jobClient.setJobType(EJobType.getEjobType(EScheduleJobType.getByTaskType(jobClient.getTaskType()).getEngineJobType()));
-        if (pluginInfo.containsKey(DEPLOY_MODEL)) {
-            jobClient.setDeployMode((Integer) pluginInfo.get(DEPLOY_MODEL));
+        EDeployMode deployMode = EDeployMode.PERJOB;
+        if (EScheduleJobType.SYNC.getType().equals(jobClient.getTaskType())) {
+            deployMode = TaskParamsUtils.parseDeployTypeByTaskParams(jobClient.getTaskParams(), jobClient.getComputeType().getType());
         }
+        jobClient.setPluginInfo(clusterService.getCachePluginInfo(jobClient.getTenantId(), jobClient.getTaskType(), deployMode.getType(), jobClient.getComponentVersion()));
+        jobClient.setJobType(EJobType.getEjobType(EScheduleJobType.getByTaskType(jobClient.getTaskType()).getEngineJobType()));
+        jobClient.setDeployMode(deployMode.getType());
     }
 }
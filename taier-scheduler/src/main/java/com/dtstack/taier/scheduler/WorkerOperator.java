@@ -25,15 +25,15 @@ import com.dtstack.taier.pluginapi.JobClient;
 import com.dtstack.taier.pluginapi.JobIdentifier;
 import com.dtstack.taier.pluginapi.enums.TaskStatus;
 import com.dtstack.taier.pluginapi.pojo.*;
-import com.dtstack.taier.pluginapi.util.PublicUtil;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -62,7 +62,7 @@ public class WorkerOperator {
     }
 
     private String getPluginInfo(JobIdentifier jobIdentifier) {
-        if (null != jobIdentifier) {
+        if (null != jobIdentifier && StringUtils.isNotBlank(jobIdentifier.getPluginInfo())) {
             JSONObject info = JSONObject.parseObject(jobIdentifier.getPluginInfo());
             if (null != info && !info.isEmpty()) {
                 return jobIdentifier.getPluginInfo();
@@ -73,16 +73,7 @@ public class WorkerOperator {
             LOGGER.error("pluginInfo params lost {}", jobIdentifier);
             throw new RdosDefineException("pluginInfo params lost");
         }
-        Map<String, Object> info = pluginWrapper.wrapperPluginInfo(jobIdentifier.getTaskType(), jobIdentifier.getComponentVersion(), jobIdentifier.getTenantId(), jobIdentifier.getDeployMode());
-        if(null == info){
-            return null;
-        }
-        try {
-            return PublicUtil.objToString(info);
-        } catch (IOException e) {
-            LOGGER.error("{} buildPluginInfo failed!", jobIdentifier.getJobId(), e);
-        }
-        return null;
+        return pluginWrapper.wrapperPluginInfo(jobIdentifier.getTaskType(), jobIdentifier.getComponentVersion(), jobIdentifier.getTenantId(), jobIdentifier.getDeployMode());
     }
 
     public JudgeResult judgeSlots(JobClient jobClient) throws Exception {
@@ -103,6 +94,52 @@ public class WorkerOperator {
         return status;
     }
 
+    /**
+     * 批量获取任务状态, 先按插件信息分组, 每组只解析一次插件信息并向插件发起一次批量查询
+     *
+     * @param jobIdentifiers 任务标识
+     * @return key: jobId, value: 任务状态; 插件信息解析失败的任务不会出现在结果中
+     */
+    public Map<String, TaskStatus> getBatchJobStatus(List<JobIdentifier> jobIdentifiers) {
+        Map<String, List<JobIdentifier>> paramGroups = Maps.newHashMap();
+        for (JobIdentifier jobIdentifier : jobIdentifiers) {
+            paramGroups.computeIfAbsent(getPluginGroupKey(jobIdentifier), k -> new ArrayList<>()).add(jobIdentifier);
+        }
+
+        Map<String, List<JobIdentifier>> pluginGroups = Maps.newHashMap();
+        for (List<JobIdentifier> group : paramGroups.values()) {
+            try {
+                String pluginInfo = this.getPluginInfo(group.get(0));
+                if (null == pluginInfo) {
+                    continue;
+                }
+                pluginGroups.computeIfAbsent(pluginInfo, k -> new ArrayList<>()).addAll(group);
+            } catch (Exception e) {
+                LOGGER.error("{} getBatchJobStatus buildPluginInfo failed!", group.get(0).getJobId(), e);
+            }
+        }
+
+        Map<String, TaskStatus> statusMap = Maps.newHashMapWithExpectedSize(jobIdentifiers.size());
+        pluginGroups.forEach((pluginInfo, group) -> {
+            Map<String, TaskStatus> groupStatus = clientOperator.getBatchJobStatus(pluginInfo, group);
+            for (JobIdentifier jobIdentifier : group) {
+                TaskStatus status = groupStatus.get(jobIdentifier.getJobId());
+                statusMap.put(jobIdentifier.getJobId(), null == status ? TaskStatus.NOTFOUND : status);
+            }
+        });
+        return statusMap;
+    }
+
+    private String getPluginGroupKey(JobIdentifier jobIdentifier) {
+        if (StringUtils.isNotBlank(jobIdentifier.getPluginInfo())) {
+            JSONObject info = JSONObject.parseObject(jobIdentifier.getPluginInfo());
+            if (null != info && !info.isEmpty()) {
+                return jobIdentifier.getPluginInfo();
+            }
+        }
+        return jobIdentifier.getTenantId() + "_" + jobIdentifier.getTaskType() + "_" + jobIdentifier.getDeployMode() + "_" + jobIdentifier.getComponentVersion();
+    }
+
     public String getEngineLog(JobIdentifier jobIdentifier) {
         String engineLog = clientOperator.getEngineLog(this.getPluginInfo(jobIdentifier), jobIdentifier);
         if (null == engineLog) {
@@ -132,6 +169,35 @@ public class WorkerOperator {
         return clientOperator.stopJob(jobClient);
     }
 
+    /**
+     * 批量停止任务, 按插件信息分组后每组向插件发起一次批量停止
+     *
+     * @param jobClients 任务
+     * @return key: jobId, value: 停止结果; 插件信息解析失败或所在批次停止失败的任务返回可重试的失败结果
+     */
+    public Map<String, JobResult> stopJobs(List<JobClient> jobClients) {
+        Map<String, JobResult> resultMap = Maps.newHashMapWithExpectedSize(jobClients.size());
+        Map<String, List<JobClient>> pluginGroups = Maps.newHashMap();
+        for (JobClient jobClient : jobClients) {
+            try {
+                this.buildPluginInfo(jobClient);
+                pluginGroups.computeIfAbsent(jobClient.getPluginInfo(), k -> new ArrayList<>()).add(jobClient);
+            } catch (Exception e) {
+                resultMap.put(jobClient.getJobId(), JobResult.createErrorResult(e));
+            }
+        }
+        pluginGroups.forEach((pluginInfo, group) -> {
+            try {
+                resultMap.putAll(clientOperator.stopJobs(pluginInfo, group));
+            } catch (Exception e) {
+                // 批次失败时逐个返回可重试结果, 由调用方按任务累计重试次数
+                LOGGER.error("stop jobs error, size:{}", group.size(), e);
+                group.forEach(jobClient -> resultMap.put(jobClient.getJobId(), JobResult.createErrorResult(e)));
+            }
+        });
+        return resultMap;
+    }
+
     public ComponentTestResult testConnect(String pluginInfo) {
         ComponentTestResult testResult = clientOperator.testConnect(pluginInfo);
         if (null == testResult) {
@@ -18,7 +18,9 @@
 
 package com.dtstack.taier.scheduler.config;
 
+import com.dtstack.taier.common.client.ClientOperation;
 import com.dtstack.taier.common.client.ClientOperator;
+import com.dtstack.taier.common.client.ClientProxyConfig;
 import com.dtstack.taier.common.env.EnvironmentContext;
 import com.dtstack.taier.pluginapi.sftp.SftpFileManage;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -37,7 +39,18 @@ public class MasterServerBeanConfig {
 
     @Bean
     public ClientOperator clientOperator(){
-        return ClientOperator.getInstance(environmentContext.getPluginPath());
+        ClientProxyConfig proxyConfig = new ClientProxyConfig()
+                .setThreads(ClientOperation.SUBMIT, environmentContext.getPluginClientSubmitThreads())
+                .setTimeout(ClientOperation.SUBMIT, environmentContext.getPluginClientSubmitTimeout())
+                .setThreads(ClientOperation.STATUS, environmentContext.getPluginClientStatusThreads())
+                .setTimeout(ClientOperation.STATUS, environmentContext.getPluginClientStatusTimeout())
+                .setThreads(ClientOperation.LOG, environmentContext.getPluginClientLogThreads())
+                .setTimeout(ClientOperation.LOG, environmentContext.getPluginClientLogTimeout())
+                .setThreads(ClientOperation.CANCEL, environmentContext.getPluginClientCancelThreads())
+                .setTimeout(ClientOperation.CANCEL, environmentContext.getPluginClientCancelTimeout())
+                .setThreads(ClientOperation.JUDGE, environmentContext.getPluginClientJudgeThreads())
+                .setTimeout(ClientOperation.JUDGE, environmentContext.getPluginClientJudgeTimeout());
+        return ClientOperator.getInstance(environmentContext.getPluginPath(), proxyConfig);
     }
 
     @Bean
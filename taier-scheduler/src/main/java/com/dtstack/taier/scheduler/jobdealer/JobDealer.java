@@ -40,6 +40,7 @@ import com.dtstack.taier.scheduler.jobdealer.resource.JobComputeResourcePlain;
 import com.dtstack.taier.scheduler.server.queue.GroupInfo;
 import com.dtstack.taier.scheduler.server.queue.GroupPriorityQueue;
 import com.dtstack.taier.scheduler.service.ScheduleJobCacheService;
+import com.dtstack.taier.scheduler.service.ScheduleJobEngineLogService;
 import com.dtstack.taier.scheduler.service.ScheduleJobService;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
@@ -88,6 +89,9 @@ public class JobDealer implements InitializingBean, ApplicationContextAware {
     @Autowired
     private ScheduleJobService scheduleJobService;
 
+    @Autowired
+    private ScheduleJobEngineLogService scheduleJobEngineLogService;
+
     @Autowired
     private EnvironmentContext environmentContext;
 
@@ -202,6 +206,7 @@ public class JobDealer implements InitializingBean, ApplicationContextAware {
             boolean rs = groupPriorityQueue.add(jobClient, judgeBlock, insert);
             if (!rs) {
                 saveCache(jobClient, jobResource, EJobCacheStage.DB.getStage(), insert);
+                groupPriorityQueue.onSaveToDb();
             }
             return rs;
         } catch (Exception e) {
@@ -232,6 +237,7 @@ public class JobDealer implements InitializingBean, ApplicationContextAware {
     }
 
     public void saveCache(JobClient jobClient, String jobResource, int stage, boolean insert) {
+        shardCache.registerJobResource(jobClient.getJobId(), jobResource);
         String nodeAddress = environmentContext.getLocalAddress();
         if (insert) {
             scheduleJobCacheService.insert(jobClient.getJobId(), jobClient.getComputeType().getType(), stage, jobClient.getParamAction().toString(), nodeAddress, jobClient.getJobName(), jobClient.getPriority(), jobResource, jobClient.getTenantId());
@@ -270,7 +276,7 @@ public class JobDealer implements InitializingBean, ApplicationContextAware {
             //从engine获取log
             engineLog = workerOperator.getEngineLog(jobIdentifier);
             if (engineLog != null) {
-                scheduleJobService.updateExpandByJobId(jobId,engineLog,null);
+                scheduleJobEngineLogService.save(jobId, engineLog);
             }
         } catch (Throwable e) {
             LOGGER.error("getAndUpdateEngineLog error jobId:{} error:.", jobId, e);
@@ -284,7 +290,7 @@ public class JobDealer implements InitializingBean, ApplicationContextAware {
      * @param jobId
      */
     public void dealSubmitFailJob(String jobId, String errorMsg) {
-        scheduleJobCacheService.deleteByJobId(jobId);
+        shardCache.deleteJobCache(jobId);
         scheduleJobService.jobFail(jobId, TaskStatus.SUBMITFAILD.getStatus(), GenerateErrorMsgUtil.generateErrorMsg(errorMsg));
         LOGGER.info("jobId:{} update job status:{}, job is finished.", jobId, TaskStatus.SUBMITFAILD.getStatus());
     }
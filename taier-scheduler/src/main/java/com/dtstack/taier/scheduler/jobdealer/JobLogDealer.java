@@ -8,7 +8,7 @@ import com.dtstack.taier.pluginapi.exception.ExceptionUtil;
 import com.dtstack.taier.scheduler.WorkerOperator;
 import com.dtstack.taier.scheduler.enums.EJobLogType;
 import com.dtstack.taier.scheduler.jobdealer.bo.JobLogInfo;
-import com.dtstack.taier.scheduler.service.ScheduleJobExpandService;
+import com.dtstack.taier.scheduler.service.ScheduleJobEngineLogService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.InitializingBean;
@@ -17,6 +17,7 @@ import org.springframework.stereotype.Component;
 
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
@@ -29,11 +30,16 @@ public class JobLogDealer implements InitializingBean, Runnable {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(JobLogDealer.class);
 
+    /**
+     * 获取日志的线程池已满时, 延后重新获取的时间
+     */
+    private static final long REJECTED_RETRY_DELAY = 10000L;
+
     @Autowired
     private WorkerOperator workerOperator;
 
     @Autowired
-    private ScheduleJobExpandService scheduleJobExpandService;
+    private ScheduleJobEngineLogService scheduleJobEngineLogService;
 
     @Autowired
     private EnvironmentContext environmentContext;
@@ -53,7 +59,15 @@ public class JobLogDealer implements InitializingBean, Runnable {
                 EJobLogType logType = taskInfo.getLogType();
                 switch (logType) {
                     case FINISH_LOG:
-                        logGetPool.execute(() -> updateJobEngineLog(taskInfo));
+                        try {
+                            logGetPool.execute(() -> updateJobEngineLog(taskInfo));
+                        } catch (RejectedExecutionException e) {
+                            // 线程池已满时放回延时队列稍后获取, 延时队列也已满时在当前线程获取
+                            JobLogInfo retryInfo = new JobLogInfo(taskInfo.getJobId(), taskInfo.getJobIdentifier(), taskInfo.getComputeType(), REJECTED_RETRY_DELAY, logType);
+                            if (!delayBlockingQueue.tryPut(retryInfo)) {
+                                updateJobEngineLog(taskInfo);
+                            }
+                        }
                 }
 
             } catch (Exception e) {
@@ -82,12 +96,12 @@ public class JobLogDealer implements InitializingBean, Runnable {
         try {
             String jobLog = workerOperator.getEngineLog(jobIdentifier);
             if (jobLog != null) {
-                scheduleJobExpandService.updateEngineLog(jobId, jobLog);
+                scheduleJobEngineLogService.save(jobId, jobLog);
             }
         } catch (Throwable e) {
             String errorLog = ExceptionUtil.getErrorMessage(e);
             LOGGER.error("update JobEngine Log error jobId:{} ,error info {}..", jobId, errorLog);
-            scheduleJobExpandService.updateEngineLog(jobId, errorLog);
+            scheduleJobEngineLogService.save(jobId, errorLog);
         }
     }
 
@@ -43,6 +43,7 @@ import com.dtstack.taier.scheduler.jobdealer.cache.ShardCache;
 import com.dtstack.taier.scheduler.jobdealer.cache.ShardManager;
 import com.dtstack.taier.scheduler.service.ScheduleJobCacheService;
 import com.dtstack.taier.scheduler.service.ScheduleJobService;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import org.apache.commons.collections.MapUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -61,6 +62,7 @@ import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
@@ -102,6 +104,8 @@ public class JobStatusDealer implements Runnable {
 
     private int taskStatusDealerPoolSize;
 
+    private int taskStatusBatchSize;
+
     /**
      * 记录job 连续某个状态的频次
      */
@@ -121,26 +125,29 @@ public class JobStatusDealer implements Runnable {
                 return;
             }
 
-            jobs = jobs.stream().filter(job -> !TaskStatus.needClean(job.getValue())).collect(Collectors.toList());
+            List<String> jobIds = jobs.stream()
+                    .filter(job -> !TaskStatus.needClean(job.getValue()))
+                    .map(Map.Entry::getKey)
+                    .collect(Collectors.toList());
 
             Semaphore buildSemaphore = new Semaphore(taskStatusDealerPoolSize);
-            for (Map.Entry<String, Integer> job : jobs) {
+            for (List<String> partJobIds : Lists.partition(jobIds, taskStatusBatchSize)) {
                 try {
                     buildSemaphore.acquire();
                     taskStatusPool.submit(() -> {
                         try {
                             if (LOGGER.isDebugEnabled()) {
-                                LOGGER.debug("jobId:{} before dealJob status:{}", job.getKey(), job.getValue());
+                                LOGGER.debug("jobIds:{} before dealJobs", partJobIds);
                             }
-                            dealJob(job.getKey());
+                            dealJobs(partJobIds);
                         } catch (Throwable e) {
-                            LOGGER.error("jobId:{}", job.getKey(), e);
+                            LOGGER.error("jobIds:{}", partJobIds, e);
                         } finally {
                             buildSemaphore.release();
                         }
                     });
                 } catch (Throwable e) {
-                    LOGGER.error("jobId:{} [acquire pool error]:",job.getKey(), e);
+                    LOGGER.error("jobIds:{} [acquire pool error]:", partJobIds, e);
                     buildSemaphore.release();
                 }
             }
@@ -150,77 +157,113 @@ public class JobStatusDealer implements Runnable {
         }
     }
 
+    /**
+     * 批量处理一批任务: 一次 IN 查询加载 schedule_job 和 schedule_engine_job_cache, 再按插件分组批量获取状态
+     */
+    private void dealJobs(List<String> jobIds) {
+        Map<String, ScheduleJob> scheduleJobs = scheduleJobService.getByJobIds(jobIds).stream()
+                .collect(Collectors.toMap(ScheduleJob::getJobId, Function.identity(), (k1, k2) -> k1));
+        Map<String, ScheduleEngineJobCache> engineJobCaches = scheduleJobCacheService.getByJobIds(jobIds).stream()
+                .collect(Collectors.toMap(ScheduleEngineJobCache::getJobId, Function.identity(), (k1, k2) -> k1));
+
+        Map<String, JobIdentifier> jobIdentifiers = Maps.newHashMapWithExpectedSize(jobIds.size());
+        for (String jobId : jobIds) {
+            ScheduleJob scheduleJob = scheduleJobs.get(jobId);
+            ScheduleEngineJobCache engineJobCache = engineJobCaches.get(jobId);
+            try {
+                if (scheduleJob == null || engineJobCache == null ||
+                        (StringUtils.isBlank(scheduleJob.getApplicationId()) && StringUtils.isBlank(scheduleJob.getEngineJobId()))) {
+                    dealLostJob(jobId, scheduleJob, engineJobCache);
+                } else {
+                    jobIdentifiers.put(jobId, buildJobIdentifier(scheduleJob, engineJobCache));
+                }
+            } catch (Throwable e) {
+                LOGGER.error("jobId:{}", jobId, e);
+            }
+        }
+        if (jobIdentifiers.isEmpty()) {
+            return;
+        }
+
+        Map<String, TaskStatus> taskStatusMap = workerOperator.getBatchJobStatus(new ArrayList<>(jobIdentifiers.values()));
+        for (Map.Entry<String, JobIdentifier> entry : jobIdentifiers.entrySet()) {
+            String jobId = entry.getKey();
+            try {
+                dealJobStatus(scheduleJobs.get(jobId), engineJobCaches.get(jobId), entry.getValue(), taskStatusMap.get(jobId));
+            } catch (Throwable e) {
+                LOGGER.error("jobId:{}", jobId, e);
+            }
+        }
+    }
 
-    private void dealJob(String jobId) throws Exception {
-        ScheduleJob scheduleJob = scheduleJobService.getByJobId(jobId);
-        ScheduleEngineJobCache engineJobCache = scheduleJobCacheService.getJobCacheByJobId(jobId);
-        if (scheduleJob == null || engineJobCache == null ||
-                (StringUtils.isBlank(scheduleJob.getApplicationId()) && StringUtils.isBlank(scheduleJob.getEngineJobId()))) {
-            shardCache.updateLocalMemTaskStatus(jobId, TaskStatus.CANCELED.getStatus());
+    private void dealLostJob(String jobId, ScheduleJob scheduleJob, ScheduleEngineJobCache engineJobCache) {
+        shardCache.updateLocalMemTaskStatus(jobId, TaskStatus.CANCELED.getStatus());
 
-            Integer status = TaskStatus.CANCELED.getStatus();
-            String engineJobId = null;
-            if (scheduleJob != null) {
-                engineJobId = scheduleJob.getEngineJobId();
+        Integer status = TaskStatus.CANCELED.getStatus();
+        String engineJobId = null;
+        if (scheduleJob != null) {
+            engineJobId = scheduleJob.getEngineJobId();
 
-                if (TaskStatus.getStoppedStatus().contains(scheduleJob.getStatus())) {
-                    status = scheduleJob.getStatus();
-                } else {
-                    scheduleJobService.updateJobStatusAndExecTime(jobId, status);
-                }
+            if (TaskStatus.getStoppedStatus().contains(scheduleJob.getStatus())) {
+                status = scheduleJob.getStatus();
             } else {
                 scheduleJobService.updateJobStatusAndExecTime(jobId, status);
             }
-
-            scheduleJobCacheService.deleteByJobId(jobId);
-            LOGGER.info("jobId:{} set job finished, status:{}, scheduleJob is {} null, engineJobCache is {} null, engineJobId is {} blank.",
-                    jobId, status, scheduleJob == null ? "" : "not", engineJobCache == null ? "" : "not", engineJobId == null ? "" : "not");
         } else {
-            String engineTaskId = scheduleJob.getEngineJobId();
-            String appId = scheduleJob.getApplicationId();
-            ParamAction paramAction = PublicUtil.jsonStrToObject(engineJobCache.getJobInfo(), ParamAction.class);
-            Integer taskType = paramAction.getTaskType();
-            Map<String, Object> pluginInfo = paramAction.getPluginInfo();
-            JobIdentifier jobIdentifier = new JobIdentifier(engineTaskId, appId, jobId,scheduleJob.getTenantId(),taskType,
-                    TaskParamsUtils.parseDeployTypeByTaskParams(paramAction.getTaskParams(),scheduleJob.getComputeType()).getType(),
-                    null,  MapUtils.isEmpty(pluginInfo) ? null : JSONObject.toJSONString(pluginInfo),paramAction.getComponentVersion());
+            scheduleJobService.updateJobStatusAndExecTime(jobId, status);
+        }
 
-            TaskStatus taskStatus = workerOperator.getJobStatus(jobIdentifier);
+        shardCache.deleteJobCache(jobId);
+        LOGGER.info("jobId:{} set job finished, status:{}, scheduleJob is {} null, engineJobCache is {} null, engineJobId is {} blank.",
+                jobId, status, scheduleJob == null ? "" : "not", engineJobCache == null ? "" : "not", engineJobId == null ? "" : "not");
+    }
 
-            if (LOGGER.isDebugEnabled()) {
-                LOGGER.debug("------ jobId:{} dealJob status:{}", jobId, taskStatus);
-            }
+    private JobIdentifier buildJobIdentifier(ScheduleJob scheduleJob, ScheduleEngineJobCache engineJobCache) throws Exception {
+        ParamAction paramAction = PublicUtil.jsonStrToObject(engineJobCache.getJobInfo(), ParamAction.class);
+        Integer taskType = paramAction.getTaskType();
+        Map<String, Object> pluginInfo = paramAction.getPluginInfo();
+        return new JobIdentifier(scheduleJob.getEngineJobId(), scheduleJob.getApplicationId(), scheduleJob.getJobId(), scheduleJob.getTenantId(), taskType,
+                TaskParamsUtils.parseDeployTypeByTaskParams(paramAction.getTaskParams(), scheduleJob.getComputeType()).getType(),
+                null, MapUtils.isEmpty(pluginInfo) ? null : JSONObject.toJSONString(pluginInfo), paramAction.getComponentVersion());
+    }
 
-            if (taskStatus != null) {
-
-                taskStatus = checkNotFoundStatus(taskStatus, jobId);
-                Integer status = taskStatus.getStatus();
-                // 重试状态 先不更新状态
-                boolean isRestart = jobRestartDealer.checkAndRestart(status, scheduleJob, engineJobCache, (job, client) -> jobLogDealer.executeLogRunnable(() -> {
-                    String engineLog = workerOperator.getEngineLog(jobIdentifier);
-                    jobRestartDealer.jobRetryRecord(job, client, engineLog);
-                }));
-                if (isRestart) {
-                    LOGGER.info("----- jobId:{} after dealJob status:{}", jobId, taskStatus);
-                    return;
-                }
+    private void dealJobStatus(ScheduleJob scheduleJob, ScheduleEngineJobCache engineJobCache, JobIdentifier jobIdentifier, TaskStatus taskStatus) {
+        String jobId = scheduleJob.getJobId();
+        String appId = scheduleJob.getApplicationId();
 
-                shardCache.updateLocalMemTaskStatus(jobId, status);
-                updateJobStatusWithPredicate(scheduleJob, jobId, status);
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("------ jobId:{} dealJob status:{}", jobId, taskStatus);
+        }
 
-                //数据的更新顺序，先更新job_cache，再更新engine_batch_job
-                if (TaskStatus.getStoppedStatus().contains(status)) {
-                    jobLogDelayDealer(jobId, jobIdentifier, engineJobCache.getComputeType(),scheduleJob.getType());
-                    jobStatusFrequency.remove(jobId);
-                    scheduleJobCacheService.deleteByJobId(jobId);
-                    updateHistoryEndTime(jobId,appId);
-                    LOGGER.info("------ jobId:{} is stop status {} delete jobCache", jobId, status);
-                }
+        if (taskStatus != null) {
+
+            taskStatus = checkNotFoundStatus(taskStatus, jobId);
+            Integer status = taskStatus.getStatus();
+            // 重试状态 先不更新状态
+            boolean isRestart = jobRestartDealer.checkAndRestart(status, scheduleJob, engineJobCache, (job, client) -> jobLogDealer.executeLogRunnable(() -> {
+                String engineLog = workerOperator.getEngineLog(jobIdentifier);
+                jobRestartDealer.jobRetryRecord(job, client, engineLog);
+            }));
+            if (isRestart) {
+                LOGGER.info("----- jobId:{} after dealJob status:{}", jobId, taskStatus);
+                return;
+            }
 
+            shardCache.updateLocalMemTaskStatus(jobId, status);
+            updateJobStatusWithPredicate(scheduleJob, jobId, status);
 
-                if (LOGGER.isDebugEnabled()) {
-                    LOGGER.debug("------ jobId:{} after dealJob status:{}", jobId, taskStatus);
-                }
+            //数据的更新顺序，先更新job_cache，再更新engine_batch_job
+            if (TaskStatus.getStoppedStatus().contains(status)) {
+                jobLogDelayDealer(jobId, jobIdentifier, engineJobCache.getComputeType(),scheduleJob.getType());
+                jobStatusFrequency.remove(jobId);
+                shardCache.deleteJobCache(jobId);
+                updateHistoryEndTime(jobId,appId);
+                LOGGER.info("------ jobId:{} is stop status {} delete jobCache", jobId, status);
+            }
+
+
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("------ jobId:{} after dealJob status:{}", jobId, taskStatus);
             }
         }
     }
@@ -312,6 +355,7 @@ public class JobStatusDealer implements Runnable {
         this.applicationContext = applicationContext;
         setBean();
         this.taskStatusDealerPoolSize = environmentContext.getTaskStatusDealerPoolSize();
+        this.taskStatusBatchSize = Math.max(environmentContext.getTaskStatusBatchSize(), 1);
         this.taskStatusPool = new ThreadPoolExecutor(taskStatusDealerPoolSize, taskStatusDealerPoolSize, 60L, TimeUnit.SECONDS,
                 new LinkedBlockingQueue<>(1000), new CustomThreadFactory(jobResource + this.getClass().getSimpleName() + "DealJob"), new BlockCallerPolicy());
     }
@@ -19,7 +19,6 @@
 package com.dtstack.taier.scheduler.jobdealer;
 
 
-import com.baomidou.mybatisplus.extension.conditions.update.LambdaUpdateChainWrapper;
 import com.dtstack.taier.common.CustomThreadRunsPolicy;
 import com.dtstack.taier.common.enums.*;
 import com.dtstack.taier.common.env.EnvironmentContext;
@@ -97,6 +96,16 @@ public class JobStopDealer implements InitializingBean, DisposableBean {
     private final DelayStopProcessor delayStopProcessor = new DelayStopProcessor();
     private final AcquireStopJob acquireStopJob = new AcquireStopJob();
 
+    /**
+     * 一次批量停止的最大实例数
+     */
+    private static final int STOP_BATCH_SIZE = 100;
+
+    /**
+     * 本节点已提交或在重试队列中的停止记录id
+     */
+    private final Set<Long> stoppingRecordIds = ConcurrentHashMap.newKeySet();
+
     private static final List<Integer> SPECIAL_TASK_TYPES = Lists.newArrayList(EScheduleJobType.WORK_FLOW.getVal());
 
     /**
@@ -158,7 +167,7 @@ public class JobStopDealer implements InitializingBean, DisposableBean {
 
         // 更新未提交到yarn实例状态
         if (CollectionUtils.isNotEmpty(unSubmitJobList)) {
-            cancellingJob(scheduleJobService.lambdaUpdate().in(ScheduleJob::getJobId, unSubmitJobList));
+            cancellingJob(unSubmitJobList);
         }
         return scheduleJobList.size();
     }
@@ -182,14 +191,16 @@ public class JobStopDealer implements InitializingBean, DisposableBean {
     /**
      * 把实例状态更新成取消
      *
-     * @param scheduleJobService 周期实例
+     * @param jobIds 实例id
      */
-    private void cancellingJob(LambdaUpdateChainWrapper<ScheduleJob> scheduleJobService) {
+    private void cancellingJob(List<String> jobIds) {
         ScheduleJob scheduleJob = new ScheduleJob();
         scheduleJob.setStatus(TaskStatus.CANCELED.getStatus());
-        scheduleJobService
+        scheduleJobService.lambdaUpdate()
+                .in(ScheduleJob::getJobId, jobIds)
                 .eq(ScheduleJob::getIsDeleted, Deleted.NORMAL.getStatus())
                 .update(scheduleJob);
+        scheduleJobService.publishStatusEvent(jobIds, TaskStatus.CANCELED.getStatus());
     }
 
     /**
@@ -245,6 +256,11 @@ public class JobStopDealer implements InitializingBean, DisposableBean {
                     while (it.hasNext()) {
                         ScheduleJobOperatorRecord jobStopRecord = it.next();
                         tmpStartId = jobStopRecord.getId();
+                        //本节点正在处理中的停止记录不再重复提交
+                        if (stoppingRecordIds.contains(jobStopRecord.getId())) {
+                            it.remove();
+                            continue;
+                        }
                         //已经被修改过version的任务代表其他节点正在处理，可以忽略
                         Integer update = scheduleJobOperatorRecordService.updateOperatorExpiredVersion(jobStopRecord.getId(), operatorExpired, jobStopRecord.getVersion());
                         if (update != 1) {
@@ -264,32 +280,25 @@ public class JobStopDealer implements InitializingBean, DisposableBean {
                         jobCacheMap.put(jobCache.getJobId(), jobCache);
                     }
 
+                    List<Long> expiredRecordIds = new ArrayList<>();
+                    List<ScheduleJobOperatorRecord> unCachedRecords = new ArrayList<>();
+                    List<StoppedJob<JobElement>> stoppedJobs = new ArrayList<>(jobStopRecords.size());
                     for (ScheduleJobOperatorRecord jobStopRecord : jobStopRecords) {
                         ScheduleEngineJobCache jobCache = jobCacheMap.get(jobStopRecord.getJobId());
-                        if (jobCache != null) {
+                        if (jobCache == null) {
+                            unCachedRecords.add(jobStopRecord);
+                        } else if (jobCache.getGmtCreate().after(jobStopRecord.getGmtCreate())) {
                             //停止任务的时效性，发起停止操作要比任务存入jobCache表的时间要迟
-                            if (jobCache.getGmtCreate().after(jobStopRecord.getGmtCreate())) {
-                                scheduleJobOperatorRecordService.removeById(jobStopRecord.getId());
-                                continue;
-                            }
-
-                            boolean forceCancelFlag = ForceCancelFlag.YES.getFlag().equals(jobStopRecord.getForceCancelFlag());
-                            JobElement jobElement = new JobElement(jobCache.getJobId(), jobStopRecord.getId(), forceCancelFlag);
-                            asyncDealStopJobService.submit(() -> asyncDealStopJob(new StoppedJob<>(jobElement, jobStoppedRetry, jobStoppedDelay)));
+                            expiredRecordIds.add(jobStopRecord.getId());
                         } else {
-                            //jobCache表没有记录，可能任务已经停止。在update表时增加where条件不等于stopped
-                            ScheduleJob scheduleJob = new ScheduleJob();
-                            scheduleJob.setStatus(TaskStatus.CANCELED.getStatus());
-                            scheduleJobService.lambdaUpdate()
-                                    .eq(ScheduleJob::getJobId, jobStopRecord.getJobId())
-                                    .eq(ScheduleJob::getIsDeleted, Deleted.NORMAL.getStatus())
-                                    .in(ScheduleJob::getStatus, TaskStatus.getUnfinishedStatuses())
-                                    .update(scheduleJob);
-                            LOGGER.info("[Unnormal Job] jobId:{} update job status:{}, job is finished.", jobStopRecord.getJobId(), TaskStatus.CANCELED.getStatus());
-                            shardCache.updateLocalMemTaskStatus(jobStopRecord.getJobId(), TaskStatus.CANCELED.getStatus());
-                            scheduleJobOperatorRecordService.removeById(jobStopRecord.getId());
+                            boolean forceCancelFlag = ForceCancelFlag.YES.getFlag().equals(jobStopRecord.getForceCancelFlag());
+                            JobElement jobElement = new JobElement(jobCache.getJobId(), jobStopRecord.getId(), forceCancelFlag, jobCache.getJobResource());
+                            stoppedJobs.add(new StoppedJob<>(jobElement, jobStoppedRetry, jobStoppedDelay));
                         }
                     }
+                    removeOperatorRecords(expiredRecordIds);
+                    cancelUnCachedJobs(unCachedRecords);
+                    submitStopJobs(stoppedJobs);
 
                     Thread.sleep(500);
                 } catch (Throwable e) {
@@ -299,6 +308,49 @@ public class JobStopDealer implements InitializingBean, DisposableBean {
         }
     }
 
+    /**
+     * jobCache表没有记录，可能任务已经停止。在update表时增加where条件不等于stopped
+     */
+    private void cancelUnCachedJobs(List<ScheduleJobOperatorRecord> jobStopRecords) {
+        if (CollectionUtils.isEmpty(jobStopRecords)) {
+            return;
+        }
+        List<String> jobIds = jobStopRecords.stream().map(ScheduleJobOperatorRecord::getJobId).collect(Collectors.toList());
+        ScheduleJob scheduleJob = new ScheduleJob();
+        scheduleJob.setStatus(TaskStatus.CANCELED.getStatus());
+        scheduleJobService.lambdaUpdate()
+                .in(ScheduleJob::getJobId, jobIds)
+                .eq(ScheduleJob::getIsDeleted, Deleted.NORMAL.getStatus())
+                .in(ScheduleJob::getStatus, TaskStatus.getUnfinishedStatuses())
+                .update(scheduleJob);
+        scheduleJobService.publishStatusEvent(jobIds, TaskStatus.CANCELED.getStatus());
+        for (String jobId : jobIds) {
+            shardCache.updateLocalMemTaskStatus(jobId, TaskStatus.CANCELED.getStatus());
+        }
+        removeOperatorRecords(jobStopRecords.stream().map(ScheduleJobOperatorRecord::getId).collect(Collectors.toList()));
+        LOGGER.info("[Unnormal Job] jobIds:{} update job status:{}, job is finished.", jobIds, TaskStatus.CANCELED.getStatus());
+    }
+
+    /**
+     * 按 jobResource 分组, 每组按 STOP_BATCH_SIZE 拆分后提交到线程池, 同一批次只访问同一集群
+     */
+    private void submitStopJobs(List<StoppedJob<JobElement>> stoppedJobs) {
+        if (CollectionUtils.isEmpty(stoppedJobs)) {
+            return;
+        }
+        Map<String, List<StoppedJob<JobElement>>> resourceGroups = new HashMap<>();
+        for (StoppedJob<JobElement> stoppedJob : stoppedJobs) {
+            stoppingRecordIds.add(stoppedJob.getJob().stopJobId);
+            resourceGroups.computeIfAbsent(StringUtils.defaultString(stoppedJob.getJob().jobResource), k -> new ArrayList<>()).add(stoppedJob);
+        }
+        for (List<StoppedJob<JobElement>> group : resourceGroups.values()) {
+            for (List<StoppedJob<JobElement>> batch : Lists.partition(group, STOP_BATCH_SIZE)) {
+                List<StoppedJob<JobElement>> batchJobs = new ArrayList<>(batch);
+                asyncDealStopJobService.submit(() -> asyncDealStopJobs(batchJobs));
+            }
+        }
+    }
+
     private class DelayStopProcessor implements Runnable {
         private volatile Boolean open = Boolean.TRUE;
 
@@ -308,7 +360,12 @@ public class JobStopDealer implements InitializingBean, DisposableBean {
             while (open) {
                 try {
                     StoppedJob<JobElement> stoppedJob = stopJobQueue.take();
-                    asyncDealStopJobService.submit(() -> asyncDealStopJob(stoppedJob));
+                    List<StoppedJob<JobElement>> stoppedJobs = Lists.newArrayList(stoppedJob);
+                    //同一时刻到期的重试任务合并处理
+                    while (stoppedJobs.size() < STOP_BATCH_SIZE && (stoppedJob = stopJobQueue.poll()) != null) {
+                        stoppedJobs.add(stoppedJob);
+                    }
+                    submitStopJobs(stoppedJobs);
                 } catch (InterruptedException ie) {
                     LOGGER.warn("interruption of stopJobQueue.take...");
                     break;
@@ -324,15 +381,40 @@ public class JobStopDealer implements InitializingBean, DisposableBean {
 
     }
 
-    private void asyncDealStopJob(StoppedJob<JobElement> stoppedJob) {
+    /**
+     * 批量处理同一 jobResource 下的停止任务
+     */
+    private void asyncDealStopJobs(List<StoppedJob<JobElement>> stoppedJobs) {
+        List<Long> removeRecordIds = new ArrayList<>();
+        List<String> cancelJobIds = new ArrayList<>();
+        Set<Long> retryRecordIds = new HashSet<>();
         try {
-            if (!checkExpired(stoppedJob.getJob())) {
-                ScheduleEngineJobCache jobCache = ScheduleJobCacheService.getByJobId(stoppedJob.getJob().jobId);
-                StoppedStatus stoppedStatus = this.stopJob(stoppedJob.getJob());
+            List<String> jobIds = stoppedJobs.stream().map(stoppedJob -> stoppedJob.getJob().jobId).collect(Collectors.toList());
+            Map<String, ScheduleEngineJobCache> jobCacheMap = ScheduleJobCacheService.getByJobIds(jobIds).stream()
+                    .collect(Collectors.toMap(ScheduleEngineJobCache::getJobId, jobCache -> jobCache, (a, b) -> a));
+            Map<Long, ScheduleJobOperatorRecord> recordMap = scheduleJobOperatorRecordService.listByIds(
+                    stoppedJobs.stream().map(stoppedJob -> stoppedJob.getJob().stopJobId).collect(Collectors.toList())).stream()
+                    .collect(Collectors.toMap(ScheduleJobOperatorRecord::getId, record -> record));
+
+            List<StoppedJob<JobElement>> validJobs = new ArrayList<>(stoppedJobs.size());
+            for (StoppedJob<JobElement> stoppedJob : stoppedJobs) {
+                JobElement jobElement = stoppedJob.getJob();
+                if (checkExpired(jobCacheMap.get(jobElement.jobId), recordMap.get(jobElement.stopJobId))) {
+                    removeRecordIds.add(jobElement.stopJobId);
+                    LOGGER.warn("delete stop record jobId {} stopJobId {} ", jobElement.jobId, jobElement.stopJobId);
+                } else {
+                    validJobs.add(stoppedJob);
+                }
+            }
+
+            Map<String, StoppedStatus> stoppedStatusMap = this.stopJobs(validJobs, jobCacheMap, cancelJobIds);
+            for (StoppedJob<JobElement> stoppedJob : validJobs) {
+                JobElement jobElement = stoppedJob.getJob();
+                StoppedStatus stoppedStatus = stoppedStatusMap.getOrDefault(jobElement.jobId, StoppedStatus.RETRY);
                 switch (stoppedStatus) {
                     case STOPPED:
                     case MISSED:
-                        scheduleJobOperatorRecordService.removeById(stoppedJob.getJob().stopJobId);
+                        removeRecordIds.add(jobElement.stopJobId);
                         break;
                     case STOPPING:
                     case RETRY:
@@ -343,100 +425,146 @@ public class JobStopDealer implements InitializingBean, DisposableBean {
                                 stoppedJob.resetDelay(jobStoppedDelay);
                             }
                             stoppedJob.incrCount();
-                            stopJobQueue.put(stoppedJob);
-                        } else {
-                            if (EComputeType.STREAM.getType() == jobCache.getComputeType()) {
-                                // stream 任务 超过停止最大限制不更改状态
-                                scheduleJobOperatorRecordService.deleteById(stoppedJob.getJob().stopJobId);
-                                LOGGER.warn("stream jobId:{} retry limited ,job status can not change!", stoppedJob.getJob().jobId);
-                            } else {
-                                removeMemStatusAndJobCache(stoppedJob.getJob().jobId);
-                                LOGGER.warn("jobId:{} retry limited!", stoppedJob.getJob().jobId);
+                            if (stopJobQueue.tryPut(stoppedJob)) {
+                                retryRecordIds.add(jobElement.stopJobId);
+                                continue;
                             }
+                            //重试队列已满时释放记录, 等待下一轮扫描重新获取
+                            LOGGER.warn("stop queue is full, jobId:{} wait for next acquire", jobElement.jobId);
+                        } else if (EComputeType.STREAM.getType() == jobCacheMap.get(jobElement.jobId).getComputeType()) {
+                            // stream 任务 超过停止最大限制不更改状态
+                            removeRecordIds.add(jobElement.stopJobId);
+                            LOGGER.warn("stream jobId:{} retry limited ,job status can not change!", jobElement.jobId);
+                        } else {
+                            cancelJobIds.add(jobElement.jobId);
+                            LOGGER.warn("jobId:{} retry limited!", jobElement.jobId);
                         }
                     default:
                 }
-            } else {
-                scheduleJobOperatorRecordService.removeById(stoppedJob.getJob().stopJobId);
-                LOGGER.warn("delete stop record jobId {} stopJobId {} ", stoppedJob.getJob().jobId, stoppedJob.getJob().stopJobId);
             }
-
         } catch (Exception e) {
             LOGGER.error("", e);
+        } finally {
+            try {
+                removeMemStatusAndJobCache(cancelJobIds);
+                removeOperatorRecords(removeRecordIds);
+            } catch (Exception e) {
+                LOGGER.error("", e);
+            }
+            //仍在重试队列中的记录保持处理中状态
+            for (StoppedJob<JobElement> stoppedJob : stoppedJobs) {
+                if (!retryRecordIds.contains(stoppedJob.getJob().stopJobId)) {
+                    stoppingRecordIds.remove(stoppedJob.getJob().stopJobId);
+                }
+            }
         }
     }
 
-    private StoppedStatus stopJob(JobElement jobElement) throws Exception {
-        ScheduleEngineJobCache jobCache = ScheduleJobCacheService.getByJobId(jobElement.jobId);
-        ScheduleJob scheduleJob = scheduleJobService.lambdaQuery()
-                .eq(ScheduleJob::getJobId, jobElement.jobId)
+    /**
+     * 判断每个实例的停止状态, 需要向引擎发起停止的实例按插件批量停止
+     *
+     * @param stoppedJobs  停止任务
+     * @param jobCacheMap  key: jobId, value: jobCache
+     * @param cancelJobIds 需要删除 jobCache 并置为取消状态的实例, 由调用方统一处理
+     * @return key: jobId, value: 停止状态
+     */
+    private Map<String, StoppedStatus> stopJobs(List<StoppedJob<JobElement>> stoppedJobs, Map<String, ScheduleEngineJobCache> jobCacheMap,
+                                                List<String> cancelJobIds) throws Exception {
+        Map<String, StoppedStatus> stoppedStatusMap = new HashMap<>(stoppedJobs.size());
+        if (stoppedJobs.isEmpty()) {
+            return stoppedStatusMap;
+        }
+        Map<String, ScheduleJob> scheduleJobMap = scheduleJobService.lambdaQuery()
+                .in(ScheduleJob::getJobId, stoppedJobs.stream().map(stoppedJob -> stoppedJob.getJob().jobId).collect(Collectors.toList()))
                 .eq(ScheduleJob::getIsDeleted, Deleted.NORMAL.getStatus())
-                .one();
-        if (jobCache == null) {
-            if (scheduleJob != null && TaskStatus.isStopped(scheduleJob.getStatus())) {
-                LOGGER.info("jobId:{} stopped success, set job is STOPPED.", jobElement.jobId);
-                return StoppedStatus.STOPPED;
-            } else {
-                this.removeMemStatusAndJobCache(jobElement.jobId);
-                LOGGER.info("jobId:{} jobCache is null, set job is MISSED.", jobElement.jobId);
-                return StoppedStatus.MISSED;
-            }
-        } else if (null != scheduleJob && EJobCacheStage.unSubmitted().contains(jobCache.getStage())) {
-            if (!TaskStatus.getWaitStatus().contains(scheduleJob.getStatus()) || EJobCacheStage.PRIORITY.getStage() != jobCache.getStage()) {
-                this.removeMemStatusAndJobCache(jobCache.getJobId());
-                LOGGER.info("jobId:{} is unsubmitted, set job is STOPPED.", jobElement.jobId);
-                return StoppedStatus.STOPPED;
-            } else {
-                //任务如果处于提交的状态过程中 但是stage由PRIORITY变更为SUBMITTED  直接删除会导致还是会提交到yarn上 占用资源
-                LOGGER.info("jobId:{} is stopping.", jobCache.getJobId());
-                return StoppedStatus.STOPPING;
-            }
-        } else {
-            if (scheduleJob == null) {
-                this.removeMemStatusAndJobCache(jobElement.jobId);
+                .list().stream()
+                .collect(Collectors.toMap(ScheduleJob::getJobId, scheduleJob -> scheduleJob, (a, b) -> a));
+
+        List<JobClient> jobClients = new ArrayList<>();
+        for (StoppedJob<JobElement> stoppedJob : stoppedJobs) {
+            JobElement jobElement = stoppedJob.getJob();
+            ScheduleEngineJobCache jobCache = jobCacheMap.get(jobElement.jobId);
+            ScheduleJob scheduleJob = scheduleJobMap.get(jobElement.jobId);
+            if (jobCache == null) {
+                if (scheduleJob != null && TaskStatus.isStopped(scheduleJob.getStatus())) {
+                    LOGGER.info("jobId:{} stopped success, set job is STOPPED.", jobElement.jobId);
+                    stoppedStatusMap.put(jobElement.jobId, StoppedStatus.STOPPED);
+                } else {
+                    cancelJobIds.add(jobElement.jobId);
+                    LOGGER.info("jobId:{} jobCache is null, set job is MISSED.", jobElement.jobId);
+                    stoppedStatusMap.put(jobElement.jobId, StoppedStatus.MISSED);
+                }
+            } else if (null != scheduleJob && EJobCacheStage.unSubmitted().contains(jobCache.getStage())) {
+                if (!TaskStatus.getWaitStatus().contains(scheduleJob.getStatus()) || EJobCacheStage.PRIORITY.getStage() != jobCache.getStage()) {
+                    cancelJobIds.add(jobCache.getJobId());
+                    LOGGER.info("jobId:{} is unsubmitted, set job is STOPPED.", jobElement.jobId);
+                    stoppedStatusMap.put(jobElement.jobId, StoppedStatus.STOPPED);
+                } else {
+                    //任务如果处于提交的状态过程中 但是stage由PRIORITY变更为SUBMITTED  直接删除会导致还是会提交到yarn上 占用资源
+                    LOGGER.info("jobId:{} is stopping.", jobCache.getJobId());
+                    stoppedStatusMap.put(jobElement.jobId, StoppedStatus.STOPPING);
+                }
+            } else if (scheduleJob == null) {
+                cancelJobIds.add(jobElement.jobId);
                 LOGGER.info("jobId:{} scheduleJob is null, set job is MISSED.", jobElement.jobId);
-                return StoppedStatus.MISSED;
+                stoppedStatusMap.put(jobElement.jobId, StoppedStatus.MISSED);
             } else if (TaskStatus.getStoppedAndNotFound().contains(scheduleJob.getStatus())) {
-                this.removeMemStatusAndJobCache(jobElement.jobId);
+                cancelJobIds.add(jobElement.jobId);
                 LOGGER.info("jobId:{} and status:{} is StoppedAndNotFound, set job is STOPPED.", jobElement.jobId, scheduleJob.getStatus());
-                return StoppedStatus.STOPPED;
+                stoppedStatusMap.put(jobElement.jobId, StoppedStatus.STOPPED);
+            } else {
+                ParamAction paramAction = PublicUtil.jsonStrToObject(jobCache.getJobInfo(), ParamAction.class);
+                paramAction.setEngineTaskId(scheduleJob.getEngineJobId());
+                paramAction.setApplicationId(scheduleJob.getApplicationId());
+                JobClient jobClient = new JobClient(paramAction);
+                jobClient.setForceCancel(jobElement.isForceCancel);
+
+                if (StringUtils.isNotBlank(scheduleJob.getEngineJobId()) && !jobClient.getEngineTaskId().equals(scheduleJob.getEngineJobId())) {
+                    cancelJobIds.add(jobElement.jobId);
+                    LOGGER.info("jobId:{} stopped success, because of [difference engineJobId].", paramAction.getJobId());
+                    stoppedStatusMap.put(jobElement.jobId, StoppedStatus.STOPPED);
+                } else {
+                    jobClients.add(jobClient);
+                }
             }
+        }
 
-
-            ParamAction paramAction = PublicUtil.jsonStrToObject(jobCache.getJobInfo(), ParamAction.class);
-            paramAction.setEngineTaskId(scheduleJob.getEngineJobId());
-            paramAction.setApplicationId(scheduleJob.getApplicationId());
-            JobClient jobClient = new JobClient(paramAction);
-            jobClient.setForceCancel(jobElement.isForceCancel);
-
-            if (StringUtils.isNotBlank(scheduleJob.getEngineJobId()) && !jobClient.getEngineTaskId().equals(scheduleJob.getEngineJobId())) {
-                this.removeMemStatusAndJobCache(jobElement.jobId);
-                LOGGER.info("jobId:{} stopped success, because of [difference engineJobId].", paramAction.getJobId());
-                return StoppedStatus.STOPPED;
-            }
-            JobResult jobResult = workerOperator.stopJob(jobClient);
-            if (jobResult.getCheckRetry()) {
-                LOGGER.info("jobId:{} is retry.", paramAction.getJobId());
-                return StoppedStatus.RETRY;
-            } else {
-                LOGGER.info("jobId:{} is stopping.", paramAction.getJobId());
-                return StoppedStatus.STOPPING;
+        if (!jobClients.isEmpty()) {
+            Map<String, JobResult> jobResults = workerOperator.stopJobs(jobClients);
+            for (JobClient jobClient : jobClients) {
+                JobResult jobResult = jobResults.get(jobClient.getJobId());
+                if (jobResult == null || jobResult.getCheckRetry()) {
+                    LOGGER.info("jobId:{} is retry.", jobClient.getJobId());
+                    stoppedStatusMap.put(jobClient.getJobId(), StoppedStatus.RETRY);
+                } else {
+                    LOGGER.info("jobId:{} is stopping.", jobClient.getJobId());
+                    stoppedStatusMap.put(jobClient.getJobId(), StoppedStatus.STOPPING);
+                }
             }
         }
+        return stoppedStatusMap;
     }
 
-    private void removeMemStatusAndJobCache(String jobId) {
-        shardCache.removeIfPresent(jobId);
-        ScheduleJobCacheService.deleteByJobId(jobId);
+    private void removeMemStatusAndJobCache(List<String> jobIds) {
+        if (CollectionUtils.isEmpty(jobIds)) {
+            return;
+        }
+        for (String jobId : jobIds) {
+            shardCache.removeIfPresent(jobId);
+        }
+        shardCache.deleteJobCaches(jobIds);
         //修改任务状态
-        scheduleJobService.updateStatusAndLogInfoById(jobId, TaskStatus.CANCELED.getStatus(), "");
-        LOGGER.info("jobId:{} delete jobCache and update job status:{}, job set finished.", jobId, TaskStatus.CANCELED.getStatus());
+        scheduleJobService.updateStatusAndLogInfoByIds(jobIds, TaskStatus.CANCELED.getStatus(), "");
+        LOGGER.info("jobIds:{} delete jobCache and update job status:{}, job set finished.", jobIds, TaskStatus.CANCELED.getStatus());
     }
 
-    private boolean checkExpired(JobElement jobElement) {
-        ScheduleEngineJobCache jobCache = ScheduleJobCacheService.getByJobId(jobElement.jobId);
-        ScheduleJobOperatorRecord scheduleJobOperatorRecord = scheduleJobOperatorRecordService.getById(jobElement.stopJobId);
+    private void removeOperatorRecords(List<Long> recordIds) {
+        if (CollectionUtils.isNotEmpty(recordIds)) {
+            scheduleJobOperatorRecordService.removeByIds(recordIds);
+        }
+    }
 
+    private boolean checkExpired(ScheduleEngineJobCache jobCache, ScheduleJobOperatorRecord scheduleJobOperatorRecord) {
         if (jobCache != null && scheduleJobOperatorRecord != null && scheduleJobOperatorRecord.getGmtCreate() != null) {
             return jobCache.getGmtCreate().after(scheduleJobOperatorRecord.getGmtCreate());
         } else {
@@ -449,12 +577,14 @@ public class JobStopDealer implements InitializingBean, DisposableBean {
         public String jobId;
         public long stopJobId;
         public boolean isForceCancel;
+        public String jobResource;
 
 
-        public JobElement(String jobId, long stopJobId, boolean isForceCancel) {
+        public JobElement(String jobId, long stopJobId, boolean isForceCancel, String jobResource) {
             this.jobId = jobId;
             this.stopJobId = stopJobId;
             this.isForceCancel = isForceCancel;
+            this.jobResource = jobResource;
         }
     }
 }
@@ -27,7 +27,6 @@ import com.dtstack.taier.common.exception.ClientAccessException;
 import com.dtstack.taier.common.exception.RdosDefineException;
 import com.dtstack.taier.common.exception.WorkerAccessException;
 import com.dtstack.taier.common.queue.DelayBlockingQueue;
-import com.dtstack.taier.common.util.SleepUtil;
 import com.dtstack.taier.dao.domain.ScheduleEngineJobCache;
 import com.dtstack.taier.pluginapi.CustomThreadFactory;
 import com.dtstack.taier.pluginapi.JobClient;
@@ -38,6 +37,7 @@ import com.dtstack.taier.pluginapi.exception.ClientArgumentException;
 import com.dtstack.taier.pluginapi.pojo.JobResult;
 import com.dtstack.taier.pluginapi.pojo.JudgeResult;
 import com.dtstack.taier.scheduler.WorkerOperator;
+import com.dtstack.taier.scheduler.jobdealer.bo.LackingBackoff;
 import com.dtstack.taier.scheduler.jobdealer.bo.SimpleJobDelay;
 import com.dtstack.taier.scheduler.jobdealer.cache.ShardCache;
 import com.dtstack.taier.scheduler.server.JobPartitioner;
@@ -50,6 +50,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.ApplicationContext;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.ExecutorService;
@@ -58,6 +60,8 @@ import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * company: www.dtstack.com
@@ -73,6 +77,11 @@ public class JobSubmitDealer implements Runnable {
      */
     private static LinkedBlockingQueue<JobClient> submittedQueue = new LinkedBlockingQueue<>();
 
+    /**
+     * 每次从优先级队列取出的任务数, 同一批任务的 cache 记录一次查询
+     */
+    private static final int READY_CHECK_BATCH_SIZE = 20;
+
     private JobPartitioner jobPartitioner;
     private WorkerOperator workerOperator;
     private ScheduleJobCacheService ScheduleJobCacheService;
@@ -96,6 +105,16 @@ public class JobSubmitDealer implements Runnable {
     private ExecutorService jobSubmitConcurrentService;
     private ScheduleJobExpandService scheduleJobExpandService;
 
+    /**
+     * 资源不足的退避状态, jobResource 已包含集群和队列, 每个队列独立退避
+     */
+    private LackingBackoff lackingBackoff;
+
+    /**
+     * 其他节点存在更高优先级的任务时, 本节点在此时间之前不再提交
+     */
+    private volatile long priorityWaitUntil = 0L;
+
     public JobSubmitDealer(String localAddress, GroupPriorityQueue priorityQueue, ApplicationContext applicationContext) {
         this.jobPartitioner = applicationContext.getBean(JobPartitioner.class);
         this.workerOperator = applicationContext.getBean(WorkerOperator.class);
@@ -121,6 +140,7 @@ public class JobSubmitDealer implements Runnable {
         this.jobResource = priorityQueue.getJobResource();
         this.queue = priorityQueue.getQueue();
         this.delayJobQueue = new DelayBlockingQueue<>(priorityQueue.getQueueSizeLimited());
+        this.lackingBackoff = new LackingBackoff(jobLackingInterval, Math.max(jobLackingInterval, jobLackingDelay));
 
         ExecutorService executorService = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
                 new LinkedBlockingQueue<>(), new CustomThreadFactory(this.getClass().getSimpleName() + "_" + jobResource + "_DelayJobProcessor"));
@@ -140,7 +160,10 @@ public class JobSubmitDealer implements Runnable {
                     simpleJobDelay = delayJobQueue.take();
                     jobClient = simpleJobDelay.getJob();
                     if (jobClient != null) {
-                        jobClient.setQueueSourceType(EQueueSourceType.DELAY.getCode());
+                        // 退避等待的任务 stage 没有变更, 按普通任务检查, 不需要回写 stage
+                        if (EJobCacheStage.PRIORITY.getStage() != simpleJobDelay.getStage()) {
+                            jobClient.setQueueSourceType(EQueueSourceType.DELAY.getCode());
+                        }
                         queue.put(jobClient);
                         LOGGER.info("jobId:{} stage:{} take job from delayJobQueue queue size:{} and add to priorityQueue.", jobClient.getJobId(), simpleJobDelay.getStage(), delayJobQueue.size());
                     }
@@ -166,59 +189,119 @@ public class JobSubmitDealer implements Runnable {
     }
 
     private void putLackingJob(JobClient jobClient, JudgeResult judgeResult) {
-        try {
-            delayJobQueue.put(new SimpleJobDelay<>(jobClient, EJobCacheStage.LACKING.getStage(), jobLackingDelay));
-            jobClient.lackingCountIncrement();
-            ScheduleJobCacheService.updateStage(jobClient.getJobId(), EJobCacheStage.LACKING.getStage(), localAddress, jobClient.getPriority(), judgeResult.getReason());
-            jobClient.doStatusCallBack(TaskStatus.LACKING.getStatus());
-        } catch (InterruptedException e) {
-            queue.put(jobClient);
-            LOGGER.error("jobId:{} delayJobQueue.put failed.",jobClient.getJobId(), e);
+        if (!delayJobQueue.tryPut(new SimpleJobDelay<>(jobClient, EJobCacheStage.LACKING.getStage(), jobLackingDelay))) {
+            saveToDb(jobClient);
+            return;
         }
+        jobClient.lackingCountIncrement();
+        ScheduleJobCacheService.updateStage(jobClient.getJobId(), EJobCacheStage.LACKING.getStage(), localAddress, jobClient.getPriority(), judgeResult.getReason());
+        jobClient.doStatusCallBack(TaskStatus.LACKING.getStatus());
         LOGGER.info("jobId:{} success add job to lacking delayJobQueue, job's lackingCount:{}.", jobClient.getJobId(), jobClient.getLackingCount());
     }
 
+    /**
+     * 任务放入延时队列等待, 不阻塞分发线程休眠
+     * 延时队列已满时不等待, 任务以 stage=DB 存库, 由优先级队列低于水位线时重新加载
+     */
+    private void deferJob(JobClient jobClient, long delay) {
+        if (!delayJobQueue.tryPut(new SimpleJobDelay<>(jobClient, EJobCacheStage.PRIORITY.getStage(), delay))) {
+            saveToDb(jobClient);
+        }
+    }
+
+    private void saveToDb(JobClient jobClient) {
+        priorityQueue.saveToDb(jobClient);
+        LOGGER.info("jobId:{} delayJobQueue is full, save job to db and wait for reload.", jobClient.getJobId());
+    }
+
+    private long getWaitTime() {
+        return Math.max(lackingBackoff.remaining(), priorityWaitUntil - System.currentTimeMillis());
+    }
+
     public int getDelayJobQueueSize() {
         return delayJobQueue.size();
     }
 
     @Override
     public void run() {
+        List<JobClient> jobClients = new ArrayList<>(READY_CHECK_BATCH_SIZE);
         while (true) {
             try {
-                JobClient jobClient = queue.take();
+                jobClients.clear();
+                jobClients.add(queue.take());
+                queue.drainTo(jobClients, READY_CHECK_BATCH_SIZE - 1);
                 if(LOGGER.isDebugEnabled()){
-                    LOGGER.debug("jobId:{} jobResource:{} queue size:{} take job from priorityQueue.", jobClient.getJobId(), jobResource, queue.size());
-                }
-                if (checkIsFinished(jobClient)) {
-                    continue;
-                }
-                if (checkJobSubmitExpired(jobClient)){
-                    shardCache.updateLocalMemTaskStatus(jobClient.getJobId(), TaskStatus.AUTOCANCELED.getStatus());
-                    jobClient.doStatusCallBack(TaskStatus.AUTOCANCELED.getStatus());
-                    ScheduleJobCacheService.deleteByJobId(jobClient.getJobId());
-                    LOGGER.info("jobId:{} checkJobSubmitExpired is true, job ignore to submit.", jobClient.getJobId());
-                    continue;
+                    LOGGER.debug("jobIds:{} jobResource:{} queue size:{} take job from priorityQueue.", jobClients.stream().map(JobClient::getJobId).collect(Collectors.toList()), jobResource, queue.size());
                 }
-                if (!checkMaxPriority(jobResource)) {
-                    LOGGER.info("jobId:{} checkMaxPriority is false, wait other node job which priority higher.", jobClient.getJobId());
-                    queue.put(jobClient);
-                    SleepUtil.sleep(jobLackingInterval);
-                    continue;
-                }
-
-                //提交任务
-                jobSubmitConcurrentService.submit(()->{
-                    submitJob(jobClient);
-                });
+                dispatch(jobClients);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                LOGGER.error("jobResource:{} JobSubmitDealer interrupted", jobResource, e);
+                return;
             } catch (Exception e) {
                 LOGGER.error("", e);
             }
         }
     }
 
-    private boolean checkIsFinished(JobClient jobClient) {
-        ScheduleEngineJobCache engineJobCache = ScheduleJobCacheService.getByJobId(jobClient.getJobId());
+    private void dispatch(List<JobClient> jobClients) {
+        long waitTime = getWaitTime();
+        if (waitTime > 0) {
+            // 资源不足或其他节点优先级更高, 整批延后, 不查库
+            jobClients.forEach(jobClient -> deferJob(jobClient, waitTime));
+            return;
+        }
+
+        Map<String, ScheduleEngineJobCache> engineJobCaches;
+        try {
+            engineJobCaches = ScheduleJobCacheService.getSimpleByJobIds(jobClients.stream().map(JobClient::getJobId).collect(Collectors.toList()))
+                    .stream().collect(Collectors.toMap(ScheduleEngineJobCache::getJobId, Function.identity(), (a, b) -> a));
+        } catch (Exception e) {
+            LOGGER.error("jobResource:{} query engine job cache error", jobResource, e);
+            jobClients.forEach(jobClient -> deferJob(jobClient, jobLackingInterval));
+            return;
+        }
+
+        for (JobClient jobClient : jobClients) {
+            try {
+                dispatch(jobClient, engineJobCaches.get(jobClient.getJobId()));
+            } catch (Exception e) {
+                LOGGER.error("jobId:{} dispatch error", jobClient.getJobId(), e);
+            }
+        }
+    }
+
+    private void dispatch(JobClient jobClient, ScheduleEngineJobCache engineJobCache) {
+        if (checkIsFinished(jobClient, engineJobCache)) {
+            return;
+        }
+        if (checkJobSubmitExpired(jobClient)){
+            shardCache.updateLocalMemTaskStatus(jobClient.getJobId(), TaskStatus.AUTOCANCELED.getStatus());
+            jobClient.doStatusCallBack(TaskStatus.AUTOCANCELED.getStatus());
+            shardCache.deleteJobCache(jobClient.getJobId());
+            LOGGER.info("jobId:{} checkJobSubmitExpired is true, job ignore to submit.", jobClient.getJobId());
+            return;
+        }
+        // 同一批中前面的任务可能已经触发了退避
+        long waitTime = getWaitTime();
+        if (waitTime > 0) {
+            deferJob(jobClient, waitTime);
+            return;
+        }
+        if (!checkMaxPriority(jobResource)) {
+            LOGGER.info("jobId:{} checkMaxPriority is false, wait other node job which priority higher.", jobClient.getJobId());
+            priorityWaitUntil = System.currentTimeMillis() + jobLackingInterval;
+            deferJob(jobClient, jobLackingInterval);
+            return;
+        }
+
+        //提交任务
+        jobSubmitConcurrentService.submit(()->{
+            submitJob(jobClient);
+        });
+    }
+
+    private boolean checkIsFinished(JobClient jobClient, ScheduleEngineJobCache engineJobCache) {
         try {
             if (null == jobClient.getQueueSourceType() || EQueueSourceType.NORMAL.getCode() == jobClient.getQueueSourceType()) {
                 if (null == engineJobCache) {
@@ -318,6 +401,7 @@ public class JobSubmitDealer implements Runnable {
             // 判断资源
             JudgeResult judgeResult = workerOperator.judgeSlots(jobClient);
             if (JudgeResult.JudgeType.OK == judgeResult.getResult()) {
+                lackingBackoff.reset();
                 LOGGER.info("jobId:{} taskType:{} submit to engine start.", jobClient.getJobId(), jobClient.getTaskType());
 
                 jobClient.doStatusCallBack(TaskStatus.COMPUTING.getStatus());
@@ -390,21 +474,26 @@ public class JobSubmitDealer implements Runnable {
     private void handlerNoResource(JobClient jobClient, JudgeResult judgeResult) {
         //因为资源不足提交任务失败，优先级数值增加 WAIT_INTERVAL
         jobClient.setPriority(jobClient.getPriority() + jobPriorityStep);
+        long backoff = lackingBackoff.onLacking();
 
         //delayQueue的任务比重过大时，直接放入优先级队列重试
         if (jobClient.lackingCountIncrement() > jobLackingCountLimited && delayJobQueue.size() < priorityQueue.getQueueSizeLimited()) {
             putLackingJob(jobClient, judgeResult);
         } else {
             ScheduleJobCacheService.updateStage(jobClient.getJobId(), EJobCacheStage.PRIORITY.getStage(), localAddress, jobClient.getPriority(), null);
-            queue.put(jobClient);
-            SleepUtil.sleep(jobLackingInterval);
-            LOGGER.info("jobId:{} unlimited_lackingCount:{} add to priorityQueue.", jobClient.getJobId(), jobClient.getLackingCount());
+            deferJob(jobClient, backoff);
+            LOGGER.info("jobId:{} unlimited_lackingCount:{} backoff:{}ms add to priorityQueue.", jobClient.getJobId(), jobClient.getLackingCount(), backoff);
 
         }
     }
 
     private void addToTaskListener(JobClient jobClient, JobResult jobResult) {
         jobClient.setJobResult(jobResult);
+        // 重启等未经过 saveCache 的任务也登记 jobResource, 状态更新时不再查库;
+        // 提交期间已被停止(job_cache 已删除)的任务不再登记, 由提交后的状态更新回退为取消
+        if (!shardCache.registerIfCached(jobClient.getJobId(), jobResource)) {
+            LOGGER.info("jobId:{} job cache is removed during submit, skip register jobResource.", jobClient.getJobId());
+        }
         //添加触发读取任务状态消息
         submittedQueue.offer(jobClient);
     }
@@ -28,7 +28,6 @@ import com.dtstack.taier.pluginapi.constrant.JobResultConstant;
 import com.dtstack.taier.pluginapi.enums.TaskStatus;
 import com.dtstack.taier.pluginapi.pojo.JobResult;
 import com.dtstack.taier.scheduler.jobdealer.cache.ShardCache;
-import com.dtstack.taier.scheduler.service.ScheduleJobCacheService;
 import com.dtstack.taier.scheduler.service.ScheduleJobExpandService;
 import com.dtstack.taier.scheduler.service.ScheduleJobService;
 import org.apache.commons.lang3.StringUtils;
@@ -55,9 +54,6 @@ public class JobSubmittedDealer implements Runnable {
     @Autowired
     private ScheduleJobService scheduleJobService;
 
-    @Autowired
-    private ScheduleJobCacheService scheduleJobCacheService;
-
     @Autowired
     private ShardCache shardCache;
 
@@ -133,7 +129,7 @@ public class JobSubmittedDealer implements Runnable {
         try {
             scheduleJobService.jobFail(jobId, TaskStatus.FAILED.getStatus(), info);
             LOGGER.info("jobId:{} update job status:{}, job is finished.", jobId, TaskStatus.FAILED.getStatus());
-            scheduleJobCacheService.deleteByJobId(jobId);
+            shardCache.deleteJobCache(jobId);
         } catch (Exception e) {
             LOGGER.error("jobId:{} update job fail {}  error", jobId, info, e);
         }
@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dtstack.taier.scheduler.jobdealer.bo;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 资源不足时的退避状态
+ * 连续资源不足时等待时间按指数增长并加入随机抖动, 资源判断通过后重置
+ */
+public class LackingBackoff {
+
+    private static final int MAX_SHIFT = 16;
+
+    private final long baseDelay;
+
+    private final long maxDelay;
+
+    private int lackingTimes;
+
+    private long nextAttemptTime;
+
+    public LackingBackoff(long baseDelay, long maxDelay) {
+        this.baseDelay = Math.max(1L, baseDelay);
+        this.maxDelay = Math.max(this.baseDelay, maxDelay);
+    }
+
+    /**
+     * 记录一次资源不足
+     *
+     * @return 本次退避时间(毫秒), 在 [delay/2, delay] 之间随机
+     */
+    public synchronized long onLacking() {
+        int shift = Math.min(lackingTimes++, MAX_SHIFT);
+        long delay = Math.min(maxDelay, baseDelay << shift);
+        long backoff = delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+        nextAttemptTime = Math.max(nextAttemptTime, System.currentTimeMillis() + backoff);
+        return backoff;
+    }
+
+    public synchronized void reset() {
+        lackingTimes = 0;
+        nextAttemptTime = 0L;
+    }
+
+    /**
+     * @return 距离下次允许判断资源的剩余时间(毫秒), 0 表示不需要等待
+     */
+    public synchronized long remaining() {
+        return Math.max(0L, nextAttemptTime - System.currentTimeMillis());
+    }
+}
@@ -22,6 +22,7 @@ import com.dtstack.taier.dao.domain.ScheduleEngineJobCache;
 import com.dtstack.taier.pluginapi.exception.ExceptionUtil;
 import com.dtstack.taier.scheduler.jobdealer.JobStatusDealer;
 import com.dtstack.taier.scheduler.service.ScheduleJobCacheService;
+import com.google.common.cache.CacheBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.BeansException;
@@ -29,8 +30,11 @@ import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
 import org.springframework.stereotype.Component;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 /**
@@ -47,16 +51,120 @@ public class ShardCache implements ApplicationContextAware {
 
     private Map<String, ShardManager> jobResourceShardManager = new ConcurrentHashMap<>();
 
+    /**
+     * key: jobId, value: jobResource
+     * 任务进入优先级队列或提交后登记, 分片更新时不再查询 schedule_engine_job_cache,
+     * 长时间未访问的记录自动过期, 过期后回退到数据库查询
+     */
+    private Map<String, String> jobResourceIndex = CacheBuilder.newBuilder()
+            .expireAfterAccess(1, TimeUnit.DAYS)
+            .<String, String>build()
+            .asMap();
+
+    /**
+     * key: jobId
+     * 已删除 job_cache 的任务, 防止提交线程在停止之后重新登记
+     */
+    private Map<String, Boolean> removedJobs = CacheBuilder.newBuilder()
+            .expireAfterWrite(1, TimeUnit.HOURS)
+            .<String, Boolean>build()
+            .asMap();
+
+    /**
+     * 新写入 job_cache 时登记任务所属的 jobResource
+     *
+     * @param jobId       任务id
+     * @param jobResource 计算资源
+     */
+    public void registerJobResource(String jobId, String jobResource) {
+        if (jobId == null || jobResource == null) {
+            return;
+        }
+        removedJobs.remove(jobId);
+        jobResourceIndex.put(jobId, jobResource);
+    }
+
+    /**
+     * job_cache 仍存在时登记任务所属的 jobResource, 已被删除(如提交期间被停止)的任务不再登记
+     *
+     * @param jobId       任务id
+     * @param jobResource 计算资源
+     * @return 是否登记成功
+     */
+    public boolean registerIfCached(String jobId, String jobResource) {
+        if (jobId == null || jobResource == null) {
+            return false;
+        }
+        jobResourceIndex.put(jobId, jobResource);
+        // 先登记再检查, 与删除时先标记再移除配合, 避免并发下残留登记
+        if (removedJobs.containsKey(jobId)) {
+            jobResourceIndex.remove(jobId, jobResource);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 删除任务的 job_cache 并移除登记
+     *
+     * @param jobId 任务id
+     * @return 删除的记录数
+     */
+    public int deleteJobCache(String jobId) {
+        if (jobId == null) {
+            return 0;
+        }
+        markRemoved(jobId);
+        return applicationContext.getBean(ScheduleJobCacheService.class).deleteByJobId(jobId);
+    }
+
+    /**
+     * 批量删除任务的 job_cache 并移除登记
+     *
+     * @param jobIds 任务id
+     * @return 删除的记录数
+     */
+    public int deleteJobCaches(List<String> jobIds) {
+        if (jobIds == null || jobIds.isEmpty()) {
+            return 0;
+        }
+        jobIds.forEach(this::markRemoved);
+        return applicationContext.getBean(ScheduleJobCacheService.class).deleteByJobIds(jobIds);
+    }
+
+    /**
+     * 任务 job_cache 迁移到其他节点后, 移除本节点的登记
+     *
+     * @param jobIds 任务id
+     */
+    public void unregisterJobResources(Collection<String> jobIds) {
+        if (jobIds == null) {
+            return;
+        }
+        jobIds.forEach(jobResourceIndex::remove);
+    }
+
+    private void markRemoved(String jobId) {
+        removedJobs.put(jobId, Boolean.TRUE);
+        jobResourceIndex.remove(jobId);
+    }
+
     private ShardManager getShardManager(String jobId) {
-        ScheduleJobCacheService ScheduleJobCacheService = applicationContext.getBean(ScheduleJobCacheService.class);
-        ScheduleEngineJobCache engineJobCache = ScheduleJobCacheService.getByJobId(jobId);
-        if (engineJobCache == null) {
-            return null;
+        String jobResource = jobResourceIndex.get(jobId);
+        if (jobResource == null) {
+            // 启动或容灾恢复的任务未登记, 从数据库获取
+            ScheduleJobCacheService ScheduleJobCacheService = applicationContext.getBean(ScheduleJobCacheService.class);
+            ScheduleEngineJobCache engineJobCache = ScheduleJobCacheService.getByJobId(jobId);
+            if (engineJobCache == null) {
+                return null;
+            }
+            jobResource = engineJobCache.getJobResource();
+            jobResourceIndex.put(jobId, jobResource);
         }
-        return jobResourceShardManager.computeIfAbsent(engineJobCache.getJobResource(), jr -> {
-            ShardManager shardManager = new ShardManager(engineJobCache.getJobResource());
+        return jobResourceShardManager.computeIfAbsent(jobResource, jr -> {
+            ShardManager shardManager = new ShardManager(jr, jobResourceIndex::remove);
             JobStatusDealer jobStatusDealer = new JobStatusDealer();
-            jobStatusDealer.setJobResource(engineJobCache.getJobResource());
+            jobStatusDealer.setJobResource(jr);
             jobStatusDealer.setShardManager(shardManager);
             jobStatusDealer.setShardCache(this);
             jobStatusDealer.setApplicationContext(applicationContext);
@@ -96,6 +204,7 @@ public class ShardCache implements ApplicationContextAware {
             throw new IllegalArgumentException("jobId must not null.");
         }
         ShardManager shardManager = getShardManager(jobId);
+        markRemoved(jobId);
         if (shardManager != null) {
             shardManager.removeJob(jobId);
             return true;
@@ -104,7 +213,10 @@ public class ShardCache implements ApplicationContextAware {
     }
 
     private boolean removeWithForeach(String jobId) {
-        LOGGER.warn("jobId:{} stackTrace:{}", jobId, ExceptionUtil.stackTrack());
+        LOGGER.warn("jobId:{} not found in job cache, remove from all shards", jobId);
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("jobId:{} stackTrace:{}", jobId, ExceptionUtil.stackTrack());
+        }
         for (ShardManager shardManager : jobResourceShardManager.values()) {
             if (shardManager.getShard().remove(jobId) != null) {
                 return true;
@@ -26,6 +26,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 /**
  * data 数据分片及空闲检测
@@ -40,9 +41,14 @@ public class ShardManager implements Runnable {
     private ScheduledExecutorService scheduledService = null;
     private Map<String, Integer> shard;
     private String jobResource;
+    private Consumer<String> cleanListener;
 
-    public ShardManager(String jobResource) {
+    /**
+     * @param cleanListener 已结束的任务被清理出分片时回调
+     */
+    public ShardManager(String jobResource, Consumer<String> cleanListener) {
         this.jobResource = jobResource;
+        this.cleanListener = cleanListener;
         this.shard = new ConcurrentHashMap<>();
         scheduledService = new ScheduledThreadPoolExecutor(1, new CustomThreadFactory(jobResource + this.getClass().getSimpleName()));
         scheduledService.scheduleWithFixedDelay(
@@ -70,7 +76,13 @@ public class ShardManager implements Runnable {
 
     @Override
     public void run() {
-        shard.entrySet().removeIf(jobWithStatus -> TaskStatus.needClean(jobWithStatus.getValue()));
+        shard.entrySet().removeIf(jobWithStatus -> {
+            if (TaskStatus.needClean(jobWithStatus.getValue())) {
+                cleanListener.accept(jobWithStatus.getKey());
+                return true;
+            }
+            return false;
+        });
     }
 
 }
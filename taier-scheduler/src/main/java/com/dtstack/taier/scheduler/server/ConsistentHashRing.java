@@ -0,0 +1,52 @@
+package com.dtstack.taier.scheduler.server;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 带虚拟节点的一致性哈希环
+ * 节点的虚拟节点数越多分到的 key 越多; 节点增减时只有落在该节点区间内的 key 会移动
+ */
+public class ConsistentHashRing {
+
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_32();
+
+    private final TreeMap<Integer, String> ring = new TreeMap<>();
+
+    /**
+     * @param virtualNodes key: 节点, value: 虚拟节点数
+     */
+    public ConsistentHashRing(Map<String, Integer> virtualNodes) {
+        virtualNodes.forEach((node, count) -> {
+            for (int i = 0; i < count; i++) {
+                ring.put(hash(node + "#" + i), node);
+            }
+        });
+    }
+
+    /**
+     * 顺时针查找 key 所在的节点
+     *
+     * @param key 实例id等
+     * @return 节点, 环为空时返回 null
+     */
+    public String locate(String key) {
+        if (ring.isEmpty()) {
+            return null;
+        }
+        Map.Entry<Integer, String> entry = ring.ceilingEntry(hash(key));
+        return entry == null ? ring.firstEntry().getValue() : entry.getValue();
+    }
+
+    public boolean isEmpty() {
+        return ring.isEmpty();
+    }
+
+    private static int hash(String key) {
+        return HASH_FUNCTION.hashString(key, StandardCharsets.UTF_8).asInt();
+    }
+}
@@ -33,6 +33,7 @@ import com.dtstack.taier.pluginapi.exception.ExceptionUtil;
 import com.dtstack.taier.pluginapi.http.PoolHttpClient;
 import com.dtstack.taier.scheduler.dto.scheduler.SimpleScheduleJobDTO;
 import com.dtstack.taier.scheduler.enums.JobPhaseStatus;
+import com.dtstack.taier.scheduler.jobdealer.cache.ShardCache;
 import com.dtstack.taier.scheduler.server.builder.CycleJobBuilder;
 import com.dtstack.taier.scheduler.service.NodeRecoverService;
 import com.dtstack.taier.scheduler.service.ScheduleJobCacheService;
@@ -84,6 +85,9 @@ public class FailoverStrategy {
     @Autowired
     private ScheduleJobCacheService ScheduleJobCacheService;
 
+    @Autowired
+    private ShardCache shardCache;
+
     @Autowired
     private JobGraphBuilderTrigger jobGraphBuilderTrigger;
 
@@ -101,6 +105,12 @@ public class FailoverStrategy {
 
     private final FaultTolerantDealer faultTolerantDealer = new FaultTolerantDealer();
 
+    /**
+     * 恢复实例迁移、通知存活节点
+     */
+    private final ExecutorService recoverExecutor = new ThreadPoolExecutor(4, 4, 60L, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), new CustomThreadFactory("failoverRecover"));
+
     private FailoverStrategy() {
         masterNodeDealer = new ThreadPoolExecutor(2, 2, 0L, TimeUnit.MILLISECONDS,
                 new LinkedBlockingQueue<>(), new CustomThreadFactory(this.getClass().getSimpleName()));
@@ -167,25 +177,24 @@ public class FailoverStrategy {
 
         @Override
         public void run() {
+            isRun = true;
             try {
                 while (isRun) {
-                    String node = queue.take();
-                    LOGGER.warn("----- nodeAddress:{} node disaster recovery tasks begin to recover----", node);
-
-                    faultTolerantRecoverBatchJob(node);
-                    faultTolerantRecoverJobCache(node);
-
-                    List<String> aliveNodes = zkService.getAliveBrokersChildren();
-                    for (String nodeAddress : aliveNodes) {
-                        LOGGER.warn("----- nodeAddress:{} masterTriggerNode -----", nodeAddress);
-                        if (nodeAddress.equals(environmentContext.getLocalAddress())) {
-                            nodeRecoverService.masterTriggerNode();
-                            continue;
-                        }
-
-                        PoolHttpClient.post(String.format("http://%s/%s", node,MASTER_TRIGGER_NODE), null);
+                    //同时宕机的节点一起恢复
+                    Set<String> nodes = new LinkedHashSet<>();
+                    nodes.add(queue.take());
+                    queue.drainTo(nodes);
+                    LOGGER.warn("----- nodeAddress:{} node disaster recovery tasks begin to recover----", nodes);
+
+                    List<CompletableFuture<Void>> recoverFutures = new ArrayList<>(nodes.size() * 2);
+                    for (String node : nodes) {
+                        recoverFutures.add(CompletableFuture.runAsync(() -> faultTolerantRecoverBatchJob(node), recoverExecutor));
+                        recoverFutures.add(CompletableFuture.runAsync(() -> faultTolerantRecoverJobCache(node), recoverExecutor));
                     }
-                    LOGGER.warn("----- nodeAddress:{} node disaster recovery task ends and resumes-----", node);
+                    CompletableFuture.allOf(recoverFutures.toArray(new CompletableFuture[0])).join();
+
+                    notifyAliveNodes();
+                    LOGGER.warn("----- nodeAddress:{} node disaster recovery task ends and resumes-----", nodes);
                 }
             } catch (Exception e) {
                 LOGGER.error("----faultTolerantRecover error:", e);
@@ -197,6 +206,29 @@ public class FailoverStrategy {
         }
     }
 
+    /**
+     * 并发通知存活节点重新加载迁移过来的实例
+     */
+    private void notifyAliveNodes() {
+        List<String> aliveNodes = zkService.getAliveBrokersChildren();
+        List<CompletableFuture<Void>> notifyFutures = new ArrayList<>(aliveNodes.size());
+        for (String nodeAddress : aliveNodes) {
+            notifyFutures.add(CompletableFuture.runAsync(() -> {
+                LOGGER.warn("----- nodeAddress:{} masterTriggerNode -----", nodeAddress);
+                try {
+                    if (nodeAddress.equals(environmentContext.getLocalAddress())) {
+                        nodeRecoverService.masterTriggerNode();
+                    } else {
+                        PoolHttpClient.post(String.format("http://%s/%s", nodeAddress, MASTER_TRIGGER_NODE), null);
+                    }
+                } catch (Exception e) {
+                    LOGGER.error("----- nodeAddress:{} masterTriggerNode error:", nodeAddress, e);
+                }
+            }, recoverExecutor));
+        }
+        CompletableFuture.allOf(notifyFutures.toArray(new CompletableFuture[0])).join();
+    }
+
     public void faultTolerantRecoverBatchJob(String nodeAddress) {
         try {
             //再次判断broker是否alive
@@ -205,9 +237,9 @@ public class FailoverStrategy {
                 return;
             }
 
-            //节点容灾恢复任务
-            LOGGER.warn("----- nodeAddress:{} BatchJob mission begins to resume----", nodeAddress);
+            //节点容灾恢复任务, 已迁移的实例不再属于宕机节点, master 切换后重新触发时从头扫描只会取到剩余的实例
             long startId = 0L;
+            LOGGER.warn("----- nodeAddress:{} BatchJob mission begins to resume----", nodeAddress);
             while (true) {
                 List<SimpleScheduleJobDTO> simpleScheduleJobDTOS = scheduleJobService.listSimpleJobByStatusAddress(startId, TaskStatus.getUnfinishedStatuses(), nodeAddress);
                 if (CollectionUtils.isEmpty(simpleScheduleJobDTOS)) {
@@ -229,8 +261,8 @@ public class FailoverStrategy {
                     }
                     startId = batchJob.getId();
                 }
-                distributeBatchJobs(cronJobIds, EScheduleType.NORMAL_SCHEDULE.getType());
-                distributeBatchJobs(fillJobIds, EScheduleType.FILL_DATA.getType());
+                distributeBatchJobs(nodeAddress, cronJobIds, EScheduleType.NORMAL_SCHEDULE.getType());
+                distributeBatchJobs(nodeAddress, fillJobIds, EScheduleType.FILL_DATA.getType());
                 updatePhaseStatus(phaseStatus);
             }
 
@@ -262,31 +294,17 @@ public class FailoverStrategy {
     /**
      * Ps：jobIds  为 batchJob 表的 id 字段（非job_id字段）
      */
-    private void distributeBatchJobs(Set<String> jobIds, Integer scheduleType) {
+    private void distributeBatchJobs(String fromNodeAddress, Set<String> jobIds, Integer scheduleType) {
         if (jobIds.isEmpty()) {
             return;
         }
-
-        Iterator<String> jobIdsIterator = jobIds.iterator();
-
-        //任务多节点分发，每个节点要分发的任务量
-        Map<String, List<String>> nodeJobs = Maps.newHashMap();
-
-        Map<String, Integer> nodeJobSize = jobPartitioner.computeBatchJobSize(scheduleType, jobIds.size());
-        for (Map.Entry<String, Integer> nodeJobSizeEntry : nodeJobSize.entrySet()) {
-            String nodeAddress = nodeJobSizeEntry.getKey();
-            int nodeSize = nodeJobSizeEntry.getValue();
-            while (nodeSize > 0 && jobIdsIterator.hasNext()) {
-                nodeSize--;
-                List<String> nodeJobIds = nodeJobs.computeIfAbsent(nodeAddress, k -> Lists.newArrayList());
-                nodeJobIds.add(jobIdsIterator.next());
-            }
-        }
-
-        updateBatchJobs(nodeJobs);
+        updateBatchJobs(fromNodeAddress, jobPartitioner.partitionBatchJobs(scheduleType, jobIds));
     }
 
-    private void updateBatchJobs(Map<String, List<String>> nodeJobs) {
+    /**
+     * 每个目标节点一次批量更新, 只更新仍属于宕机节点的记录, 避免覆盖已被重新分配的实例
+     */
+    private void updateBatchJobs(String fromNodeAddress, Map<String, List<String>> nodeJobs) {
         for (Map.Entry<String, List<String>> nodeEntry : nodeJobs.entrySet()) {
             if (nodeEntry.getValue().isEmpty()) {
                 continue;
@@ -296,6 +314,7 @@ public class FailoverStrategy {
             ScheduleJob scheduleJob = new ScheduleJob();
             scheduleJob.setNodeAddress(nodeEntry.getKey());
             scheduleJobService.lambdaUpdate()
+                    .eq(ScheduleJob::getNodeAddress, fromNodeAddress)
                     .in(ScheduleJob::getJobId,nodeEntry.getValue())
                     .update(scheduleJob);
 
@@ -303,6 +322,7 @@ public class FailoverStrategy {
             ScheduleJobOperatorRecord scheduleJobOperatorRecord = new ScheduleJobOperatorRecord();
             scheduleJobOperatorRecord.setNodeAddress(nodeEntry.getKey());
             scheduleJobOperatorRecordService.lambdaUpdate()
+                    .eq(ScheduleJobOperatorRecord::getNodeAddress, fromNodeAddress)
                     .in(ScheduleJobOperatorRecord::getJobId,nodeEntry.getValue())
                     .update(scheduleJobOperatorRecord);
 
@@ -318,9 +338,9 @@ public class FailoverStrategy {
                 return;
             }
 
-            //节点容灾恢复任务
-            LOGGER.warn("----- nodeAddress:{} JobCache mission begins to resume----", nodeAddress);
+            //节点容灾恢复任务, 已迁移的缓存不再属于宕机节点, master 切换后重新触发时从头扫描只会取到剩余的缓存
             long startId = 0L;
+            LOGGER.warn("----- nodeAddress:{} JobCache mission begins to resume----", nodeAddress);
             while (true) {
                 List<ScheduleEngineJobCache> jobCaches = ScheduleJobCacheService.listByStage(startId, nodeAddress, null, null);
                 if (CollectionUtils.isEmpty(jobCaches)) {
@@ -343,8 +363,8 @@ public class FailoverStrategy {
                         dealSubmitFailJob(jobCache.getJobId(), "This task stores information exception and cannot be converted." + ExceptionUtil.getErrorMessage(e));
                     }
                 }
-                distributeQueueJobs(jobResources);
-                distributeSubmittedJobs(submittedJobs);
+                distributeQueueJobs(nodeAddress, jobResources);
+                distributeSubmittedJobs(nodeAddress, submittedJobs);
             }
             //在迁移任务的时候，可能出现要迁移的节点也宕机了，任务没有正常接收
             List<ScheduleEngineJobCache> jobCaches = ScheduleJobCacheService.listByStage(0L, nodeAddress, null, null);
@@ -358,61 +378,38 @@ public class FailoverStrategy {
         }
     }
 
-    private void distributeQueueJobs(Map<String, List<String>> jobResources) {
+    private void distributeQueueJobs(String fromNodeAddress, Map<String, List<String>> jobResources) {
         if (jobResources.isEmpty()) {
             return;
         }
-        //任务多节点分发，每个节点要分发的任务量
+        //任务多节点分发，每个节点要分发的任务
         Map<String, List<String>> nodeJobs = Maps.newHashMap();
         for (Map.Entry<String, List<String>> jobResourceEntry : jobResources.entrySet()) {
-            String jobResource = jobResourceEntry.getKey();
-            List<String> jobIds = jobResourceEntry.getValue();
-            if (jobIds.isEmpty()) {
+            if (jobResourceEntry.getValue().isEmpty()) {
                 continue;
             }
-            Map<String, Integer> jobCacheSizeInfo = jobPartitioner.computeJobCacheSize(jobResource, jobIds.size());
-            Iterator<String> jobIdsIterator = jobIds.iterator();
-            for (Map.Entry<String, Integer> jobCacheSizeEntry : jobCacheSizeInfo.entrySet()) {
-                String nodeAddress = jobCacheSizeEntry.getKey();
-                int nodeSize = jobCacheSizeEntry.getValue();
-                while (nodeSize > 0 && jobIdsIterator.hasNext()) {
-                    nodeSize--;
-                    List<String> nodeJobIds = nodeJobs.computeIfAbsent(nodeAddress, k -> Lists.newArrayList());
-                    nodeJobIds.add(jobIdsIterator.next());
-                }
-            }
+            jobPartitioner.partitionJobCaches(jobResourceEntry.getKey(), jobResourceEntry.getValue())
+                    .forEach((nodeAddress, jobIds) -> nodeJobs.computeIfAbsent(nodeAddress, k -> Lists.newArrayList()).addAll(jobIds));
         }
-        updateJobCaches(nodeJobs, EJobCacheStage.DB.getStage());
+        updateJobCaches(fromNodeAddress, nodeJobs, EJobCacheStage.DB.getStage());
     }
 
-    private void distributeSubmittedJobs(List<String> jobs) {
+    private void distributeSubmittedJobs(String fromNodeAddress, List<String> jobs) {
         if (jobs.isEmpty()) {
             return;
         }
-        List<String> aliveNodes = zkService.getAliveBrokersChildren();
-        int avg = jobs.size() / aliveNodes.size() + 1;
-        //任务多节点分发，每个节点要分发的任务量
-        Map<String, List<String>> nodeJobs = Maps.newHashMap();
-        Iterator<String> jobsIt = jobs.iterator();
-        int size = avg;
-        for (String nodeAddress : aliveNodes) {
-            while (size > 0 && jobsIt.hasNext()) {
-                size--;
-                String jobId = jobsIt.next();
-                List<String> nodeJobIds = nodeJobs.computeIfAbsent(nodeAddress, k -> Lists.newArrayList());
-                nodeJobIds.add(jobId);
-            }
-        }
-        updateJobCaches(nodeJobs, EJobCacheStage.SUBMITTED.getStage());
+        updateJobCaches(fromNodeAddress, jobPartitioner.partitionJobs(jobs), EJobCacheStage.SUBMITTED.getStage());
     }
 
-    private void updateJobCaches(Map<String, List<String>> nodeJobs, Integer stage) {
+    private void updateJobCaches(String fromNodeAddress, Map<String, List<String>> nodeJobs, Integer stage) {
         for (Map.Entry<String, List<String>> nodeEntry : nodeJobs.entrySet()) {
             if (nodeEntry.getValue().isEmpty()) {
                 continue;
             }
 
-            ScheduleJobCacheService.updateNodeAddressFailover(nodeEntry.getKey(), nodeEntry.getValue(), stage);
+            ScheduleJobCacheService.updateNodeAddressFailover(fromNodeAddress, nodeEntry.getKey(), nodeEntry.getValue(), stage);
+            // 任务已迁移到其他节点, 移除本节点的登记
+            shardCache.unregisterJobResources(nodeEntry.getValue());
             LOGGER.info("jobIds:{} failover to address:{}, set stage={}", nodeEntry.getValue(), nodeEntry.getKey(), stage);
         }
     }
@@ -423,7 +420,7 @@ public class FailoverStrategy {
      * @param errorMsg 错误信息，用于更新日志
      */
     public void dealSubmitFailJob(String jobId, String errorMsg){
-        ScheduleJobCacheService.deleteByJobId(jobId);
+        shardCache.deleteJobCache(jobId);
         scheduleJobService.jobFail(jobId, TaskStatus.SUBMITFAILD.getStatus(), GenerateErrorMsgUtil.generateErrorMsg(errorMsg));
         LOGGER.info("jobId:{} update job status:{}, job is finished.", jobId, TaskStatus.SUBMITFAILD.getStatus());
     }
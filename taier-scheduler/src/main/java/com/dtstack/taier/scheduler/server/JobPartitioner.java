@@ -22,14 +22,18 @@ import com.dtstack.taier.scheduler.server.listener.QueueListener;
 import com.dtstack.taier.scheduler.server.queue.GroupInfo;
 import com.dtstack.taier.scheduler.server.queue.QueueInfo;
 import com.dtstack.taier.scheduler.zookeeper.ZkService;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * company: www.dtstack.com
@@ -45,6 +49,16 @@ public class JobPartitioner {
     @Autowired
     private ZkService zkService;
 
+    /**
+     * 空闲容量最大的节点的虚拟节点数
+     */
+    private static final int VIRTUAL_NODES = 160;
+
+    /**
+     * 已满载节点仍保留的虚拟节点数, 避免全部实例集中到少数节点
+     */
+    private static final int MIN_VIRTUAL_NODES = 8;
+
     public Map<String, Integer> getDefaultStrategy(List<String> aliveNodes, int jobSize) {
         Map<String, Integer> jobSizeInfo = new HashMap<>(aliveNodes.size());
         int size = (jobSize / aliveNodes.size()) + 1;
@@ -60,6 +74,7 @@ public class JobPartitioner {
     public Map<String, Integer> computeBatchJobSize(Integer type, int jobSize) {
         //节点挂了就会迁移的
         List<String> aliveNodes = zkService.getAliveBrokersChildren();
+        Set<String> aliveNodeSet = new HashSet<>(aliveNodes);
         Map<Integer, Map<String, QueueInfo>> allNodesJobQueueInfo = queueListener.getAllNodesJobQueueInfo();
         if (allNodesJobQueueInfo.isEmpty()) {
             return getDefaultStrategy(aliveNodes, jobSize);
@@ -74,7 +89,7 @@ public class JobPartitioner {
             QueueInfo queueInfo = queueInfoEntry.getValue();
             total += queueInfo.getSize();
             //排除宕机节点
-            if (aliveNodes.contains(queueInfoEntry.getKey())) {
+            if (aliveNodeSet.contains(queueInfoEntry.getKey())) {
                 nodeSort.put(queueInfoEntry.getKey(), queueInfo.getSize());
             }
         }
@@ -88,36 +103,6 @@ public class JobPartitioner {
         return nodeSort;
     }
 
-    public Map<String, Integer> computeJobCacheSize(String jobResource, int jobSize) {
-        List<String> aliveNodes = zkService.getAliveBrokersChildren();
-        Map<String, Map<String, GroupInfo>> allNodesGroupQueueJobResources = queueListener.getAllNodesGroupQueueInfo();
-        if (allNodesGroupQueueJobResources.isEmpty()) {
-            return getDefaultStrategy(aliveNodes, jobSize);
-        }
-        Map<String, GroupInfo> nodesGroupQueue = allNodesGroupQueueJobResources.get(jobResource);
-        if (nodesGroupQueue == null || nodesGroupQueue.isEmpty()) {
-            return getDefaultStrategy(aliveNodes, jobSize);
-        }
-        Map<String, Integer> nodeSort = Maps.newHashMap();
-        int total = jobSize;
-        for (Map.Entry<String, GroupInfo> groupInfoEntry : nodesGroupQueue.entrySet()) {
-            GroupInfo groupInfo = groupInfoEntry.getValue();
-            total += groupInfo.getSize();
-            //排除宕机节点
-            if (aliveNodes.contains(groupInfoEntry.getKey())) {
-                nodeSort.put(groupInfoEntry.getKey(), groupInfo.getSize());
-            }
-        }
-        if (nodeSort.isEmpty()) {
-            return getDefaultStrategy(aliveNodes, jobSize);
-        }
-        int avg = (total / nodeSort.size()) + 1;
-        for (Map.Entry<String, Integer> entry : nodeSort.entrySet()) {
-            entry.setValue(avg - entry.getValue());
-        }
-        return nodeSort;
-    }
-
     public Map<String, GroupInfo> getGroupInfoByJobResource(String jobResource) {
         Map<String, Map<String, GroupInfo>> allNodesGroupQueueJobResources = queueListener.getAllNodesGroupQueueInfo();
         if (allNodesGroupQueueJobResources.isEmpty()) {
@@ -127,7 +112,7 @@ public class JobPartitioner {
         if (nodesGroupQueue == null || nodesGroupQueue.isEmpty()) {
             return null;
         }
-        List<String> aliveBrokers = zkService.getAliveBrokersChildren();
+        Set<String> aliveBrokers = new HashSet<>(zkService.getAliveBrokersChildren());
         //将不存活节点过滤
         Iterator<Map.Entry<String, GroupInfo>> nodesGroupQueueIt = nodesGroupQueue.entrySet().iterator();
         while (nodesGroupQueueIt.hasNext()) {
@@ -139,4 +124,83 @@ public class JobPartitioner {
         }
         return nodesGroupQueue;
     }
+
+    /**
+     * 按周期实例队列的负载把实例分配到存活节点
+     *
+     * @param type   调度类型
+     * @param jobIds 实例id
+     * @return key: 节点, value: 分配到该节点的实例id
+     */
+    public Map<String, List<String>> partitionBatchJobs(Integer type, Collection<String> jobIds) {
+        Map<String, QueueInfo> nodesJobQueue = queueListener.getAllNodesJobQueueInfo().get(type);
+        Map<String, Integer> nodeLoads = Maps.newHashMap();
+        if (nodesJobQueue != null) {
+            nodesJobQueue.forEach((node, queueInfo) -> nodeLoads.put(node, queueInfo.getSize()));
+        }
+        return partition(jobIds, nodeLoads);
+    }
+
+    /**
+     * 按 jobResource 队列的负载把实例分配到存活节点
+     *
+     * @param jobResource 计算资源
+     * @param jobIds      实例id
+     * @return key: 节点, value: 分配到该节点的实例id
+     */
+    public Map<String, List<String>> partitionJobCaches(String jobResource, Collection<String> jobIds) {
+        Map<String, GroupInfo> nodesGroupQueue = queueListener.getAllNodesGroupQueueInfo().get(jobResource);
+        Map<String, Integer> nodeLoads = Maps.newHashMap();
+        if (nodesGroupQueue != null) {
+            nodesGroupQueue.forEach((node, groupInfo) -> nodeLoads.put(node, groupInfo.getSize()));
+        }
+        return partition(jobIds, nodeLoads);
+    }
+
+    /**
+     * 把实例平均分配到存活节点
+     *
+     * @param jobIds 实例id
+     * @return key: 节点, value: 分配到该节点的实例id
+     */
+    public Map<String, List<String>> partitionJobs(Collection<String> jobIds) {
+        return partition(jobIds, Maps.newHashMap());
+    }
+
+    private Map<String, List<String>> partition(Collection<String> jobIds, Map<String, Integer> nodeLoads) {
+        Map<String, List<String>> nodeJobs = Maps.newHashMap();
+        List<String> aliveNodes = zkService.getAliveBrokersChildren();
+        if (aliveNodes.isEmpty() || jobIds.isEmpty()) {
+            return nodeJobs;
+        }
+        ConsistentHashRing ring = new ConsistentHashRing(computeVirtualNodes(aliveNodes, nodeLoads, jobIds.size()));
+        for (String jobId : jobIds) {
+            nodeJobs.computeIfAbsent(ring.locate(jobId), k -> Lists.newArrayList()).add(jobId);
+        }
+        return nodeJobs;
+    }
+
+    /**
+     * 虚拟节点数与节点的空闲容量成正比, 空闲容量 = 分配后的平均负载 - 当前负载
+     */
+    private Map<String, Integer> computeVirtualNodes(List<String> aliveNodes, Map<String, Integer> nodeLoads, int jobSize) {
+        long total = jobSize;
+        for (String node : aliveNodes) {
+            total += nodeLoads.getOrDefault(node, 0);
+        }
+        long avg = total / aliveNodes.size() + 1;
+        Map<String, Long> freeCapacity = new HashMap<>(aliveNodes.size());
+        long maxFree = 0;
+        for (String node : aliveNodes) {
+            long free = Math.max(avg - nodeLoads.getOrDefault(node, 0), 0);
+            freeCapacity.put(node, free);
+            maxFree = Math.max(maxFree, free);
+        }
+        Map<String, Integer> virtualNodes = new HashMap<>(aliveNodes.size());
+        for (Map.Entry<String, Long> entry : freeCapacity.entrySet()) {
+            int count = maxFree == 0 ? VIRTUAL_NODES : (int) (VIRTUAL_NODES * entry.getValue() / maxFree);
+            virtualNodes.put(entry.getKey(), Math.max(count, MIN_VIRTUAL_NODES));
+        }
+        return virtualNodes;
+    }
 }
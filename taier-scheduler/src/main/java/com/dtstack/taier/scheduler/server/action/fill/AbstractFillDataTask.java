@@ -12,7 +12,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.ApplicationContext;
 
-import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -56,17 +55,9 @@ public abstract class AbstractFillDataTask implements FillDataTask {
         // 获得R集合所在的dag图的所有边
         Map<Long, List<Long>> nodeSide = getNodeSideByRun(run);
 
-        LOGGER.info("run:{} nodeSide:{} ",run,nodeSide);
-        // 开始查询有效路径
-        Collection<DAGNode> nodes = getDAGNodeByRun(run,nodeSide);
-
-        // 封装节点信息
-        for (DAGNode node : nodes) {
-            List<DAGPath> paths = node.getPaths();
-            for (DAGPath dagPath : paths) {
-                all.addAll(dagPath.RTaskKeys);
-            }
-        }
+        LOGGER.info("run:{} nodeSide size:{} ",run,nodeSide.size());
+        // 开始查询有效路径上的节点
+        all.addAll(fillValidTaskKeys(run, nodeSide));
         return all;
     }
 
@@ -127,177 +118,18 @@ public abstract class AbstractFillDataTask implements FillDataTask {
      */
     protected List<ScheduleTaskTaskShade> getScheduleTaskTaskShades(List<Long> taskIds) {
         return CollectionUtils.isNotEmpty(taskIds) ?
-                scheduleTaskTaskService.lambdaQuery().in(ScheduleTaskTaskShade::getParentTaskId, taskIds).list() :
+                scheduleTaskTaskService.lambdaQuery()
+                        .select(ScheduleTaskTaskShade::getParentTaskId, ScheduleTaskTaskShade::getTaskId)
+                        .in(ScheduleTaskTaskShade::getParentTaskId, taskIds).list() :
                 Lists.newArrayList();
     }
 
     /**
-     * 初始化路径
-     * @param aimNode
-     * @return
-     */
-    protected DAGPath initPath(Long aimNode) {
-        DAGPath dagPath = new DAGPath();
-        dagPath.setTop(aimNode);
-        dagPath.setRTop(aimNode);
-        dagPath.setRTaskKeys(Lists.newArrayList(aimNode));
-        return dagPath;
-    }
-
-    /**
-     * 查询有效路径
-     *
-     * @param run 运行集合
-     * @param nodeSide 边集合
-     * @return
-     */
-    protected Collection<DAGNode> getDAGNodeByRun(Set<Long> run, Map<Long, List<Long>> nodeSide) {
-        Set<Long> validPathTaskKey = Sets.newHashSet();
-        Map<Long,DAGNode> dagNodes = Maps.newHashMap();
-        for (Long aimNode : run) {
-            if (!validPathTaskKey.contains(aimNode)) {
-                DAGNode dagNode = new DAGNode();
-                dagNode.setAimNode(aimNode);
-                DAGPath dagPath = initPath(aimNode);
-                dagNode.setPaths(fillDAGPaths(aimNode,dagPath,validPathTaskKey,dagNodes,run,nodeSide));
-                validPathTaskKey.add(aimNode);
-                dagNodes.put(aimNode,dagNode);
-            }
-        }
-
-        return dagNodes.values();
-    }
-
-    /**
-     * 查询有效路径
+     * 查询R集合中任意两个节点之间路径上的所有节点
      *
-     * @param aimNode   目标节点
-     * @param dagPath   当前路径
-     * @param validPathTaskKey 完成的节点
-     * @param dagNodes  节点映射
-     * @param run       R集合
-     * @param nodeSide  边
-     * @return 有效路径
+     * @param run      R集合
+     * @param nodeSide 边, R集合所有下游节点的出边
+     * @return 有效路径上的节点
      */
-    protected abstract List<DAGPath> fillDAGPaths(Long aimNode,
-                                                  DAGPath dagPath,
-                                                  Set<Long> validPathTaskKey,
-                                                  Map<Long, DAGNode> dagNodes,
-                                                  Set<Long> run,
-                                                  Map<Long, List<Long>> nodeSide);
-
-    protected static class DAGNode {
-        // 目标节点（R集合里面的节点）
-        private Long aimNode;
-        // 经过该节点的所有路径
-        private List<DAGPath> paths;
-
-        public Long getAimNode() {
-            return aimNode;
-        }
-
-        public void setAimNode(Long aimNode) {
-            this.aimNode = aimNode;
-        }
-
-        public List<DAGPath> getPaths() {
-            return paths;
-        }
-
-        public void setPaths(List<DAGPath> paths) {
-            this.paths = paths;
-        }
-    }
-
-    protected static class DAGPath {
-        // 运行中的路径头
-        private Long top;
-        // 运行中的路径尾
-        private Long end;
-        // R集合在路径中的头
-        private Long RTop;
-        // R集合在路径中的未
-        private Long REnd;
-        // 路径的元素
-        private List<Long> taskKeys = Lists.newArrayList();
-        // R集合的路径元素
-        private List<Long> RTaskKeys = Lists.newArrayList();
-
-        public DAGPath() {
-        }
-
-        public DAGPath(DAGPath dagPath) {
-            this.top = dagPath.getTop();
-            this.end = dagPath.getEnd();
-            this.RTop = dagPath.getRTop();
-            this.REnd = dagPath.getREnd();
-            this.taskKeys = Lists.newArrayList(dagPath.getTaskKeys());
-            this.RTaskKeys = Lists.newArrayList(dagPath.getRTaskKeys());
-        }
-
-        public Long getTop() {
-            return top;
-        }
-
-        public void setTop(Long top) {
-            this.top = top;
-        }
-
-        public Long getEnd() {
-            return end;
-        }
-
-        public void setEnd(Long end) {
-            this.end = end;
-        }
-
-        public Long getRTop() {
-            return RTop;
-        }
-
-        public void setRTop(Long RTop) {
-            this.RTop = RTop;
-        }
-
-        public Long getREnd() {
-            return REnd;
-        }
-
-        public void setREnd(Long REnd) {
-            this.REnd = REnd;
-        }
-
-        public List<Long> getTaskKeys() {
-            return taskKeys;
-        }
-
-        public void setTaskKeys(List<Long> taskKeys) {
-            this.taskKeys = taskKeys;
-        }
-
-        public List<Long> getRTaskKeys() {
-            return RTaskKeys;
-        }
-
-        public void setRTaskKeys(List<Long> RTaskKeys) {
-            this.RTaskKeys = RTaskKeys;
-        }
-
-        public void addChildTaskKey(Long childTaskKey) {
-            List<Long> taskKeys = this.getTaskKeys();
-            taskKeys.add(childTaskKey);
-        }
-
-        public void addChildRTaskKey(Long childTaskKey) {
-            addChildTaskKey(childTaskKey);
-            RTaskKeys.addAll(taskKeys);
-            taskKeys.clear();
-        }
-
-        public void addChildRTaskKeys(List<Long> rTaskKeys) {
-            RTaskKeys.addAll(rTaskKeys);
-        }
-    }
-
-
+    protected abstract Set<Long> fillValidTaskKeys(Set<Long> run, Map<Long, List<Long>> nodeSide);
 }
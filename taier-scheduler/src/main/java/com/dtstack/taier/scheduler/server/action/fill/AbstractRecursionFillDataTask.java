@@ -1,13 +1,17 @@
 package com.dtstack.taier.scheduler.server.action.fill;
 
-import com.alibaba.fastjson.JSON;
 import com.dtstack.taier.scheduler.dto.fill.FillDataInfoDTO;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import org.apache.commons.collections.CollectionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.ApplicationContext;
 
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -26,83 +30,52 @@ public abstract class AbstractRecursionFillDataTask extends AbstractFillDataTask
         super(applicationContext, fillDataInfoDTO);
     }
 
+    /**
+     * 有效路径上的节点 = R集合的下游节点 ∩ R集合的上游节点
+     * 正向、反向各做一次广度遍历，复杂度 O(V+E)，不再枚举每条路径
+     */
     @Override
-    public List<DAGPath> fillDAGPaths(Long aimPath,
-                                      DAGPath dagPath,
-                                      Set<Long> validPathTaskKey,
-                                      Map<Long, DAGNode> dagNodes,
-                                      Set<Long> run,
-                                      Map<Long, List<Long>> nodeSide) {
-        LOGGER.info("{} start fillDAGPath ",aimPath);
-        List<Long> childTaskKeys = nodeSide.get(aimPath);
-        List<DAGPath> paths = Lists.newArrayList();
-        if (CollectionUtils.isEmpty(childTaskKeys)) {
-            // 遍历到子节点，说明该路径已经遍历结束，判断这条路径是否有效
-            LOGGER.info("{} end dagPath:{}",aimPath, JSON.toJSONString(dagPath));
-            if (dagPath.getREnd() != null) {
-                paths.add(dagPath);
-            }
-        } else if (childTaskKeys.size() == 1) {
-            // 一个节点，直接复用原来的path
-            Long childTaskKey = childTaskKeys.get(0);
-            fillPaths(dagPath, validPathTaskKey, dagNodes, run, nodeSide, childTaskKey, paths);
-        } else {
-            // 2个或者两个以上节点，复制path
-            for (Long childTaskKey : childTaskKeys) {
-                DAGPath cpDagPath = new DAGPath(dagPath);
-                fillPaths(cpDagPath, validPathTaskKey, dagNodes, run, nodeSide, childTaskKey, paths);
+    protected Set<Long> fillValidTaskKeys(Set<Long> run, Map<Long, List<Long>> nodeSide) {
+        long startTime = System.currentTimeMillis();
+        Set<Long> descendants = reachable(run, nodeSide);
+
+        // nodeSide 只包含R集合下游节点的出边，反向索引后得到的上游节点同样限定在这部分图内
+        Map<Long, List<Long>> reverseNodeSide = Maps.newHashMap();
+        for (Map.Entry<Long, List<Long>> entry : nodeSide.entrySet()) {
+            for (Long childTaskKey : entry.getValue()) {
+                reverseNodeSide.computeIfAbsent(childTaskKey, k -> Lists.newArrayList()).add(entry.getKey());
             }
         }
+        Set<Long> ancestors = reachable(run, reverseNodeSide);
 
-        return paths;
-    }
-
-    private void fillPaths(DAGPath dagPath,
-                           Set<Long> validPathTaskKey,
-                           Map<Long, DAGNode> dagNodes,
-                           Set<Long> run,
-                           Map<Long, List<Long>> nodeSide,
-                           Long childTaskKey,
-                           List<DAGPath> paths) {
-        if (run.contains(childTaskKey)) {
-            // child属于R集合元素，
-            // 第一点说明最外层遍历不需要遍历这个节点，且path有了Rend节点，
-            // 第二点如果这个节点前面已经遍历过，那么久可以拿来直接用，而不需要遍历
-            validPathTaskKey.add(childTaskKey);
-            dagPath.addChildRTaskKey(childTaskKey);
-            DAGNode childNode = dagNodes.get(childTaskKey);
-            if (childNode == null) {
-                // childNode是空的，说明前面没有对这个节点遍历过，那么需要继续递归遍历这个节点
-                dagPath.setREnd(childTaskKey);
-                dagPath.setEnd(childTaskKey);
-                paths.addAll(fillDAGPaths(childTaskKey, dagPath, validPathTaskKey, dagNodes, run, nodeSide));
-            } else {
-                // 该节点的树已经遍历完了，合并树操作
-                margePath(dagPath, paths, childNode);
+        Set<Long> valid = Sets.newHashSet(run);
+        for (Long taskKey : descendants) {
+            if (ancestors.contains(taskKey)) {
+                valid.add(taskKey);
             }
-        } else {
-            // child不属于R集合，继续往下递归
-            dagPath.addChildTaskKey(childTaskKey);
-            dagPath.setEnd(childTaskKey);
-            paths.addAll(fillDAGPaths(childTaskKey, dagPath, validPathTaskKey, dagNodes, run, nodeSide));
         }
+        LOGGER.info("run size:{} nodeSide size:{} valid size:{} cost:{}ms", run.size(), nodeSide.size(), valid.size(),
+                System.currentTimeMillis() - startTime);
+        return valid;
     }
 
-    private void margePath(DAGPath dagPath, List<DAGPath> paths, DAGNode childNode) {
-        List<DAGPath> pathsChildNodes = childNode.getPaths();
-        if (CollectionUtils.isEmpty(pathsChildNodes)) {
-            // 说明这棵树是单节点,可以直接停止
-            dagPath.setEnd(childNode.getAimNode());
-            dagPath.setREnd(childNode.getAimNode());
-            paths.add(dagPath);
-        } else {
-            for (DAGPath pathsChildNode : pathsChildNodes) {
-                pathsChildNode.setTop(dagPath.getTop());
-                pathsChildNode.setRTop(dagPath.getRTop());
-                pathsChildNode.addChildRTaskKeys(dagPath.getRTaskKeys());
+    /**
+     * 从起点出发能到达的节点，不包含起点本身(除非存在回到起点的边)
+     */
+    static Set<Long> reachable(Collection<Long> starts, Map<Long, List<Long>> nodeSide) {
+        Set<Long> visited = Sets.newHashSet();
+        Deque<Long> queue = new ArrayDeque<>(starts);
+        while (!queue.isEmpty()) {
+            List<Long> childTaskKeys = nodeSide.get(queue.poll());
+            if (CollectionUtils.isEmpty(childTaskKeys)) {
+                continue;
+            }
+            for (Long childTaskKey : childTaskKeys) {
+                if (visited.add(childTaskKey)) {
+                    queue.add(childTaskKey);
+                }
             }
-            paths.addAll(pathsChildNodes);
         }
+        return visited;
     }
-
 }
@@ -7,6 +7,7 @@ import com.dtstack.taier.dao.domain.ScheduleJob;
 import com.dtstack.taier.pluginapi.enums.TaskStatus;
 import com.dtstack.taier.scheduler.service.ScheduleJobJobService;
 import com.dtstack.taier.scheduler.service.ScheduleJobService;
+import com.google.common.collect.Lists;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.collections.MapUtils;
 import org.slf4j.Logger;
@@ -15,9 +16,12 @@ import org.springframework.context.ApplicationContext;
 
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.*;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
@@ -89,42 +93,46 @@ public abstract class AbstractRestart {
     }
 
     /**
-     * 递归查找当前jobId下的子任务
+     * 按层查找jobIds下的所有子任务
      *
-     * @param jobId
+     * @param jobIds
      * @param isOnlyNextChild
-     * @return
+     * @return 超时或查询异常时返回 null
      */
-    protected Map<String,String> getAllChildJobWithSameDayByForkJoin(String jobId, boolean isOnlyNextChild) {
-        ForkJoinPool forkJoinPool = ForkJoinPool.commonPool();
-        ConcurrentHashMap<String,String> results = new ConcurrentHashMap<>();
-        ForkJoinJobTask forkJoinJobTask = new ForkJoinJobTask(jobId, results, scheduleJobService, scheduleJobJobService, isOnlyNextChild);
-        ForkJoinTask<Map<String,String>> submit = forkJoinPool.submit(forkJoinJobTask);
-        try {
-            return submit.get(environmentContext.getForkJoinResultTimeOut(), TimeUnit.SECONDS);
-        } catch (InterruptedException | ExecutionException | TimeoutException e) {
-            LOGGER.error("get all child job {} error ", jobId, e);
-        }
-        return null;
+    protected Map<String,String> getAllChildJobWithSameDay(Collection<String> jobIds, boolean isOnlyNextChild) {
+        DownstreamJobTraverser traverser = new DownstreamJobTraverser(scheduleJobService, scheduleJobJobService, isOnlyNextChild,
+                TimeUnit.SECONDS.toMillis(environmentContext.getForkJoinResultTimeOut()));
+        return traverser.traverse(jobIds);
     }
 
     /**
      * 置成功
      *
-     * @param job
+     * @param jobs
      * @param jobMap
      */
-    protected void setSuccess(ScheduleJob job, Map<String, String> jobMap) {
-        List<String> jobIds = getSubFlowJob(job);
+    protected void setSuccess(List<ScheduleJob> jobs, Map<String, String> jobMap) {
+        List<String> flowJobIds = jobs.stream()
+                .filter(job -> EScheduleJobType.WORK_FLOW.getType().equals(job.getTaskType()))
+                .map(ScheduleJob::getJobId)
+                .collect(Collectors.toList());
+        Set<String> jobIds = new HashSet<>();
+        if (CollectionUtils.isNotEmpty(flowJobIds)) {
+            // 工作流需要带上自己的子节点
+            scheduleJobService.getWorkFlowSubJobs(flowJobIds).forEach(job -> jobIds.add(job.getJobId()));
+        }
         // 设置强规则任务
-        jobIds.add(job.getJobId());
+        jobs.forEach(job -> jobIds.add(job.getJobId()));
 
         ScheduleJob scheduleJob = new ScheduleJob();
         scheduleJob.setStatus(TaskStatus.MANUALSUCCESS.getStatus());
         scheduleJob.setGmtModified(new Timestamp(System.currentTimeMillis()));
-        scheduleJobService.lambdaUpdate().in(ScheduleJob::getJobId,jobIds)
-                .eq(ScheduleJob::getIsDeleted, Deleted.NORMAL.getStatus())
-                .update(scheduleJob);
+        for (List<String> partition : Lists.partition(new ArrayList<>(jobIds), environmentContext.getBatchInsertSize())) {
+            scheduleJobService.lambdaUpdate().in(ScheduleJob::getJobId, partition)
+                    .eq(ScheduleJob::getIsDeleted, Deleted.NORMAL.getStatus())
+                    .update(scheduleJob);
+            scheduleJobService.publishStatusEvent(partition, TaskStatus.MANUALSUCCESS.getStatus());
+        }
 
         LOGGER.info("jobIds {} manual success", jobIds);
         // 置成功并恢复调度,要把当前置成功任务去除掉
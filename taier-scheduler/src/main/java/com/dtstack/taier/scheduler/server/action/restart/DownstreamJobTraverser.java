@@ -0,0 +1,203 @@
+package com.dtstack.taier.scheduler.server.action.restart;
+
+import com.baomidou.mybatisplus.core.toolkit.support.SFunction;
+import com.dtstack.taier.common.enums.Deleted;
+import com.dtstack.taier.common.enums.EScheduleJobType;
+import com.dtstack.taier.dao.domain.ScheduleJob;
+import com.dtstack.taier.dao.domain.ScheduleJobJob;
+import com.dtstack.taier.pluginapi.CustomThreadFactory;
+import com.dtstack.taier.scheduler.service.ScheduleJobJobService;
+import com.dtstack.taier.scheduler.service.ScheduleJobService;
+import com.dtstack.taier.scheduler.utils.JobKeyUtils;
+import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
+import org.apache.commons.collections.CollectionUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * 查询出当前任务的所有下游任务（同一调度日期内）
+ * 按层广度优先遍历, 每一层的实例只用一次 IN 查询(超过 QUERY_BATCH_SIZE 时分片并行查询)获取依赖关系和下游实例,
+ * 已访问的实例 jobKey 不会再次展开, 依赖关系中存在环时也能正常结束
+ */
+public class DownstreamJobTraverser {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DownstreamJobTraverser.class);
+
+    private static final int QUERY_BATCH_SIZE = 1000;
+
+    private static final int QUERY_THREADS = 4;
+
+    /**
+     * 分片查询线程池, 队列满时由遍历线程自己执行
+     */
+    private static final ExecutorService QUERY_EXECUTOR = new ThreadPoolExecutor(QUERY_THREADS, QUERY_THREADS, 60L, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(QUERY_THREADS * 16), new CustomThreadFactory("downstreamJobQuery"), new ThreadPoolExecutor.CallerRunsPolicy());
+
+    private final ScheduleJobService scheduleJobService;
+
+    private final ScheduleJobJobService scheduleJobJobService;
+
+    private final boolean isOnlyNextChild;
+
+    private final long timeoutMillis;
+
+    public DownstreamJobTraverser(ScheduleJobService scheduleJobService, ScheduleJobJobService scheduleJobJobService,
+                                  boolean isOnlyNextChild, long timeoutMillis) {
+        this.scheduleJobService = scheduleJobService;
+        this.scheduleJobJobService = scheduleJobJobService;
+        this.isOnlyNextChild = isOnlyNextChild;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * 查询实例的所有下游实例
+     *
+     * @param jobIds 起始实例
+     * @return key: 下游实例 jobId, value: cycTime. 超时或查询异常时返回 null
+     */
+    public Map<String, String> traverse(Collection<String> jobIds) {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        Map<String, String> results = new HashMap<>();
+        try {
+            List<ScheduleJob> frontier = batchQuery(jobIds, ids -> listJobs(ScheduleJob::getJobId, ids), deadline);
+            Set<String> visited = new HashSet<>();
+            frontier.forEach(job -> visited.add(job.getJobKey()));
+
+            int level = 0;
+            while (CollectionUtils.isNotEmpty(frontier)) {
+                level++;
+                Set<String> childJobKeys = getChildJobKeys(frontier, deadline);
+                // 环上的实例和多个父实例共同的下游只展开一次
+                childJobKeys.removeAll(visited);
+                if (childJobKeys.isEmpty()) {
+                    break;
+                }
+                visited.addAll(childJobKeys);
+
+                List<ScheduleJob> childJobs = batchQuery(childJobKeys, keys -> listJobs(ScheduleJob::getJobKey, keys), deadline);
+                childJobs.forEach(job -> results.put(job.getJobId(), job.getCycTime()));
+                LOGGER.info("traverse downstream jobs {} level {} children {} result {}", jobIds, level, childJobs.size(), results.size());
+                if (isOnlyNextChild) {
+                    break;
+                }
+                frontier = childJobs;
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.error("traverse downstream jobs {} interrupted", jobIds, e);
+        } catch (ExecutionException | TimeoutException e) {
+            LOGGER.error("traverse downstream jobs {} error", jobIds, e);
+        }
+        return null;
+    }
+
+    /**
+     * 获得一层实例的下游实例 jobKey: 工作流的子实例 + 同一天、非自依赖的下游实例
+     */
+    private Set<String> getChildJobKeys(List<ScheduleJob> frontier, long deadline) throws InterruptedException, ExecutionException, TimeoutException {
+        Map<String, ScheduleJob> parentJobs = new HashMap<>(frontier.size());
+        List<String> flowJobIds = new ArrayList<>();
+        for (ScheduleJob job : frontier) {
+            parentJobs.put(job.getJobKey(), job);
+            if (EScheduleJobType.WORK_FLOW.getType().equals(job.getTaskType())) {
+                flowJobIds.add(job.getJobId());
+            }
+        }
+
+        Set<String> childJobKeys = new LinkedHashSet<>();
+        // 工作流把子节点全部添加进来
+        if (CollectionUtils.isNotEmpty(flowJobIds)) {
+            for (ScheduleJob flowSubJob : batchQuery(flowJobIds, ids -> listJobs(ScheduleJob::getFlowJobId, ids), deadline)) {
+                childJobKeys.add(flowSubJob.getJobKey());
+            }
+        }
+
+        List<ScheduleJobJob> jobJobs = batchQuery(parentJobs.keySet(), keys -> scheduleJobJobService.lambdaQuery()
+                .select(ScheduleJobJob::getJobKey, ScheduleJobJob::getParentJobKey)
+                .in(ScheduleJobJob::getParentJobKey, keys)
+                .eq(ScheduleJobJob::getIsDeleted, Deleted.NORMAL.getStatus())
+                .list(), deadline);
+        for (ScheduleJobJob jobJob : jobJobs) {
+            ScheduleJob parentJob = parentJobs.get(jobJob.getParentJobKey());
+            if (parentJob != null && isSameDayChild(parentJob.getJobKey(), jobJob.getJobKey())) {
+                childJobKeys.add(jobJob.getJobKey());
+            }
+        }
+        return childJobKeys;
+    }
+
+    private boolean isSameDayChild(String parentJobKey, String childJobKey) {
+        //从jobKey获取父任务的触发时间
+        String parentJobDayStr = JobKeyUtils.getJobTriggerTimeFromJobKey(parentJobKey);
+        Long parentShadeId = JobKeyUtils.getTaskShadeIdFromJobKey(parentJobKey);
+        if (Strings.isNullOrEmpty(parentJobDayStr) || null == parentShadeId) {
+            return false;
+        }
+        //排除自依赖
+        if (parentShadeId.equals(JobKeyUtils.getTaskShadeIdFromJobKey(childJobKey))) {
+            return false;
+        }
+        //排除不是同一天执行的
+        return parentJobDayStr.equals(JobKeyUtils.getJobTriggerTimeFromJobKey(childJobKey));
+    }
+
+    private List<ScheduleJob> listJobs(SFunction<ScheduleJob, ?> column, Collection<String> values) {
+        return scheduleJobService.lambdaQuery()
+                .select(ScheduleJob::getJobId, ScheduleJob::getJobKey, ScheduleJob::getTaskType, ScheduleJob::getCycTime)
+                .in(column, values)
+                .eq(ScheduleJob::getIsDeleted, Deleted.NORMAL.getStatus())
+                .list();
+    }
+
+    /**
+     * 按 QUERY_BATCH_SIZE 分片查询, 多个分片时并行执行
+     */
+    private <T> List<T> batchQuery(Collection<String> values, Function<List<String>, List<T>> query, long deadline)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        List<List<String>> partitions = Lists.partition(new ArrayList<>(values), QUERY_BATCH_SIZE);
+        if (partitions.size() <= 1) {
+            checkDeadline(deadline);
+            return partitions.isEmpty() ? new ArrayList<>() : query.apply(partitions.get(0));
+        }
+        List<Future<List<T>>> futures = new ArrayList<>(partitions.size());
+        for (List<String> partition : partitions) {
+            futures.add(QUERY_EXECUTOR.submit(() -> query.apply(partition)));
+        }
+        List<T> results = new ArrayList<>();
+        try {
+            for (Future<List<T>> future : futures) {
+                results.addAll(future.get(checkDeadline(deadline), TimeUnit.MILLISECONDS));
+            }
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+        return results;
+    }
+
+    private long checkDeadline(long deadline) throws TimeoutException {
+        long remaining = deadline - System.currentTimeMillis();
+        if (remaining <= 0) {
+            throw new TimeoutException("traverse downstream jobs timeout");
+        }
+        return remaining;
+    }
+}
@@ -22,6 +22,7 @@ import org.springframework.context.ApplicationContext;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -106,6 +107,7 @@ public class RestartJobRunnable extends AbstractRestart implements Runnable {
      */
     private List<ScheduleJob> findCanResetJob(List<ScheduleJob> jobs, Map<Long, ScheduleTaskShade> taskShadeMap, Map<String, String> resumeBatchJobs) {
         Map<String, ScheduleJob> canResetList = new HashMap<>();
+        Set<String> flowJobIds = new HashSet<>();
         for (ScheduleJob job : jobs) {
             Integer jobStatus = job.getStatus();
 
@@ -124,16 +126,19 @@ public class RestartJobRunnable extends AbstractRestart implements Runnable {
 
             // 判断这个任务是否是工作流子任务，如果是需要带上工作流任务
             if (!StringUtils.equals("0", job.getFlowJobId())) {
-                ScheduleJob flowJob = scheduleJobService.lambdaQuery()
-                        .eq(ScheduleJob::getJobId, job.getFlowJobId())
-                        .eq(ScheduleJob::getIsDeleted, Deleted.NORMAL.getStatus())
-                        .one();
-                if (flowJob != null) {
-                    resumeBatchJobs.put(flowJob.getJobId(), flowJob.getCycTime());
-                }
+                flowJobIds.add(job.getFlowJobId());
             }
         }
 
+        if (CollectionUtils.isNotEmpty(flowJobIds)) {
+            List<ScheduleJob> flowJobs = scheduleJobService.lambdaQuery()
+                    .select(ScheduleJob::getJobId, ScheduleJob::getCycTime)
+                    .in(ScheduleJob::getJobId, flowJobIds)
+                    .eq(ScheduleJob::getIsDeleted, Deleted.NORMAL.getStatus())
+                    .list();
+            flowJobs.forEach(flowJob -> resumeBatchJobs.put(flowJob.getJobId(), flowJob.getCycTime()));
+        }
+
         return new ArrayList<>(canResetList.values());
     }
 
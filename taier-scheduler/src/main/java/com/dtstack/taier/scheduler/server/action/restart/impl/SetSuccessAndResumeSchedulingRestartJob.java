@@ -4,12 +4,15 @@ import com.dtstack.taier.common.enums.Deleted;
 import com.dtstack.taier.common.env.EnvironmentContext;
 import com.dtstack.taier.dao.domain.ScheduleJob;
 import com.dtstack.taier.scheduler.server.action.restart.AbstractRestartJob;
+import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.collections.MapUtils;
 import org.springframework.context.ApplicationContext;
 
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * @Auther: dazhi
@@ -25,22 +28,24 @@ public class SetSuccessAndResumeSchedulingRestartJob extends AbstractRestartJob
 
     @Override
     public Map<String, String> computeResumeBatchJobs(List<ScheduleJob> jobs) {
+        List<String> jobIds = jobs.stream().map(ScheduleJob::getJobId).collect(Collectors.toList());
+        Map<String, String> allChildJobWithSameDay = getAllChildJobWithSameDay(jobIds, false);
+        setSuccess(jobs, allChildJobWithSameDay);
         Map<String, String> resumeBatchJobs = new HashMap<>();
-        for (ScheduleJob job : jobs) {
-            Map<String, String> allChildJobWithSameDayByForkJoin = getAllChildJobWithSameDayByForkJoin(job.getJobId(), false);
-            setSuccess(job, allChildJobWithSameDayByForkJoin);
-            if (MapUtils.isNotEmpty(allChildJobWithSameDayByForkJoin)) {
-                resumeBatchJobs.putAll(allChildJobWithSameDayByForkJoin);
-            }
-            if (!"0".equalsIgnoreCase(job.getFlowJobId())) {
-                ScheduleJob workFlowJob = scheduleJobService.lambdaQuery()
-                        .eq(ScheduleJob::getJobId,job.getFlowJobId())
-                        .eq(ScheduleJob::getIsDeleted, Deleted.NORMAL.getStatus())
-                        .one();
-                if (null != workFlowJob) {
-                    resumeBatchJobs.put(workFlowJob.getJobId(), workFlowJob.getCycTime());
-                }
-            }
+        if (MapUtils.isNotEmpty(allChildJobWithSameDay)) {
+            resumeBatchJobs.putAll(allChildJobWithSameDay);
+        }
+        Set<String> flowJobIds = jobs.stream()
+                .map(ScheduleJob::getFlowJobId)
+                .filter(flowJobId -> !"0".equalsIgnoreCase(flowJobId))
+                .collect(Collectors.toSet());
+        if (CollectionUtils.isNotEmpty(flowJobIds)) {
+            List<ScheduleJob> workFlowJobs = scheduleJobService.lambdaQuery()
+                    .select(ScheduleJob::getJobId, ScheduleJob::getCycTime)
+                    .in(ScheduleJob::getJobId, flowJobIds)
+                    .eq(ScheduleJob::getIsDeleted, Deleted.NORMAL.getStatus())
+                    .list();
+            workFlowJobs.forEach(workFlowJob -> resumeBatchJobs.put(workFlowJob.getJobId(), workFlowJob.getCycTime()));
         }
         return resumeBatchJobs;
     }
@@ -77,6 +77,22 @@ public abstract class AbstractJobBuilder implements JobBuilder, InitializingBean
                                              String endTime,
                                              Long fillId,
                                              JobSortWorker jobSortWorker) throws Exception {
+        return buildJob(scheduleTaskShade, name, triggerDay, beginTime, endTime, fillId, jobSortWorker, null);
+    }
+
+    /**
+     * 构建周期实例
+     *
+     * @param buildContext 预加载的生成上下文, 为空时从数据库查询依赖
+     */
+    public List<ScheduleJobDetails> buildJob(ScheduleTaskShade scheduleTaskShade,
+                                             String name,
+                                             String triggerDay,
+                                             String beginTime,
+                                             String endTime,
+                                             Long fillId,
+                                             JobSortWorker jobSortWorker,
+                                             JobGraphBuildContext buildContext) throws Exception {
 
         // 解析周期信息
         ScheduleCorn corn = ScheduleConfManager.parseFromJson(scheduleTaskShade.getScheduleConf());
@@ -91,31 +107,31 @@ public abstract class AbstractJobBuilder implements JobBuilder, InitializingBean
 
         List<ScheduleJobDetails> jobBuilderBeanList = Lists.newArrayList();
 
-        Date next = corn.isMatch(startDate) ? startDate : corn.next(startDate);
-        while (next != null) {
-            // 如下下一次执行时间已经在结束时间之后，停止生成实例
-            if (next.after(endDate)) {
-                break;
-            }
-            ScheduleJobDetails jobBuilderBean = buildJobBuilderBean(scheduleTaskShade, name, fillId, jobSortWorker, corn, scheduleConf, next, NORMAL_TASK_FLOW_ID);
+        // 工作流子任务在各周期间相同, 只查询一次
+        List<ScheduleTaskShade> subTasks = null;
+        // 一次枚举出范围内的所有执行时间
+        for (Date next : corn.listTriggerTime(startDate, endDate)) {
+            ScheduleJobDetails jobBuilderBean = buildJobBuilderBean(scheduleTaskShade, name, fillId, jobSortWorker, corn, scheduleConf, next, NORMAL_TASK_FLOW_ID, buildContext);
 
             if (EScheduleJobType.WORK_FLOW.getVal().equals(scheduleTaskShade.getTaskType())) {
                 // 该任务是工作流任务 先生成子任务
-                List<ScheduleTaskShade> subTasks = scheduleTaskService.lambdaQuery()
-                        .eq(ScheduleTaskShade::getFlowId, scheduleTaskShade.getTaskId())
-                        .eq(ScheduleTaskShade::getIsDeleted, Deleted.NORMAL.getStatus())
-                        .list();
+                if (subTasks == null) {
+                    subTasks = buildContext != null ? buildContext.getFlowSubTasks(scheduleTaskShade.getTaskId())
+                            : scheduleTaskService.lambdaQuery()
+                            .eq(ScheduleTaskShade::getFlowId, scheduleTaskShade.getTaskId())
+                            .eq(ScheduleTaskShade::getIsDeleted, Deleted.NORMAL.getStatus())
+                            .list();
+                }
                 List<ScheduleJobDetails> flowBean = Lists.newArrayList();
                 ScheduleJob scheduleJob = jobBuilderBean.getScheduleJob();
                 for (ScheduleTaskShade subTask : subTasks) {
-                    flowBean.add(buildJobBuilderBean(subTask, name, fillId, jobSortWorker, corn, scheduleConf, next, scheduleJob.getJobId()));
+                    flowBean.add(buildJobBuilderBean(subTask, name, fillId, jobSortWorker, corn, scheduleConf, next, scheduleJob.getJobId(), buildContext));
                 }
                 jobBuilderBean.setFlowBean(flowBean);
             }
 
 
             jobBuilderBeanList.add(jobBuilderBean);
-            next = corn.next(next);
         }
         return jobBuilderBeanList;
     }
@@ -128,7 +144,19 @@ public abstract class AbstractJobBuilder implements JobBuilder, InitializingBean
      * @param sortWorker     排序器
      */
     public List<ScheduleJobDetails> buildJob(ScheduleTaskShade batchTaskShade, String triggerDay, AtomicJobSortWorker sortWorker) throws Exception {
-        return buildJob(batchTaskShade, "", triggerDay, "00:00", "23:59", 0L, sortWorker);
+        return buildJob(batchTaskShade, triggerDay, sortWorker, null);
+    }
+
+    /**
+     * 周期实例生成bean方法
+     *
+     * @param batchTaskShade 任务
+     * @param triggerDay     目标天
+     * @param sortWorker     排序器
+     * @param buildContext   预加载的生成上下文
+     */
+    public List<ScheduleJobDetails> buildJob(ScheduleTaskShade batchTaskShade, String triggerDay, AtomicJobSortWorker sortWorker, JobGraphBuildContext buildContext) throws Exception {
+        return buildJob(batchTaskShade, "", triggerDay, "00:00", "23:59", 0L, sortWorker, buildContext);
     }
 
     /**
@@ -152,6 +180,7 @@ public abstract class AbstractJobBuilder implements JobBuilder, InitializingBean
      * @param corn              周期实例
      * @param scheduleConf      调度配置
      * @param currentData       当前时间
+     * @param buildContext      预加载的生成上下文
      * @return
      */
     private ScheduleJobDetails buildJobBuilderBean(ScheduleTaskShade scheduleTaskShade,
@@ -161,7 +190,8 @@ public abstract class AbstractJobBuilder implements JobBuilder, InitializingBean
                                                    ScheduleCorn corn,
                                                    ScheduleConf scheduleConf,
                                                    Date currentData,
-                                                   String flowJobId) {
+                                                   String flowJobId,
+                                                   JobGraphBuildContext buildContext) {
         String triggerTime = DateUtil.getDate(currentData, DateUtil.STANDARD_DATETIME_FORMAT);
         String cycTime = DateUtil.getTimeStrWithoutSymbol(triggerTime);
         String jobKey = JobKeyUtils.generateJobKey(getKeyPreStr(name), scheduleTaskShade.getTaskId(), cycTime);
@@ -193,7 +223,7 @@ public abstract class AbstractJobBuilder implements JobBuilder, InitializingBean
 
         // 获得依赖
         List<ScheduleJobJob> jobJobList = Lists.newArrayList();
-        JobDependency dependencyHandler = dependencyManager.getDependencyHandler(getKeyPreStr(name), scheduleTaskShade, corn);
+        JobDependency dependencyHandler = dependencyManager.getDependencyHandler(getKeyPreStr(name), scheduleTaskShade, corn, buildContext);
         jobJobList.addAll(dependencyHandler.generationJobJobForTask(corn, currentData, jobKey));
 
         ScheduleJobDetails jobBuilderBean = new ScheduleJobDetails();
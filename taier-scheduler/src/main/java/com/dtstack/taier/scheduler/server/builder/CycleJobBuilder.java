@@ -10,6 +10,7 @@ import com.dtstack.taier.pluginapi.util.RetryUtil;
 import com.dtstack.taier.scheduler.druid.DtDruidRemoveAbandoned;
 import com.dtstack.taier.scheduler.server.ScheduleJobDetails;
 import com.dtstack.taier.scheduler.service.JobGraphTriggerService;
+import com.dtstack.taier.scheduler.service.ScheduleTaskTaskService;
 import com.dtstack.taier.scheduler.utils.JobExecuteOrderUtil;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
@@ -43,6 +44,9 @@ public class CycleJobBuilder extends AbstractJobBuilder {
     @Autowired
     protected JobGraphTriggerService jobGraphTriggerService;
 
+    @Autowired
+    protected ScheduleTaskTaskService scheduleTaskTaskService;
+
     private final Lock lock = new ReentrantLock();
 
     public void buildTaskJobGraph(String triggerDay) {
@@ -80,6 +84,10 @@ public class CycleJobBuilder extends AbstractJobBuilder {
             Semaphore sph = new Semaphore(environmentContext.getMaxTaskBuildThread());
             CountDownLatch ctl = new CountDownLatch(totalBatch);
             AtomicJobSortWorker sortWorker = new AtomicJobSortWorker();
+            // 一次性加载依赖关系, 生成过程中不再逐个任务查询数据库
+            JobGraphBuildContext buildContext = environmentContext.isJobGraphPreload()
+                    ? JobGraphBuildContext.load(triggerDay, scheduleTaskService, scheduleTaskTaskService, scheduleJobService)
+                    : null;
 
             // 3. 查询db多线程生成周期实例
             Long startId = 0L;
@@ -103,7 +111,7 @@ public class CycleJobBuilder extends AbstractJobBuilder {
                         try {
                             for (ScheduleTaskShade batchTaskShade : batchTaskShades) {
                                 try {
-                                    List<ScheduleJobDetails> scheduleJobDetails = RetryUtil.executeWithRetry(() -> buildJob(batchTaskShade, triggerDay, sortWorker),
+                                    List<ScheduleJobDetails> scheduleJobDetails = RetryUtil.executeWithRetry(() -> buildJob(batchTaskShade, triggerDay, sortWorker, buildContext),
                                             environmentContext.getBuildJobErrorRetry(), 200, false);
                                     // 插入周期实例
                                     savaJobList(scheduleJobDetails);
@@ -0,0 +1,170 @@
+package com.dtstack.taier.scheduler.server.builder;
+
+import com.dtstack.taier.common.enums.Deleted;
+import com.dtstack.taier.dao.domain.ScheduleJob;
+import com.dtstack.taier.dao.domain.ScheduleTaskShade;
+import com.dtstack.taier.dao.domain.ScheduleTaskTaskShade;
+import com.dtstack.taier.scheduler.service.ScheduleJobService;
+import com.dtstack.taier.scheduler.service.ScheduleTaskShadeService;
+import com.dtstack.taier.scheduler.service.ScheduleTaskTaskService;
+import com.google.common.collect.Lists;
+import org.apache.commons.collections.CollectionUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 周期实例生成上下文
+ * 生成开始前一次性加载任务依赖关系、工作流子任务和前一天的实例key, 生成过程中的依赖查询都在内存中完成
+ */
+public class JobGraphBuildContext {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JobGraphBuildContext.class);
+
+    private static final int JOB_KEY_PAGE_SIZE = 5000;
+
+    /**
+     * key: 任务id, value: 上游任务
+     */
+    private final Map<Long, List<ScheduleTaskShade>> parentTasks = new HashMap<>();
+
+    /**
+     * key: 工作流任务id, value: 子任务
+     */
+    private final Map<Long, List<ScheduleTaskShade>> flowSubTasks = new HashMap<>();
+
+    /**
+     * 前一天已生成的实例key
+     */
+    private final Set<String> preloadJobKeys = new HashSet<>();
+
+    /**
+     * 前一天的日期
+     */
+    private final LocalDate preloadDay;
+
+    /**
+     * 更早日期的实例key查询结果
+     */
+    private final Map<String, Boolean> checkedJobKeys = new ConcurrentHashMap<>();
+
+    private final ScheduleJobService scheduleJobService;
+
+    private JobGraphBuildContext(LocalDate preloadDay, ScheduleJobService scheduleJobService) {
+        this.preloadDay = preloadDay;
+        this.scheduleJobService = scheduleJobService;
+    }
+
+    /**
+     * 加载生成 triggerDay 实例所需的数据
+     *
+     * @param triggerDay 目标天(格式 yyyy-MM-dd)
+     */
+    public static JobGraphBuildContext load(String triggerDay,
+                                            ScheduleTaskShadeService scheduleTaskService,
+                                            ScheduleTaskTaskService scheduleTaskTaskService,
+                                            ScheduleJobService scheduleJobService) {
+        long startTime = System.currentTimeMillis();
+        LocalDate currentDay = LocalDate.parse(triggerDay);
+        LocalDate preloadDay = currentDay.minusDays(1);
+        JobGraphBuildContext context = new JobGraphBuildContext(preloadDay, scheduleJobService);
+
+        // 不加载sql等大字段
+        List<ScheduleTaskShade> tasks = scheduleTaskService.lambdaQuery()
+                .select(ScheduleTaskShade::getId, ScheduleTaskShade::getTenantId, ScheduleTaskShade::getName,
+                        ScheduleTaskShade::getTaskType, ScheduleTaskShade::getComputeType, ScheduleTaskShade::getTaskId,
+                        ScheduleTaskShade::getScheduleConf, ScheduleTaskShade::getPeriodType, ScheduleTaskShade::getScheduleStatus,
+                        ScheduleTaskShade::getCreateUserId, ScheduleTaskShade::getVersionId, ScheduleTaskShade::getIsDeleted,
+                        ScheduleTaskShade::getFlowId, ScheduleTaskShade::getComponentVersion)
+                .eq(ScheduleTaskShade::getIsDeleted, Deleted.NORMAL.getStatus())
+                .list();
+        Map<Long, ScheduleTaskShade> taskMap = new HashMap<>(tasks.size());
+        for (ScheduleTaskShade task : tasks) {
+            taskMap.put(task.getTaskId(), task);
+            if (task.getFlowId() != null && task.getFlowId() > 0) {
+                context.flowSubTasks.computeIfAbsent(task.getFlowId(), k -> Lists.newArrayList()).add(task);
+            }
+        }
+
+        List<ScheduleTaskTaskShade> taskTasks = scheduleTaskTaskService.lambdaQuery()
+                .eq(ScheduleTaskTaskShade::getIsDeleted, Deleted.NORMAL.getStatus())
+                .list();
+        for (ScheduleTaskTaskShade taskTask : taskTasks) {
+            ScheduleTaskShade parentTask = taskMap.get(taskTask.getParentTaskId());
+            if (parentTask != null) {
+                context.parentTasks.computeIfAbsent(taskTask.getTaskId(), k -> Lists.newArrayList()).add(parentTask);
+            }
+        }
+
+        Long startId = 0L;
+        while (true) {
+            List<ScheduleJob> jobs = scheduleJobService.lambdaQuery()
+                    .select(ScheduleJob::getId, ScheduleJob::getJobKey)
+                    .gt(ScheduleJob::getId, startId)
+                    .ge(ScheduleJob::getCycTime, preloadDay.format(DateTimeFormatter.BASIC_ISO_DATE) + "000000")
+                    .lt(ScheduleJob::getCycTime, currentDay.format(DateTimeFormatter.BASIC_ISO_DATE) + "000000")
+                    .eq(ScheduleJob::getIsDeleted, Deleted.NORMAL.getStatus())
+                    .orderByAsc(ScheduleJob::getId)
+                    .last("limit " + JOB_KEY_PAGE_SIZE)
+                    .list();
+            if (CollectionUtils.isEmpty(jobs)) {
+                break;
+            }
+            jobs.forEach(job -> context.preloadJobKeys.add(job.getJobKey()));
+            startId = jobs.get(jobs.size() - 1).getId();
+        }
+
+        LOGGER.info("load job graph context triggerDay:{} tasks:{} taskTasks:{} preloadJobKeys:{} cost:{}ms", triggerDay, tasks.size(),
+                taskTasks.size(), context.preloadJobKeys.size(), System.currentTimeMillis() - startTime);
+        return context;
+    }
+
+    /**
+     * 获得上游任务
+     *
+     * @param taskId 任务id
+     * @return 上游任务, 没有时返回空集合
+     */
+    public List<ScheduleTaskShade> getParentTasks(Long taskId) {
+        return parentTasks.getOrDefault(taskId, Collections.emptyList());
+    }
+
+    /**
+     * 获得工作流子任务
+     *
+     * @param flowId 工作流任务id
+     * @return 子任务, 没有时返回空集合
+     */
+    public List<ScheduleTaskShade> getFlowSubTasks(Long flowId) {
+        return flowSubTasks.getOrDefault(flowId, Collections.emptyList());
+    }
+
+    /**
+     * 实例是否已经生成
+     *
+     * @param jobKey  实例key
+     * @param cycDate 实例计划时间
+     * @return true 已生成
+     */
+    public boolean existJobKey(String jobKey, Date cycDate) {
+        if (preloadDay.equals(cycDate.toInstant().atZone(ZoneId.systemDefault()).toLocalDate())) {
+            return preloadJobKeys.contains(jobKey);
+        }
+        return checkedJobKeys.computeIfAbsent(jobKey, key -> scheduleJobService.lambdaQuery()
+                .select(ScheduleJob::getJobId)
+                .eq(ScheduleJob::getJobKey, key)
+                .eq(ScheduleJob::getIsDeleted, Deleted.NORMAL.getStatus())
+                .one() != null);
+    }
+}
@@ -22,6 +22,8 @@ import com.alibaba.fastjson.JSON;
 import com.dtstack.taier.common.exception.RdosDefineException;
 import com.dtstack.taier.scheduler.enums.ESchedulePeriodType;
 import com.dtstack.taier.scheduler.server.builder.ScheduleConf;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 
 import java.io.IOException;
 import java.text.ParseException;
@@ -35,7 +37,32 @@ import java.text.ParseException;
 
 public class ScheduleConfManager {
 
+    /**
+     * 调度配置解析结果, key: 调度配置json
+     */
+    private static final Cache<String, ScheduleCorn> SCHEDULE_CORN_CACHE = CacheBuilder.newBuilder()
+            .maximumSize(10000)
+            .build();
+
+    /**
+     * 解析调度配置, 相同配置返回同一个共享对象, 调用方不可修改
+     *
+     * @param scheduleConf 调度配置json
+     * @return 周期对象
+     */
     public static ScheduleCorn parseFromJson(String scheduleConf) throws IOException, ParseException {
+        if (scheduleConf == null) {
+            return parse(null);
+        }
+        ScheduleCorn corn = SCHEDULE_CORN_CACHE.getIfPresent(scheduleConf);
+        if (corn == null) {
+            corn = parse(scheduleConf);
+            SCHEDULE_CORN_CACHE.put(scheduleConf, corn);
+        }
+        return corn;
+    }
+
+    private static ScheduleCorn parse(String scheduleConf) {
         ScheduleConf scheduleConfBean = JSON.parseObject(scheduleConf, ScheduleConf.class);
         // 校验必要参数
         checkConf(scheduleConf, scheduleConfBean);
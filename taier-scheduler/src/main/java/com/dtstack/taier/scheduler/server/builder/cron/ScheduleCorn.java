@@ -6,10 +6,14 @@ import com.cronutils.model.definition.CronDefinitionBuilder;
 import com.cronutils.model.time.ExecutionTime;
 import com.cronutils.parser.CronParser;
 import com.dtstack.taier.scheduler.server.builder.ScheduleConf;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 
 import static com.cronutils.model.CronType.QUARTZ;
 
@@ -21,7 +25,14 @@ import static com.cronutils.model.CronType.QUARTZ;
  */
 public class ScheduleCorn {
 
-    private final CronDefinition CRON_DEFINITION = CronDefinitionBuilder.instanceDefinitionFor(QUARTZ);
+    private static final CronDefinition CRON_DEFINITION = CronDefinitionBuilder.instanceDefinitionFor(QUARTZ);
+
+    /**
+     * 已编译的cron表达式, 同一表达式在各任务间共享
+     */
+    private static final Cache<String, ExecutionTime> EXECUTION_TIME_CACHE = CacheBuilder.newBuilder()
+            .maximumSize(10000)
+            .build();
 
     /**
      * cron表达式
@@ -33,6 +44,8 @@ public class ScheduleCorn {
      */
     private ScheduleConf scheduleConf;
 
+    private volatile ExecutionTime executionTime;
+
     /**
      * 获得距离date的上一次执行最近的时间
      * @param date 时间
@@ -43,11 +56,7 @@ public class ScheduleCorn {
             return null;
         }
 
-        CronParser parser = new CronParser(CRON_DEFINITION);
-        Cron quartzCron = parser.parse(cron);
-
-        ExecutionTime executionTime = ExecutionTime.forCron(quartzCron);
-        ZonedDateTime zonedDateTime = executionTime.lastExecution(ZonedDateTime.ofInstant(date.toInstant(), ZoneId.systemDefault())).orElse(null);
+        ZonedDateTime zonedDateTime = getExecutionTime().lastExecution(toZonedDateTime(date)).orElse(null);
 
         if (zonedDateTime == null) {
             return null;
@@ -66,11 +75,7 @@ public class ScheduleCorn {
             return null;
         }
 
-        CronParser parser = new CronParser(CRON_DEFINITION);
-        Cron quartzCron = parser.parse(cron);
-
-        ExecutionTime executionTime = ExecutionTime.forCron(quartzCron);
-        ZonedDateTime zonedDateTime = executionTime.nextExecution(ZonedDateTime.ofInstant(date.toInstant(), ZoneId.systemDefault())).orElse(null);
+        ZonedDateTime zonedDateTime = getExecutionTime().nextExecution(toZonedDateTime(date)).orElse(null);
 
         if (zonedDateTime == null) {
             return null;
@@ -87,11 +92,47 @@ public class ScheduleCorn {
             return null;
         }
 
-        CronParser parser = new CronParser(CRON_DEFINITION);
-        Cron quartzCron = parser.parse(cron);
+        return getExecutionTime().isMatch(toZonedDateTime(date));
+    }
+
+    /**
+     * 获得 [startDate, endDate] 内的所有执行时间
+     *
+     * @param startDate 开始时间
+     * @param endDate 结束时间
+     * @return 按时间升序排列的执行时间
+     */
+    public List<Date> listTriggerTime(Date startDate, Date endDate) {
+        List<Date> triggerTimes = new ArrayList<>();
+        if (startDate == null || endDate == null) {
+            return triggerTimes;
+        }
+
+        ExecutionTime execution = getExecutionTime();
+        ZonedDateTime end = toZonedDateTime(endDate);
+        ZonedDateTime current = toZonedDateTime(startDate);
+        if (!execution.isMatch(current)) {
+            current = execution.nextExecution(current).orElse(null);
+        }
+        while (current != null && !current.isAfter(end)) {
+            triggerTimes.add(Date.from(current.toInstant()));
+            current = execution.nextExecution(current).orElse(null);
+        }
+        return triggerTimes;
+    }
+
+    private ExecutionTime getExecutionTime() {
+        ExecutionTime execution = executionTime;
+        if (execution == null) {
+            execution = EXECUTION_TIME_CACHE.asMap()
+                    .computeIfAbsent(cron, key -> ExecutionTime.forCron(new CronParser(CRON_DEFINITION).parse(key)));
+            executionTime = execution;
+        }
+        return execution;
+    }
 
-        ExecutionTime executionTime = ExecutionTime.forCron(quartzCron);
-        return executionTime.isMatch(ZonedDateTime.ofInstant(date.toInstant(), ZoneId.systemDefault()));
+    private static ZonedDateTime toZonedDateTime(Date date) {
+        return ZonedDateTime.ofInstant(date.toInstant(), ZoneId.systemDefault());
     }
 
     public String getCron() {
@@ -100,6 +141,7 @@ public class ScheduleCorn {
 
     public void setCron(String cron) {
         this.cron = cron;
+        this.executionTime = null;
     }
 
     public ScheduleConf getScheduleConf() {
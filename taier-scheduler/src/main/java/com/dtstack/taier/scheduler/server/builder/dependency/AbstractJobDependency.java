@@ -6,6 +6,7 @@ import com.dtstack.taier.dao.domain.ScheduleJob;
 import com.dtstack.taier.dao.domain.ScheduleTaskShade;
 import com.dtstack.taier.pluginapi.util.DateUtil;
 import com.dtstack.taier.scheduler.enums.RelyRule;
+import com.dtstack.taier.scheduler.server.builder.JobGraphBuildContext;
 import com.dtstack.taier.scheduler.server.builder.ScheduleConf;
 import com.dtstack.taier.scheduler.service.ScheduleJobService;
 
@@ -40,6 +41,11 @@ public abstract class AbstractJobDependency implements JobDependency {
 
     protected ScheduleJobService scheduleJobService;
 
+    /**
+     * 预加载的生成上下文
+     */
+    protected JobGraphBuildContext buildContext;
+
     public AbstractJobDependency(String keyPreStr,
                                  ScheduleTaskShade currentTaskShade,
                                  ScheduleJobService scheduleJobService,
@@ -50,6 +56,10 @@ public abstract class AbstractJobDependency implements JobDependency {
         this.scheduleJobService = scheduleJobService;
     }
 
+    public void setBuildContext(JobGraphBuildContext buildContext) {
+        this.buildContext = buildContext;
+    }
+
     /**
      * 获得依赖规则
      *
@@ -80,6 +90,9 @@ public abstract class AbstractJobDependency implements JobDependency {
     protected String needCreateKey(Date lastDate,Date currentDate,String lastJobKey) {
         if (!DateUtil.isSameDay(lastDate,currentDate)) {
             // 不是同一天
+            if (buildContext != null) {
+                return buildContext.existJobKey(lastJobKey, lastDate) ? lastJobKey : null;
+            }
             ScheduleJob scheduleJob = scheduleJobService.lambdaQuery()
                     .select(ScheduleJob::getJobId)
                     .eq(ScheduleJob::getJobKey, lastJobKey)
@@ -35,6 +35,9 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
+ * 节点会话丢失由 zk 临时节点的删除事件触发，master 立即做容灾；
+ * 心跳 seq 的定时检查只作为低频对账，处理正常停止后未重启以及假死的节点
+ *
  * company: www.dtstack.com
  * author: toutian
  * create: 2019/10/22
@@ -45,17 +48,17 @@ public class HeartBeatCheckListener implements Listener {
 
     private int logOutput = 0;
     private final static int MULTIPLES = 5;
-    private final static int CHECK_INTERVAL = 2000;
+    private final static int CHECK_INTERVAL = 10000;
     private final static long STOP_HEALTH_CHECK_SEQ = -1;
     /**
-     * 正常停止
+     * 正常停止, 约60s
      */
-    private final static int RESTART_TIMEOUT_COUNT = 30;
+    private final static int RESTART_TIMEOUT_COUNT = 6;
 
     /**
-     * 宕机
+     * 宕机, 约20s
      */
-    private final static int OUTAGE_TIMEOUT_COUNT = 10;
+    private final static int OUTAGE_TIMEOUT_COUNT = 2;
     private MasterListener masterListener;
 
     private final ScheduledExecutorService scheduledService;
@@ -74,6 +77,8 @@ public class HeartBeatCheckListener implements Listener {
                 CHECK_INTERVAL,
                 CHECK_INTERVAL,
                 TimeUnit.MILLISECONDS);
+        // 与定时检查在同一线程中执行
+        zkService.addAliveNodeRemovedListener(node -> scheduledService.execute(() -> onNodeLost(node)));
     }
 
     private Map<String, BrokerNodeCount> brokerNodeCounts = Maps.newHashMap();
@@ -93,6 +98,28 @@ public class HeartBeatCheckListener implements Listener {
         }
     }
 
+    /**
+     * 节点临时节点被删除
+     * 正常停止时 alive 已经被置为 false，留给定时检查等待节点重启；alive 仍为 true 说明会话异常丢失，立即容灾
+     */
+    private void onNodeLost(String node) {
+        try {
+            if (!this.masterListener.isMaster() || node.equals(this.zkService.getLocalAddress())) {
+                return;
+            }
+            BrokerHeartNode brokerNode = this.zkService.getBrokerHeartNode(node);
+            if (brokerNode == null || STOP_HEALTH_CHECK_SEQ == brokerNode.getSeq() || !brokerNode.getAlive()) {
+                return;
+            }
+            LOGGER.warn("node:{} zk session lost, start dataMigration", node);
+            this.zkService.disableBrokerHeartNode(node, true);
+            this.failoverStrategy.dataMigration(node);
+            this.brokerNodeCounts.remove(node);
+        } catch (Throwable e) {
+            LOGGER.error("node:{} lost, dataMigration error:", node, e);
+        }
+    }
+
     /**
      * 节点未正常重启、宕机都由 master 的健康检查机制来做任务恢复
      * healthCheck 后的 broker-heart-seq = -1
@@ -31,15 +31,18 @@ import com.dtstack.taier.scheduler.jobdealer.JobDealer;
 import com.dtstack.taier.scheduler.jobdealer.JobSubmitDealer;
 import com.dtstack.taier.scheduler.server.JobPartitioner;
 import com.dtstack.taier.scheduler.service.ScheduleJobCacheService;
+import com.google.common.collect.Lists;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.ApplicationContext;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * company: www.dtstack.com
@@ -52,8 +55,25 @@ public class GroupPriorityQueue {
 
     private static final int WAIT_INTERVAL = 5000;
 
+    /**
+     * 内存计数为 0 时, 与数据库对账的间隔. 其他节点容灾迁移过来的任务只能通过对账发现
+     */
+    private static final long RECONCILE_INTERVAL = WAIT_INTERVAL * 12L;
+
     private AtomicBoolean blocked = new AtomicBoolean(false);
 
+    /**
+     * 本节点该 jobResource 下 stage=DB 的任务数, 存库时增加, 加载到队列后减少
+     */
+    private final AtomicInteger dbJobCount = new AtomicInteger(0);
+
+    /**
+     * 是否已有等待执行的补充任务
+     */
+    private final AtomicBoolean refillPending = new AtomicBoolean(false);
+
+    private volatile long nextReconcileTime = 0L;
+
     private String jobResource;
     private int queueSizeLimited;
 
@@ -64,8 +84,10 @@ public class GroupPriorityQueue {
     private JobPartitioner jobPartitioner;
     private WorkerOperator workerOperator;
 
-    private PriorityBlockingQueue<JobClient> queue = null;
+    private IndexedPriorityQueue queue = null;
     private JobSubmitDealer jobSubmitDealer = null;
+    private ScheduledExecutorService scheduledService = null;
+    private ExecutorService prefetchService = null;
 
     private GroupPriorityQueue() {
     }
@@ -92,7 +114,7 @@ public class GroupPriorityQueue {
     }
 
     private boolean addRedirect(JobClient jobClient, boolean insert) {
-        if (queue.contains(jobClient)) {
+        if (queue.containsJob(jobClient.getJobId())) {
             LOGGER.info("jobId:{} unable add to queue, because jobId already exist.", jobClient.getJobId());
             return true;
         }
@@ -119,6 +141,42 @@ public class GroupPriorityQueue {
         return false;
     }
 
+    /**
+     * 任务暂时无法留在内存中(延时队列已满), 以 stage=DB 存库, 等待队列低于水位线时重新加载
+     */
+    public void saveToDb(JobClient jobClient) {
+        jobDealer.saveCache(jobClient, jobResource, EJobCacheStage.DB.getStage(), false);
+        onSaveToDb();
+        triggerRefill();
+    }
+
+    /**
+     * 任务未能进入队列, 以 stage=DB 存库后调用
+     */
+    public void onSaveToDb() {
+        dbJobCount.incrementAndGet();
+    }
+
+    private void decrementDbJobCount() {
+        dbJobCount.updateAndGet(count -> count > 0 ? count - 1 : 0);
+    }
+
+    /**
+     * 队列长度低于水位线时立即补充, 不等下一次定时调度
+     */
+    private void triggerRefill() {
+        if (!blocked.get() && dbJobCount.get() <= 0) {
+            return;
+        }
+        if (refillPending.compareAndSet(false, true)) {
+            try {
+                scheduledService.execute(new AcquireGroupQueueJob());
+            } catch (RejectedExecutionException e) {
+                refillPending.set(false);
+            }
+        }
+    }
+
     private boolean isBlocked() {
         return blocked.get();
     }
@@ -136,55 +194,94 @@ public class GroupPriorityQueue {
     }
 
     /**
+     * 分页从数据库加载任务, 当前页入队的同时异步加载并解析下一页
+     *
      * @return false: blocked | true: unblocked
      */
     private boolean emitJob2PriorityQueue() {
         boolean empty = false;
         String localAddress = "";
+        Future<JobCachePage> nextPage = null;
         try {
             if (priorityQueueSize() >= getQueueSizeLimited()) {
                 return false;
             }
             localAddress = environmentContext.getLocalAddress();
-            long startId = 0L;
+            String address = localAddress;
+            nextPage = prefetchService.submit(() -> loadPage(0L, address));
             outLoop:
             while (true) {
-                List<ScheduleEngineJobCache> jobCaches = ScheduleJobCacheService.listByStage(startId, localAddress, EJobCacheStage.DB.getStage(), jobResource);
-                if (CollectionUtils.isEmpty(jobCaches)) {
+                JobCachePage page = nextPage.get();
+                if (page.rowCount == 0) {
+                    nextPage = null;
                     empty = true;
                     break;
                 }
-                for (ScheduleEngineJobCache jobCache : jobCaches) {
-                    try {
-                        ParamAction paramAction = PublicUtil.jsonStrToObject(jobCache.getJobInfo(), ParamAction.class);
-                        JobClient jobClient = new JobClient(paramAction);
-                        jobClient.setCallBack((jobStatus) -> {
-                            jobDealer.updateJobStatus(jobClient.getJobId(), jobStatus);
-                        });
-
-                        boolean addInner = this.addInner(jobClient, false);
-                        LOGGER.info("jobId:{} load from db, {} emit job to queue.", jobClient.getJobId(), addInner ? "success" : "failed");
-                        if (!addInner) {
-                            empty = false;
-                            break outLoop;
-                        }
-                        startId = jobCache.getId();
-                    } catch (Exception e) {
-                        LOGGER.error("", e);
-                        //数据转换异常--打日志
-                        jobDealer.dealSubmitFailJob(jobCache.getJobId(), "This task stores information exception and cannot be converted." + e.toString());
+                nextPage = prefetchService.submit(() -> loadPage(page.lastId, address));
+                for (JobClient jobClient : page.jobClients) {
+                    boolean addInner = this.addInner(jobClient, false);
+                    LOGGER.info("jobId:{} load from db, {} emit job to queue.", jobClient.getJobId(), addInner ? "success" : "failed");
+                    if (!addInner) {
+                        empty = false;
+                        break outLoop;
                     }
+                    decrementDbJobCount();
                 }
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.error("emitJob2PriorityQueue localAddress:{} interrupted", localAddress, e);
         } catch (Exception e) {
             LOGGER.error("emitJob2PriorityQueue localAddress:{} error:", localAddress, e);
+        } finally {
+            // 队列已满时预取的下一页直接丢弃, 下次从头按 stage 重新查询
+            if (nextPage != null) {
+                nextPage.cancel(false);
+            }
         }
         if (empty) {
+            dbJobCount.set(0);
             blocked.set(false);
         }
         return empty;
     }
 
+    private JobCachePage loadPage(long startId, String localAddress) {
+        List<ScheduleEngineJobCache> jobCaches = ScheduleJobCacheService.listByStage(startId, localAddress, EJobCacheStage.DB.getStage(), jobResource);
+        JobCachePage page = new JobCachePage();
+        if (CollectionUtils.isEmpty(jobCaches)) {
+            return page;
+        }
+        page.rowCount = jobCaches.size();
+        page.lastId = jobCaches.get(jobCaches.size() - 1).getId();
+        page.jobClients = new ArrayList<>(jobCaches.size());
+        for (ScheduleEngineJobCache jobCache : jobCaches) {
+            try {
+                ParamAction paramAction = PublicUtil.jsonStrToObject(jobCache.getJobInfo(), ParamAction.class);
+                JobClient jobClient = new JobClient(paramAction);
+                jobClient.setCallBack((jobStatus) -> {
+                    jobDealer.updateJobStatus(jobClient.getJobId(), jobStatus);
+                });
+                page.jobClients.add(jobClient);
+            } catch (Exception e) {
+                LOGGER.error("", e);
+                //数据转换异常--打日志
+                jobDealer.dealSubmitFailJob(jobCache.getJobId(), "This task stores information exception and cannot be converted." + e.toString());
+                decrementDbJobCount();
+            }
+        }
+        return page;
+    }
+
+    private static class JobCachePage {
+
+        private int rowCount;
+
+        private long lastId;
+
+        private List<JobClient> jobClients;
+    }
+
     private class AcquireGroupQueueJob implements Runnable {
 
         /**
@@ -198,9 +295,17 @@ public class GroupPriorityQueue {
          */
         @Override
         public void run() {
+            refillPending.set(false);
             try {
-                if (Boolean.FALSE == blocked.get()) {
-                    int jobSize = ScheduleJobCacheService.countByStage(jobResource, EJobCacheStage.unSubmitted(), environmentContext.getLocalAddress());
+                if (Boolean.FALSE == blocked.get() && dbJobCount.get() <= 0) {
+                    // 内存计数为 0 时只按较低频率查库对账
+                    long now = System.currentTimeMillis();
+                    if (now < nextReconcileTime) {
+                        return;
+                    }
+                    nextReconcileTime = now + RECONCILE_INTERVAL;
+                    int jobSize = ScheduleJobCacheService.countByStage(jobResource, Lists.newArrayList(EJobCacheStage.DB.getStage()), environmentContext.getLocalAddress());
+                    dbJobCount.set(jobSize);
                     if (jobSize == 0) {
                         return;
                     }
@@ -266,10 +371,11 @@ public class GroupPriorityQueue {
 
         checkParams();
 
-        this.queue = new PriorityBlockingQueue<>(queueSizeLimited * 2, new JobClientComparator());
+        this.queue = new IndexedPriorityQueue(queueSizeLimited * 2, new JobClientComparator(), Math.max(1, queueSizeLimited / 2), this::triggerRefill);
         this.jobSubmitDealer = new JobSubmitDealer(environmentContext.getLocalAddress(), this, applicationContext);
 
-        ScheduledExecutorService scheduledService = new ScheduledThreadPoolExecutor(1, new CustomThreadFactory(this.getClass().getSimpleName() + "_" + jobResource + "_AcquireJob"));
+        this.prefetchService = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(), new CustomThreadFactory(this.getClass().getSimpleName() + "_" + jobResource + "_Prefetch"));
+        this.scheduledService = new ScheduledThreadPoolExecutor(1, new CustomThreadFactory(this.getClass().getSimpleName() + "_" + jobResource + "_AcquireJob"));
         scheduledService.scheduleWithFixedDelay(
                 new AcquireGroupQueueJob(),
                 WAIT_INTERVAL * 10L,
@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dtstack.taier.scheduler.server.queue;
+
+import com.dtstack.taier.pluginapi.JobClient;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 带 jobId 索引的优先级队列
+ * 堆之外维护 jobId -> JobClient 的索引, 判重和按任务移除不再线性扫描堆;
+ * 出队后队列长度低于水位线时通知补充任务
+ */
+public class IndexedPriorityQueue extends PriorityBlockingQueue<JobClient> {
+
+    private final Map<String, JobClient> index = new ConcurrentHashMap<>();
+
+    private final int lowWatermark;
+
+    private final Runnable drainListener;
+
+    public IndexedPriorityQueue(int initialCapacity, Comparator<? super JobClient> comparator, int lowWatermark, Runnable drainListener) {
+        super(initialCapacity, comparator);
+        this.lowWatermark = lowWatermark;
+        this.drainListener = drainListener;
+    }
+
+    public boolean containsJob(String jobId) {
+        return index.containsKey(jobId);
+    }
+
+    /**
+     * 相同 jobId 的任务已在队列中时不重复入队, 返回 false
+     */
+    @Override
+    public boolean offer(JobClient jobClient) {
+        if (jobClient == null) {
+            throw new NullPointerException();
+        }
+        if (index.putIfAbsent(jobClient.getJobId(), jobClient) != null) {
+            return false;
+        }
+        return super.offer(jobClient);
+    }
+
+    @Override
+    public JobClient poll() {
+        return unindex(super.poll());
+    }
+
+    @Override
+    public JobClient poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return unindex(super.poll(timeout, unit));
+    }
+
+    @Override
+    public JobClient take() throws InterruptedException {
+        return unindex(super.take());
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof JobClient && containsJob(((JobClient) o).getJobId());
+    }
+
+    /**
+     * 按 jobId 移除队列中的任务
+     */
+    @Override
+    public boolean remove(Object o) {
+        if (!(o instanceof JobClient)) {
+            return false;
+        }
+        String jobId = ((JobClient) o).getJobId();
+        JobClient queued = index.get(jobId);
+        if (queued == null || !super.remove(queued)) {
+            return false;
+        }
+        index.remove(jobId, queued);
+        return true;
+    }
+
+    /**
+     * PriorityBlockingQueue#drainTo(Collection) 也会调用这里
+     */
+    @Override
+    public int drainTo(Collection<? super JobClient> c, int maxElements) {
+        List<JobClient> drained = new ArrayList<>();
+        int n = super.drainTo(drained, maxElements);
+        drained.forEach(jobClient -> index.remove(jobClient.getJobId(), jobClient));
+        c.addAll(drained);
+        notifyIfDrained();
+        return n;
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        index.clear();
+    }
+
+    private JobClient unindex(JobClient jobClient) {
+        if (jobClient != null) {
+            index.remove(jobClient.getJobId(), jobClient);
+            notifyIfDrained();
+        }
+        return jobClient;
+    }
+
+    private void notifyIfDrained() {
+        if (drainListener != null && size() < lowWatermark) {
+            drainListener.run();
+        }
+    }
+}
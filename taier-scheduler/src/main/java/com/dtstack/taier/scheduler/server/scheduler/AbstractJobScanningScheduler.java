@@ -49,6 +49,14 @@ public abstract class AbstractJobScanningScheduler implements Scheduler, Initial
     @Autowired
     protected ScheduleTaskShadeService scheduleTaskService;
 
+    @Autowired
+    protected JobReadinessIndex jobReadinessIndex;
+
+    /**
+     * 上次全量对账时间
+     */
+    private volatile long lastReconcileTime = 0L;
+
     /**
      * 获得实例列表
      * @param startSort 开始id
@@ -71,6 +79,14 @@ public abstract class AbstractJobScanningScheduler implements Scheduler, Initial
      */
     protected abstract List<SubmitInterceptor> getInterceptor();
 
+    /**
+     * 提交队列是否已满, 已满时本轮扫描停止, 不再对剩余实例执行拦截器
+     *
+     * @return 队列是否已满
+     */
+    protected boolean isQueueFull() {
+        return false;
+    }
 
     /**
      * 扫描实例
@@ -91,38 +107,33 @@ public abstract class AbstractJobScanningScheduler implements Scheduler, Initial
             Long minSort = getMinSort();
             LOGGER.info("scanning start param: scheduleType {} nodeAddress {} minSort {} ", getSchedulerName(), nodeAddress, minSort);
 
-            // 3. 扫描实例
+            // 3. 距离上次全量对账超过间隔时, 忽略就绪索引重新判断全部实例, 兜底跨节点的父实例状态变更
+            boolean reconcile = System.currentTimeMillis() - lastReconcileTime >= env.getJobReadinessReconcileInterval();
+            if (reconcile) {
+                lastReconcileTime = System.currentTimeMillis();
+                LOGGER.info("scheduleType:{} reconcile all jobs, waiting jobs in readiness index:{}", getSchedulerName(), jobReadinessIndex.size());
+            }
+
+            // 4. 扫描实例
             List<ScheduleJobDetails> scheduleJobDetails = listExecJob(minSort, nodeAddress, Boolean.TRUE);
             while (CollectionUtils.isNotEmpty(scheduleJobDetails)) {
-                // 查询任务
-                List<Long> taskIds = scheduleJobDetails.stream().map(ScheduleJobDetails::getScheduleJob).map(ScheduleJob::getTaskId).collect(Collectors.toList());
-                Map<Long, ScheduleTaskShade> scheduleTaskShadeMap = scheduleTaskService.lambdaQuery()
-                        .in(ScheduleTaskShade::getTaskId, taskIds)
-                        .eq(ScheduleTaskShade::getIsDeleted, Deleted.NORMAL.getStatus())
-                        .list()
-                        .stream()
-                        .collect(Collectors.toMap(ScheduleTaskShade::getTaskId, g -> (g)));
-
+                if (isQueueFull()) {
+                    LOGGER.info("scheduleType:{} queue is full, stop scanning at minSort:{}", getSchedulerName(), minSort);
+                    break;
+                }
                 for (ScheduleJobDetails scheduleJobDetail : scheduleJobDetails) {
-                    // 提交实例
-                    ScheduleJob scheduleJob = scheduleJobDetail.getScheduleJob();
-                    ScheduleTaskShade scheduleTaskShade = scheduleTaskShadeMap.get(scheduleJob.getTaskId());
-
-                    if (scheduleTaskShade == null) {
-                        String errMsg = JobCheckStatus.NO_TASK.getMsg();
-                        scheduleJobService.updateStatusAndLogInfoById(scheduleJob.getJobId(), TaskStatus.SUBMITFAILD.getStatus(), errMsg);
-                        LOGGER.warn("jobId:{} scheduleType:{} submit failed for taskId:{} already deleted.", scheduleJob.getJobId(), getSchedulerName(), scheduleJob.getTaskId());
-                        continue;
+                    Long jobExecuteOrder = scheduleJobDetail.getScheduleJob().getJobExecuteOrder();
+                    if (minSort < jobExecuteOrder) {
+                        minSort = jobExecuteOrder;
                     }
-                    scheduleJobDetail.setScheduleTaskShade(scheduleTaskShade);
-
-                    // 提交任务
-                    InterceptorInvocation interceptorInvocation = new InterceptorInvocation(this, getInterceptor());
-                    interceptorInvocation.submit(scheduleJobDetail);
+                }
 
-                    if (minSort < scheduleJob.getJobExecuteOrder()) {
-                        minSort = scheduleJob.getJobExecuteOrder();
-                    }
+                // 仍在等待父实例结束的实例本轮跳过
+                List<ScheduleJobDetails> readyJobDetails = reconcile ? scheduleJobDetails : scheduleJobDetails.stream()
+                        .filter(scheduleJobDetail -> !jobReadinessIndex.isWaiting(scheduleJobDetail.getScheduleJob().getJobId()))
+                        .collect(Collectors.toList());
+                if (CollectionUtils.isNotEmpty(readyJobDetails)) {
+                    submitReadyJob(readyJobDetails);
                 }
                 scheduleJobDetails = listExecJob(minSort, nodeAddress, Boolean.FALSE);
             }
@@ -131,6 +142,38 @@ public abstract class AbstractJobScanningScheduler implements Scheduler, Initial
         }
     }
 
+    private void submitReadyJob(List<ScheduleJobDetails> scheduleJobDetails) {
+        // 查询任务
+        List<Long> taskIds = scheduleJobDetails.stream().map(ScheduleJobDetails::getScheduleJob).map(ScheduleJob::getTaskId).collect(Collectors.toList());
+        Map<Long, ScheduleTaskShade> scheduleTaskShadeMap = scheduleTaskService.lambdaQuery()
+                .in(ScheduleTaskShade::getTaskId, taskIds)
+                .eq(ScheduleTaskShade::getIsDeleted, Deleted.NORMAL.getStatus())
+                .list()
+                .stream()
+                .collect(Collectors.toMap(ScheduleTaskShade::getTaskId, g -> (g)));
+
+        for (ScheduleJobDetails scheduleJobDetail : scheduleJobDetails) {
+            if (isQueueFull()) {
+                return;
+            }
+            // 提交实例
+            ScheduleJob scheduleJob = scheduleJobDetail.getScheduleJob();
+            ScheduleTaskShade scheduleTaskShade = scheduleTaskShadeMap.get(scheduleJob.getTaskId());
+
+            if (scheduleTaskShade == null) {
+                String errMsg = JobCheckStatus.NO_TASK.getMsg();
+                scheduleJobService.updateStatusAndLogInfoById(scheduleJob.getJobId(), TaskStatus.SUBMITFAILD.getStatus(), errMsg);
+                LOGGER.warn("jobId:{} scheduleType:{} submit failed for taskId:{} already deleted.", scheduleJob.getJobId(), getSchedulerName(), scheduleJob.getTaskId());
+                continue;
+            }
+            scheduleJobDetail.setScheduleTaskShade(scheduleTaskShade);
+
+            // 提交任务
+            InterceptorInvocation interceptorInvocation = new InterceptorInvocation(this, getInterceptor());
+            interceptorInvocation.submit(scheduleJobDetail);
+        }
+    }
+
     @Override
     public void afterPropertiesSet() throws Exception {
         LOGGER.info("Initializing scheduleType:{} acquireQueueJobInterval:{} queueSize:{}", getSchedulerName(), env.getJobAcquireQueueJobInterval(), env.getQueueSize());
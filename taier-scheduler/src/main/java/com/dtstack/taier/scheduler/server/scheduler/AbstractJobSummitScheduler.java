@@ -2,18 +2,31 @@ package com.dtstack.taier.scheduler.server.scheduler;
 
 import com.dtstack.taier.common.CustomThreadRunsPolicy;
 import com.dtstack.taier.common.enums.EScheduleJobType;
+import com.dtstack.taier.common.thread.SignRunnable;
 import com.dtstack.taier.dao.domain.ScheduleJob;
+import com.dtstack.taier.pluginapi.CustomThreadFactory;
 import com.dtstack.taier.pluginapi.enums.TaskStatus;
 import com.dtstack.taier.pluginapi.exception.ExceptionUtil;
 import com.dtstack.taier.scheduler.enums.JobPhaseStatus;
 import com.dtstack.taier.scheduler.server.ScheduleJobDetails;
 import com.dtstack.taier.scheduler.service.ScheduleJobService;
+import com.google.common.collect.Lists;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -29,6 +42,13 @@ public abstract class AbstractJobSummitScheduler extends AbstractJobScanningSche
 
     private final Logger LOGGER = LoggerFactory.getLogger(AbstractJobScanningScheduler.class);
 
+    /**
+     * 队列状态批量更新的间隔
+     */
+    private static final long PHASE_FLUSH_INTERVAL = 200L;
+
+    private static final int PHASE_BATCH_SIZE = 500;
+
     protected final AtomicBoolean RUNNING = new AtomicBoolean(true);
 
     /**
@@ -41,13 +61,34 @@ public abstract class AbstractJobSummitScheduler extends AbstractJobScanningSche
      */
     private LinkedBlockingQueue<ScheduleJobDetails> scheduleJobQueue;
 
+    private int queueSize;
+
+    /**
+     * key: jobId, 等待入队和已在队列中的实例, 用于判重
+     * 实例从队列取出时移除, 此时队列状态已是 JOIN_THE_TEAM, 扫描不会再次取到
+     */
+    private final Map<String, ScheduleJobDetails> queuedJobs = new ConcurrentHashMap<>();
+
+    /**
+     * 等待批量更新为 JOIN_THE_TEAM 后入队的实例
+     */
+    private final Queue<ScheduleJobDetails> joiningJobs = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 等待批量更新为 EXECUTE_OVER 的实例id
+     */
+    private final Queue<Long> executeOverIds = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 等待批量回滚为 CREATE 的实例id
+     */
+    private final Queue<Long> rollbackIds = new ConcurrentLinkedQueue<>();
+
     @Autowired
     private ScheduleJobService scheduleJobService;
 
     Predicate<ScheduleJob> workFlowSubmit = job -> EScheduleJobType.WORK_FLOW.getType().equals(job.getTaskType()) && TaskStatus.UNSUBMIT.getStatus().equals(job.getStatus());
-    Predicate<ScheduleJob> normalJobSubmit = job -> !EScheduleJobType.WORK_FLOW.getType().equals(job.getTaskType()) &&
-            scheduleJobService.updatePhaseStatusById(job.getId(), JobPhaseStatus.CREATE, JobPhaseStatus.JOIN_THE_TEAM);
-    Predicate<ScheduleJob> putFlagPredicate = workFlowSubmit.or(normalJobSubmit);
+    Predicate<ScheduleJob> normalJobSubmit = job -> !EScheduleJobType.WORK_FLOW.getType().equals(job.getTaskType());
 
     /**
      * 实例提交条件
@@ -57,24 +98,34 @@ public abstract class AbstractJobSummitScheduler extends AbstractJobScanningSche
      */
     @Override
     public Boolean submitJob(ScheduleJobDetails scheduleJobDetails) {
-        try {
-            ScheduleJob scheduleJob = scheduleJobDetails.getScheduleJob();
-            if (scheduleJobQueue.contains(scheduleJobDetails)) {
-                //元素已存在，返回true
-                LOGGER.info("jobId:{} scheduleType:{} queue has contains ", scheduleJob.getJobId(), getSchedulerName());
+        ScheduleJob scheduleJob = scheduleJobDetails.getScheduleJob();
+        if (queuedJobs.size() >= queueSize) {
+            LOGGER.info("jobId:{} scheduleType:{} queue is full", scheduleJob.getJobId(), getSchedulerName());
+            return false;
+        }
+        if (queuedJobs.putIfAbsent(scheduleJob.getJobId(), scheduleJobDetails) != null) {
+            //元素已存在，返回true
+            LOGGER.info("jobId:{} scheduleType:{} queue has contains ", scheduleJob.getJobId(), getSchedulerName());
+            return false;
+        }
+        if (workFlowSubmit.test(scheduleJob)) {
+            if (!scheduleJobQueue.offer(scheduleJobDetails)) {
+                queuedJobs.remove(scheduleJob.getJobId(), scheduleJobDetails);
                 return false;
             }
-            if (putFlagPredicate.test(scheduleJob)) {
-                scheduleJobQueue.put(scheduleJobDetails);
-                LOGGER.info("jobId:{} scheduleType:{} enter queue", scheduleJob.getJobId(), getSchedulerName());
-            }
-            return true;
-        } catch (InterruptedException e) {
-            ScheduleJob scheduleJob = scheduleJobDetails.getScheduleJob();
-            LOGGER.error("jobId:{} scheduleType:{} job phase rollback, error", scheduleJob.getJobId(), getSchedulerName(), e);
-            scheduleJobService.updatePhaseStatusById(scheduleJob.getId(), JobPhaseStatus.JOIN_THE_TEAM, JobPhaseStatus.CREATE);
-            return false;
+            LOGGER.info("jobId:{} scheduleType:{} enter queue", scheduleJob.getJobId(), getSchedulerName());
+        } else if (normalJobSubmit.test(scheduleJob)) {
+            // CREATE -> JOIN_THE_TEAM 由 flushPhaseStatus 批量更新, 更新成功后入队
+            joiningJobs.offer(scheduleJobDetails);
+        } else {
+            queuedJobs.remove(scheduleJob.getJobId(), scheduleJobDetails);
         }
+        return true;
+    }
+
+    @Override
+    protected boolean isQueueFull() {
+        return queuedJobs.size() >= queueSize;
     }
 
     /**
@@ -83,47 +134,127 @@ public abstract class AbstractJobSummitScheduler extends AbstractJobScanningSche
      * @param scheduleJobDetails 实例信息
      */
     private void submit(ScheduleJobDetails scheduleJobDetails) {
+        ScheduleJob scheduleJob = scheduleJobDetails.getScheduleJob();
         try {
-            executorService.submit(() -> {
-                ScheduleJob scheduleJob = scheduleJobDetails.getScheduleJob();
-                try {
-                    // 发布提交事件
-
-                    scheduleJobService.startJob(scheduleJobDetails);
-                    LOGGER.info("--- jobId:{} scheduleType:{} send to engine.", scheduleJob.getJobId(), getSchedulerName());
-                } catch (Exception e) {
-                    LOGGER.info("--- jobId:{} scheduleType:{} send to engine error:", scheduleJob.getJobId(), getSchedulerName(), e);
-                    scheduleJobService.updateStatusAndLogInfoById(scheduleJob.getJobId(), TaskStatus.FAILED.getStatus(), ExceptionUtil.getErrorMessage(e));
-                } finally {
-                    scheduleJobService.updatePhaseStatusById(scheduleJob.getId(), JobPhaseStatus.JOIN_THE_TEAM, JobPhaseStatus.EXECUTE_OVER);
+            // SignRunnable 使线程池拒绝时能回调回滚队列状态
+            executorService.submit(new SignRunnable<ScheduleJob>(scheduleJob) {
+                @Override
+                public void run() {
+                    try {
+                        // 发布提交事件
+
+                        scheduleJobService.startJob(scheduleJobDetails);
+                        LOGGER.info("--- jobId:{} scheduleType:{} send to engine.", scheduleJob.getJobId(), getSchedulerName());
+                    } catch (Exception e) {
+                        LOGGER.info("--- jobId:{} scheduleType:{} send to engine error:", scheduleJob.getJobId(), getSchedulerName(), e);
+                        scheduleJobService.updateStatusAndLogInfoById(scheduleJob.getJobId(), TaskStatus.FAILED.getStatus(), ExceptionUtil.getErrorMessage(e));
+                    } finally {
+                        executeOverIds.offer(scheduleJob.getId());
+                    }
                 }
             });
         } catch (Exception e) {
-            ScheduleJob scheduleJob = scheduleJobDetails.getScheduleJob();
             LOGGER.info("--- jobId:{} scheduleType:{} executorService submit to engine error:", scheduleJob.getJobId(), getSchedulerName(), e);
+            rollbackIds.offer(scheduleJob.getId());
+        }
+    }
+
+    /**
+     * 批量更新队列状态
+     * 先处理出队和回滚再处理入队: 实例重跑后再次入队时, 上一次运行遗留的出队更新不会覆盖新的入队状态.
+     * 所有更新都带上原队列状态条件, 节点宕机时未更新的 JOIN_THE_TEAM 由容灾和重启恢复重置为 CREATE
+     */
+    private void flushPhaseStatus() {
+        try {
+            flushPhaseStatus(executeOverIds, JobPhaseStatus.JOIN_THE_TEAM, JobPhaseStatus.EXECUTE_OVER);
+            flushPhaseStatus(rollbackIds, JobPhaseStatus.JOIN_THE_TEAM, JobPhaseStatus.CREATE);
+            flushJoiningJobs();
+        } catch (Exception e) {
+            LOGGER.error("scheduleType:{} flush phase status error", getSchedulerName(), e);
+        }
+    }
+
+    private void flushPhaseStatus(Queue<Long> pendingIds, JobPhaseStatus original, JobPhaseStatus update) {
+        List<Long> ids = drain(pendingIds);
+        for (List<Long> partition : Lists.partition(ids, PHASE_BATCH_SIZE)) {
+            try {
+                int count = scheduleJobService.updatePhaseStatusByIds(partition, original, update);
+                LOGGER.info("scheduleType:{} update phase status {} -> {} size:{} updated:{}", getSchedulerName(), original, update, partition.size(), count);
+            } catch (Exception e) {
+                LOGGER.error("scheduleType:{} update phase status {} -> {} error, retry later", getSchedulerName(), original, update, e);
+                pendingIds.addAll(partition);
+            }
+        }
+    }
+
+    private void flushJoiningJobs() {
+        List<ScheduleJobDetails> jobDetails = drain(joiningJobs);
+        for (List<ScheduleJobDetails> partition : Lists.partition(jobDetails, PHASE_BATCH_SIZE)) {
+            List<Long> ids = new ArrayList<>(partition.size());
+            partition.forEach(scheduleJobDetails -> ids.add(scheduleJobDetails.getScheduleJob().getId()));
+            Set<Long> joinedIds;
+            try {
+                scheduleJobService.updatePhaseStatusByIds(ids, JobPhaseStatus.CREATE, JobPhaseStatus.JOIN_THE_TEAM);
+                // 扫描到的实例都是 CREATE, 本节点又只有一个入口, 更新后仍是 JOIN_THE_TEAM 的即为本次入队的实例
+                joinedIds = new HashSet<>(scheduleJobService.listIdsByPhaseStatus(ids, JobPhaseStatus.JOIN_THE_TEAM));
+            } catch (Exception e) {
+                LOGGER.error("scheduleType:{} update phase status to JOIN_THE_TEAM error, rollback", getSchedulerName(), e);
+                rollbackIds.addAll(ids);
+                partition.forEach(scheduleJobDetails -> queuedJobs.remove(scheduleJobDetails.getScheduleJob().getJobId(), scheduleJobDetails));
+                continue;
+            }
+            for (ScheduleJobDetails scheduleJobDetails : partition) {
+                ScheduleJob scheduleJob = scheduleJobDetails.getScheduleJob();
+                if (!joinedIds.contains(scheduleJob.getId())) {
+                    // 扫描后队列状态已被修改(重跑、容灾等)
+                    queuedJobs.remove(scheduleJob.getJobId(), scheduleJobDetails);
+                    LOGGER.info("jobId:{} scheduleType:{} phase status changed, skip", scheduleJob.getJobId(), getSchedulerName());
+                } else if (scheduleJobQueue.offer(scheduleJobDetails)) {
+                    LOGGER.info("jobId:{} scheduleType:{} enter queue", scheduleJob.getJobId(), getSchedulerName());
+                } else {
+                    queuedJobs.remove(scheduleJob.getJobId(), scheduleJobDetails);
+                    rollbackIds.offer(scheduleJob.getId());
+                    LOGGER.warn("jobId:{} scheduleType:{} queue is full, job phase rollback", scheduleJob.getJobId(), getSchedulerName());
+                }
+            }
         }
     }
 
+    private <T> List<T> drain(Queue<T> queue) {
+        List<T> elements = new ArrayList<>();
+        T element;
+        while ((element = queue.poll()) != null) {
+            elements.add(element);
+        }
+        return elements;
+    }
+
     /**
      * 停止线程
      */
     public void stop() {
         RUNNING.set(false);
+        flushPhaseStatus();
         LOGGER.info("---stop {}----", getSchedulerName());
     }
 
     @Override
     public void afterPropertiesSet() throws Exception {
+        // 先初始化队列再由父类启动扫描
+        queueSize = env.getQueueSize();
+        scheduleJobQueue = new LinkedBlockingQueue<>(queueSize);
         super.afterPropertiesSet();
-        scheduleJobQueue = new LinkedBlockingQueue<>(env.getQueueSize());
 
         String threadName = this.getClass().getSimpleName() + "_" + getSchedulerName() + "_startJobProcessor";
         executorService = new ThreadPoolExecutor(env.getJobExecutorPoolCorePoolSize(), env.getJobExecutorPoolMaximumPoolSize(), env.getJobExecutorPoolKeepAliveTime(), TimeUnit.MILLISECONDS,
                 new LinkedBlockingQueue<>(env.getJobExecutorPoolQueueSize()),
                 new CustomThreadRunsPolicy<ScheduleJob>(threadName, getSchedulerName(), (job -> {
-                    scheduleJobService.updatePhaseStatusById(job.getId(), JobPhaseStatus.JOIN_THE_TEAM, JobPhaseStatus.CREATE);
+                    rollbackIds.offer(job.getId());
                     LOGGER.warn("start job processor reject job {},return job to db", job.getJobId());
                 })));
+
+        ScheduledExecutorService phaseFlushService = new ScheduledThreadPoolExecutor(1, new CustomThreadFactory(this.getClass().getSimpleName() + "_" + getSchedulerName() + "_phaseFlush"));
+        phaseFlushService.scheduleWithFixedDelay(this::flushPhaseStatus, PHASE_FLUSH_INTERVAL, PHASE_FLUSH_INTERVAL, TimeUnit.MILLISECONDS);
     }
 
 
@@ -135,6 +266,7 @@ public abstract class AbstractJobSummitScheduler extends AbstractJobScanningSche
             try {
                 ScheduleJobDetails scheduleJobDetails = scheduleJobQueue.take();
                 scheduleJob = scheduleJobDetails.getScheduleJob();
+                queuedJobs.remove(scheduleJob.getJobId(), scheduleJobDetails);
                 LOGGER.info("jobId:{} scheduleType:{} take job from queue.", scheduleJob.getJobId(), getSchedulerName());
                 this.submit(scheduleJobDetails);
             } catch (InterruptedException ie) {
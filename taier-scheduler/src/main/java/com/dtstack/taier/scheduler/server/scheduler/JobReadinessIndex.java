@@ -0,0 +1,112 @@
+package com.dtstack.taier.scheduler.server.scheduler;
+
+import com.dtstack.taier.pluginapi.enums.TaskStatus;
+import com.dtstack.taier.scheduler.event.ScheduleJobBatchEvent;
+import com.dtstack.taier.scheduler.event.ScheduleJobEventLister;
+import com.dtstack.taier.scheduler.event.ScheduleJobEventPublisher;
+import org.apache.commons.collections.CollectionUtils;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 实例依赖就绪索引(节点内存)
+ * 上游拦截器判断父实例未结束时记录等待关系, 父实例进入结束状态后解除, 扫描时跳过仍在等待的实例,
+ * 避免每轮扫描都对其父实例做一次 IN 查询. 只记录父实例都在本节点的实例, 状态变更事件由本节点的各个写入方发布;
+ * 其他节点上的人工操作(置成功、停止)修改本节点父实例状态时由扫描器定期全量对账兜底
+ */
+@Component
+public class JobReadinessIndex implements ScheduleJobEventLister, InitializingBean {
+
+    /**
+     * key: 子实例 jobId, value: 仍未结束的父实例 jobId
+     */
+    private final Map<String, Set<String>> pendingParents = new ConcurrentHashMap<>();
+
+    /**
+     * key: 父实例 jobId, value: 等待它的子实例 jobId
+     */
+    private final Map<String, Set<String>> waitingChildren = new ConcurrentHashMap<>();
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        ScheduleJobEventPublisher.getInstance().register(this);
+    }
+
+    /**
+     * 实例是否仍在等待父实例
+     *
+     * @param jobId 实例id
+     * @return true 仍有未结束的父实例
+     */
+    public boolean isWaiting(String jobId) {
+        return pendingParents.containsKey(jobId);
+    }
+
+    /**
+     * 记录实例等待的父实例, 覆盖之前的记录
+     *
+     * @param jobId        实例id
+     * @param parentJobIds 未结束的父实例id
+     */
+    public void await(String jobId, Collection<String> parentJobIds) {
+        release(jobId);
+        if (CollectionUtils.isEmpty(parentJobIds)) {
+            return;
+        }
+        Set<String> parents = ConcurrentHashMap.newKeySet();
+        parents.addAll(parentJobIds);
+        pendingParents.put(jobId, parents);
+        for (String parentJobId : parentJobIds) {
+            waitingChildren.computeIfAbsent(parentJobId, k -> ConcurrentHashMap.newKeySet()).add(jobId);
+        }
+    }
+
+    /**
+     * 移除实例的等待记录
+     *
+     * @param jobId 实例id
+     */
+    public void release(String jobId) {
+        Set<String> parents = pendingParents.remove(jobId);
+        if (parents == null) {
+            return;
+        }
+        for (String parentJobId : parents) {
+            waitingChildren.computeIfPresent(parentJobId, (k, children) -> {
+                children.remove(jobId);
+                return children.isEmpty() ? null : children;
+            });
+        }
+    }
+
+    public int size() {
+        return pendingParents.size();
+    }
+
+    @Override
+    public void publishBatchEvent(ScheduleJobBatchEvent event) {
+        boolean stopped = TaskStatus.getStoppedStatus().contains(event.getStatus());
+        for (String jobId : event.getJobIds()) {
+            // 实例自身状态被外部修改(重跑、置成功等), 等待记录失效
+            release(jobId);
+            if (!stopped) {
+                continue;
+            }
+            Set<String> children = waitingChildren.remove(jobId);
+            if (children == null) {
+                continue;
+            }
+            for (String childJobId : children) {
+                pendingParents.computeIfPresent(childJobId, (k, parents) -> {
+                    parents.remove(jobId);
+                    return parents.isEmpty() ? null : parents;
+                });
+            }
+        }
+    }
+}
@@ -3,12 +3,14 @@ package com.dtstack.taier.scheduler.server.scheduler.interceptor;
 import com.dtstack.taier.common.enums.Deleted;
 import com.dtstack.taier.common.enums.EScheduleType;
 import com.dtstack.taier.common.enums.JobCheckStatus;
+import com.dtstack.taier.common.env.EnvironmentContext;
 import com.dtstack.taier.dao.domain.ScheduleJob;
 import com.dtstack.taier.dao.domain.ScheduleJobJob;
 import com.dtstack.taier.pluginapi.enums.TaskStatus;
 import com.dtstack.taier.scheduler.enums.RelyRule;
 import com.dtstack.taier.scheduler.enums.RelyType;
 import com.dtstack.taier.scheduler.server.ScheduleJobDetails;
+import com.dtstack.taier.scheduler.server.scheduler.JobReadinessIndex;
 import com.dtstack.taier.scheduler.service.ScheduleJobService;
 import org.apache.commons.collections.CollectionUtils;
 import org.slf4j.Logger;
@@ -16,8 +18,10 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 /**
@@ -34,6 +38,12 @@ public class JobUpStreamSubmitInterceptor extends SubmitInterceptorAdapter {
     @Autowired
     private ScheduleJobService scheduleJobService;
 
+    @Autowired
+    private JobReadinessIndex jobReadinessIndex;
+
+    @Autowired
+    private EnvironmentContext environmentContext;
+
     @Override
     public Integer getSort() {
         return 0;
@@ -51,11 +61,15 @@ public class JobUpStreamSubmitInterceptor extends SubmitInterceptorAdapter {
 
             Map<String, ScheduleJob> scheduleJobMap = scheduleJobService.lambdaQuery()
                     .select(ScheduleJob::getStatus, ScheduleJob::getJobId,
-                            ScheduleJob::getJobKey, ScheduleJob::getJobName)
+                            ScheduleJob::getJobKey, ScheduleJob::getJobName, ScheduleJob::getNodeAddress)
                     .in(ScheduleJob::getJobKey, parentJobKeys)
                     .eq(ScheduleJob::getIsDeleted, Deleted.NORMAL.getStatus())
                     .list().stream().collect(Collectors.toMap(ScheduleJob::getJobKey, g -> (g)));
 
+            // 未结束的父实例及其状态, 记录到就绪索引中, 父实例结束前扫描不再处理该实例
+            Map<String, Integer> pendingParents = new HashMap<>();
+            // 父实例在其他节点上时, 其状态变更事件不会发到本节点, 不记录到就绪索引
+            boolean remoteParent = false;
 
             for (ScheduleJobJob scheduleJobJob : jobJobList) {
                 ScheduleJob parentScheduleJob = scheduleJobMap.get(scheduleJobJob.getParentJobKey());
@@ -124,11 +138,40 @@ public class JobUpStreamSubmitInterceptor extends SubmitInterceptorAdapter {
 
                 if (!TaskStatus.FINISHED.getStatus().equals(status) &&
                         !TaskStatus.MANUALSUCCESS.getStatus().equals(status)) {
-                    return Boolean.FALSE;
+                    pendingParents.put(parentScheduleJob.getJobId(), status);
+                    remoteParent |= !environmentContext.getLocalAddress().equals(parentScheduleJob.getNodeAddress());
+                }
+            }
+
+            if (!pendingParents.isEmpty()) {
+                if (remoteParent) {
+                    jobReadinessIndex.release(scheduleJob.getJobId());
+                } else {
+                    awaitParents(scheduleJob.getJobId(), pendingParents);
                 }
+                return Boolean.FALSE;
             }
         }
+        jobReadinessIndex.release(scheduleJob.getJobId());
 
         return super.beforeSubmit(scheduleJobDetails);
     }
+
+    /**
+     * 记录等待关系后再查一次父实例状态: 父实例可能在第一次查询后、记录前已经结束, 这时的事件不会被索引收到.
+     * 状态有变化时移除记录, 下一轮扫描重新判断
+     */
+    private void awaitParents(String jobId, Map<String, Integer> pendingParents) {
+        jobReadinessIndex.await(jobId, pendingParents.keySet());
+        List<ScheduleJob> parents = scheduleJobService.lambdaQuery()
+                .select(ScheduleJob::getJobId, ScheduleJob::getStatus)
+                .in(ScheduleJob::getJobId, pendingParents.keySet())
+                .eq(ScheduleJob::getIsDeleted, Deleted.NORMAL.getStatus())
+                .list();
+        boolean changed = parents.size() != pendingParents.size()
+                || parents.stream().anyMatch(parent -> !Objects.equals(pendingParents.get(parent.getJobId()), parent.getStatus()));
+        if (changed) {
+            jobReadinessIndex.release(jobId);
+        }
+    }
 }
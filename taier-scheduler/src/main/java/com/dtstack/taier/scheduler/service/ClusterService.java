@@ -39,6 +39,7 @@ import com.dtstack.taier.scheduler.server.pluginInfo.FlinkPluginInfoStrategy;
 import com.dtstack.taier.scheduler.server.pluginInfo.HivePluginInfoStrategy;
 import com.dtstack.taier.scheduler.server.pluginInfo.KerberosPluginInfo;
 import com.dtstack.taier.scheduler.server.pluginInfo.SparkPluginInfoStrategy;
+import com.dtstack.taier.scheduler.utils.LocalCacheUtil;
 import org.apache.commons.collections.MapUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
@@ -52,6 +53,7 @@ import java.util.Optional;
 
 import static com.dtstack.taier.pluginapi.constrant.ConfigConstant.CLUSTER;
 import static com.dtstack.taier.pluginapi.constrant.ConfigConstant.DEFAULT_CLUSTER_ID;
+import static com.dtstack.taier.pluginapi.constrant.ConfigConstant.DEPLOY_MODEL;
 import static com.dtstack.taier.pluginapi.constrant.ConfigConstant.QUEUE;
 
 @Service
@@ -75,6 +77,14 @@ public class ClusterService {
     @Autowired
     private ConsoleKerberosMapper consoleKerberosMapper;
 
+    @Autowired
+    private ScheduleDictService scheduleDictService;
+
+    @Autowired
+    private LocalCacheUtil localCacheUtil;
+
+    private static final String pluginInfoCacheGroup = "pluginInfo";
+
     public JSONObject pluginInfoJSON(Long tenantId, Integer taskType, Integer deployMode, String componentVersion) {
         EScheduleJobType engineJobType = EScheduleJobType.getByTaskType(taskType);
         EComponentType componentType = engineJobType.getComponentType();
@@ -94,6 +104,37 @@ public class ClusterService {
         return pluginJson;
     }
 
+    /**
+     * 获取缓存的插件信息, 组件、kerberos、租户绑定变更时通过 {@link #clearPluginInfoCache()} 失效
+     * 每次返回同一个字符串实例, 下游 ClientCache 可直接按字符串命中客户端
+     *
+     * @param componentVersion 组件版本名称, 未命中缓存时才转换为版本值
+     * @return 插件信息 json, deployMode 不为空时包含 deployMode
+     */
+    public String getCachePluginInfo(Long tenantId, Integer taskType, Integer deployMode, String componentVersion) {
+        String cacheKey = LocalCacheUtil.generateKey(tenantId, taskType, deployMode, componentVersion);
+        String pluginInfo = (String) localCacheUtil.get(pluginInfoCacheGroup, cacheKey);
+        if (null != pluginInfo) {
+            return pluginInfo;
+        }
+        String componentVersionValue = scheduleDictService.convertVersionNameToValue(componentVersion, taskType);
+        JSONObject pluginJson = pluginInfoJSON(tenantId, taskType, deployMode, componentVersionValue);
+        if (null == pluginJson) {
+            return null;
+        }
+        if (null != deployMode) {
+            pluginJson.put(DEPLOY_MODEL, deployMode);
+        }
+        pluginInfo = pluginJson.toJSONString();
+        localCacheUtil.put(pluginInfoCacheGroup, cacheKey, pluginInfo, LocalCacheUtil.ONE_WEEK_IN_MS);
+        return pluginInfo;
+    }
+
+    public void clearPluginInfoCache() {
+        localCacheUtil.removeGroup(pluginInfoCacheGroup);
+        LOGGER.info(" clear all plugin info cache ");
+    }
+
     private ComponentPluginInfoStrategy convertPluginInfo(EComponentType componentType) {
         switch (componentType) {
             case FLINK:
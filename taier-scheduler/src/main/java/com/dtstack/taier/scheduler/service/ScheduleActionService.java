@@ -110,6 +110,9 @@ public class ScheduleActionService {
     @Autowired
     private ScheduleJobExpandService scheduleJobExpandService;
 
+    @Autowired
+    private ScheduleJobEngineLogService scheduleJobEngineLogService;
+
     private final ObjectMapper objMapper = new ObjectMapper();
 
     private static final PropertyFilter propertyFilter = (object, name, value) ->
@@ -379,9 +382,9 @@ public class ScheduleActionService {
         ActionLogVO vo = new ActionLogVO();
         ScheduleJobExpand scheduleJobExpand = scheduleJobExpandService.getByJobId(jobId);
         if (scheduleJobExpand != null) {
-            vo.setEngineLog(scheduleJobExpand.getEngineLog());
+            vo.setEngineLog(scheduleJobEngineLogService.preview(jobId, scheduleJobExpand.getEngineLog()));
             vo.setLogInfo(scheduleJobExpand.getLogInfo());
-            if (StringUtils.isBlank(scheduleJobExpand.getEngineLog())) {
+            if (StringUtils.isBlank(vo.getEngineLog())) {
                 ScheduleJob scheduleJob = scheduleJobService.getByJobId(jobId);
                 vo.setEngineLog(getEngineLog(jobId, scheduleJob));
             }
@@ -4,6 +4,8 @@ import com.baomidou.mybatisplus.core.toolkit.Wrappers;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.dtstack.taier.dao.domain.ScheduleEngineJobCache;
 import com.dtstack.taier.dao.mapper.ScheduleEngineJobCacheMapper;
+import com.google.common.collect.Lists;
+import org.apache.commons.collections.CollectionUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -26,6 +28,14 @@ public class ScheduleJobCacheService extends ServiceImpl<ScheduleEngineJobCacheM
                 .eq(ScheduleEngineJobCache::getJobId, jobId));
     }
 
+    public int deleteByJobIds(List<String> jobIds) {
+        if (CollectionUtils.isEmpty(jobIds)) {
+            return 0;
+        }
+        return scheduleEngineJobCacheMapper.delete(Wrappers.lambdaQuery(ScheduleEngineJobCache.class)
+                .in(ScheduleEngineJobCache::getJobId, jobIds));
+    }
+
     public List<ScheduleEngineJobCache> listByStage(long startId, String localAddress, Integer stage, String jobResource, Boolean selectJobInfo) {
         return scheduleEngineJobCacheMapper.listByStage(startId, localAddress, stage, jobResource, selectJobInfo);
     }
@@ -90,12 +100,22 @@ public class ScheduleJobCacheService extends ServiceImpl<ScheduleEngineJobCacheM
         return getBaseMapper().listByStage(startId, nodeAddress, stage, resource, Boolean.FALSE);
     }
 
-    public int updateNodeAddressFailover(String nodeAddress, List<String> jobIds, Integer stage) {
+    /**
+     * 把宕机节点上的实例迁移到目标节点, 只更新仍属于宕机节点的记录
+     *
+     * @param fromNodeAddress 宕机节点
+     * @param nodeAddress     目标节点
+     * @param jobIds          实例id
+     * @param stage           迁移后的 stage
+     * @return 更新数
+     */
+    public int updateNodeAddressFailover(String fromNodeAddress, String nodeAddress, List<String> jobIds, Integer stage) {
         ScheduleEngineJobCache jobCache = new ScheduleEngineJobCache();
         jobCache.setNodeAddress(nodeAddress);
         jobCache.setStage(stage);
         return getBaseMapper()
                 .update(jobCache, Wrappers.lambdaQuery(ScheduleEngineJobCache.class)
+                        .eq(ScheduleEngineJobCache::getNodeAddress, fromNodeAddress)
                         .in(ScheduleEngineJobCache::getJobId, jobIds));
 
     }
@@ -107,5 +127,17 @@ public class ScheduleJobCacheService extends ServiceImpl<ScheduleEngineJobCacheM
                         .in(ScheduleEngineJobCache::getJobId, jobIds));
     }
 
+    /**
+     * 提交前的检查只需要 jobId 和创建时间, 不查询 job_info
+     */
+    public List<ScheduleEngineJobCache> getSimpleByJobIds(List<String> jobIds) {
+        if (CollectionUtils.isEmpty(jobIds)) {
+            return Lists.newArrayList();
+        }
+        return this.lambdaQuery()
+                .select(ScheduleEngineJobCache::getJobId, ScheduleEngineJobCache::getGmtCreate)
+                .in(ScheduleEngineJobCache::getJobId, jobIds)
+                .list();
+    }
 
 }
@@ -0,0 +1,219 @@
+package com.dtstack.taier.scheduler.service;
+
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.dtstack.taier.common.enums.Deleted;
+import com.dtstack.taier.common.exception.RdosDefineException;
+import com.dtstack.taier.dao.domain.ScheduleJobEngineLog;
+import com.dtstack.taier.dao.mapper.ScheduleJobEngineLogMapper;
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.io.IOUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 实例引擎日志存储
+ * 日志按固定字符数切成分片, 每个分片 gzip 压缩后存入 schedule_job_engine_log, 支持按字符位置范围读取、读取末尾和逐片读取.
+ * 没有分片记录的历史实例仍读取 schedule_job_expand.engine_log
+ */
+@Service
+public class ScheduleJobEngineLogService extends ServiceImpl<ScheduleJobEngineLogMapper, ScheduleJobEngineLog> {
+
+    /**
+     * 每个分片的字符数
+     */
+    public static final int CHUNK_SIZE = 256 * 1024;
+
+    /**
+     * 页面预览最多展示的字符数, 超过时只展示末尾
+     */
+    public static final int PREVIEW_SIZE = 1024 * 1024;
+
+    private static final int INSERT_BATCH_SIZE = 16;
+
+    /**
+     * 保存实例日志, 覆盖之前的日志
+     *
+     * @param jobId     实例id
+     * @param engineLog 引擎日志
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public void save(String jobId, String engineLog) {
+        deleteByJobId(jobId);
+        if (engineLog == null) {
+            return;
+        }
+        List<ScheduleJobEngineLog> chunks = new ArrayList<>();
+        int offset = 0;
+        while (offset < engineLog.length()) {
+            int end = Math.min(engineLog.length(), offset + CHUNK_SIZE);
+            // 不拆分代理对, 否则两个分片各自按 UTF-8 编码时都会出错
+            if (end < engineLog.length() && Character.isHighSurrogate(engineLog.charAt(end - 1))) {
+                end--;
+            }
+            ScheduleJobEngineLog chunk = new ScheduleJobEngineLog();
+            chunk.setJobId(jobId);
+            chunk.setChunkOffset((long) offset);
+            chunk.setChunkLength(end - offset);
+            chunk.setContent(compress(engineLog.substring(offset, end)));
+            chunks.add(chunk);
+            offset = end;
+        }
+        saveBatch(chunks, INSERT_BATCH_SIZE);
+    }
+
+    public void deleteByJobId(String jobId) {
+        this.lambdaUpdate()
+                .eq(ScheduleJobEngineLog::getJobId, jobId)
+                .remove();
+    }
+
+    public void deleteByJobIds(Collection<String> jobIds) {
+        if (CollectionUtils.isEmpty(jobIds)) {
+            return;
+        }
+        this.lambdaUpdate()
+                .in(ScheduleJobEngineLog::getJobId, jobIds)
+                .remove();
+    }
+
+    /**
+     * 日志总字符数
+     *
+     * @param jobId 实例id
+     * @return 没有分片记录时返回 -1
+     */
+    public long length(String jobId) {
+        ScheduleJobEngineLog lastChunk = this.lambdaQuery()
+                .select(ScheduleJobEngineLog::getChunkOffset, ScheduleJobEngineLog::getChunkLength)
+                .eq(ScheduleJobEngineLog::getJobId, jobId)
+                .eq(ScheduleJobEngineLog::getIsDeleted, Deleted.NORMAL.getStatus())
+                .orderByDesc(ScheduleJobEngineLog::getChunkOffset)
+                .last("limit 1")
+                .one();
+        return lastChunk == null ? -1L : lastChunk.getChunkOffset() + lastChunk.getChunkLength();
+    }
+
+    /**
+     * 读取 [offset, offset + length) 范围的日志, 只查询和解压覆盖该范围的分片
+     *
+     * @param jobId  实例id
+     * @param offset 起始字符位置
+     * @param length 读取的字符数
+     * @return 日志内容, 超出日志长度的部分忽略
+     */
+    public String read(String jobId, long offset, int length) {
+        if (offset < 0 || length <= 0) {
+            return "";
+        }
+        long end = offset + length;
+        List<ScheduleJobEngineLog> chunks = this.lambdaQuery()
+                .select(ScheduleJobEngineLog::getChunkOffset, ScheduleJobEngineLog::getChunkLength, ScheduleJobEngineLog::getContent)
+                .eq(ScheduleJobEngineLog::getJobId, jobId)
+                .eq(ScheduleJobEngineLog::getIsDeleted, Deleted.NORMAL.getStatus())
+                .lt(ScheduleJobEngineLog::getChunkOffset, end)
+                .apply("chunk_offset + chunk_length > {0}", offset)
+                .orderByAsc(ScheduleJobEngineLog::getChunkOffset)
+                .list();
+        StringBuilder log = new StringBuilder(length);
+        for (ScheduleJobEngineLog chunk : chunks) {
+            String content = decompress(chunk.getContent());
+            int from = (int) Math.max(0L, offset - chunk.getChunkOffset());
+            int to = (int) Math.min(content.length(), end - chunk.getChunkOffset());
+            log.append(content, from, to);
+        }
+        return log.toString();
+    }
+
+    /**
+     * 读取日志末尾
+     *
+     * @param jobId  实例id
+     * @param length 读取的字符数
+     * @return 没有分片记录时返回 null
+     */
+    public String tail(String jobId, int length) {
+        long total = length(jobId);
+        if (total < 0) {
+            return null;
+        }
+        return read(jobId, Math.max(0L, total - length), length);
+    }
+
+    /**
+     * 按顺序逐片读取日志, 同一时间只有一个分片在内存中
+     *
+     * @param jobId    实例id
+     * @param consumer 分片内容, 返回 false 时停止读取
+     * @return 没有分片记录时返回 false
+     */
+    public boolean forEachChunk(String jobId, Predicate<String> consumer) {
+        long offset = 0L;
+        boolean exists = false;
+        while (true) {
+            ScheduleJobEngineLog chunk = this.lambdaQuery()
+                    .select(ScheduleJobEngineLog::getChunkOffset, ScheduleJobEngineLog::getChunkLength, ScheduleJobEngineLog::getContent)
+                    .eq(ScheduleJobEngineLog::getJobId, jobId)
+                    .eq(ScheduleJobEngineLog::getIsDeleted, Deleted.NORMAL.getStatus())
+                    .ge(ScheduleJobEngineLog::getChunkOffset, offset)
+                    .orderByAsc(ScheduleJobEngineLog::getChunkOffset)
+                    .last("limit 1")
+                    .one();
+            if (chunk == null) {
+                return exists;
+            }
+            exists = true;
+            if (!consumer.test(decompress(chunk.getContent()))) {
+                return true;
+            }
+            offset = chunk.getChunkOffset() + chunk.getChunkLength();
+        }
+    }
+
+    /**
+     * 页面展示的日志, 超过 PREVIEW_SIZE 时只展示末尾
+     *
+     * @param jobId           实例id
+     * @param legacyEngineLog schedule_job_expand.engine_log, 没有分片记录时返回它
+     * @return 日志内容
+     */
+    public String preview(String jobId, String legacyEngineLog) {
+        long total = length(jobId);
+        if (total < 0) {
+            return legacyEngineLog;
+        }
+        if (total <= PREVIEW_SIZE) {
+            return read(jobId, 0L, (int) total);
+        }
+        return String.format("... 日志共 %d 个字符, 只展示最后 %d 个字符, 完整日志请下载 ...%n", total, PREVIEW_SIZE)
+                + read(jobId, total - PREVIEW_SIZE, PREVIEW_SIZE);
+    }
+
+    private static byte[] compress(String content) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, content.length() / 4));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(content.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new RdosDefineException("compress engine log error", e);
+        }
+        return out.toByteArray();
+    }
+
+    private static String decompress(byte[] content) {
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(content))) {
+            return IOUtils.toString(gzip, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new RdosDefineException("decompress engine log error", e);
+        }
+    }
+}
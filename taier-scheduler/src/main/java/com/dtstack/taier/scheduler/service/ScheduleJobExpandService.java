@@ -10,6 +10,7 @@ import com.dtstack.taier.pluginapi.constrant.JobResultConstant;
 import org.apache.commons.collections.CollectionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.Set;
@@ -24,6 +25,9 @@ import java.util.Set;
 public class ScheduleJobExpandService extends ServiceImpl<ScheduleJobExpandMapper, ScheduleJobExpand> {
     private static final Logger LOGGER = LoggerFactory.getLogger(ScheduleJobExpandService.class);
 
+    @Autowired
+    private ScheduleJobEngineLogService scheduleJobEngineLogService;
+
     /**
      * 清楚扩展表数据
      *
@@ -32,6 +36,7 @@ public class ScheduleJobExpandService extends ServiceImpl<ScheduleJobExpandMappe
      */
     public Integer clearData(Set<String> jobIds) {
         if (CollectionUtils.isNotEmpty(jobIds)) {
+            scheduleJobEngineLogService.deleteByJobIds(jobIds);
             return this.baseMapper.updateLogByJobIds(jobIds, Deleted.NORMAL.getStatus(), "", "");
         }
         return 0;
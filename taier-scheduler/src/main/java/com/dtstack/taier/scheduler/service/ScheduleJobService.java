@@ -18,6 +18,8 @@ import com.dtstack.taier.pluginapi.enums.TaskStatus;
 import com.dtstack.taier.pluginapi.util.RetryUtil;
 import com.dtstack.taier.scheduler.dto.scheduler.SimpleScheduleJobDTO;
 import com.dtstack.taier.scheduler.enums.JobPhaseStatus;
+import com.dtstack.taier.scheduler.event.ScheduleJobBatchEvent;
+import com.dtstack.taier.scheduler.event.ScheduleJobEventPublisher;
 import com.dtstack.taier.scheduler.impl.pojo.ParamActionExt;
 import com.dtstack.taier.scheduler.mapstruct.ScheduleJobMapStruct;
 import com.dtstack.taier.scheduler.server.JobPartitioner;
@@ -37,6 +39,7 @@ import org.springframework.transaction.annotation.Transactional;
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.stream.Collectors;
 
 /**
  * @Auther: dazhi
@@ -143,6 +146,7 @@ public class ScheduleJobService extends ServiceImpl<ScheduleJobMapper, ScheduleJ
                         .eq(ScheduleJob::getIsDeleted, Deleted.NORMAL.getStatus())
                         .in(ScheduleJob::getJobId, jobIds)
                         .update(scheduleJob);
+                publishStatusEvent(new ArrayList<>(jobIds), scheduleJob.getStatus());
 
                 // 清除日志
                 scheduleJobExpandService.clearData(jobIds);
@@ -283,10 +287,12 @@ public class ScheduleJobService extends ServiceImpl<ScheduleJobMapper, ScheduleJ
         ScheduleJob scheduleJob = new ScheduleJob();
         scheduleJob.setStatus(status);
         scheduleJob.setVersionId(versionId);
-        return this.lambdaUpdate()
+        boolean update = this.lambdaUpdate()
                 .eq(ScheduleJob::getJobId, jobId)
                 .eq(ScheduleJob::getIsDeleted, Deleted.NORMAL.getStatus())
                 .update(scheduleJob);
+        publishStatusEvent(jobId, status);
+        return update;
     }
 
     /**
@@ -313,6 +319,31 @@ public class ScheduleJobService extends ServiceImpl<ScheduleJobMapper, ScheduleJ
                 .update(scheduleJobExpand);
     }
 
+    /**
+     * 批量更新状态和日志
+     *
+     * @param jobIds  实例id
+     * @param status  实例状态
+     * @param logInfo 实例日志
+     */
+    public void updateStatusAndLogInfoByIds(List<String> jobIds, Integer status, String logInfo) {
+        if (CollectionUtils.isEmpty(jobIds) || status == null) {
+            return;
+        }
+        if (StringUtils.isNotBlank(logInfo) && logInfo.length() > 5000) {
+            logInfo = logInfo.substring(0, 5000) + "...";
+        }
+        this.baseMapper.updateJobStatusAndExecTimeByJobIds(jobIds, status);
+        ScheduleJobEventPublisher.getInstance().publishBatchEvent(new ScheduleJobBatchEvent(jobIds, status));
+
+        ScheduleJobExpand scheduleJobExpand = new ScheduleJobExpand();
+        scheduleJobExpand.setLogInfo(GenerateErrorMsgUtil.generateErrorMsg(logInfo));
+        scheduleJobExpandService.lambdaUpdate()
+                .in(ScheduleJobExpand::getJobId, jobIds)
+                .eq(ScheduleJobExpand::getIsDeleted, Deleted.NORMAL.getStatus())
+                .update(scheduleJobExpand);
+    }
+
     /**
      * 更新实例状态
      *
@@ -322,11 +353,33 @@ public class ScheduleJobService extends ServiceImpl<ScheduleJobMapper, ScheduleJ
      */
     public Integer updateJobStatusAndExecTime(String jobId, Integer status) {
         if (StringUtils.isNotBlank(jobId) && status != null) {
-            return this.baseMapper.updateJobStatusAndExecTime(jobId, status);
+            Integer update = this.baseMapper.updateJobStatusAndExecTime(jobId, status);
+            publishStatusEvent(jobId, status);
+            return update;
         }
         return 0;
     }
 
+    /**
+     * 发布实例状态变更事件
+     *
+     * @param jobId  实例id
+     * @param status 状态
+     */
+    private void publishStatusEvent(String jobId, Integer status) {
+        ScheduleJobEventPublisher.getInstance().publishBatchEvent(new ScheduleJobBatchEvent(jobId, status));
+    }
+
+    /**
+     * 发布实例状态变更事件, 不经过本类方法直接更新状态(lambdaUpdate 等)后需要调用
+     *
+     * @param jobIds 实例id
+     * @param status 状态
+     */
+    public void publishStatusEvent(List<String> jobIds, Integer status) {
+        ScheduleJobEventPublisher.getInstance().publishBatchEvent(new ScheduleJobBatchEvent(jobIds, status));
+    }
+
     /**
      * 查询实例状态
      *
@@ -366,6 +419,48 @@ public class ScheduleJobService extends ServiceImpl<ScheduleJobMapper, ScheduleJ
         return Boolean.FALSE;
     }
 
+    /**
+     * 批量更新实例队列状态，只更新队列状态仍为 original 的实例
+     *
+     * @param ids      实例id
+     * @param original 实例当前队列状态
+     * @param update   实例需要变更的队列状态
+     * @return 更新数
+     */
+    public int updatePhaseStatusByIds(List<Long> ids, JobPhaseStatus original, JobPhaseStatus update) {
+        if (CollectionUtils.isEmpty(ids) || original == null || update == null) {
+            return 0;
+        }
+        ScheduleJob scheduleJob = new ScheduleJob();
+        scheduleJob.setPhaseStatus(update.getCode());
+        return this.baseMapper.update(scheduleJob, Wrappers.lambdaQuery(ScheduleJob.class)
+                .in(ScheduleJob::getId, ids)
+                .eq(ScheduleJob::getPhaseStatus, original.getCode())
+                .eq(ScheduleJob::getIsDeleted, Deleted.NORMAL.getStatus()));
+    }
+
+    /**
+     * 查询队列状态为 phaseStatus 的实例
+     *
+     * @param ids         实例id
+     * @param phaseStatus 队列状态
+     * @return 实例id
+     */
+    public List<Long> listIdsByPhaseStatus(List<Long> ids, JobPhaseStatus phaseStatus) {
+        if (CollectionUtils.isEmpty(ids) || phaseStatus == null) {
+            return Lists.newArrayList();
+        }
+        return this.lambdaQuery()
+                .select(ScheduleJob::getId)
+                .in(ScheduleJob::getId, ids)
+                .eq(ScheduleJob::getPhaseStatus, phaseStatus.getCode())
+                .eq(ScheduleJob::getIsDeleted, Deleted.NORMAL.getStatus())
+                .list()
+                .stream()
+                .map(ScheduleJob::getId)
+                .collect(Collectors.toList());
+    }
+
     /**
      * 扫描周期实例接口
      *
@@ -417,9 +512,13 @@ public class ScheduleJobService extends ServiceImpl<ScheduleJobMapper, ScheduleJ
         if (null == scheduleJob || StringUtils.isBlank(scheduleJob.getJobId())) {
             return 0;
         }
-        return this.baseMapper.update(scheduleJob,
+        int update = this.baseMapper.update(scheduleJob,
                 Wrappers.lambdaQuery(ScheduleJob.class)
                         .eq(ScheduleJob::getJobId, scheduleJob.getJobId()));
+        if (scheduleJob.getStatus() != null) {
+            publishStatusEvent(scheduleJob.getJobId(), scheduleJob.getStatus());
+        }
+        return update;
     }
 
     /**
@@ -482,8 +581,10 @@ public class ScheduleJobService extends ServiceImpl<ScheduleJobMapper, ScheduleJ
         ScheduleJob scheduleJob = new ScheduleJob();
         scheduleJob.setStatus(status);
         scheduleJob.setPhaseStatus(phaseStatus);
-        return this.baseMapper.update(scheduleJob, Wrappers.lambdaQuery(ScheduleJob.class)
+        int update = this.baseMapper.update(scheduleJob, Wrappers.lambdaQuery(ScheduleJob.class)
                 .in(ScheduleJob::getJobId, jobIds));
+        ScheduleJobEventPublisher.getInstance().publishBatchEvent(new ScheduleJobBatchEvent(jobIds, status));
+        return update;
     }
 
     /**
@@ -530,6 +631,7 @@ public class ScheduleJobService extends ServiceImpl<ScheduleJobMapper, ScheduleJ
         updateScheduleJob.setStatus(status);
         this.baseMapper.update(updateScheduleJob, Wrappers.lambdaQuery(ScheduleJob.class)
                 .eq(ScheduleJob::getJobId, jobId));
+        publishStatusEvent(jobId, status);
     }
 
     /**
@@ -577,6 +679,7 @@ public class ScheduleJobService extends ServiceImpl<ScheduleJobMapper, ScheduleJ
         updateScheduleJob.setStatus(job.getStatus());
         this.baseMapper.update(updateScheduleJob, Wrappers.lambdaQuery(ScheduleJob.class)
                 .eq(ScheduleJob::getJobId, job.getJobId()));
+        publishStatusEvent(job.getJobId(), job.getStatus());
     }
 
     /**
@@ -37,8 +37,13 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.framework.CuratorFrameworkFactory;
 import org.apache.curator.framework.api.CuratorWatcher;
+import org.apache.curator.framework.recipes.cache.PathChildrenCache;
+import org.apache.curator.framework.recipes.cache.PathChildrenCacheEvent;
+import org.apache.curator.framework.recipes.nodes.PersistentNode;
 import org.apache.curator.framework.recipes.locks.InterProcessMutex;
 import org.apache.curator.retry.ExponentialBackoffRetry;
+import org.apache.curator.utils.ZKPaths;
+import org.apache.zookeeper.CreateMode;
 import org.apache.zookeeper.data.Stat;
 import org.codehaus.jackson.map.ObjectMapper;
 import org.slf4j.Logger;
@@ -50,6 +55,7 @@ import org.springframework.stereotype.Component;
 
 import java.util.*;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 /**
  * company: www.dtstack.com
@@ -65,6 +71,7 @@ public class ZkService implements InitializingBean, DisposableBean {
     private final static String HEART_NODE = "heart";
     private final static String WORKER_NODE = "workers";
     private final static String LOCK_NODE = "locks";
+    private final static String ALIVE_NODE = "alive";
 
     private ZkConfig zkConfig;
     private String zkAddress;
@@ -74,8 +81,19 @@ public class ZkService implements InitializingBean, DisposableBean {
     private String localNode;
     private String workersNode;
     private String lockNode;
+    private String aliveNode;
 
     private CuratorFramework zkClient;
+
+    /**
+     * 本节点的临时节点，会话断开后由zk删除，重连后自动重建
+     */
+    private PersistentNode localAliveNode;
+
+    /**
+     * 监听所有节点的临时节点
+     */
+    private PathChildrenCache aliveNodeCache;
     private static ObjectMapper objectMapper = new ObjectMapper();
 
     private final String appPath = "taier";
@@ -177,7 +195,9 @@ public class ZkService implements InitializingBean, DisposableBean {
         createNodeIfNotExists(this.workersNode, new HashSet<>());
         // 初始化分布式锁节点
         createNodeIfNotExists(this.lockNode, null);
+        createNodeIfNotExists(this.aliveNode, null);
         createLocalBrokerHeartNode();
+        createLocalAliveNode();
         initScheduledExecutorService();
         LOGGER.warn("init zk server success...");
     }
@@ -200,6 +220,27 @@ public class ZkService implements InitializingBean, DisposableBean {
         }
     }
 
+    private void createLocalAliveNode() throws Exception {
+        this.localAliveNode = new PersistentNode(zkClient, CreateMode.EPHEMERAL, false,
+                String.format("%s/%s", this.aliveNode, this.localAddress), new byte[0]);
+        this.localAliveNode.start();
+        this.aliveNodeCache = new PathChildrenCache(zkClient, this.aliveNode, false);
+        this.aliveNodeCache.start();
+    }
+
+    /**
+     * 监听节点会话丢失(临时节点被删除)
+     *
+     * @param listener 参数为丢失的节点地址
+     */
+    public void addAliveNodeRemovedListener(Consumer<String> listener) {
+        this.aliveNodeCache.getListenable().addListener((client, event) -> {
+            if (PathChildrenCacheEvent.Type.CHILD_REMOVED == event.getType() && event.getData() != null) {
+                listener.accept(ZKPaths.getNodeFromPath(event.getData().getPath()));
+            }
+        });
+    }
+
     public void updateSynchronizedLocalBrokerHeartNode(String localAddress, BrokerHeartNode source, boolean isCover) {
         String nodePath = String.format("%s/%s/%s", brokersNode, localAddress, HEART_NODE);
         try {
@@ -240,6 +281,7 @@ public class ZkService implements InitializingBean, DisposableBean {
         this.workersNode = String.format("%s/%s", this.localNode, WORKER_NODE);
         // 初始化分布式锁节点名称
         this.lockNode = String.format("%s/%s", this.distributeRootNode, LOCK_NODE);
+        this.aliveNode = String.format("%s/%s", this.distributeRootNode, ALIVE_NODE);
     }
 
     public BrokerHeartNode getBrokerHeartNode(String node) {
@@ -311,6 +353,8 @@ public class ZkService implements InitializingBean, DisposableBean {
     @Override
     public void destroy() throws Exception {
         disableBrokerHeartNode(this.localAddress, false);
+        closeQuietly(this.localAliveNode);
+        closeQuietly(this.aliveNodeCache);
         for (Listener listener : listeners) {
             try {
                 listener.close();
@@ -321,6 +365,17 @@ public class ZkService implements InitializingBean, DisposableBean {
         }
     }
 
+    private void closeQuietly(AutoCloseable closeable) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (Exception e) {
+            LOGGER.error("", e);
+        }
+    }
+
     /**
      * 设置 watcher
      * @param group 分组
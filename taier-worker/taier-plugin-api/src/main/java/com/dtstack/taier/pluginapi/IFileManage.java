@@ -139,6 +139,15 @@ public interface IFileManage {
      */
     void close();
 
+    /**
+     * 获取远程文件版本标识(文件大小 + 修改时间), 用于本地缓存校验
+     * @param remotePath
+     * @return 不支持或文件不存在时返回 null
+     */
+    default String getFileVersion(String remotePath) {
+        return null;
+    }
+
 
     /**
      * 文件下载失败，清理已下载文件
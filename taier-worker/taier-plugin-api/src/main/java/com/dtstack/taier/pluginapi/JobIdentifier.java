@@ -94,6 +94,17 @@ public class JobIdentifier implements Serializable {
         return new JobIdentifier(engineJobId, applicationId, jobId);
     }
 
+    /**
+     * 复制一份, 调整超时等参数时不影响调用方持有的对象
+     */
+    public JobIdentifier copy() {
+        JobIdentifier jobIdentifier = new JobIdentifier(engineJobId, applicationId, jobId, tenantId, taskType, deployMode, userId, pluginInfo, componentVersion);
+        jobIdentifier.timeout = timeout;
+        jobIdentifier.forceCancel = forceCancel;
+        jobIdentifier.archiveFsDir = archiveFsDir;
+        return jobIdentifier;
+    }
+
     public Boolean isForceCancel() {
         return forceCancel;
     }
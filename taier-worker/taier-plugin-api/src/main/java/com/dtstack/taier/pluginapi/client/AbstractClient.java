@@ -28,12 +28,14 @@ import com.dtstack.taier.pluginapi.pojo.ComponentTestResult;
 import com.dtstack.taier.pluginapi.pojo.FileResult;
 import com.dtstack.taier.pluginapi.pojo.JobResult;
 import com.dtstack.taier.pluginapi.pojo.JudgeResult;
+import com.google.common.collect.Maps;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Reason:
@@ -84,6 +86,30 @@ public abstract class AbstractClient implements IClient {
         return status;
     }
 
+    /**
+     * 默认逐个获取状态, 支持批量查询的插件自行覆盖
+     */
+    @Override
+    public Map<String, TaskStatus> getBatchJobStatus(List<JobIdentifier> jobIdentifiers) throws IOException {
+        Map<String, TaskStatus> statusMap = Maps.newHashMapWithExpectedSize(jobIdentifiers.size());
+        for (JobIdentifier jobIdentifier : jobIdentifiers) {
+            statusMap.put(jobIdentifier.getJobId(), getJobStatus(jobIdentifier));
+        }
+        return statusMap;
+    }
+
+    /**
+     * 默认逐个停止, 支持批量停止的插件自行覆盖
+     */
+    @Override
+    public Map<String, JobResult> cancelJobs(List<JobIdentifier> jobIdentifiers) {
+        Map<String, JobResult> resultMap = Maps.newHashMapWithExpectedSize(jobIdentifiers.size());
+        for (JobIdentifier jobIdentifier : jobIdentifiers) {
+            resultMap.put(jobIdentifier.getJobId(), cancelJob(jobIdentifier));
+        }
+        return resultMap;
+    }
+
     protected TaskStatus processJobStatus(JobIdentifier jobIdentifier) {
         return TaskStatus.NOTFOUND;
     }
@@ -25,6 +25,7 @@ import com.dtstack.taier.pluginapi.pojo.*;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 
 /**
@@ -40,8 +41,24 @@ public interface IClient {
 
     JobResult cancelJob(JobIdentifier jobIdentifier);
 
+    /**
+     * 批量停止任务
+     *
+     * @param jobIdentifiers 同一插件下的任务
+     * @return key: jobId, value: 停止结果
+     */
+    Map<String, JobResult> cancelJobs(List<JobIdentifier> jobIdentifiers);
+
     TaskStatus getJobStatus(JobIdentifier jobIdentifier) throws IOException;
 
+    /**
+     * 批量获取任务状态
+     *
+     * @param jobIdentifiers 同一插件下的任务
+     * @return key: jobId, value: 任务状态
+     */
+    Map<String, TaskStatus> getBatchJobStatus(List<JobIdentifier> jobIdentifiers) throws IOException;
+
 	String getJobMaster(JobIdentifier jobIdentifier);
 
 	String getMessageByHttp(String path);
@@ -18,6 +18,7 @@
 
 package com.dtstack.taier.pluginapi.logstore.mysql;
 
+import com.dtstack.taier.pluginapi.CustomThreadFactory;
 import com.dtstack.taier.pluginapi.enums.TaskStatus;
 import com.dtstack.taier.pluginapi.logstore.AbstractLogStore;
 import com.google.common.collect.Lists;
@@ -27,9 +28,16 @@ import org.slf4j.LoggerFactory;
 
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * 操作
+ * 状态和修改时间的更新先写入内存, 由后台线程每 FLUSH_INTERVAL 合并成批量 update 写库, 进程异常退出最多丢失一个刷新周期的更新,
+ * 丢失的执行中状态由 timeOutDeal 超时置为失败; 状态查询优先读内存中最近的状态
  * Date: 2018/1/30
  * Company: www.dtstack.com
  *
@@ -44,7 +52,9 @@ public class MysqlLogStore extends AbstractLogStore {
 
     private static final String UPDATE_STATUS_SQL = "update schedule_plugin_job_info set status = ?,  gmt_modified = NOW() where job_id = ?";
 
-    private static final String UPDATE_MODIFY_TIME_SQL = "update schedule_plugin_job_info set gmt_modified = NOW() where job_id = ?";
+    private static final String BATCH_UPDATE_STATUS_SQL = "update schedule_plugin_job_info set status = ?, gmt_modified = NOW() where job_id in ";
+
+    private static final String BATCH_UPDATE_MODIFY_TIME_SQL = "update schedule_plugin_job_info set gmt_modified = NOW() where job_id in ";
 
     private static final String UPDATE_JOB_ERRINFO_SQL = "update schedule_plugin_job_info set log_info = ?, status = ?, gmt_modified = NOW() where job_id = ?";
 
@@ -97,11 +107,52 @@ public class MysqlLogStore extends AbstractLogStore {
      */
     private static final long RETAIN_TIME = 604800000;
 
+    /**
+     * 批量写库的间隔
+     */
+    private static final long FLUSH_INTERVAL = 1000;
+
+    /**
+     * 已结束任务的状态在内存中保留的时间
+     */
+    private static final long FINISHED_CACHE_TIME = 600000;
+
+    /**
+     * 只更新修改时间的标记
+     */
+    private static final int MODIFY_TIME_ONLY = -1;
+
     private static MysqlDataConnPool dataConnPool;
 
     private static volatile MysqlLogStore mysqlLogStore = null;
 
+    /**
+     * 待写库的更新, key: jobId, value: 最新状态, MODIFY_TIME_ONLY 表示只更新修改时间
+     */
+    private final Map<String, Integer> pendingUpdates = new ConcurrentHashMap<>();
+
+    /**
+     * 最近的任务状态
+     */
+    private final Map<String, CachedStatus> statusCache = new ConcurrentHashMap<>();
+
+    /**
+     * 批量写库和同步写库互斥, 避免批量写入的旧状态覆盖同步写入的新状态
+     */
+    private final ReentrantLock flushLock = new ReentrantLock();
+
     private MysqlLogStore() {
+        ScheduledExecutorService flushService = new ScheduledThreadPoolExecutor(1, new CustomThreadFactory("mysqlLogStoreFlush"));
+        flushService.scheduleWithFixedDelay(() -> {
+            try {
+                flush();
+                evictStatusCache();
+            } catch (Throwable e) {
+                LOGGER.error("flush log store error", e);
+            }
+        }, FLUSH_INTERVAL, FLUSH_INTERVAL, TimeUnit.MILLISECONDS);
+        // 正常退出时写入剩余的更新
+        Runtime.getRuntime().addShutdownHook(new Thread(this::flush, "mysqlLogStoreShutdownFlush"));
     }
 
     public static MysqlLogStore getInstance(Map<String, String> dbConfig) {
@@ -113,6 +164,8 @@ public class MysqlLogStore extends AbstractLogStore {
                 if (mysqlLogStore == null) {
                     dataConnPool = MysqlDataConnPool.getInstance(dbConfig);
                     mysqlLogStore = new MysqlLogStore();
+                    // 上次进程退出前未写入的执行中状态, 超时后置为失败
+                    mysqlLogStore.timeOutDeal();
                 }
             }
         }
@@ -124,7 +177,10 @@ public class MysqlLogStore extends AbstractLogStore {
         Connection connection = null;
         PreparedStatement pstmt = null;
 
+        flushLock.lock();
         try {
+            pendingUpdates.remove(jobId);
+            statusCache.put(jobId, new CachedStatus(status));
             connection = dataConnPool.getConn();
             pstmt = connection.prepareStatement(REPLACE_INTO_SQL);
             pstmt.setString(1, jobId);
@@ -138,49 +194,27 @@ public class MysqlLogStore extends AbstractLogStore {
             LOGGER.error("", e);
             return 0;
         } finally {
+            flushLock.unlock();
             closeDBResources(null, pstmt, null, connection);
         }
     }
 
     @Override
     public int updateStatus(String jobId, int status) {
-        Connection connection = null;
-        PreparedStatement pstmt = null;
-
-        try {
-            connection = dataConnPool.getConn();
-            pstmt = connection.prepareStatement(UPDATE_STATUS_SQL);
-            pstmt.setInt(1, status);
-            pstmt.setString(2, jobId);
-
-            return pstmt.executeUpdate();
-
-        } catch (SQLException e) {
-            LOGGER.error("", e);
-            return 0;
-        } finally {
-            closeDBResources(null, pstmt, null, connection);
-        }
+        statusCache.put(jobId, new CachedStatus(status));
+        pendingUpdates.put(jobId, status);
+        return 1;
     }
 
     @Override
     public void updateModifyTime(Collection<String> jobIds) {
-        Connection connection = null;
-        PreparedStatement pstmt = null;
-        try {
-            connection = dataConnPool.getConn();
-            pstmt = connection.prepareStatement(UPDATE_MODIFY_TIME_SQL);
-            for (String jobId : jobIds) {
-                pstmt.setString(1, jobId);
-                pstmt.addBatch();
+        long now = System.currentTimeMillis();
+        for (String jobId : jobIds) {
+            CachedStatus cachedStatus = statusCache.get(jobId);
+            if (cachedStatus != null) {
+                cachedStatus.updateTime = now;
             }
-
-            pstmt.executeBatch();
-
-        } catch (SQLException e) {
-            LOGGER.error("", e);
-        } finally {
-            closeDBResources(null, pstmt, null, connection);
+            pendingUpdates.putIfAbsent(jobId, MODIFY_TIME_ONLY);
         }
     }
 
@@ -188,7 +222,10 @@ public class MysqlLogStore extends AbstractLogStore {
     public void updateErrorLog(String jobId, String errorLog) {
         Connection connection = null;
         PreparedStatement pstmt = null;
+        flushLock.lock();
         try {
+            pendingUpdates.remove(jobId);
+            statusCache.put(jobId, new CachedStatus(TaskStatus.FAILED.getStatus()));
             connection = dataConnPool.getConn();
             pstmt = connection.prepareStatement(UPDATE_JOB_ERRINFO_SQL);
             pstmt.setString(1, errorLog);
@@ -199,12 +236,18 @@ public class MysqlLogStore extends AbstractLogStore {
         } catch (SQLException e) {
             LOGGER.error("", e);
         } finally {
+            flushLock.unlock();
             closeDBResources(null, pstmt, null, connection);
         }
     }
 
     @Override
     public Integer getStatusByJobId(String jobId) {
+        CachedStatus cachedStatus = statusCache.get(jobId);
+        if (cachedStatus != null) {
+            return cachedStatus.status;
+        }
+
         Connection connection = null;
         PreparedStatement preparedStatement = null;
         ResultSet resultSet = null;
@@ -220,7 +263,9 @@ public class MysqlLogStore extends AbstractLogStore {
                 if (gmtModified.getTime() < System.currentTimeMillis() - TIMEOUT){
                     batchExecuteJobTimeOutById(UPDATE_TIME_OUT_TO_FAIL_SQL, Collections.singletonList(resultSet.getLong("id")),connection);
                 }
-                return resultSet.getInt("status");
+                int status = resultSet.getInt("status");
+                statusCache.putIfAbsent(jobId, new CachedStatus(status));
+                return status;
             }
         } catch (SQLException e) {
             LOGGER.error("", e);
@@ -313,6 +358,92 @@ public class MysqlLogStore extends AbstractLogStore {
         }
     }
 
+    /**
+     * 把待写库的更新按状态分组, 每组按 BATCH_SIZE 合并成一条 update; 写库失败的更新留到下一轮
+     */
+    void flush() {
+        if (pendingUpdates.isEmpty()) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            Map<Integer, List<String>> statusJobIds = new HashMap<>();
+            for (String jobId : new ArrayList<>(pendingUpdates.keySet())) {
+                Integer status = pendingUpdates.remove(jobId);
+                if (status != null) {
+                    statusJobIds.computeIfAbsent(status, k -> new ArrayList<>()).add(jobId);
+                }
+            }
+            if (statusJobIds.isEmpty()) {
+                return;
+            }
+
+            Connection connection = null;
+            try {
+                connection = dataConnPool.getConn();
+                for (Map.Entry<Integer, List<String>> entry : statusJobIds.entrySet()) {
+                    Integer status = entry.getKey();
+                    for (List<String> jobIds : Lists.partition(entry.getValue(), BATCH_SIZE)) {
+                        try {
+                            batchUpdateByJobIds(connection, status, jobIds);
+                        } catch (SQLException e) {
+                            LOGGER.error("batch update status {} of jobs {} error", status, jobIds, e);
+                            restorePending(status, jobIds);
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                LOGGER.error("", e);
+                statusJobIds.forEach(this::restorePending);
+            } finally {
+                closeDBResources(null, null, null, connection);
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void batchUpdateByJobIds(Connection connection, int status, List<String> jobIds) throws SQLException {
+        boolean modifyTimeOnly = status == MODIFY_TIME_ONLY;
+        StringBuilder sql = new StringBuilder(modifyTimeOnly ? BATCH_UPDATE_MODIFY_TIME_SQL : BATCH_UPDATE_STATUS_SQL);
+        sql.append(" (");
+        for (int i = 0; i < jobIds.size(); i++) {
+            sql.append("?,");
+        }
+        sql.deleteCharAt(sql.length() - 1).append(") ");
+        try (PreparedStatement pstmt = connection.prepareStatement(sql.toString())) {
+            int parameterIndex = 1;
+            if (!modifyTimeOnly) {
+                pstmt.setInt(parameterIndex++, status);
+            }
+            for (String jobId : jobIds) {
+                pstmt.setString(parameterIndex++, jobId);
+            }
+            pstmt.executeUpdate();
+        }
+    }
+
+    /**
+     * 写库失败的更新放回, 期间有更新的状态时以新状态为准
+     */
+    private void restorePending(Integer status, List<String> jobIds) {
+        for (String jobId : jobIds) {
+            pendingUpdates.merge(jobId, status, (newer, failed) -> newer == MODIFY_TIME_ONLY ? failed : newer);
+        }
+    }
+
+    /**
+     * 清理内存中的状态: 执行中的任务超过 TIMEOUT 没有更新时以数据库为准, 已结束的任务保留 FINISHED_CACHE_TIME
+     */
+    private void evictStatusCache() {
+        long now = System.currentTimeMillis();
+        statusCache.entrySet().removeIf(entry -> {
+            CachedStatus cachedStatus = entry.getValue();
+            long expire = JOB_EXECUTE_STATUS.contains(cachedStatus.status) ? TIMEOUT : FINISHED_CACHE_TIME;
+            return now - cachedStatus.updateTime > expire;
+        });
+    }
+
     private void closeDBResources(ResultSet rs, Statement stmt, Statement stmt2, Connection conn) {
         try {
             if (null != rs) {
@@ -374,4 +505,16 @@ public class MysqlLogStore extends AbstractLogStore {
         return null;
     }
 
+    private static class CachedStatus {
+
+        private final int status;
+
+        private volatile long updateTime;
+
+        CachedStatus(int status) {
+            this.status = status;
+            this.updateTime = System.currentTimeMillis();
+        }
+    }
+
 }
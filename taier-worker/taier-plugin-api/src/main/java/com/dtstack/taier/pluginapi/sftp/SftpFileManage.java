@@ -226,6 +226,20 @@ public class SftpFileManage implements IFileManage {
         }
     }
 
+    @Override
+    public String getFileVersion(String remotePath) {
+        ChannelSftp channelSftp = getChannelSftp();
+        try {
+            SftpATTRS attrs = channelSftp.stat(remotePath);
+            return attrs.getSize() + "_" + attrs.getMTime();
+        } catch (SftpException e) {
+            LOGGER.info("getFileVersion from sftp error, path:{}, message:{}", remotePath, e.getMessage());
+            return null;
+        } finally {
+            close(channelSftp);
+        }
+    }
+
     private boolean downloadFile(String remotePath, String localPath, ChannelSftp channelSftp) {
         OutputStream os = null;
         try {
@@ -121,6 +121,27 @@ public class FilesystemManager {
         return getLocalJarFile(localFilePath);
     }
 
+    /**
+     *  获取远程文件版本标识(文件大小 + 修改时间), 用于本地缓存校验
+     * @param remoteFilePath
+     * @return 所有文件管理器都无法获取时返回 null
+     */
+    public String getFileVersion(String remoteFilePath) {
+        for (IFileManage fileManage : fileManages) {
+            String filePath = remoteFilePath;
+            if (fileManage.filterPrefix()) {
+                String prefix = fileManage.getPrefix();
+                filePath = filePath.startsWith(prefix) ? StringUtils.substringAfter(filePath, prefix) : filePath;
+            }
+
+            String version = fileManage.getFileVersion(filePath);
+            if (null != version) {
+                return version;
+            }
+        }
+        return null;
+    }
+
     /**
      *  使用文件管理器下载文件夹内容
      * @return
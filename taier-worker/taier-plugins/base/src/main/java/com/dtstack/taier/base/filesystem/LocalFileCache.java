@@ -0,0 +1,215 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dtstack.taier.base.filesystem;
+
+import com.dtstack.taier.pluginapi.util.MD5Util;
+import com.google.common.util.concurrent.Striped;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * 远程资源文件的本地缓存
+ * 以 远程路径 + 文件版本(大小、修改时间) 作为缓存 key, 远程文件未变更时直接硬链接(不支持时复制)到任务工作目录,
+ * 避免每次提交都重新下载相同的 jar/资源文件. 缓存按最近访问顺序淘汰, 总大小不超过 maxBytes
+ */
+public class LocalFileCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LocalFileCache.class);
+
+    private static final Map<String, LocalFileCache> CACHES = new ConcurrentHashMap<>();
+
+    private static final String DOWNLOADING_SUFFIX = ".downloading";
+
+    private final File cacheDir;
+
+    private final long maxBytes;
+
+    /**
+     * key: 缓存文件名, value: 文件大小, 按访问顺序排列
+     */
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long totalBytes;
+
+    private final Striped<Lock> keyLocks = Striped.lock(64);
+
+    private LocalFileCache(String cacheDir, long maxBytes) {
+        this.cacheDir = new File(cacheDir);
+        this.maxBytes = maxBytes;
+        load();
+    }
+
+    /**
+     * 同一缓存目录共享一个实例
+     *
+     * @param cacheDir 缓存目录
+     * @param maxBytes 缓存总大小上限
+     */
+    public static LocalFileCache getInstance(String cacheDir, long maxBytes) {
+        return CACHES.computeIfAbsent(new File(cacheDir).getAbsolutePath(), dir -> new LocalFileCache(dir, maxBytes));
+    }
+
+    /**
+     * 下载远程文件到本地, 远程文件未变更时复用缓存
+     * 无法获取远程文件版本时直接下载, 不经过缓存
+     *
+     * @param filesystemManager 文件管理器
+     * @param remoteFilePath    远程文件路径
+     * @param localFilePath     本地文件路径
+     * @return 本地文件
+     */
+    public File downloadFile(FilesystemManager filesystemManager, String remoteFilePath, String localFilePath) {
+        String version = filesystemManager.getFileVersion(remoteFilePath);
+        if (null == version) {
+            return filesystemManager.downloadFile(remoteFilePath, localFilePath);
+        }
+
+        String key = MD5Util.getMd5String(remoteFilePath + "@" + version);
+        File localFile = new File(localFilePath);
+        Lock lock = keyLocks.get(key);
+        lock.lock();
+        try {
+            File cachedFile = new File(cacheDir, key);
+            if (cachedFile.exists()) {
+                LOG.info("hit local file cache, remoteFilePath:{} cachedFile:{}", remoteFilePath, cachedFile.getName());
+            } else {
+                download(filesystemManager, remoteFilePath, cachedFile);
+            }
+            linkFile(cachedFile, localFile);
+            cachedFile.setLastModified(System.currentTimeMillis());
+            touch(key, cachedFile.length());
+        } catch (IOException e) {
+            throw new RuntimeException("download file " + remoteFilePath + " with cache error", e);
+        } finally {
+            lock.unlock();
+        }
+
+        evictIfNecessary();
+        return localFile;
+    }
+
+    private void download(FilesystemManager filesystemManager, String remoteFilePath, File cachedFile) throws IOException {
+        File tmpFile = new File(cacheDir, cachedFile.getName() + DOWNLOADING_SUFFIX);
+        try {
+            filesystemManager.downloadFile(remoteFilePath, tmpFile.getAbsolutePath(), true);
+            Files.move(tmpFile.toPath(), cachedFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            LOG.info("cache remote file, remoteFilePath:{} cachedFile:{} size:{}", remoteFilePath, cachedFile.getName(), cachedFile.length());
+        } finally {
+            Files.deleteIfExists(tmpFile.toPath());
+        }
+    }
+
+    private void linkFile(File cachedFile, File localFile) throws IOException {
+        if (!localFile.getParentFile().exists()) {
+            boolean mkdirs = localFile.getParentFile().mkdirs();
+            LOG.info("local file localParentFile {}  mkdir {} :", localFile.getParent(), mkdirs);
+        }
+        Files.deleteIfExists(localFile.toPath());
+        try {
+            Files.createLink(localFile.toPath(), cachedFile.toPath());
+        } catch (IOException | UnsupportedOperationException e) {
+            // 跨文件系统等不支持硬链接的情况
+            Files.copy(cachedFile.toPath(), localFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private synchronized void touch(String key, long size) {
+        Long old = entries.put(key, size);
+        totalBytes += size - (old == null ? 0L : old);
+    }
+
+    private void evictIfNecessary() {
+        List<String> evicted = new ArrayList<>();
+        synchronized (this) {
+            Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+            while (totalBytes > maxBytes && iterator.hasNext()) {
+                Map.Entry<String, Long> entry = iterator.next();
+                iterator.remove();
+                totalBytes -= entry.getValue();
+                evicted.add(entry.getKey());
+            }
+        }
+
+        for (String key : evicted) {
+            Lock lock = keyLocks.get(key);
+            lock.lock();
+            try {
+                synchronized (this) {
+                    // 淘汰后又被访问, 已重新加入缓存
+                    if (entries.containsKey(key)) {
+                        continue;
+                    }
+                }
+                deleteQuietly(new File(cacheDir, key));
+                LOG.info("evict local file cache:{}", key);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void deleteQuietly(File file) {
+        try {
+            Files.deleteIfExists(file.toPath());
+        } catch (IOException e) {
+            LOG.warn("delete local file cache {} error", file, e);
+        }
+    }
+
+    /**
+     * 加载缓存目录中已有的文件, 清理未完成的下载
+     */
+    private void load() {
+        if (!cacheDir.exists()) {
+            boolean mkdirs = cacheDir.mkdirs();
+            LOG.info("local file cache dir {} mkdir {}", cacheDir, mkdirs);
+        }
+        File[] files = cacheDir.listFiles();
+        if (null == files) {
+            return;
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (File file : files) {
+            if (!file.isFile()) {
+                continue;
+            }
+            if (file.getName().endsWith(DOWNLOADING_SUFFIX)) {
+                deleteQuietly(file);
+                continue;
+            }
+            touch(file.getName(), file.length());
+        }
+        LOG.info("load local file cache dir:{} files:{} totalBytes:{}", cacheDir, entries.size(), totalBytes);
+        evictIfNecessary();
+    }
+}
@@ -175,4 +175,19 @@ public class HdfsFileManage implements IFileManage {
 
     }
 
+    @Override
+    public String getFileVersion(String remotePath) {
+        try (FileSystem fs = FileSystem.get(hadoopConf)) {
+            Path hdfsFilePath = new Path(remotePath);
+            if (!fs.exists(hdfsFilePath)) {
+                return null;
+            }
+            FileStatus fileStatus = fs.getFileStatus(hdfsFilePath);
+            return fileStatus.getLen() + "_" + fileStatus.getModificationTime();
+        } catch (Exception e) {
+            LOG.error("getFileVersion from hdfs error:", e);
+            return null;
+        }
+    }
+
 }
@@ -33,6 +33,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -72,7 +73,34 @@ public abstract class AbstractYarnResourceInfo implements EngineResourceInfo {
     protected int containerCoreMax;
     protected int containerMemoryMax;
 
+    /**
+     * 共享的集群资源快照, 为空时每次判定直接请求 ResourceManager
+     */
+    protected YarnResourceSnapshotService resourceSnapshotService;
+    private String judgeQueueName;
+
     protected JudgeResult judgeYarnResource(List<InstanceInfo> instanceInfos) {
+        if (null == resourceSnapshotService) {
+            return judgeYarnResource(instanceInfos, Collections.emptyList(), Collections.emptyList());
+        }
+        return resourceSnapshotService.judgeAndReserve(judgeQueueName, instanceInfos,
+                (reserved, queueReserved) -> judgeYarnResource(instanceInfos, reserved, queueReserved));
+    }
+
+    /**
+     * @param reserved      已判定通过但快照中还未体现的任务资源, 先从节点空闲资源中扣除
+     * @param queueReserved 其中属于当前队列的部分, 从队列剩余容量中扣除
+     */
+    private JudgeResult judgeYarnResource(List<InstanceInfo> instanceInfos, List<InstanceInfo> reserved, List<InstanceInfo> queueReserved) {
+        for (InstanceInfo reservedInfo : reserved) {
+            reserveResource(reservedInfo);
+        }
+        int queueReservedCore = 0;
+        int queueReservedMem = 0;
+        for (InstanceInfo reservedInfo : queueReserved) {
+            queueReservedCore += reservedInfo.instances * reservedInfo.coresPerInstance;
+            queueReservedMem += reservedInfo.instances * reservedInfo.memPerInstance;
+        }
         if (totalFreeCore == 0 || totalFreeMem == 0) {
             logger.info("judgeYarnResource, totalFreeCore={}, totalFreeMem={}", totalFreeCore, totalFreeMem);
             return JudgeResult.notOk( "totalFreeCore or totalFreeMem is 0");
@@ -100,12 +128,12 @@ public abstract class AbstractYarnResourceInfo implements EngineResourceInfo {
         if (needTotalMem > (totalMem * queueCapacity)) {
             return JudgeResult.limitError("The Yarn task is set to a mem larger than the maximum allocated mem");
         }
-        if (needTotalCore > (totalCore * capacity)) {
-            logger.info("judgeYarnResource, needTotalCore={}, totalCore={}, capacity={}", needTotalCore, totalCore, capacity);
+        if (needTotalCore + queueReservedCore > (totalCore * capacity)) {
+            logger.info("judgeYarnResource, needTotalCore={}, queueReservedCore={}, totalCore={}, capacity={}", needTotalCore, queueReservedCore, totalCore, capacity);
             return JudgeResult.notOk( "The task required core resources are greater than the total queue resources");
         }
-        if (needTotalMem > (totalMem * capacity)) {
-            logger.info("judgeYarnResource, needTotalMem={}, totalMem={}, capacity={}", needTotalMem, totalMem, capacity);
+        if (needTotalMem + queueReservedMem > (totalMem * capacity)) {
+            logger.info("judgeYarnResource, needTotalMem={}, queueReservedMem={}, totalMem={}, capacity={}", needTotalMem, queueReservedMem, totalMem, capacity);
             return JudgeResult.notOk( "The task required memory resources are greater than the total queue resources");
         }
         for (InstanceInfo instanceInfo : instanceInfos) {
@@ -149,6 +177,17 @@ public abstract class AbstractYarnResourceInfo implements EngineResourceInfo {
         return true;
     }
 
+    private void reserveResource(InstanceInfo instanceInfo) {
+        for (int i = 1; i <= instanceInfo.instances; i++) {
+            if (allocateResource(nmFreeCore, instanceInfo.coresPerInstance)) {
+                totalFreeCore = Math.max(totalFreeCore - instanceInfo.coresPerInstance, 0);
+            }
+            if (allocateResource(nmFreeMem, instanceInfo.memPerInstance)) {
+                totalFreeMem = Math.max(totalFreeMem - instanceInfo.memPerInstance, 0);
+            }
+        }
+    }
+
     private boolean allocateResource(int[] nodeManagers, int toAllocate) {
         for (int i = 0; i < nodeManagers.length; i++) {
             if (nodeManagers[i] >= toAllocate) {
@@ -161,6 +200,9 @@ public abstract class AbstractYarnResourceInfo implements EngineResourceInfo {
 
     public JudgeResult getYarnSlots(YarnClient yarnClient, String queueName, int yarnAccepterTaskNumber) {
         try {
+            if (null != resourceSnapshotService) {
+                return getSnapshotSlots(yarnClient, queueName, yarnAccepterTaskNumber);
+            }
             EnumSet<YarnApplicationState> enumSet = EnumSet.noneOf(YarnApplicationState.class);
             enumSet.add(YarnApplicationState.ACCEPTED);
             List<ApplicationReport> acceptedApps = yarnClient.getApplications(enumSet).stream().
@@ -175,24 +217,7 @@ public abstract class AbstractYarnResourceInfo implements EngineResourceInfo {
                 getQueueRemainCapacity(1, queueName, yarnClient.getRootQueueInfos());
             }
             for (NodeReport report : nodeReports) {
-                Resource capability = report.getCapability();
-                Resource used = report.getUsed();
-                int totalMem = capability.getMemory();
-                int totalCores = capability.getVirtualCores();
-
-                int usedMem = used.getMemory();
-                int usedCores = used.getVirtualCores();
-
-                int freeCores = totalCores - usedCores;
-                int freeMem = totalMem - usedMem;
-
-                if (freeCores > containerCoreMax) {
-                    containerCoreMax = freeCores;
-                }
-                if (freeMem > containerMemoryMax) {
-                    containerMemoryMax = freeMem;
-                }
-                this.addNodeResource(new NodeResourceDetail(report.getNodeId().toString(), totalCores, usedCores, freeCores, totalMem, usedMem, freeMem));
+                loadNodeResource(buildNodeResource(report));
             }
 
             calc();
@@ -202,6 +227,48 @@ public abstract class AbstractYarnResourceInfo implements EngineResourceInfo {
         }
     }
 
+    private JudgeResult getSnapshotSlots(YarnClient yarnClient, String queueName, int yarnAccepterTaskNumber) throws IOException, YarnException {
+        YarnResourceSnapshotService.Snapshot snapshot = resourceSnapshotService.getSnapshot(yarnClient);
+        int acceptedApps = snapshot.getAcceptedApps(queueName) + resourceSnapshotService.getReservedApps(queueName);
+        if (acceptedApps > yarnAccepterTaskNumber) {
+            logger.info("queueName:{} acceptedApps:{} >= yarnAccepterTaskNumber:{}", queueName, acceptedApps, yarnAccepterTaskNumber);
+            return JudgeResult.notOk( "queueName:" + queueName + " acceptedApps:" + acceptedApps + " >= yarnAccepterTaskNumber:" + yarnAccepterTaskNumber);
+        }
+        if (!elasticCapacity) {
+            getQueueRemainCapacity(1, queueName, snapshot.getRootQueueInfos());
+        }
+        for (NodeResourceDetail nodeResource : snapshot.getNodeResources()) {
+            loadNodeResource(nodeResource);
+        }
+        calc();
+        this.judgeQueueName = queueName;
+        return JudgeResult.ok();
+    }
+
+    private void loadNodeResource(NodeResourceDetail nodeResource) {
+        if (nodeResource.coresFree > containerCoreMax) {
+            containerCoreMax = nodeResource.coresFree;
+        }
+        if (nodeResource.memoryFree > containerMemoryMax) {
+            containerMemoryMax = nodeResource.memoryFree;
+        }
+        this.addNodeResource(nodeResource);
+    }
+
+    static NodeResourceDetail buildNodeResource(NodeReport report) {
+        Resource capability = report.getCapability();
+        Resource used = report.getUsed();
+        int totalMem = capability.getMemory();
+        int totalCores = capability.getVirtualCores();
+
+        int usedMem = used.getMemory();
+        int usedCores = used.getVirtualCores();
+
+        int freeCores = totalCores - usedCores;
+        int freeMem = totalMem - usedMem;
+        return new NodeResourceDetail(report.getNodeId().toString(), totalCores, usedCores, freeCores, totalMem, usedMem, freeMem);
+    }
+
     private float getQueueRemainCapacity(float coefficient, String queueName, List<QueueInfo> queueInfos) {
         float capacity = 0;
         for (QueueInfo queueInfo : queueInfos) {
@@ -284,6 +351,10 @@ public abstract class AbstractYarnResourceInfo implements EngineResourceInfo {
         }
     }
 
+    public void setResourceSnapshotService(YarnResourceSnapshotService resourceSnapshotService) {
+        this.resourceSnapshotService = resourceSnapshotService;
+    }
+
     public void setElasticCapacity(boolean elasticCapacity) {
         this.elasticCapacity = elasticCapacity;
     }
@@ -0,0 +1,416 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dtstack.taier.base.resource;
+
+import com.dtstack.taier.base.BaseConfig;
+import com.dtstack.taier.base.resource.AbstractYarnResourceInfo.InstanceInfo;
+import com.dtstack.taier.base.resource.AbstractYarnResourceInfo.NodeResourceDetail;
+import com.dtstack.taier.base.util.KerberosUtils;
+import com.dtstack.taier.pluginapi.CustomThreadFactory;
+import com.dtstack.taier.pluginapi.exception.PluginDefineException;
+import com.dtstack.taier.pluginapi.pojo.JudgeResult;
+import org.apache.hadoop.yarn.api.records.ApplicationReport;
+import org.apache.hadoop.yarn.api.records.ApplicationResourceUsageReport;
+import org.apache.hadoop.yarn.api.records.NodeReport;
+import org.apache.hadoop.yarn.api.records.NodeState;
+import org.apache.hadoop.yarn.api.records.QueueInfo;
+import org.apache.hadoop.yarn.api.records.YarnApplicationState;
+import org.apache.hadoop.yarn.client.api.YarnClient;
+import org.apache.hadoop.yarn.conf.YarnConfiguration;
+import org.apache.hadoop.yarn.exceptions.YarnException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+
+/**
+ * yarn 集群资源快照
+ * 同一个 ResourceManager(且同一认证身份)下的插件客户端共享一份后台定时刷新的快照, 替代每次 judgeSlots
+ * 都向 RM 请求 ACCEPTED 应用、节点和队列信息; 判定通过的任务记入预留账本,
+ * 后续判定先扣除这部分资源, 避免突发提交时所有任务看到同样的空闲资源.
+ * 预留在快照中观察到对应队列新启动的应用已分配足够资源, 或超过提交耗时上限后释放
+ */
+public class YarnResourceSnapshotService implements Runnable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(YarnResourceSnapshotService.class);
+
+    private static final Map<String, YarnResourceSnapshotService> SERVICES = new ConcurrentHashMap<>();
+
+    /**
+     * 快照超过刷新间隔的倍数仍未更新(后台刷新失败或暂停), 由判定线程同步刷新
+     */
+    private static final int MAX_STALE_TIMES = 3;
+
+    /**
+     * 超过刷新间隔的倍数未被访问, 后台暂停刷新
+     */
+    private static final int IDLE_TIMES = 20;
+
+    /**
+     * 预留的最长保留时间, 覆盖任务从判定通过到 AM 申请完容器的耗时
+     */
+    private static final long RESERVATION_TIMEOUT = TimeUnit.MINUTES.toMillis(2);
+
+    /**
+     * 比较应用启动时间和预留时间时允许的 RM 与本机时钟偏差
+     */
+    private static final long CLOCK_SKEW = TimeUnit.SECONDS.toMillis(10);
+
+    private final YarnConfiguration yarnConf;
+
+    private final BaseConfig config;
+
+    private final long refreshInterval;
+
+    private final ReentrantLock refreshLock = new ReentrantLock();
+
+    /**
+     * 预留账本, 访问需持有当前对象锁
+     */
+    private final LinkedList<Reservation> reservations = new LinkedList<>();
+
+    private ScheduledExecutorService scheduledService;
+
+    /**
+     * 后台刷新使用的 yarnClient, 只在持有 refreshLock 时访问
+     */
+    private YarnClient yarnClient;
+
+    private volatile Snapshot snapshot;
+
+    private volatile long lastAccessTime = System.currentTimeMillis();
+
+    private YarnResourceSnapshotService(YarnConfiguration yarnConf, BaseConfig config, long refreshInterval) {
+        this.yarnConf = yarnConf;
+        this.config = config;
+        this.refreshInterval = refreshInterval;
+    }
+
+    /**
+     * 获取集群对应的快照服务, 首次获取时启动后台刷新
+     *
+     * @param yarnConf        yarn 配置, 以其中 ResourceManager 地址区分集群
+     * @param config          插件配置, 后台刷新时用于 kerberos 认证
+     * @param refreshInterval 刷新间隔(ms)
+     */
+    public static YarnResourceSnapshotService getInstance(YarnConfiguration yarnConf, BaseConfig config, long refreshInterval) {
+        String clusterKey = getClusterKey(yarnConf, config);
+        return SERVICES.computeIfAbsent(clusterKey, k -> {
+            YarnResourceSnapshotService service = new YarnResourceSnapshotService(yarnConf, config, refreshInterval);
+            service.start(k);
+            return service;
+        });
+    }
+
+    private static String getClusterKey(YarnConfiguration yarnConf, BaseConfig config) {
+        Map<String, String> rmConf = new TreeMap<>();
+        for (Map.Entry<String, String> entry : yarnConf) {
+            String key = entry.getKey();
+            if (key.startsWith(YarnConfiguration.RM_PREFIX) && (key.contains("address") || key.contains("hostname") || key.contains("rm-ids"))) {
+                rmConf.put(key, entry.getValue());
+            }
+        }
+        return rmConf + "_" + (config.isOpenKerberos() ? config.getPrincipal() : "");
+    }
+
+    private void start(String clusterKey) {
+        scheduledService = new ScheduledThreadPoolExecutor(1, new CustomThreadFactory(getClass().getSimpleName()));
+        scheduledService.scheduleWithFixedDelay(this, 0, refreshInterval, TimeUnit.MILLISECONDS);
+        LOG.info("start yarn resource snapshot, cluster:{}, refreshInterval:{}", clusterKey, refreshInterval);
+    }
+
+    @Override
+    public void run() {
+        if (System.currentTimeMillis() - lastAccessTime > refreshInterval * IDLE_TIMES) {
+            return;
+        }
+        if (!refreshLock.tryLock()) {
+            return;
+        }
+        try {
+            Snapshot fetched = KerberosUtils.login(config, () -> {
+                try {
+                    return fetch(getYarnClient());
+                } catch (IOException | YarnException e) {
+                    throw new PluginDefineException(e);
+                }
+            }, yarnConf);
+            updateSnapshot(fetched);
+        } catch (Exception e) {
+            LOG.error("refresh yarn resource snapshot error", e);
+            closeYarnClient();
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    /**
+     * 获取快照, 快照过旧时使用调用方的 yarnClient 同步刷新
+     *
+     * @param yarnClient 调用方 yarnClient, 需在调用方的 kerberos 上下文中调用
+     */
+    public Snapshot getSnapshot(YarnClient yarnClient) throws IOException, YarnException {
+        lastAccessTime = System.currentTimeMillis();
+        Snapshot current = snapshot;
+        if (isUsable(current)) {
+            return current;
+        }
+        refreshLock.lock();
+        try {
+            current = snapshot;
+            if (isUsable(current)) {
+                return current;
+            }
+            current = fetch(yarnClient);
+            updateSnapshot(current);
+            return current;
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    /**
+     * 在扣除已有预留后判定资源, 判定通过则记入预留
+     *
+     * @param queueName     任务队列
+     * @param instanceInfos 任务申请的资源
+     * @param judger        入参为仍有效的全部预留资源和其中属于当前队列的预留资源, 返回判定结果
+     */
+    public synchronized JudgeResult judgeAndReserve(String queueName, List<InstanceInfo> instanceInfos,
+                                                    BiFunction<List<InstanceInfo>, List<InstanceInfo>, JudgeResult> judger) {
+        List<InstanceInfo> reserved = new ArrayList<>();
+        List<InstanceInfo> queueReserved = new ArrayList<>();
+        for (Reservation reservation : reservations) {
+            reserved.addAll(reservation.instanceInfos);
+            if (Objects.equals(queueName, reservation.queueName)) {
+                queueReserved.addAll(reservation.instanceInfos);
+            }
+        }
+        JudgeResult result = judger.apply(reserved, queueReserved);
+        if (result.available()) {
+            reservations.add(new Reservation(System.currentTimeMillis(), queueName, instanceInfos));
+        }
+        return result;
+    }
+
+    /**
+     * 队列中已判定通过、但快照中还看不到的任务数
+     */
+    public synchronized int getReservedApps(String queueName) {
+        int count = 0;
+        for (Reservation reservation : reservations) {
+            if (Objects.equals(queueName, reservation.queueName)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private boolean isUsable(Snapshot current) {
+        return current != null && System.currentTimeMillis() - current.fetchTime < refreshInterval * MAX_STALE_TIMES;
+    }
+
+    private void updateSnapshot(Snapshot fetched) {
+        snapshot = fetched;
+        long expireTime = System.currentTimeMillis() - RESERVATION_TIMEOUT;
+        List<RunningApp> unmatchedApps = new ArrayList<>(fetched.runningApps);
+        synchronized (this) {
+            Iterator<Reservation> iterator = reservations.iterator();
+            while (iterator.hasNext()) {
+                Reservation reservation = iterator.next();
+                if (reservation.reserveTime < expireTime || matchAllocatedApp(reservation, unmatchedApps)) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * 预留之后同队列启动的应用已分配不少于预留的内存, 认为该预留已体现在快照中; 每个应用只抵消一个预留
+     */
+    private static boolean matchAllocatedApp(Reservation reservation, List<RunningApp> unmatchedApps) {
+        if (reservation.queueName == null) {
+            return false;
+        }
+        Iterator<RunningApp> iterator = unmatchedApps.iterator();
+        while (iterator.hasNext()) {
+            RunningApp app = iterator.next();
+            if (app.queue.endsWith(reservation.queueName)
+                    && app.startTime >= reservation.reserveTime - CLOCK_SKEW
+                    && app.usedMemory >= reservation.memory) {
+                iterator.remove();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private YarnClient getYarnClient() {
+        if (yarnClient == null) {
+            YarnClient client = YarnClient.createYarnClient();
+            client.init(yarnConf);
+            client.start();
+            yarnClient = client;
+        }
+        return yarnClient;
+    }
+
+    private void closeYarnClient() {
+        if (yarnClient == null) {
+            return;
+        }
+        try {
+            yarnClient.close();
+        } catch (IOException e) {
+            LOG.error("close yarn client error", e);
+        }
+        yarnClient = null;
+    }
+
+    private static Snapshot fetch(YarnClient yarnClient) throws IOException, YarnException {
+        long fetchTime = System.currentTimeMillis();
+        Map<String, Integer> acceptedApps = new HashMap<>();
+        List<RunningApp> runningApps = new ArrayList<>();
+        for (ApplicationReport report : yarnClient.getApplications(EnumSet.of(YarnApplicationState.ACCEPTED, YarnApplicationState.RUNNING))) {
+            if (report.getQueue() == null) {
+                continue;
+            }
+            if (report.getYarnApplicationState() == YarnApplicationState.ACCEPTED) {
+                acceptedApps.merge(report.getQueue(), 1, Integer::sum);
+                continue;
+            }
+            ApplicationResourceUsageReport usageReport = report.getApplicationResourceUsageReport();
+            if (usageReport != null && usageReport.getUsedResources() != null) {
+                runningApps.add(new RunningApp(report.getQueue(), report.getStartTime(), usageReport.getUsedResources().getMemory()));
+            }
+        }
+        // 按启动时间匹配, 较早的预留对应较早启动的应用
+        runningApps.sort(Comparator.comparingLong(app -> app.startTime));
+        List<NodeReport> nodeReports = yarnClient.getNodeReports(NodeState.RUNNING);
+        List<NodeResourceDetail> nodeResources = new ArrayList<>(nodeReports.size());
+        for (NodeReport report : nodeReports) {
+            nodeResources.add(AbstractYarnResourceInfo.buildNodeResource(report));
+        }
+        List<QueueInfo> rootQueueInfos = yarnClient.getRootQueueInfos();
+        return new Snapshot(fetchTime, acceptedApps, runningApps, nodeResources, rootQueueInfos);
+    }
+
+    public static class Snapshot {
+
+        private final long fetchTime;
+
+        /**
+         * key: 队列全名, value: ACCEPTED 状态的应用数
+         */
+        private final Map<String, Integer> acceptedApps;
+
+        /**
+         * RUNNING 状态的应用, 用于释放已分配到资源的预留
+         */
+        private final List<RunningApp> runningApps;
+
+        private final List<NodeResourceDetail> nodeResources;
+
+        private final List<QueueInfo> rootQueueInfos;
+
+        private Snapshot(long fetchTime, Map<String, Integer> acceptedApps, List<RunningApp> runningApps,
+                         List<NodeResourceDetail> nodeResources, List<QueueInfo> rootQueueInfos) {
+            this.fetchTime = fetchTime;
+            this.acceptedApps = acceptedApps;
+            this.runningApps = runningApps;
+            this.nodeResources = Collections.unmodifiableList(nodeResources);
+            this.rootQueueInfos = rootQueueInfos;
+        }
+
+        public int getAcceptedApps(String queueName) {
+            int count = 0;
+            for (Map.Entry<String, Integer> entry : acceptedApps.entrySet()) {
+                if (entry.getKey().endsWith(queueName)) {
+                    count += entry.getValue();
+                }
+            }
+            return count;
+        }
+
+        public List<NodeResourceDetail> getNodeResources() {
+            return nodeResources;
+        }
+
+        public List<QueueInfo> getRootQueueInfos() {
+            return rootQueueInfos;
+        }
+
+        public long getFetchTime() {
+            return fetchTime;
+        }
+    }
+
+    private static class Reservation {
+
+        private final long reserveTime;
+
+        private final String queueName;
+
+        private final List<InstanceInfo> instanceInfos;
+
+        private final long memory;
+
+        private Reservation(long reserveTime, String queueName, List<InstanceInfo> instanceInfos) {
+            this.reserveTime = reserveTime;
+            this.queueName = queueName;
+            this.instanceInfos = instanceInfos;
+            long totalMemory = 0;
+            for (InstanceInfo instanceInfo : instanceInfos) {
+                totalMemory += (long) instanceInfo.instances * instanceInfo.memPerInstance;
+            }
+            this.memory = totalMemory;
+        }
+    }
+
+    private static class RunningApp {
+
+        private final String queue;
+
+        private final long startTime;
+
+        private final long usedMemory;
+
+        private RunningApp(String queue, long startTime, long usedMemory) {
+            this.queue = queue;
+            this.startTime = startTime;
+            this.usedMemory = usedMemory;
+        }
+    }
+}
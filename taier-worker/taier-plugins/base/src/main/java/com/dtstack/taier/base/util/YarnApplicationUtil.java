@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dtstack.taier.base.util;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Maps;
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.hadoop.yarn.api.records.ApplicationId;
+import org.apache.hadoop.yarn.api.records.ApplicationReport;
+import org.apache.hadoop.yarn.api.records.YarnApplicationState;
+import org.apache.hadoop.yarn.client.api.YarnClient;
+import org.apache.hadoop.yarn.exceptions.ApplicationNotFoundException;
+import org.apache.hadoop.yarn.exceptions.YarnException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 批量获取 yarn application report, 避免每个任务单独请求 ResourceManager
+ */
+public class YarnApplicationUtil {
+
+    private static final Logger LOG = LoggerFactory.getLogger(YarnApplicationUtil.class);
+
+    /**
+     * 未结束的应用状态, 已结束的应用只在补查时单独获取
+     */
+    private static final EnumSet<YarnApplicationState> UNFINISHED_STATES = EnumSet.of(YarnApplicationState.NEW,
+            YarnApplicationState.NEW_SAVING, YarnApplicationState.SUBMITTED, YarnApplicationState.ACCEPTED, YarnApplicationState.RUNNING);
+
+    /**
+     * 应用列表快照的有效期, 小于调度端状态轮询间隔, 同一轮中各批次共用一次 getApplications
+     */
+    private static final long SNAPSHOT_EXPIRE_TIME = 3000L;
+
+    /**
+     * key: yarnClient, value: (key: 类型和队列, value: 应用列表快照)
+     */
+    private static final Cache<YarnClient, Cache<String, Map<ApplicationId, ApplicationReport>>> SNAPSHOTS = CacheBuilder.newBuilder()
+            .weakKeys()
+            .build();
+
+    /**
+     * 从指定类型(和队列)下未结束应用的快照中按 applicationId 获取, 快照在有效期内被同一轮的各批次共用.
+     * 未命中的应用(已结束、新提交或类型被自定义)退化为单个 getApplicationReport 补查, 仍查不到的不出现在结果中
+     *
+     * @param yarnClient       yarnClient
+     * @param applicationTypes 应用类型, 为空则不过滤
+     * @param queueName        队列名, 为空则不过滤
+     * @param applicationIds   需要获取的应用
+     * @return key: applicationId, value: report
+     */
+    public static Map<ApplicationId, ApplicationReport> getApplicationReports(YarnClient yarnClient, Set<String> applicationTypes,
+                                                                             String queueName, Collection<ApplicationId> applicationIds) throws IOException, YarnException {
+        if (CollectionUtils.isEmpty(applicationIds)) {
+            return Maps.newHashMap();
+        }
+        Map<ApplicationId, ApplicationReport> snapshot = getSnapshot(yarnClient, applicationTypes, queueName);
+        Map<ApplicationId, ApplicationReport> reports = Maps.newHashMapWithExpectedSize(applicationIds.size());
+        Set<ApplicationId> remaining = new HashSet<>();
+        for (ApplicationId applicationId : applicationIds) {
+            ApplicationReport report = snapshot.get(applicationId);
+            if (report != null) {
+                reports.put(applicationId, report);
+            } else {
+                remaining.add(applicationId);
+            }
+        }
+
+        for (ApplicationId applicationId : remaining) {
+            try {
+                reports.put(applicationId, yarnClient.getApplicationReport(applicationId));
+            } catch (ApplicationNotFoundException e) {
+                LOG.warn("applicationId:{} not found in resourceManager", applicationId);
+            }
+        }
+        return reports;
+    }
+
+    private static Map<ApplicationId, ApplicationReport> getSnapshot(YarnClient yarnClient, Set<String> applicationTypes,
+                                                                     String queueName) throws IOException, YarnException {
+        String key = (applicationTypes == null ? "" : new TreeSet<>(applicationTypes).toString()) + "|" + StringUtils.defaultString(queueName);
+        try {
+            return SNAPSHOTS.get(yarnClient, () -> CacheBuilder.newBuilder()
+                    .expireAfterWrite(SNAPSHOT_EXPIRE_TIME, TimeUnit.MILLISECONDS)
+                    .<String, Map<ApplicationId, ApplicationReport>>build())
+                    .get(key, () -> fetchSnapshot(yarnClient, applicationTypes, queueName));
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof YarnException) {
+                throw (YarnException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private static Map<ApplicationId, ApplicationReport> fetchSnapshot(YarnClient yarnClient, Set<String> applicationTypes,
+                                                                       String queueName) throws IOException, YarnException {
+        // 只拉取未结束的应用, RM 保留的大量已结束应用不再随每次轮询返回
+        List<ApplicationReport> applications = yarnClient.getApplications(applicationTypes, UNFINISHED_STATES);
+        Map<ApplicationId, ApplicationReport> snapshot = Maps.newHashMapWithExpectedSize(applications.size());
+        for (ApplicationReport report : applications) {
+            if (StringUtils.isNotBlank(queueName) && report.getQueue() != null && !report.getQueue().endsWith(queueName)) {
+                continue;
+            }
+            snapshot.put(report.getApplicationId(), report);
+        }
+        return snapshot;
+    }
+}
@@ -3,6 +3,8 @@ package com.dtstack.taier.flink;
 import com.alibaba.fastjson.JSONArray;
 import com.alibaba.fastjson.JSONObject;
 import com.dtstack.taier.base.filesystem.FilesystemManager;
+import com.dtstack.taier.base.filesystem.LocalFileCache;
+import com.dtstack.taier.base.resource.YarnResourceSnapshotService;
 import com.dtstack.taier.base.util.HadoopUtils;
 import com.dtstack.taier.base.util.HttpClientUtil;
 import com.dtstack.taier.base.util.KerberosUtils;
@@ -17,6 +19,7 @@ import com.dtstack.taier.flink.info.resource.FlinkPerJobResourceInfo;
 import com.dtstack.taier.flink.info.resource.FlinkSessionResourceInfo;
 import com.dtstack.taier.flink.info.resource.TaskManagerInfo;
 import com.dtstack.taier.flink.perjob.client.PerJobClientManager;
+import com.dtstack.taier.flink.session.client.SessionClientManager;
 import com.dtstack.taier.flink.util.*;
 import com.dtstack.taier.pluginapi.JarFileInfo;
 import com.dtstack.taier.pluginapi.JobClient;
@@ -104,6 +107,9 @@ public class FlinkClient extends AbstractClient {
 
     private FilesystemManager filesystemManager;
 
+    /** shared yarn resource snapshot for judgeSlots, null if disabled */
+    private volatile YarnResourceSnapshotService resourceSnapshotService;
+
     private final Map<String, List<String>> cacheFile = Maps.newConcurrentMap();
 
     private final static Predicate<TaskStatus> IS_END_STATUS =
@@ -167,7 +173,9 @@ public class FlinkClient extends AbstractClient {
                 String remoteFile = resourceFile.getAbsolutePath();
                 String localFile = localResourceDir + ConfigConstant.SP + resourceFileName;
                 //download file and close
-                File downloadFile = filesystemManager.downloadFile(remoteFile, localFile);
+                LocalFileCache fileCache = getLocalFileCache();
+                File downloadFile = null == fileCache ? filesystemManager.downloadFile(remoteFile, localFile)
+                        : fileCache.downloadFile(filesystemManager, remoteFile, localFile);
                 LOG.info("Download Resource File : " + downloadFile.getAbsolutePath());
             } else if (FileParserHelper.verifyJar(tmpSql)) {
                 sqlIterator.remove();
@@ -185,7 +193,7 @@ public class FlinkClient extends AbstractClient {
 
                 File jarFile;
                 try {
-                    jarFile = FlinkUtil.downloadJar(addFilePath, tmpJarDir, filesystemManager, false);
+                    jarFile = FlinkUtil.downloadJar(addFilePath, tmpJarDir, filesystemManager, getLocalFileCache(), false);
                     LOG.info("Download Resource File : " + jarFile.getAbsolutePath());
                 } catch (Exception e) {
                     throw new PluginDefineException(
@@ -475,6 +483,7 @@ public class FlinkClient extends AbstractClient {
                         .withQueueName(flinkConfig.getQueue())
                         .withYarnAccepterTaskNumber(flinkConfig.getYarnAccepterTaskNumber())
                         .withProperties(flinkExtProp)
+                        .withResourceSnapshotService(getResourceSnapshotService())
                         .build();
 
                 return perJobResourceInfo.judgeSlots(jobClient);
@@ -491,6 +500,25 @@ public class FlinkClient extends AbstractClient {
         return judgeResult;
     }
 
+    private LocalFileCache getLocalFileCache() {
+        if (flinkConfig.getLocalFileCacheSize() <= 0) {
+            return null;
+        }
+        return LocalFileCache.getInstance(ConfigConstant.TMP_DIR + ConfigConstant.SP + "fileCache",
+                flinkConfig.getLocalFileCacheSize() * 1024 * 1024);
+    }
+
+    private YarnResourceSnapshotService getResourceSnapshotService() {
+        if (flinkConfig.getYarnResourceRefreshInterval() <= 0) {
+            return null;
+        }
+        if (resourceSnapshotService == null) {
+            resourceSnapshotService = YarnResourceSnapshotService.getInstance(
+                    clientManager.getHadoopConfig().getYarnConfiguration(), flinkConfig, flinkConfig.getYarnResourceRefreshInterval());
+        }
+        return resourceSnapshotService;
+    }
+
     /**
      *  judge slot of flink session
      * @param jobClient job description
@@ -599,6 +627,50 @@ public class FlinkClient extends AbstractClient {
         }
     }
 
+    /**
+     * session 模式通过一次 /jobs/overview 获取全部任务状态, 未命中的任务以及 per-job 模式仍逐个查询
+     */
+    @Override
+    public Map<String, TaskStatus> getBatchJobStatus(List<JobIdentifier> jobIdentifiers) throws IOException {
+        if (!(clientManager instanceof SessionClientManager)) {
+            return super.getBatchJobStatus(jobIdentifiers);
+        }
+
+        Map<String, String> jobStates = getSessionJobStates();
+        Map<String, TaskStatus> statusMap = Maps.newHashMapWithExpectedSize(jobIdentifiers.size());
+        for (JobIdentifier jobIdentifier : jobIdentifiers) {
+            String state = StringUtils.isEmpty(jobIdentifier.getEngineJobId()) ? null : jobStates.get(jobIdentifier.getEngineJobId());
+            TaskStatus taskStatus = state == null ? null : TaskStatus.getTaskStatus(StringUtils.upperCase(state));
+            statusMap.put(jobIdentifier.getJobId(), taskStatus == null ? getJobStatus(jobIdentifier) : taskStatus);
+        }
+        return statusMap;
+    }
+
+    /**
+     * @return key: flink jobId, value: state
+     */
+    private Map<String, String> getSessionJobStates() {
+        Map<String, String> jobStates = Maps.newHashMap();
+        try {
+            ClusterClient clusterClient = clientManager.getClusterClient(null);
+            String response = PoolHttpClient.get(clusterClient.getWebInterfaceURL() + ConfigConstant.JOBS_OVERVIEW_URL);
+            if (StringUtils.isEmpty(response)) {
+                return jobStates;
+            }
+            Map<String, Object> overview = PublicUtil.jsonStrToObject(response, Map.class);
+            Object jobs = overview.get("jobs");
+            if (jobs instanceof List) {
+                for (Object job : (List) jobs) {
+                    Map<String, Object> jobInfo = (Map<String, Object>) job;
+                    jobStates.put(String.valueOf(jobInfo.get("jid")), String.valueOf(jobInfo.get("state")));
+                }
+            }
+        } catch (Exception e) {
+            LOG.error("get session jobs overview error: ", e);
+        }
+        return jobStates;
+    }
+
     /**
      * per-job模式其实获取的任务状态是yarn-application状态
      */
@@ -877,57 +949,144 @@ public class FlinkClient extends AbstractClient {
 
     @Override
     public JobResult cancelJob(JobIdentifier jobIdentifier) {
+        try {
+            return KerberosUtils.login(flinkConfig, () -> doCancelJob(jobIdentifier, null), clientManager.getHadoopConfig().getYarnConfiguration());
+        } catch (Exception exception) {
+            LOG.error("taskId: {} engineJobId: {} applicationId: {} cancelJob error: ", jobIdentifier.getJobId(), jobIdentifier.getEngineJobId(), jobIdentifier.getApplicationId(), exception);
+            return JobResult.createErrorResult(exception);
+        }
+    }
+
+    /**
+     * 一次登录内批量停止, 先通过 getBatchJobStatus 批量获取状态(session 模式一次 REST 请求), 已结束的任务不再发起停止
+     * 所有任务先发起 cancel/savepoint 再统一等待, 总耗时取决于最慢的任务而不是所有任务之和, 单个任务的等待不超过其超时时间
+     */
+    @Override
+    public Map<String, JobResult> cancelJobs(List<JobIdentifier> jobIdentifiers) {
+        Map<String, JobResult> resultMap = Maps.newHashMapWithExpectedSize(jobIdentifiers.size());
         try {
             return KerberosUtils.login(flinkConfig, () -> {
-                String taskId = jobIdentifier.getJobId();
-                String engineJobId = jobIdentifier.getEngineJobId();
-                String appId = jobIdentifier.getApplicationId();
-                TaskStatus TaskStatus = null;
+                Map<String, TaskStatus> statusMap;
                 try {
-                    TaskStatus = getJobStatus(jobIdentifier);
-
-                    if (TaskStatus != null && !TaskStatus.getStoppedStatus().contains(TaskStatus.getStatus())) {
-                        ClusterClient targetClusterClient = clientManager.getClusterClient(jobIdentifier);
-                        JobID jobId = new JobID(org.apache.flink.util.StringUtils.hexStringToByte(jobIdentifier.getEngineJobId()));
-
-                        EDeployMode deployMode = EDeployMode.getByType(jobIdentifier.getDeployMode());
-                        switch (deployMode){
-                            case SESSION:
-                            case STANDALONE:{
-                                // session job cancel
-                                Object ack = targetClusterClient.cancel(jobId).get(jobIdentifier.getTimeout(), TimeUnit.MILLISECONDS);
-                                LOG.info("taskId: {}, job[{}] cancel success with ack : {}", taskId, engineJobId, ack.toString());
-                                break;
-                            }
-                            case PERJOB:{
-                                // perJob cancel
-                                if(jobIdentifier.isForceCancel()){
-                                    return killApplication(jobIdentifier);
-                                }
-                                CompletableFuture completableFuture = targetClusterClient.cancelWithSavepoint(jobId, null);
-                                Object ask = completableFuture.get(jobIdentifier.getTimeout(), TimeUnit.MILLISECONDS);
-                                LOG.info("taskId: {}, job[{}] cancelWithSavepoint success, savepoint path {}",
-                                        taskId, engineJobId, ask.toString());
-                                break;
-                            }
-                            default:{
-                                LOG.warn("taskId: {}, job[{}] cancel failed Unexpected deployMode type: {}", taskId, engineJobId, deployMode);
-                            }
-                        }
+                    statusMap = getBatchJobStatus(jobIdentifiers);
+                } catch (IOException e) {
+                    throw new PluginDefineException(e);
+                }
+                Map<JobIdentifier, CompletableFuture<?>> cancelFutures = new LinkedHashMap<>();
+                for (JobIdentifier jobIdentifier : jobIdentifiers) {
+                    TaskStatus status = statusMap.get(jobIdentifier.getJobId());
+                    if (status == null) {
+                        status = getJobStatus(jobIdentifier);
                     }
-                    return JobResult.createSuccessResult(jobIdentifier.getEngineJobId());
-                } catch (Exception e) {
-                    if (TaskStatus != null){
-                        LOG.warn("taskId: {}, cancel job error jobStatus is: {}", taskId, TaskStatus.name());
+                    if (status != null && TaskStatus.getStoppedStatus().contains(status.getStatus())) {
+                        resultMap.put(jobIdentifier.getJobId(), JobResult.createSuccessResult(jobIdentifier.getEngineJobId()));
+                        continue;
+                    }
+                    if (isForceKill(jobIdentifier)) {
+                        resultMap.put(jobIdentifier.getJobId(), killApplication(jobIdentifier));
+                        continue;
+                    }
+                    try {
+                        CompletableFuture<?> future = triggerCancel(jobIdentifier);
+                        if (future == null) {
+                            resultMap.put(jobIdentifier.getJobId(), JobResult.createSuccessResult(jobIdentifier.getEngineJobId()));
+                        } else {
+                            cancelFutures.put(jobIdentifier, future);
+                        }
+                    } catch (Exception e) {
+                        LOG.error("taskId: {} engineJobId:{} applicationId:{} cancelJob error.", jobIdentifier.getJobId(), jobIdentifier.getEngineJobId(), jobIdentifier.getApplicationId(), e);
+                        resultMap.put(jobIdentifier.getJobId(), JobResult.createErrorResult(e));
                     }
-
-                    LOG.error("taskId: {} engineJobId:{} applicationId:{} cancelJob error, try to cancel with yarnClient.", taskId, engineJobId, appId, e);
-                    return JobResult.createErrorResult(e);
                 }
+                long start = System.currentTimeMillis();
+                cancelFutures.forEach((jobIdentifier, future) -> {
+                    long remaining = Math.max(jobIdentifier.getTimeout() - (System.currentTimeMillis() - start), 0L);
+                    resultMap.put(jobIdentifier.getJobId(), awaitCancel(jobIdentifier, future, remaining));
+                });
+                return resultMap;
             }, clientManager.getHadoopConfig().getYarnConfiguration());
         } catch (Exception exception) {
-            LOG.error("taskId: {} engineJobId: {} applicationId: {} cancelJob error: ", jobIdentifier.getJobId(), jobIdentifier.getEngineJobId(), jobIdentifier.getApplicationId(), exception);
-            return JobResult.createErrorResult(exception);
+            LOG.error("cancelJobs error, size:{}", jobIdentifiers.size(), exception);
+            jobIdentifiers.forEach(jobIdentifier -> resultMap.putIfAbsent(jobIdentifier.getJobId(), JobResult.createErrorResult(exception)));
+            return resultMap;
+        }
+    }
+
+    /**
+     * @param status 任务当前状态, 为空时重新获取
+     */
+    private JobResult doCancelJob(JobIdentifier jobIdentifier, TaskStatus status) {
+        String taskId = jobIdentifier.getJobId();
+        String engineJobId = jobIdentifier.getEngineJobId();
+        String appId = jobIdentifier.getApplicationId();
+        TaskStatus TaskStatus = status;
+        try {
+            if (TaskStatus == null) {
+                TaskStatus = getJobStatus(jobIdentifier);
+            }
+
+            if (TaskStatus != null && !TaskStatus.getStoppedStatus().contains(TaskStatus.getStatus())) {
+                if (isForceKill(jobIdentifier)) {
+                    return killApplication(jobIdentifier);
+                }
+                CompletableFuture<?> future = triggerCancel(jobIdentifier);
+                if (future != null) {
+                    return awaitCancel(jobIdentifier, future, jobIdentifier.getTimeout());
+                }
+            }
+            return JobResult.createSuccessResult(jobIdentifier.getEngineJobId());
+        } catch (Exception e) {
+            if (TaskStatus != null){
+                LOG.warn("taskId: {}, cancel job error jobStatus is: {}", taskId, TaskStatus.name());
+            }
+
+            LOG.error("taskId: {} engineJobId:{} applicationId:{} cancelJob error, try to cancel with yarnClient.", taskId, engineJobId, appId, e);
+            return JobResult.createErrorResult(e);
+        }
+    }
+
+    private boolean isForceKill(JobIdentifier jobIdentifier) {
+        return EDeployMode.PERJOB.getType().equals(jobIdentifier.getDeployMode()) && jobIdentifier.isForceCancel();
+    }
+
+    /**
+     * 发起停止, 不等待结果: session 模式 cancel, perJob 模式 cancelWithSavepoint
+     *
+     * @return 停止结果, 部署模式不支持时为空
+     */
+    private CompletableFuture<?> triggerCancel(JobIdentifier jobIdentifier) throws Exception {
+        ClusterClient targetClusterClient = clientManager.getClusterClient(jobIdentifier);
+        JobID jobId = new JobID(org.apache.flink.util.StringUtils.hexStringToByte(jobIdentifier.getEngineJobId()));
+
+        EDeployMode deployMode = EDeployMode.getByType(jobIdentifier.getDeployMode());
+        switch (deployMode) {
+            case SESSION:
+            case STANDALONE:
+                // session job cancel
+                return targetClusterClient.cancel(jobId);
+            case PERJOB:
+                // perJob cancel
+                return targetClusterClient.cancelWithSavepoint(jobId, null);
+            default:
+                LOG.warn("taskId: {}, job[{}] cancel failed Unexpected deployMode type: {}", jobIdentifier.getJobId(), jobIdentifier.getEngineJobId(), deployMode);
+                return null;
+        }
+    }
+
+    private JobResult awaitCancel(JobIdentifier jobIdentifier, CompletableFuture<?> future, long timeout) {
+        String taskId = jobIdentifier.getJobId();
+        String engineJobId = jobIdentifier.getEngineJobId();
+        try {
+            Object ack = future.get(timeout, TimeUnit.MILLISECONDS);
+            if (EDeployMode.PERJOB.getType().equals(jobIdentifier.getDeployMode())) {
+                LOG.info("taskId: {}, job[{}] cancelWithSavepoint success, savepoint path {}", taskId, engineJobId, ack);
+            } else {
+                LOG.info("taskId: {}, job[{}] cancel success with ack : {}", taskId, engineJobId, ack);
+            }
+            return JobResult.createSuccessResult(engineJobId);
+        } catch (Exception e) {
+            LOG.error("taskId: {} engineJobId:{} applicationId:{} cancelJob error, wait {}ms.", taskId, engineJobId, jobIdentifier.getApplicationId(), timeout, e);
+            return JobResult.createErrorResult(e);
         }
     }
 
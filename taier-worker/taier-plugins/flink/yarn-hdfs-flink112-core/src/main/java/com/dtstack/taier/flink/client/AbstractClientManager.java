@@ -217,6 +217,11 @@ public class AbstractClientManager implements IClientManager {
             flinkConfiguration.setString(ConfigConstant.REMOTE_CHUNJUN_DIST_DIR, remoteChunjunDistDir);
             flinkConfiguration.setString(ConfigConstant.FLINK_LIB_DIR, flinkConfig.getFlinkLibDir());
             flinkConfiguration.setString(ConfigConstant.CHUNJUN_DIST_DIR, flinkConfig.getChunjunDistDir());
+        } else if (StringUtils.startsWith(flinkConfig.getRemoteSharedLibDir(), ConfigConstant.PREFIX_HDFS)) {
+            //未手动上传时, 首次提交自动上传到共享目录, 之后按文件内容复用
+            flinkConfiguration.setString(ConfigConstant.REMOTE_SHARED_LIB_DIR, flinkConfig.getRemoteSharedLibDir());
+            flinkConfiguration.setString(ConfigConstant.FLINK_LIB_DIR, flinkConfig.getFlinkLibDir());
+            flinkConfiguration.setString(ConfigConstant.CHUNJUN_DIST_DIR, flinkConfig.getChunjunDistDir());
         }
         return flinkConfiguration;
     }
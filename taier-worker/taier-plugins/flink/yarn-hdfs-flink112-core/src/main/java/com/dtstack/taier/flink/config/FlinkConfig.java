@@ -37,6 +37,12 @@ public class FlinkConfig extends BaseConfig {
     /** remote flink lib jar directory*/
     private String remoteFlinkLibDir;
 
+    /** remote directory to share uploaded flink lib and chunjun dist jars across per-job applications, keyed by content hash*/
+    private String remoteSharedLibDir;
+
+    /** days to keep unused versions in remoteSharedLibDir, cleaner disabled if <= 0*/
+    private int remoteSharedLibRetentionDays = 30;
+
     private String typeName;
 
     private String flinkJobMgrUrl;
@@ -78,6 +84,12 @@ public class FlinkConfig extends BaseConfig {
 
     private int monitorElectionWaitTime = 5 * 1000;
 
+    /** yarn resource snapshot refresh interval(ms), shared by judgeSlots, disabled if <= 0 */
+    private long yarnResourceRefreshInterval = 5 * 1000;
+
+    /** local cache size(MB) of downloaded jar and resource files, disabled if <= 0 */
+    private long localFileCacheSize = 2048;
+
     private long submitTimeout = 5;
 
     private int zkConnectionTimeout = 5000;
@@ -148,6 +160,22 @@ public class FlinkConfig extends BaseConfig {
         this.monitorElectionWaitTime = monitorElectionWaitTime;
     }
 
+    public long getYarnResourceRefreshInterval() {
+        return yarnResourceRefreshInterval;
+    }
+
+    public void setYarnResourceRefreshInterval(long yarnResourceRefreshInterval) {
+        this.yarnResourceRefreshInterval = yarnResourceRefreshInterval;
+    }
+
+    public long getLocalFileCacheSize() {
+        return localFileCacheSize;
+    }
+
+    public void setLocalFileCacheSize(long localFileCacheSize) {
+        this.localFileCacheSize = localFileCacheSize;
+    }
+
     public String getTypeName() {
         return typeName;
     }
@@ -314,6 +342,22 @@ public class FlinkConfig extends BaseConfig {
         this.remoteFlinkLibDir = remoteFlinkLibDir;
     }
 
+    public String getRemoteSharedLibDir() {
+        return remoteSharedLibDir;
+    }
+
+    public void setRemoteSharedLibDir(String remoteSharedLibDir) {
+        this.remoteSharedLibDir = remoteSharedLibDir;
+    }
+
+    public int getRemoteSharedLibRetentionDays() {
+        return remoteSharedLibRetentionDays;
+    }
+
+    public void setRemoteSharedLibRetentionDays(int remoteSharedLibRetentionDays) {
+        this.remoteSharedLibRetentionDays = remoteSharedLibRetentionDays;
+    }
+
     public String getChunjunDistDir() {
         return chunjunDistDir;
     }
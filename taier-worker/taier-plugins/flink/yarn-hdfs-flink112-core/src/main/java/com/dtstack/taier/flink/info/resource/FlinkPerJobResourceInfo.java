@@ -6,6 +6,7 @@ import com.dtstack.taier.pluginapi.JobClient;
 import com.dtstack.taier.flink.constant.ConfigConstant;
 import com.dtstack.taier.flink.util.FlinkUtil;
 import com.dtstack.taier.base.resource.AbstractYarnResourceInfo;
+import com.dtstack.taier.base.resource.YarnResourceSnapshotService;
 import com.google.common.collect.Lists;
 import org.apache.flink.configuration.JobManagerOptions;
 import org.apache.flink.configuration.MemorySize;
@@ -107,6 +108,7 @@ public class FlinkPerJobResourceInfo extends AbstractYarnResourceInfo {
         private String queueName;
         private Integer yarnAccepterTaskNumber;
         private Properties envProperties;
+        private YarnResourceSnapshotService resourceSnapshotService;
 
         public FlinkPerJobResourceInfoBuilder withYarnClient(YarnClient yarnClient) {
             this.yarnClient = yarnClient;
@@ -128,8 +130,15 @@ public class FlinkPerJobResourceInfo extends AbstractYarnResourceInfo {
             return this;
         }
 
+        public FlinkPerJobResourceInfoBuilder withResourceSnapshotService(YarnResourceSnapshotService resourceSnapshotService) {
+            this.resourceSnapshotService = resourceSnapshotService;
+            return this;
+        }
+
         public FlinkPerJobResourceInfo build() {
-            return new FlinkPerJobResourceInfo(yarnClient, queueName, yarnAccepterTaskNumber, envProperties);
+            FlinkPerJobResourceInfo resourceInfo = new FlinkPerJobResourceInfo(yarnClient, queueName, yarnAccepterTaskNumber, envProperties);
+            resourceInfo.setResourceSnapshotService(resourceSnapshotService);
+            return resourceInfo;
         }
     }
 
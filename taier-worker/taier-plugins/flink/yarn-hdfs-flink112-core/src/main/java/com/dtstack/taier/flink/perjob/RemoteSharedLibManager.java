@@ -0,0 +1,230 @@
+package com.dtstack.taier.flink.perjob;
+
+import com.dtstack.taier.base.util.KerberosUtils;
+import com.dtstack.taier.flink.config.FlinkConfig;
+import com.dtstack.taier.pluginapi.CustomThreadFactory;
+import com.dtstack.taier.pluginapi.exception.PluginDefineException;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.permission.FsAction;
+import org.apache.hadoop.fs.permission.FsPermission;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * per-job 模式下 flink lib、chunjun dist 等公共 jar 的远程共享目录
+ * 文件按内容摘要上传到 {sharedDir}/{digest}/{fileName}, 内容不变时各任务复用同一份远程文件,
+ * 目录对所有用户可读时以 PUBLIC 注册, 由 NodeManager 在节点上缓存. 后台定期清理超过保留时间未使用的旧版本
+ */
+public class RemoteSharedLibManager {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RemoteSharedLibManager.class);
+
+    private static final Map<String, RemoteSharedLibManager> INSTANCES = new ConcurrentHashMap<>();
+
+    private static final FsPermission DIR_PERMISSION = new FsPermission(FsAction.ALL, FsAction.READ_EXECUTE, FsAction.READ_EXECUTE);
+
+    private static final FsPermission FILE_PERMISSION = new FsPermission(FsAction.READ_WRITE, FsAction.READ, FsAction.READ);
+
+    /** 版本目录访问时间的刷新间隔, 清理器根据目录修改时间判断是否仍在使用 */
+    private static final long TOUCH_INTERVAL = TimeUnit.HOURS.toMillis(1);
+
+    private static final long CLEAN_INTERVAL = TimeUnit.HOURS.toMillis(6);
+
+    private final Path sharedDir;
+
+    /** key: 本地文件路径, value: 文件摘要 */
+    private final Map<String, LocalFileDigest> digests = new ConcurrentHashMap<>();
+
+    /** key: 已上传的远程文件, value: 是否可以 PUBLIC 注册 */
+    private final Map<Path, Boolean> uploaded = new ConcurrentHashMap<>();
+
+    /** key: 版本目录名, value: 最近一次刷新目录修改时间的时间 */
+    private final Map<String, Long> touched = new ConcurrentHashMap<>();
+
+    private final AtomicBoolean cleanerStarted = new AtomicBoolean(false);
+
+    private RemoteSharedLibManager(String sharedDir) {
+        this.sharedDir = new Path(sharedDir);
+    }
+
+    public static RemoteSharedLibManager getInstance(String sharedDir) {
+        return INSTANCES.computeIfAbsent(sharedDir, RemoteSharedLibManager::new);
+    }
+
+    /**
+     * 上传本地文件到共享目录, 相同内容的文件已存在时直接返回
+     *
+     * @param fileSystem        远程文件系统
+     * @param localSrcPath      本地文件
+     * @param replicationFactor 副本数
+     * @return 远程文件路径
+     */
+    public Path upload(FileSystem fileSystem, Path localSrcPath, int replicationFactor) throws IOException {
+        File localFile = new File(localSrcPath.toUri().getPath());
+        String digest = digest(localFile);
+        Path versionDir = new Path(sharedDir, digest);
+        Path dst = new Path(versionDir, localFile.getName());
+
+        long now = System.currentTimeMillis();
+        Long lastTouch = touched.get(digest);
+        boolean touch = lastTouch == null || now - lastTouch > TOUCH_INTERVAL;
+        if (touch) {
+            // 定期重新确认远程文件仍然存在
+            uploaded.remove(dst);
+        }
+
+        if (!uploaded.containsKey(dst)) {
+            synchronized (digest.intern()) {
+                if (!uploaded.containsKey(dst)) {
+                    if (!fileSystem.exists(dst)) {
+                        doUpload(fileSystem, localSrcPath, versionDir, dst, replicationFactor);
+                    }
+                    uploaded.put(dst, isPublic(fileSystem, dst));
+                }
+            }
+        }
+
+        if (touch) {
+            fileSystem.setTimes(versionDir, now, -1);
+            touched.put(digest, now);
+        }
+        return dst;
+    }
+
+    /**
+     * 远程文件及其所有上级目录是否对所有用户可读, 满足时才能以 PUBLIC 注册
+     */
+    public boolean isPublic(Path remotePath) {
+        return Boolean.TRUE.equals(uploaded.get(remotePath));
+    }
+
+    private void doUpload(FileSystem fileSystem, Path localSrcPath, Path versionDir, Path dst, int replicationFactor) throws IOException {
+        fileSystem.mkdirs(versionDir, DIR_PERMISSION);
+        Path tmp = new Path(versionDir, "." + dst.getName() + "." + UUID.randomUUID());
+        try {
+            fileSystem.copyFromLocalFile(false, true, localSrcPath, tmp);
+            fileSystem.setReplication(tmp, (short) replicationFactor);
+            fileSystem.setPermission(tmp, FILE_PERMISSION);
+            // 其他节点可能已经上传了相同内容的文件
+            if (!fileSystem.rename(tmp, dst) && !fileSystem.exists(dst)) {
+                throw new IOException("rename " + tmp + " to " + dst + " failed");
+            }
+            LOG.info("upload shared lib {} to {}", localSrcPath, dst);
+        } finally {
+            if (fileSystem.exists(tmp)) {
+                fileSystem.delete(tmp, false);
+            }
+        }
+    }
+
+    private String digest(File localFile) throws IOException {
+        String key = localFile.getAbsolutePath();
+        LocalFileDigest cached = digests.get(key);
+        if (cached != null && cached.matches(localFile)) {
+            return cached.digest;
+        }
+        LocalFileDigest current = new LocalFileDigest(localFile.length(), localFile.lastModified(),
+                Files.asByteSource(localFile).hash(Hashing.sha256()).toString());
+        digests.put(key, current);
+        return current.digest;
+    }
+
+    private boolean isPublic(FileSystem fileSystem, Path remotePath) throws IOException {
+        FileStatus fileStatus = fileSystem.getFileStatus(remotePath);
+        if (!fileStatus.getPermission().getOtherAction().implies(FsAction.READ)) {
+            return false;
+        }
+        for (Path dir = remotePath.getParent(); dir != null; dir = dir.getParent()) {
+            if (!fileSystem.getFileStatus(dir).getPermission().getOtherAction().implies(FsAction.EXECUTE)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 启动后台清理, 同一共享目录只启动一次
+     */
+    public void startCleaner(FlinkConfig flinkConfig, Configuration hadoopConf) {
+        if (flinkConfig.getRemoteSharedLibRetentionDays() <= 0 || !cleanerStarted.compareAndSet(false, true)) {
+            return;
+        }
+        long retention = TimeUnit.DAYS.toMillis(flinkConfig.getRemoteSharedLibRetentionDays());
+        ScheduledExecutorService cleaner = new ScheduledThreadPoolExecutor(1, new CustomThreadFactory("flink_shared_lib_cleaner"));
+        cleaner.scheduleWithFixedDelay(() -> {
+            try {
+                KerberosUtils.login(flinkConfig, () -> {
+                    try (FileSystem fileSystem = FileSystem.newInstance(sharedDir.toUri(), hadoopConf)) {
+                        clean(fileSystem, retention);
+                    } catch (IOException e) {
+                        throw new PluginDefineException(e);
+                    }
+                    return null;
+                }, hadoopConf);
+            } catch (Exception e) {
+                LOG.error("clean shared lib dir {} error", sharedDir, e);
+            }
+        }, CLEAN_INTERVAL, CLEAN_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 删除超过保留时间未使用的版本目录, 本地文件当前对应的版本始终保留
+     */
+    void clean(FileSystem fileSystem, long retention) throws IOException {
+        if (!fileSystem.exists(sharedDir)) {
+            return;
+        }
+        Set<String> current = new HashSet<>();
+        digests.values().forEach(d -> current.add(d.digest));
+
+        long expireTime = System.currentTimeMillis() - retention;
+        for (FileStatus versionDir : fileSystem.listStatus(sharedDir)) {
+            String digest = versionDir.getPath().getName();
+            if (!versionDir.isDirectory() || current.contains(digest) || versionDir.getModificationTime() > expireTime) {
+                continue;
+            }
+            synchronized (digest.intern()) {
+                fileSystem.delete(versionDir.getPath(), true);
+                uploaded.keySet().removeIf(path -> path.getParent().getName().equals(digest));
+                touched.remove(digest);
+            }
+            LOG.info("delete unused shared lib version {}", versionDir.getPath());
+        }
+    }
+
+    private static class LocalFileDigest {
+
+        private final long length;
+
+        private final long lastModified;
+
+        private final String digest;
+
+        LocalFileDigest(long length, long lastModified, String digest) {
+            this.length = length;
+            this.lastModified = lastModified;
+            this.digest = digest;
+        }
+
+        boolean matches(File file) {
+            return file.length() == length && file.lastModified() == lastModified;
+        }
+    }
+}
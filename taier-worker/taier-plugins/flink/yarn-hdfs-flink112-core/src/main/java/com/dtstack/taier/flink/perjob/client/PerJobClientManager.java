@@ -6,6 +6,7 @@ import com.dtstack.taier.flink.client.AbstractClientManager;
 import com.dtstack.taier.flink.config.FlinkConfig;
 import com.dtstack.taier.flink.config.HadoopConfig;
 import com.dtstack.taier.flink.constant.ConfigConstant;
+import com.dtstack.taier.flink.perjob.RemoteSharedLibManager;
 import com.dtstack.taier.flink.util.FileUtil;
 import com.dtstack.taier.flink.util.FlinkUtil;
 import com.dtstack.taier.pluginapi.JarFileInfo;
@@ -70,6 +71,10 @@ public class PerJobClientManager extends AbstractClientManager {
     public PerJobClientManager(FlinkConfig flinkConfig, HadoopConfig hadoopConf, Configuration flinkGlobalConfiguration) {
         super(flinkConfig, hadoopConf);
         addFlinkConfiguration(flinkGlobalConfiguration);
+        if (StringUtils.startsWith(flinkConfig.getRemoteSharedLibDir(), ConfigConstant.PREFIX_HDFS)) {
+            RemoteSharedLibManager.getInstance(flinkConfig.getRemoteSharedLibDir())
+                    .startCleaner(flinkConfig, hadoopConf.getYarnConfiguration());
+        }
     }
 
     @Override
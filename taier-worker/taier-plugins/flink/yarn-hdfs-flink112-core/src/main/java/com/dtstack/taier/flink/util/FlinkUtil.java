@@ -2,6 +2,7 @@ package com.dtstack.taier.flink.util;
 
 import com.dtstack.taier.base.enums.ClassLoaderType;
 import com.dtstack.taier.base.filesystem.FilesystemManager;
+import com.dtstack.taier.base.filesystem.LocalFileCache;
 import com.dtstack.taier.pluginapi.JarFileInfo;
 import com.dtstack.taier.pluginapi.JobClient;
 import com.dtstack.taier.pluginapi.enums.EJobType;
@@ -164,6 +165,10 @@ public class FlinkUtil {
      * 将远程文件下载到本地
      */
     public static File downloadJar(String remotePath, String localDir, FilesystemManager filesystemManager, boolean localPriority) throws IOException {
+        return downloadJar(remotePath, localDir, filesystemManager, null, localPriority);
+    }
+
+    public static File downloadJar(String remotePath, String localDir, FilesystemManager filesystemManager, LocalFileCache fileCache, boolean localPriority) throws IOException {
         if(localPriority){
             //如果不是http 或者 hdfs协议的从本地读取
             File localFile = new File(remotePath);
@@ -173,7 +178,8 @@ public class FlinkUtil {
         }
 
         String localJarPath = FlinkUtil.getTmpFileName(remotePath, localDir);
-        File downloadFile = filesystemManager.downloadFile(remotePath, localJarPath);
+        File downloadFile = null == fileCache ? filesystemManager.downloadFile(remotePath, localJarPath)
+                : fileCache.downloadFile(filesystemManager, remotePath, localJarPath);
         logger.info("downloadFile remotePath:{} localJarPath:{}", remotePath, localJarPath);
 
         URL jarFileUrl;
@@ -19,6 +19,7 @@
 package org.apache.flink.yarn;
 
 import com.dtstack.taier.flink.constant.ConfigConstant;
+import com.dtstack.taier.flink.perjob.RemoteSharedLibManager;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.flink.api.java.tuple.Tuple2;
 import org.apache.flink.client.deployment.ClusterDeploymentException;
@@ -95,6 +96,8 @@ class YarnApplicationFileUploader implements AutoCloseable {
 
     private Configuration flinkConfiguration;
 
+    private RemoteSharedLibManager sharedLibManager;
+
     private YarnApplicationFileUploader(
             final FileSystem fileSystem,
             final Path homeDir,
@@ -140,6 +143,11 @@ class YarnApplicationFileUploader implements AutoCloseable {
         checkArgument(fileReplication >= 1);
         this.fileReplication = fileReplication;
         this.flinkConfiguration = flinkConfiguration;
+
+        String remoteSharedLibDir = flinkConfiguration.getString(ConfigConstant.REMOTE_SHARED_LIB_DIR, null);
+        if (remoteSharedLibDir != null) {
+            this.sharedLibManager = RemoteSharedLibManager.getInstance(remoteSharedLibDir);
+        }
     }
 
     Map<String, LocalResource> getRegisteredLocalResources() {
@@ -213,7 +221,9 @@ class YarnApplicationFileUploader implements AutoCloseable {
                         remoteFileInfo.f0,
                         localFile.length(),
                         remoteFileInfo.f1,
-                        LocalResourceVisibility.APPLICATION,
+                        sharedLibManager != null && sharedLibManager.isPublic(remoteFileInfo.f0)
+                                ? LocalResourceVisibility.PUBLIC
+                                : LocalResourceVisibility.APPLICATION,
                         resourceType);
         addToEnvShipResourceList(whetherToAddToEnvShipResourceList, descriptor);
         localResources.put(key, descriptor.toLocalResource());
@@ -448,6 +458,16 @@ class YarnApplicationFileUploader implements AutoCloseable {
             }
         }
 
+        // upload flink lib and chunjun dist jars to the shared directory once and reuse them by content
+        if (sharedLibManager != null) {
+            String flinkJarPath = flinkConfiguration.getString(ConfigConstant.FLINK_LIB_DIR, null);
+            String flinkPluginRoot = flinkConfiguration.getString(ConfigConstant.CHUNJUN_DIST_DIR, null);
+            String path = localSrcPath.toUri().getPath();
+            if (StringUtils.startsWith(path, flinkJarPath) || StringUtils.startsWith(path, flinkPluginRoot)) {
+                return sharedLibManager.upload(fileSystem, localSrcPath, replicationFactor);
+            }
+        }
+
         final Path applicationDir = getApplicationDirPath(homeDir, applicationId);
         final String suffix =
                 (relativeDstPath.isEmpty() ? "" : relativeDstPath + "/") + localSrcPath.getName();
@@ -24,6 +24,7 @@ import com.alibaba.fastjson.JSONObject;
 import com.dtstack.taier.base.resource.EngineResourceInfo;
 import com.dtstack.taier.base.util.HadoopConfTool;
 import com.dtstack.taier.base.util.KerberosUtils;
+import com.dtstack.taier.base.util.YarnApplicationUtil;
 import com.dtstack.taier.hadoop.parser.AddJarOperator;
 import com.dtstack.taier.hadoop.util.HadoopConf;
 import com.dtstack.taier.pluginapi.JarFileInfo;
@@ -77,6 +78,7 @@ import java.io.InputStream;
 import java.lang.reflect.Field;
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -91,6 +93,7 @@ public class HadoopClient extends AbstractClient {
     private static final String HDFS_PREFIX = "hdfs://";
     private static final String HADOOP_USER_NAME = "HADOOP_USER_NAME";
     private static final String QUEUE = "queue";
+    private static final String MAPREDUCE_APPLICATION_TYPE = "MAPREDUCE";
     private EngineResourceInfo resourceInfo = new HadoopResourceInfo();
     private Configuration conf = new Configuration();
     private volatile YarnClient yarnClient;
@@ -163,6 +166,34 @@ public class HadoopClient extends AbstractClient {
         }
     }
 
+    /**
+     * 一次登录内批量 kill application
+     */
+    @Override
+    public Map<String, JobResult> cancelJobs(List<JobIdentifier> jobIdentifiers) {
+        Map<String, JobResult> resultMap = Maps.newHashMapWithExpectedSize(jobIdentifiers.size());
+        try {
+            return KerberosUtils.login(config, () -> {
+                for (JobIdentifier jobIdentifier : jobIdentifiers) {
+                    String jobId = jobIdentifier.getEngineJobId();
+                    try {
+                        getYarnClient().killApplication(generateApplicationId(jobId));
+                        JobResult jobResult = JobResult.newInstance(false);
+                        jobResult.setData("jobid", jobId);
+                        resultMap.put(jobIdentifier.getJobId(), jobResult);
+                    } catch (Exception e) {
+                        resultMap.put(jobIdentifier.getJobId(), JobResult.createErrorResult(e));
+                    }
+                }
+                return resultMap;
+            }, conf);
+        } catch (Exception e) {
+            LOG.error("cancelJobs error, size:{}", jobIdentifiers.size(), e);
+            jobIdentifiers.forEach(jobIdentifier -> resultMap.putIfAbsent(jobIdentifier.getJobId(), JobResult.createErrorResult(e)));
+            return resultMap;
+        }
+    }
+
     private ApplicationId generateApplicationId(String jobId) {
         String appId = jobId.replace("job_", "application_");
         return ConverterUtils.toApplicationId(appId);
@@ -177,38 +208,7 @@ public class HadoopClient extends AbstractClient {
 
                 try {
                     ApplicationReport report = getYarnClient().getApplicationReport(appId);
-                    YarnApplicationState applicationState = report.getYarnApplicationState();
-                    switch (applicationState) {
-                        case KILLED:
-                            return TaskStatus.KILLED;
-                        case NEW:
-                        case NEW_SAVING:
-                            return TaskStatus.CREATED;
-                        case SUBMITTED:
-                            //FIXME 特殊逻辑,认为已提交到计算引擎的状态为等待资源状态
-                            return TaskStatus.WAITCOMPUTE;
-                        case ACCEPTED:
-                            return TaskStatus.SCHEDULED;
-                        case RUNNING:
-                            return TaskStatus.RUNNING;
-                        case FINISHED:
-                            //state 为finished状态下需要兼顾判断finalStatus.
-                            FinalApplicationStatus finalApplicationStatus = report.getFinalApplicationStatus();
-                            if (finalApplicationStatus == FinalApplicationStatus.FAILED) {
-                                return TaskStatus.FAILED;
-                            } else if (finalApplicationStatus == FinalApplicationStatus.SUCCEEDED) {
-                                return TaskStatus.FINISHED;
-                            } else if (finalApplicationStatus == FinalApplicationStatus.KILLED) {
-                                return TaskStatus.KILLED;
-                            } else {
-                                return TaskStatus.RUNNING;
-                            }
-
-                        case FAILED:
-                            return TaskStatus.FAILED;
-                        default:
-                            throw new PluginDefineException("Unsupported application state");
-                    }
+                    return convertApplicationStatus(report);
                 } catch (Exception e) {
                     return TaskStatus.NOTFOUND;
                 }
@@ -219,6 +219,80 @@ public class HadoopClient extends AbstractClient {
         }
     }
 
+    @Override
+    public Map<String, TaskStatus> getBatchJobStatus(List<JobIdentifier> jobIdentifiers) throws IOException {
+        Map<String, TaskStatus> statusMap = Maps.newHashMapWithExpectedSize(jobIdentifiers.size());
+        try {
+            return KerberosUtils.login(config, () -> {
+                Map<ApplicationId, String> appIdToJobId = Maps.newHashMap();
+                for (JobIdentifier jobIdentifier : jobIdentifiers) {
+                    try {
+                        appIdToJobId.put(generateApplicationId(jobIdentifier.getEngineJobId()), jobIdentifier.getJobId());
+                    } catch (Exception e) {
+                        // 单个任务的 engineJobId 无法解析时只影响该任务
+                        LOG.error("jobId:{} engineJobId:{} generate applicationId error", jobIdentifier.getJobId(), jobIdentifier.getEngineJobId(), e);
+                        statusMap.put(jobIdentifier.getJobId(), TaskStatus.NOTFOUND);
+                    }
+                }
+                Map<ApplicationId, ApplicationReport> reports;
+                try {
+                    reports = YarnApplicationUtil.getApplicationReports(getYarnClient(),
+                            Collections.singleton(MAPREDUCE_APPLICATION_TYPE), null, appIdToJobId.keySet());
+                } catch (Exception e) {
+                    throw new PluginDefineException(e);
+                }
+                appIdToJobId.forEach((appId, jobId) -> {
+                    ApplicationReport report = reports.get(appId);
+                    try {
+                        statusMap.put(jobId, report == null ? TaskStatus.NOTFOUND : convertApplicationStatus(report));
+                    } catch (Exception e) {
+                        statusMap.put(jobId, TaskStatus.NOTFOUND);
+                    }
+                });
+                return statusMap;
+            }, conf);
+        } catch (Exception e) {
+            LOG.error("getBatchJobStatus error, size:{}", jobIdentifiers.size(), e);
+            jobIdentifiers.forEach(jobIdentifier -> statusMap.putIfAbsent(jobIdentifier.getJobId(), TaskStatus.NOTFOUND));
+            return statusMap;
+        }
+    }
+
+    private TaskStatus convertApplicationStatus(ApplicationReport report) {
+        YarnApplicationState applicationState = report.getYarnApplicationState();
+        switch (applicationState) {
+            case KILLED:
+                return TaskStatus.KILLED;
+            case NEW:
+            case NEW_SAVING:
+                return TaskStatus.CREATED;
+            case SUBMITTED:
+                //FIXME 特殊逻辑,认为已提交到计算引擎的状态为等待资源状态
+                return TaskStatus.WAITCOMPUTE;
+            case ACCEPTED:
+                return TaskStatus.SCHEDULED;
+            case RUNNING:
+                return TaskStatus.RUNNING;
+            case FINISHED:
+                //state 为finished状态下需要兼顾判断finalStatus.
+                FinalApplicationStatus finalApplicationStatus = report.getFinalApplicationStatus();
+                if (finalApplicationStatus == FinalApplicationStatus.FAILED) {
+                    return TaskStatus.FAILED;
+                } else if (finalApplicationStatus == FinalApplicationStatus.SUCCEEDED) {
+                    return TaskStatus.FINISHED;
+                } else if (finalApplicationStatus == FinalApplicationStatus.KILLED) {
+                    return TaskStatus.KILLED;
+                } else {
+                    return TaskStatus.RUNNING;
+                }
+
+            case FAILED:
+                return TaskStatus.FAILED;
+            default:
+                throw new PluginDefineException("Unsupported application state");
+        }
+    }
+
     @Override
     public String getJobMaster(JobIdentifier jobIdentifier) {
         throw new PluginDefineException("hadoop client not support method 'getJobMaster'");
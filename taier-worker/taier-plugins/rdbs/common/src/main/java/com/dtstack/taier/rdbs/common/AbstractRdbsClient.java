@@ -74,8 +74,7 @@ public abstract class AbstractRdbsClient extends AbstractClient {
         connFactory = getConnFactory();
         connFactory.init(prop);
 
-        exeQueue = new RdbsExeQueue(connFactory, MathUtil.getIntegerVal(prop.get(ConfigConstant.MAX_JOB_POOL_KEY)),
-                MathUtil.getIntegerVal(prop.get(ConfigConstant.MIN_JOB_POOL_KEY)));
+        exeQueue = new RdbsExeQueue(connFactory, MathUtil.getIntegerVal(prop.get(ConfigConstant.MAX_JOB_POOL_KEY)));
         exeQueue.init();
         resourceInfo = new RdbsResourceInfo(exeQueue);
         LOG.warn("-------init {} plugin success-----, properties={}", dbType, prop.toString());
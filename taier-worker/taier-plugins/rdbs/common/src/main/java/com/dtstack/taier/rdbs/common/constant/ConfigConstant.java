@@ -34,6 +34,15 @@ public class ConfigConstant {
     public static final String QUEUE = "queue";
 
     public static final String MAX_JOB_POOL_KEY = "maxJobPoolSize";
-    public static final String MIN_JOB_POOL_KEY = "minJobPoolSize";
+
+    /**
+     * 连接池配置, 默认不开启; 只作用于元数据查询等非任务连接, 任务连接不使用连接池
+     */
+    public static final String CONN_POOL_ENABLE = "connPoolEnable";
+    public static final String CONN_POOL_MAX_ACTIVE = "connPoolMaxActive";
+    public static final String CONN_POOL_MIN_IDLE = "connPoolMinIdle";
+    public static final String CONN_POOL_MAX_WAIT = "connPoolMaxWait";
+    public static final String CONN_POOL_IDLE_TIMEOUT = "connPoolIdleTimeout";
+    public static final String CONN_POOL_MAX_LIFETIME = "connPoolMaxLifetime";
 
 }
@@ -31,6 +31,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.sql.Connection;
+import java.sql.Driver;
 import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.sql.Statement;
@@ -64,6 +65,19 @@ public abstract class AbstractConnFactory {
 
     protected BaseConfig baseConfig = new BaseConfig();
 
+    private Properties properties;
+
+    private boolean connPoolEnable = false;
+
+    private volatile RdbsConnPool connPool;
+
+    /**
+     * 初始连接的当前库, 从连接池取出连接时切回. 按驱动支持情况使用 catalog(mysql 等) 或 schema(hive 等)
+     */
+    private String defaultCatalog;
+
+    private String defaultSchema;
+
     public void init(Properties properties) throws ClassNotFoundException {
         synchronized (AbstractConnFactory.class) {
             if (isFirstLoaded.get()) {
@@ -77,6 +91,9 @@ public abstract class AbstractConnFactory {
         password = MathUtil.getString(properties.get(ConfigConstant.PASSWORD));
 
         Preconditions.checkNotNull(jdbcUrl, "db url can't be null");
+        this.properties = properties;
+        connPoolEnable = RdbsConnPool.isEnable(properties);
+        connPool = null;
 
         try {
             String propStr = PublicUtil.objToString(properties);
@@ -96,9 +113,12 @@ public abstract class AbstractConnFactory {
         Connection conn = null;
         Statement stmt = null;
         try{
-            conn = getConn();
+            conn = createConn();
             stmt = conn.createStatement();
             stmt.execute(testSql);
+            if (connPoolEnable) {
+                initDefaultDatabase(conn);
+            }
         }catch (Exception e){
             throw new PluginDefineException("get conn exception:" + e.toString());
         }finally {
@@ -118,7 +138,90 @@ public abstract class AbstractConnFactory {
 
     }
 
+    /**
+     * 开启连接池时从池中获取连接, close 后归还; 否则新建连接
+     */
     public Connection getConn() throws Exception {
+        if (connPoolEnable) {
+            return getPooledConn();
+        }
+        return createConn();
+    }
+
+    public boolean isConnPoolEnable() {
+        return connPoolEnable;
+    }
+
+    public RdbsConnPool getConnPool() {
+        return connPool;
+    }
+
+    protected Connection getPooledConn() throws Exception {
+        RdbsConnPool pool = getOrCreatePool();
+        Connection conn;
+        try {
+            conn = pool.getConnection();
+        } catch (SQLException e) {
+            // 池在取连接时恰好因长时间未使用被关闭, 重新获取一次
+            if (!pool.isClosed()) {
+                throw e;
+            }
+            pool = getOrCreatePool();
+            conn = pool.getConnection();
+        }
+        try {
+            resetSession(conn);
+        } catch (SQLException e) {
+            pool.discard(conn);
+            throw e;
+        }
+        return conn;
+    }
+
+    private RdbsConnPool getOrCreatePool() throws Exception {
+        RdbsConnPool pool = connPool;
+        if (pool == null || pool.isClosed()) {
+            synchronized (this) {
+                pool = connPool;
+                if (pool == null || pool.isClosed()) {
+                    Driver driver = (Driver) Class.forName(driverName).newInstance();
+                    pool = RdbsConnPool.getInstance(driver, jdbcUrl, username, password, testSql, baseConfig, yarnConf, properties);
+                    connPool = pool;
+                }
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * 重置从连接池取出的连接的会话状态, 避免上一个任务切换的库带到当前任务
+     * 自动提交、只读、事务隔离级别由连接池在归还时恢复
+     */
+    protected void resetSession(Connection conn) throws SQLException {
+        if (StringUtils.isNotBlank(defaultCatalog)) {
+            if (!defaultCatalog.equals(conn.getCatalog())) {
+                conn.setCatalog(defaultCatalog);
+            }
+        } else if (StringUtils.isNotBlank(defaultSchema)) {
+            if (!defaultSchema.equals(conn.getSchema())) {
+                conn.setSchema(defaultSchema);
+            }
+        }
+    }
+
+    private void initDefaultDatabase(Connection conn) {
+        try {
+            defaultCatalog = conn.getCatalog();
+            if (StringUtils.isBlank(defaultCatalog)) {
+                defaultSchema = conn.getSchema();
+            }
+        } catch (Throwable e) {
+            // 驱动不支持时不切换库
+            LOG.warn("get default database of {} error, pooled conn will not reset database", jdbcUrl, e);
+        }
+    }
+
+    protected Connection createConn() throws Exception {
         return KerberosUtils.login(baseConfig, () -> {
             Connection conn = null;
             try {
@@ -134,6 +237,9 @@ public abstract class AbstractConnFactory {
         }, yarnConf);
     }
 
+    /**
+     * 任务执行使用的连接; hive、oceanBase 等会话配置随任务变化的插件需覆盖为新建连接, 不复用连接池
+     */
     public Connection getConnByTaskParams(String taskParams, String jobName) throws Exception {
         return getConn();
     }
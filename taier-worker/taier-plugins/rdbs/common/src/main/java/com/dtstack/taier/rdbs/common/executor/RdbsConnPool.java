@@ -0,0 +1,288 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dtstack.taier.rdbs.common.executor;
+
+import com.alibaba.druid.pool.DruidDataSource;
+import com.alibaba.druid.pool.DruidPooledConnection;
+import com.dtstack.taier.base.BaseConfig;
+import com.dtstack.taier.base.util.KerberosUtils;
+import com.dtstack.taier.pluginapi.CustomThreadFactory;
+import com.dtstack.taier.pluginapi.exception.PluginDefineException;
+import com.dtstack.taier.pluginapi.util.MD5Util;
+import com.dtstack.taier.pluginapi.util.MathUtil;
+import com.dtstack.taier.rdbs.common.constant.ConfigConstant;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * rdbs 插件的 jdbc 连接池, jdbcUrl、用户、密码、kerberos principal 和连接池参数都相同时共用一个池
+ * 物理连接在 kerberos 认证上下文中创建, 空闲检测、空闲回收和最大存活时间由 druid 完成
+ * 插件客户端不会被销毁, 长时间未使用的池由后台线程关闭, 再次使用时重新创建
+ * 池只服务 {@link AbstractConnFactory#getConn()} 获取的连接(元数据查询、存储过程),
+ * 任务 sql 的连接由 getConnByTaskParams 单独创建, 不经过连接池
+ */
+public class RdbsConnPool {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RdbsConnPool.class);
+
+    private static final Map<String, RdbsConnPool> POOLS = new ConcurrentHashMap<>();
+
+    private static final AtomicBoolean MAINTAINER_STARTED = new AtomicBoolean(false);
+
+    private static final AtomicLong POOL_ID = new AtomicLong(0);
+
+    /**
+     * 进程内随机盐, 池 key 中的密码摘要只保存在内存中且不可跨进程比对
+     */
+    private static final String PASSWORD_SALT = UUID.randomUUID().toString();
+
+    private static final long METRICS_LOG_INTERVAL = TimeUnit.MINUTES.toMillis(5);
+
+    private static final int DEFAULT_MAX_ACTIVE = 10;
+
+    private static final int DEFAULT_MIN_IDLE = 0;
+
+    private static final long DEFAULT_MAX_WAIT = TimeUnit.SECONDS.toMillis(60);
+
+    private static final long DEFAULT_IDLE_TIMEOUT = TimeUnit.MINUTES.toMillis(10);
+
+    private static final long DEFAULT_MAX_LIFETIME = TimeUnit.MINUTES.toMillis(30);
+
+    private static final long EVICTION_INTERVAL = TimeUnit.SECONDS.toMillis(60);
+
+    /**
+     * 没有借出的连接且超过该时间未被使用的池会被关闭
+     */
+    private static final long POOL_EXPIRE_TIME = TimeUnit.HOURS.toMillis(1);
+
+    /**
+     * 日志和指标中使用的池标识, 不包含连接信息
+     */
+    private final String poolId;
+
+    private final DruidDataSource dataSource;
+
+    private volatile long lastAccessTime = System.currentTimeMillis();
+
+    private RdbsConnPool(String poolId, DruidDataSource dataSource) {
+        this.poolId = poolId;
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * 连接池是否开启
+     */
+    public static boolean isEnable(Properties properties) {
+        return Boolean.parseBoolean(MathUtil.getString(properties.get(ConfigConstant.CONN_POOL_ENABLE)));
+    }
+
+    /**
+     * 获取连接池, 不存在时创建
+     *
+     * @param driver         jdbc 驱动
+     * @param jdbcUrl        jdbc url
+     * @param username       用户名, 可以为空
+     * @param password       密码
+     * @param validationQuery 空闲连接检测语句
+     * @param baseConfig     kerberos 配置
+     * @param yarnConf       kerberos 认证使用的 hadoop 配置
+     * @param properties     插件配置, 读取连接池参数
+     */
+    public static RdbsConnPool getInstance(Driver driver, String jdbcUrl, String username, String password, String validationQuery,
+                                           BaseConfig baseConfig, Configuration yarnConf, Properties properties) {
+        String principal = baseConfig.isOpenKerberos() ? baseConfig.getPrincipal() : null;
+        int maxActive = MathUtil.getIntegerVal(properties.get(ConfigConstant.CONN_POOL_MAX_ACTIVE), DEFAULT_MAX_ACTIVE);
+        int minIdle = MathUtil.getIntegerVal(properties.get(ConfigConstant.CONN_POOL_MIN_IDLE), DEFAULT_MIN_IDLE);
+        long maxWait = MathUtil.getLongVal(properties.get(ConfigConstant.CONN_POOL_MAX_WAIT), DEFAULT_MAX_WAIT);
+        long idleTimeout = MathUtil.getLongVal(properties.get(ConfigConstant.CONN_POOL_IDLE_TIMEOUT), DEFAULT_IDLE_TIMEOUT);
+        long maxLifetime = MathUtil.getLongVal(properties.get(ConfigConstant.CONN_POOL_MAX_LIFETIME), DEFAULT_MAX_LIFETIME);
+        // 密码只取加盐摘要, 修改密码或连接池参数后使用新的池; key 仅用于内存中查找池, 不输出到日志和指标
+        String key = String.format("%s|%s|%s|%s|%s,%s,%s,%s,%s", jdbcUrl, StringUtils.defaultString(username), StringUtils.defaultString(principal),
+                MD5Util.getMd5String(PASSWORD_SALT + StringUtils.defaultString(password)), maxActive, minIdle, maxWait, idleTimeout, maxLifetime);
+        RdbsConnPool pool = POOLS.computeIfAbsent(key, k -> {
+            KerberosDruidDataSource dataSource = new KerberosDruidDataSource(baseConfig, yarnConf);
+            dataSource.setDriver(driver);
+            dataSource.setUrl(jdbcUrl);
+            if (username != null) {
+                dataSource.setUsername(username);
+            }
+            if (password != null) {
+                dataSource.setPassword(password);
+            }
+            dataSource.setMaxActive(maxActive);
+            dataSource.setMinIdle(minIdle);
+            dataSource.setMaxWait(maxWait);
+            dataSource.setTimeBetweenEvictionRunsMillis(EVICTION_INTERVAL);
+            dataSource.setMinEvictableIdleTimeMillis(idleTimeout);
+            dataSource.setPhyTimeoutMillis(maxLifetime);
+            if (StringUtils.isNotBlank(validationQuery)) {
+                dataSource.setValidationQuery(validationQuery);
+                dataSource.setTestWhileIdle(true);
+            }
+            dataSource.setTestOnBorrow(false);
+            dataSource.setTestOnReturn(false);
+            String poolId = "rdbs-pool-" + POOL_ID.incrementAndGet();
+            LOG.info("create rdbs conn pool {} jdbcUrl:{} username:{} principal:{} maxActive:{}", poolId, jdbcUrl, username, principal, dataSource.getMaxActive());
+            return new RdbsConnPool(poolId, dataSource);
+        });
+        startMaintainer();
+        return pool;
+    }
+
+    public Connection getConnection() throws SQLException {
+        lastAccessTime = System.currentTimeMillis();
+        return dataSource.getConnection();
+    }
+
+    /**
+     * 池已被关闭时需要重新获取
+     */
+    public boolean isClosed() {
+        return dataSource.isClosed();
+    }
+
+    /**
+     * 丢弃连接: 由 druid 关闭物理连接并释放占用的活跃连接数, 连接池不再复用
+     */
+    public void discard(Connection conn) {
+        try {
+            if (conn instanceof DruidPooledConnection) {
+                DruidPooledConnection pooledConn = (DruidPooledConnection) conn;
+                Connection realConn = pooledConn.getConnection();
+                // 置为不可用后 close 不会再归还到池中
+                pooledConn.disable();
+                dataSource.discardConnection(realConn);
+                return;
+            }
+            conn.close();
+        } catch (SQLException e) {
+            LOG.error("discard conn of pool {} error", poolId, e);
+        }
+    }
+
+    /**
+     * 关闭长时间未使用的池
+     */
+    private static void closeExpiredPools() {
+        long now = System.currentTimeMillis();
+        POOLS.forEach((key, pool) -> {
+            if (pool.dataSource.getActiveCount() > 0 || now - pool.lastAccessTime < POOL_EXPIRE_TIME) {
+                return;
+            }
+            if (POOLS.remove(key, pool)) {
+                pool.dataSource.close();
+                LOG.info("close expired rdbs conn pool {}", pool.poolId);
+            }
+        });
+    }
+
+    /**
+     * 连接池指标
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("activeCount", dataSource.getActiveCount());
+        metrics.put("poolingCount", dataSource.getPoolingCount());
+        metrics.put("waitThreadCount", dataSource.getWaitThreadCount());
+        metrics.put("createCount", dataSource.getCreateCount());
+        metrics.put("destroyCount", dataSource.getDestroyCount());
+        metrics.put("connectCount", dataSource.getConnectCount());
+        metrics.put("closeCount", dataSource.getCloseCount());
+        metrics.put("connectErrorCount", dataSource.getConnectErrorCount());
+        metrics.put("notEmptyWaitCount", dataSource.getNotEmptyWaitCount());
+        return metrics;
+    }
+
+    /**
+     * 所有连接池的指标, key: 连接池标识
+     */
+    public static Map<String, Map<String, Object>> getAllMetrics() {
+        Map<String, Map<String, Object>> metrics = new LinkedHashMap<>();
+        POOLS.values().forEach(pool -> metrics.put(pool.poolId, pool.getMetrics()));
+        return metrics;
+    }
+
+    private static void startMaintainer() {
+        if (!MAINTAINER_STARTED.compareAndSet(false, true)) {
+            return;
+        }
+        ScheduledExecutorService scheduledService = new ScheduledThreadPoolExecutor(1, new CustomThreadFactory("rdbsConnPoolMaintainer"));
+        scheduledService.scheduleWithFixedDelay(() -> {
+            try {
+                getAllMetrics().forEach((poolId, metrics) -> LOG.info("rdbs conn pool {} metrics {}", poolId, metrics));
+                closeExpiredPools();
+            } catch (Exception e) {
+                LOG.error("maintain rdbs conn pool error", e);
+            }
+        }, METRICS_LOG_INTERVAL, METRICS_LOG_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 开启 kerberos 时物理连接需要在认证后的 ugi 中创建, druid 的建连线程不在调用方的认证上下文中
+     */
+    private static class KerberosDruidDataSource extends DruidDataSource {
+
+        private final BaseConfig baseConfig;
+
+        private final Configuration yarnConf;
+
+        KerberosDruidDataSource(BaseConfig baseConfig, Configuration yarnConf) {
+            this.baseConfig = baseConfig;
+            this.yarnConf = yarnConf;
+        }
+
+        @Override
+        public Connection createPhysicalConnection(String url, Properties info) throws SQLException {
+            if (!baseConfig.isOpenKerberos()) {
+                return doCreatePhysicalConnection(url, info);
+            }
+            try {
+                return KerberosUtils.login(baseConfig, () -> {
+                    try {
+                        return doCreatePhysicalConnection(url, info);
+                    } catch (SQLException e) {
+                        throw new PluginDefineException(e);
+                    }
+                }, yarnConf);
+            } catch (Exception e) {
+                throw new SQLException("create physical connection error", e);
+            }
+        }
+
+        private Connection doCreatePhysicalConnection(String url, Properties info) throws SQLException {
+            return super.createPhysicalConnection(url, info);
+        }
+    }
+}
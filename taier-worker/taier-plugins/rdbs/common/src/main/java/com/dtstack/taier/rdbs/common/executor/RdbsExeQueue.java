@@ -36,13 +36,15 @@ import java.sql.Statement;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ArrayBlockingQueue;
+import java.util.Set;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -51,6 +53,8 @@ import java.util.regex.Pattern;
  * engineJobId === jobId
  * 1:执行实体
  * 2:监控类
+ * 同时执行的任务数不超过 maxSize, 其余任务按提交顺序在 waitQueue 中等待;
+ * 提交和任务结束时触发准入, 不再由单独的线程轮询等待队列
  * //FIXME 不考虑机器挂掉任务恢复的问题，只需要在机器挂掉之后任务设置为失败即可
  * Date: 2018/1/29
  * Company: www.dtstack.com
@@ -64,25 +68,37 @@ public class RdbsExeQueue {
 
     private static Pattern pattern = Pattern.compile("^select");
 
-    private int minSize = 20;
-
     /**
      * 最大允许同时执行的sql任务长度
      */
     private int maxSize = 20;
 
-    private BlockingQueue<Runnable> queue;
-
     private ExecutorService jobExecutor;
 
-    private ExecutorService monitorExecutor;
-
     /**
-     * 优先执行
+     * 等待执行的任务, 先进先出
      */
     private BlockingQueue<JobClient> waitQueue = Queues.newLinkedBlockingQueue();
 
-    private Map<String, RdbsExe> threadCache = Maps.newHashMap();
+    /**
+     * 等待中的任务, 取消时只需从这里移除
+     */
+    private Map<String, JobClient> waitingJobs = Maps.newConcurrentMap();
+
+    /**
+     * 执行中的任务
+     */
+    private Map<String, RdbsExe> threadCache = Maps.newConcurrentMap();
+
+    /**
+     * 等待中和执行中的任务id, 用于拦截重复提交
+     */
+    private Set<String> activeJobIds = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 已占用的执行名额
+     */
+    private final AtomicInteger runningCount = new AtomicInteger(0);
 
     /**
      * 缓存所有进入执行引擎的任务---在执行完成删除
@@ -93,25 +109,20 @@ public class RdbsExeQueue {
 
     private StatusUpdateDealer statusUpdateDealer;
 
-    public RdbsExeQueue(AbstractConnFactory connFactory, Integer maxPoolSize, Integer minPoolSize) {
+    public RdbsExeQueue(AbstractConnFactory connFactory, Integer maxPoolSize) {
         this.connFactory = connFactory;
         if (maxPoolSize != null) {
             this.maxSize = maxPoolSize;
         }
-        if (minPoolSize != null) {
-            this.minSize = minPoolSize;
-        }
     }
 
     public void init() {
-        queue = new ArrayBlockingQueue<>(1);
-        jobExecutor = new ThreadPoolExecutor(minSize, maxSize, 0, TimeUnit.MILLISECONDS, queue,
+        // 并发由 runningCount 控制, 线程池不会堆积任务
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(maxSize, maxSize, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
                 new CustomThreadFactory("rdb-job-exe"));
+        executor.allowCoreThreadTimeOut(true);
+        jobExecutor = executor;
 
-        monitorExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
-                new ArrayBlockingQueue<>(1), new CustomThreadFactory("monitor-exe"));
-
-        monitorExecutor.submit(new WaitQueueDealer());
         statusUpdateDealer = new StatusUpdateDealer(jobCache);
         statusUpdateDealer.start();
     }
@@ -120,42 +131,125 @@ public class RdbsExeQueue {
      * 提交成功返回engine_id
      */
     public String submit(JobClient jobClient) {
-
-        try {
-            if (LogStoreFactory.getLogStore() != null) {
-                LogStoreFactory.getLogStore().insert(jobClient.getJobId(), jobClient.getParamAction().toString(), TaskStatus.SCHEDULED.getStatus());
-            }
-            jobCache.put(jobClient.getJobId(), jobClient);
-            waitQueue.put(jobClient);
-        } catch (InterruptedException e) {
-            LOG.error("", e);
-            return null;
+        String jobId = jobClient.getJobId();
+        if (!activeJobIds.add(jobId)) {
+            LOG.warn("job {} is already in rdbs exe queue, ignore repeated submit", jobId);
+            return jobId;
         }
-
-        return jobClient.getJobId();
+        waitingJobs.put(jobId, jobClient);
+        if (LogStoreFactory.getLogStore() != null) {
+            LogStoreFactory.getLogStore().insert(jobId, jobClient.getParamAction().toString(), TaskStatus.SCHEDULED.getStatus());
+        }
+        jobCache.put(jobId, jobClient);
+        waitQueue.offer(jobClient);
+        admit();
+        return jobId;
     }
 
     public boolean checkCanSubmit() {
-        if (queue.size() > 0) {
-            return false;
-        } else if (waitQueue.size() >= maxSize) {
-            return false;
-        }
-
-        return true;
+        return waitingJobs.size() < maxSize;
     }
 
     public boolean cancelJob(String jobId) {
+        if (waitingJobs.remove(jobId) != null) {
+            // 还未开始执行, 准入时会跳过
+            if (LogStoreFactory.getLogStore() != null) {
+                LogStoreFactory.getLogStore().updateStatus(jobId, TaskStatus.CANCELED.getStatus());
+            }
+            jobCache.remove(jobId);
+            activeJobIds.remove(jobId);
+            return true;
+        }
+
         RdbsExe rdbsExe = threadCache.get(jobId);
         if (rdbsExe == null) {
             return false;
         }
 
         rdbsExe.cancelJob();
-        threadCache.remove(jobId);
         return true;
     }
 
+    /**
+     * 有空闲名额时按顺序启动等待中的任务
+     * 先占名额再取任务, 取不到时归还名额后再检查一次队列, 避免与并发的提交互相错过
+     */
+    private void admit() {
+        while (true) {
+            int running = runningCount.get();
+            if (running >= maxSize) {
+                return;
+            }
+            if (!runningCount.compareAndSet(running, running + 1)) {
+                continue;
+            }
+            JobClient jobClient = pollWaitingJob();
+            if (jobClient == null) {
+                runningCount.decrementAndGet();
+                if (waitQueue.isEmpty()) {
+                    return;
+                }
+                continue;
+            }
+            start(jobClient);
+        }
+    }
+
+    private JobClient pollWaitingJob() {
+        JobClient jobClient;
+        while ((jobClient = waitQueue.poll()) != null) {
+            // 已取消的任务不在 waitingJobs 中
+            if (waitingJobs.remove(jobClient.getJobId(), jobClient)) {
+                return jobClient;
+            }
+        }
+        return null;
+    }
+
+    private void start(JobClient jobClient) {
+        String jobId = jobClient.getJobId();
+        try {
+            RdbsExe rdbsExe = new RdbsExe(jobClient.getJobName(), jobClient.getSql(), jobId, jobClient.getTaskParams());
+            threadCache.put(jobId, rdbsExe);
+            jobExecutor.submit(() -> {
+                try {
+                    rdbsExe.run();
+                } finally {
+                    onFinish(jobId);
+                }
+            });
+        } catch (Throwable t) {
+            LOG.error("job {} start error", jobId, t);
+            if (LogStoreFactory.getLogStore() != null) {
+                LogStoreFactory.getLogStore().updateErrorLog(jobId, t.toString());
+                LogStoreFactory.getLogStore().updateStatus(jobId, TaskStatus.FAILED.getStatus());
+            }
+            jobCache.remove(jobId);
+            threadCache.remove(jobId);
+            activeJobIds.remove(jobId);
+            runningCount.decrementAndGet();
+        }
+    }
+
+    /**
+     * 任务结束回调: 释放名额并启动下一个等待中的任务
+     */
+    private void onFinish(String jobId) {
+        threadCache.remove(jobId);
+        jobCache.remove(jobId);
+        activeJobIds.remove(jobId);
+        runningCount.decrementAndGet();
+        admit();
+    }
+
+    public int getRunningCount() {
+        return runningCount.get();
+    }
+
+    public int getWaitingCount() {
+        return waitingJobs.size();
+    }
+
 
     public TaskStatus getJobStatus(String jobId) {
         if (LogStoreFactory.getLogStore() != null) {
@@ -192,9 +286,9 @@ public class RdbsExeQueue {
 
         private List<String> sqlList;
 
-        private CallableStatement stmt;
+        private volatile CallableStatement stmt;
 
-        private Statement simpleStmt;
+        private volatile Statement simpleStmt;
 
         private String procedureName;
 
@@ -290,10 +384,8 @@ public class RdbsExeQueue {
                 //修改指定任务的状态--成功或者失败
                 //处理cancel job 情况
                 if (LogStoreFactory.getLogStore() != null) {
-                    LogStoreFactory.getLogStore().updateStatus(engineJobId, exeResult ? TaskStatus.FINISHED.getStatus() : TaskStatus.FAILED.getStatus());
+                    LogStoreFactory.getLogStore().updateStatus(engineJobId, getFinishStatus(exeResult));
                 }
-                jobCache.remove(engineJobId);
-                threadCache.remove(engineJobId);
             }
             return exeResult;
 
@@ -329,20 +421,34 @@ public class RdbsExeQueue {
         }
 
         public void cancelJob() {
-            isCancel.set(true);
-            if (stmt != null) {
-                try {
+            if (!isCancel.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                if (stmt != null) {
                     stmt.cancel();
-                } catch (SQLException e) {
-                    LOG.error("", e);
-                } finally {
-                    //更新任务状态
-                    if (LogStoreFactory.getLogStore() != null) {
-                        LogStoreFactory.getLogStore().updateStatus(engineJobId, TaskStatus.CANCELED.getStatus());
-                    }
-                    jobCache.remove(engineJobId);
                 }
+                if (simpleStmt != null) {
+                    simpleStmt.cancel();
+                }
+            } catch (SQLException e) {
+                LOG.error("", e);
+            } finally {
+                //更新任务状态
+                if (LogStoreFactory.getLogStore() != null) {
+                    LogStoreFactory.getLogStore().updateStatus(engineJobId, TaskStatus.CANCELED.getStatus());
+                }
+            }
+        }
+
+        /**
+         * 已取消的任务保持取消状态, 不被执行结果覆盖
+         */
+        private Integer getFinishStatus(boolean exeResult) {
+            if (isCancel.get()) {
+                return TaskStatus.CANCELED.getStatus();
             }
+            return exeResult ? TaskStatus.FINISHED.getStatus() : TaskStatus.FAILED.getStatus();
         }
 
         private boolean runProc() {
@@ -399,9 +505,8 @@ public class RdbsExeQueue {
                 LOG.info("job:{} exe {} end...", engineJobId, exeResult);
                 //修改指定任务的状态--成功或者失败
                 if (LogStoreFactory.getLogStore() != null) {
-                    LogStoreFactory.getLogStore().updateStatus(engineJobId, exeResult ? TaskStatus.FINISHED.getStatus() : TaskStatus.FAILED.getStatus());
+                    LogStoreFactory.getLogStore().updateStatus(engineJobId, getFinishStatus(exeResult));
                 }
-                jobCache.remove(engineJobId);
             }
             return exeResult;
         }
@@ -434,42 +539,4 @@ public class RdbsExeQueue {
         }
     }
 
-
-    class WaitQueueDealer implements Runnable {
-
-        private boolean isRun = true;
-
-        @Override
-        public void run() {
-
-            LOG.warn("---rdbs WaitQueueDealer is start----");
-            while (isRun) {
-                try {
-                    JobClient jobClient = waitQueue.take();
-                    String taskName = jobClient.getJobName();
-                    String sql = jobClient.getSql();
-                    String jobId = jobClient.getJobId();
-
-                    RdbsExe rdbsExe = new RdbsExe(taskName, sql, jobId, jobClient.getTaskParams());
-                    try {
-                        jobExecutor.submit(rdbsExe);
-                        threadCache.put(jobId, rdbsExe);
-                    } catch (RejectedExecutionException e) {
-                        //等待继续执行---说明当时执行队列处于满状态-->先等2s
-                        waitQueue.add(jobClient);
-                        Thread.sleep(2 * 1000L);
-                    }
-                } catch (Throwable t) {
-                    LOG.error("", t);
-                }
-            }
-
-            LOG.warn("---rdbs WaitQueueDealer is stop----");
-        }
-
-        public void stop() {
-            this.isRun = false;
-        }
-    }
-
 }
\ No newline at end of file
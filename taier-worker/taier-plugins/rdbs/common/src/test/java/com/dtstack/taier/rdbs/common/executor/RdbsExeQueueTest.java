@@ -19,55 +19,138 @@
 package com.dtstack.taier.rdbs.common.executor;
 
 import com.dtstack.taier.pluginapi.JobClient;
-import com.google.common.collect.Queues;
+import com.google.common.collect.Lists;
 import org.junit.Assert;
-import org.junit.Before;
 import org.junit.Test;
-import org.mockito.InjectMocks;
-import org.mockito.MockitoAnnotations;
 import org.powermock.api.mockito.PowerMockito;
 import org.powermock.api.support.membermodification.MemberModifier;
 
+import java.sql.Connection;
+import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.BlockingQueue;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.powermock.api.mockito.PowerMockito.when;
 
 
 public class RdbsExeQueueTest {
 
-    @InjectMocks
-    RdbsExeQueue rdbsExeQueue;
+    @Test
+    public void testInit() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Statement statement = PowerMockito.mock(Statement.class);
+        when(statement.execute(anyString())).thenAnswer(invocation -> release.await(30, TimeUnit.SECONDS));
+
+        RdbsExeQueue exeQueue = new RdbsExeQueue(mockConnFactory(statement), 1);
+        exeQueue.init();
+        Assert.assertNotNull(MemberModifier.field(RdbsExeQueue.class, "jobExecutor").get(exeQueue));
+        Assert.assertTrue(exeQueue.checkCanSubmit());
+
+        // 只有一个执行名额, 第二个任务等待
+        exeQueue.submit(buildJobClient("job_1"));
+        exeQueue.submit(buildJobClient("job_2"));
+        Assert.assertEquals(1, exeQueue.getRunningCount());
+        Assert.assertEquals(1, exeQueue.getWaitingCount());
+        Assert.assertFalse(exeQueue.checkCanSubmit());
 
-    @Before
-    public void setUp() {
-        MockitoAnnotations.initMocks(this);
+        // 取消等待中的任务后不会再执行
+        Assert.assertTrue(exeQueue.cancelJob("job_2"));
+        Assert.assertEquals(0, exeQueue.getWaitingCount());
+
+        release.countDown();
+        waitFinish(exeQueue);
+        Assert.assertEquals(0, exeQueue.getRunningCount());
+        verify(statement, times(1)).execute("insert into test values('job_1')");
+        verify(statement, never()).execute("insert into test values('job_2')");
     }
 
     @Test
-    public void testInit() throws Exception {
-        BlockingQueue<JobClient> waitQueue = Queues.newLinkedBlockingQueue();
-        JobClient jobClient = new JobClient();
-        jobClient.setJobName("test");
-        jobClient.setJobId("test");
-        jobClient.setSql("select * from tableTest;");
-        jobClient.setTaskParams("{\"task\":\"test\"}");
-        waitQueue.add(jobClient);
-        MemberModifier.field(RdbsExeQueue.class, "waitQueue").set(rdbsExeQueue, waitQueue);
-        MemberModifier.field(RdbsExeQueue.class, "minSize").set(rdbsExeQueue, 1);
-        MemberModifier.field(RdbsExeQueue.class, "maxSize").set(rdbsExeQueue, 1);
-        rdbsExeQueue.init();
+    public void testSubmit() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Statement statement = PowerMockito.mock(Statement.class);
+        when(statement.execute(anyString())).thenAnswer(invocation -> release.await(30, TimeUnit.SECONDS));
+
+        RdbsExeQueue exeQueue = new RdbsExeQueue(mockConnFactory(statement), 2);
+        exeQueue.init();
+
+        JobClient jobClient = buildJobClient("test");
+        Assert.assertEquals("test", exeQueue.submit(jobClient));
+        Assert.assertEquals(1, exeQueue.getRunningCount());
+
+        // 执行中的任务重复提交被忽略
+        Assert.assertEquals("test", exeQueue.submit(jobClient));
+        Assert.assertEquals(1, exeQueue.getRunningCount());
+        Assert.assertEquals(0, exeQueue.getWaitingCount());
+
+        release.countDown();
+        waitFinish(exeQueue);
+        Assert.assertEquals(0, exeQueue.getRunningCount());
+        verify(statement, times(1)).execute("insert into test values('test')");
     }
 
     @Test
-    public void testSubmit() {
-        JobClient jobClient = new JobClient();
-        jobClient.setJobId("test");
-        String submit = rdbsExeQueue.submit(jobClient);
-        Assert.assertNotNull(submit);
-    }
+    public void testConcurrentSubmit() throws Exception {
+        int maxSize = 8;
+        int jobCount = 400;
+        Map<String, AtomicInteger> executed = new ConcurrentHashMap<>();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
 
+        Statement statement = PowerMockito.mock(Statement.class);
+        when(statement.execute(anyString())).thenAnswer(invocation -> {
+            int current = running.incrementAndGet();
+            maxRunning.accumulateAndGet(current, Math::max);
+            Thread.sleep(2);
+            executed.computeIfAbsent(invocation.getArgument(0), k -> new AtomicInteger()).incrementAndGet();
+            running.decrementAndGet();
+            return true;
+        });
+
+        RdbsExeQueue exeQueue = new RdbsExeQueue(mockConnFactory(statement), maxSize);
+        exeQueue.init();
+
+        ExecutorService submitExecutor = Executors.newFixedThreadPool(16);
+        CountDownLatch startLatch = new CountDownLatch(1);
+        for (int i = 0; i < jobCount; i++) {
+            JobClient jobClient = new JobClient();
+            jobClient.setJobId("job_" + i);
+            jobClient.setJobName("job_" + i);
+            jobClient.setSql("insert into test values(" + i + ")");
+            submitExecutor.submit(() -> {
+                startLatch.await();
+                exeQueue.submit(jobClient);
+                return null;
+            });
+        }
+        startLatch.countDown();
+        submitExecutor.shutdown();
+        Assert.assertTrue(submitExecutor.awaitTermination(30, TimeUnit.SECONDS));
+
+        long deadline = System.currentTimeMillis() + 60 * 1000L;
+        while ((exeQueue.getRunningCount() > 0 || exeQueue.getWaitingCount() > 0) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        Assert.assertEquals(0, exeQueue.getRunningCount());
+        Assert.assertEquals(0, exeQueue.getWaitingCount());
+        Assert.assertEquals(jobCount, executed.size());
+        for (AtomicInteger count : executed.values()) {
+            Assert.assertEquals(1, count.get());
+        }
+        Assert.assertTrue(maxRunning.get() <= maxSize);
+    }
 
     @Test
     public void testRdbsExeRun() throws Exception {
@@ -80,4 +163,30 @@ public class RdbsExeQueueTest {
         rdbsExe.run();
         System.out.println("test");
     }
+
+    private AbstractConnFactory mockConnFactory(Statement statement) throws Exception {
+        Connection connection = PowerMockito.mock(Connection.class);
+        when(connection.createStatement()).thenReturn(statement);
+        AbstractConnFactory connFactory = PowerMockito.mock(AbstractConnFactory.class);
+        when(connFactory.supportProcedure(anyString())).thenReturn(false);
+        when(connFactory.supportTransaction()).thenReturn(false);
+        when(connFactory.buildSqlList(anyString())).thenAnswer(invocation -> Lists.newArrayList((String) invocation.getArgument(0)));
+        when(connFactory.getConnByTaskParams(any(), any())).thenReturn(connection);
+        return connFactory;
+    }
+
+    private JobClient buildJobClient(String jobId) {
+        JobClient jobClient = new JobClient();
+        jobClient.setJobId(jobId);
+        jobClient.setJobName(jobId);
+        jobClient.setSql("insert into test values('" + jobId + "')");
+        return jobClient;
+    }
+
+    private void waitFinish(RdbsExeQueue exeQueue) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 30 * 1000L;
+        while ((exeQueue.getRunningCount() > 0 || exeQueue.getWaitingCount() > 0) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
 }
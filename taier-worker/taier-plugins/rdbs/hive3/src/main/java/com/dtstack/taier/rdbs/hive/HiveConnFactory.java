@@ -76,6 +76,7 @@ public class HiveConnFactory extends AbstractConnFactory {
     @Override
     public Connection getConnByTaskParams(String taskParams, String jobName)
             throws ClassNotFoundException, SQLException, IOException {
+        // 任务 sql 中的 set 等语句会修改会话配置且无法可靠重置, 任务连接不使用连接池
         Properties properties = new Properties();
         Connection conn;
 
@@ -45,6 +45,7 @@ public class OceanBaseConnFactory extends AbstractConnFactory {
     @Override
     public Connection getConnByTaskParams(String taskParams, String jobName)
             throws ClassNotFoundException, SQLException, IOException {
+        // 任务 sql 中的 set 等语句会修改会话变量且无法可靠重置, 任务连接不使用连接池
         Connection connection;
         try {
             connection = DriverManager.getConnection(jdbcUrl, getUsername(), getPassword());
@@ -21,9 +21,11 @@ package com.dtstack.taier.sparkyarn.sparkyarn;
 import com.alibaba.fastjson.JSON;
 import com.dtstack.taier.base.filesystem.FilesystemManager;
 import com.dtstack.taier.base.monitor.AcceptedApplicationMonitor;
+import com.dtstack.taier.base.resource.YarnResourceSnapshotService;
 import com.dtstack.taier.base.util.HadoopConfTool;
 import com.dtstack.taier.base.util.KerberosUtils;
 import com.dtstack.taier.base.util.Splitter;
+import com.dtstack.taier.base.util.YarnApplicationUtil;
 import com.dtstack.taier.pluginapi.*;
 import com.dtstack.taier.pluginapi.client.AbstractClient;
 import com.dtstack.taier.pluginapi.enums.ComputeType;
@@ -105,6 +107,8 @@ public class SparkYarnClient extends AbstractClient {
 
     private static final String PYTHON_RUNNER_DEPENDENCY_RES_KEY = "extRefResource";
 
+    private static final String SPARK_APPLICATION_TYPE = "SPARK";
+
     private static final String CLUSTER_INFO_WS_FORMAT = "%s/ws/v1/cluster";
 
     private static final String USER_DIR = System.getProperty("user.dir");
@@ -126,6 +130,8 @@ public class SparkYarnClient extends AbstractClient {
 
     private ThreadPoolExecutor threadPoolExecutor;
 
+    private YarnResourceSnapshotService resourceSnapshotService;
+
     private static String userDir = System.getProperty("user.dir");
 
     private static final String SPARK_CONF_DIR = "sparkconf";
@@ -153,6 +159,10 @@ public class SparkYarnClient extends AbstractClient {
             AcceptedApplicationMonitor.start(yarnConf, sparkYarnConfig.getQueue(), sparkYarnConfig);
         }
 
+        if (sparkYarnConfig.getYarnResourceRefreshInterval() > 0) {
+            resourceSnapshotService = YarnResourceSnapshotService.getInstance(yarnConf, sparkYarnConfig, sparkYarnConfig.getYarnResourceRefreshInterval());
+        }
+
         this.threadPoolExecutor = new ThreadPoolExecutor(sparkYarnConfig.getAsyncCheckYarnClientThreadNum(), sparkYarnConfig.getAsyncCheckYarnClientThreadNum(),
                 0L, TimeUnit.MILLISECONDS,
                 new LinkedBlockingQueue<Runnable>(), new CustomThreadFactory("spark_yarnclient"));
@@ -607,6 +617,33 @@ public class SparkYarnClient extends AbstractClient {
         }
     }
 
+    /**
+     * 一次登录内批量 kill application
+     */
+    @Override
+    public Map<String, JobResult> cancelJobs(List<JobIdentifier> jobIdentifiers) {
+        Map<String, JobResult> resultMap = Maps.newHashMapWithExpectedSize(jobIdentifiers.size());
+        try {
+            return KerberosUtils.login(sparkYarnConfig, () -> {
+                for (JobIdentifier jobIdentifier : jobIdentifiers) {
+                    String jobId = jobIdentifier.getApplicationId();
+                    try {
+                        getYarnClient().killApplication(ConverterUtils.toApplicationId(jobId));
+                        resultMap.put(jobIdentifier.getJobId(), JobResult.createSuccessResult(jobId));
+                    } catch (Exception e) {
+                        logger.error("jobId:{} kill application {} error", jobIdentifier.getJobId(), jobId, e);
+                        resultMap.put(jobIdentifier.getJobId(), JobResult.createErrorResult(e.getMessage()));
+                    }
+                }
+                return resultMap;
+            }, yarnConf, true);
+        } catch (Exception e) {
+            logger.error("cancelJobs error, size:{}", jobIdentifiers.size(), e);
+            jobIdentifiers.forEach(jobIdentifier -> resultMap.putIfAbsent(jobIdentifier.getJobId(), JobResult.createErrorResult(e)));
+            return resultMap;
+        }
+    }
+
     @Override
     public TaskStatus getJobStatus(JobIdentifier jobIdentifier) throws IOException {
         try {
@@ -620,38 +657,7 @@ public class SparkYarnClient extends AbstractClient {
                 ApplicationId appId = ConverterUtils.toApplicationId(jobId);
                 try {
                     ApplicationReport report = getYarnClient().getApplicationReport(appId);
-                    YarnApplicationState applicationState = report.getYarnApplicationState();
-                    switch(applicationState) {
-                        case KILLED:
-                            return TaskStatus.KILLED;
-                        case NEW:
-                        case NEW_SAVING:
-                            return TaskStatus.CREATED;
-                        case SUBMITTED:
-                            //FIXME 特殊逻辑,认为已提交到计算引擎的状态为等待资源状态
-                            return TaskStatus.WAITCOMPUTE;
-                        case ACCEPTED:
-                            return TaskStatus.SCHEDULED;
-                        case RUNNING:
-                            return TaskStatus.RUNNING;
-                        case FINISHED:
-                            //state 为finished状态下需要兼顾判断finalStatus.
-                            FinalApplicationStatus finalApplicationStatus = report.getFinalApplicationStatus();
-                            if(finalApplicationStatus == FinalApplicationStatus.FAILED){
-                                return TaskStatus.FAILED;
-                            }else if(finalApplicationStatus == FinalApplicationStatus.SUCCEEDED){
-                                return TaskStatus.FINISHED;
-                            }else if(finalApplicationStatus == FinalApplicationStatus.KILLED){
-                                return TaskStatus.KILLED;
-                            }else{
-                                return TaskStatus.RUNNING;
-                            }
-
-                        case FAILED:
-                            return TaskStatus.FAILED;
-                        default:
-                            throw new PluginDefineException("Unsupported application state");
-                    }
+                    return convertApplicationStatus(report);
                 } catch (Exception e) {
                     logger.error("", e);
                     return TaskStatus.NOTFOUND;
@@ -663,6 +669,84 @@ public class SparkYarnClient extends AbstractClient {
         }
     }
 
+    @Override
+    public Map<String, TaskStatus> getBatchJobStatus(List<JobIdentifier> jobIdentifiers) throws IOException {
+        Map<String, TaskStatus> statusMap = Maps.newHashMapWithExpectedSize(jobIdentifiers.size());
+        try {
+            return KerberosUtils.login(sparkYarnConfig, () -> {
+                Map<ApplicationId, String> appIdToJobId = Maps.newHashMap();
+                for (JobIdentifier jobIdentifier : jobIdentifiers) {
+                    if (StringUtils.isEmpty(jobIdentifier.getApplicationId())) {
+                        statusMap.put(jobIdentifier.getJobId(), null);
+                        continue;
+                    }
+                    try {
+                        appIdToJobId.put(ConverterUtils.toApplicationId(jobIdentifier.getApplicationId()), jobIdentifier.getJobId());
+                    } catch (Exception e) {
+                        logger.error("jobId:{} applicationId:{} parse error", jobIdentifier.getJobId(), jobIdentifier.getApplicationId(), e);
+                        statusMap.put(jobIdentifier.getJobId(), TaskStatus.NOTFOUND);
+                    }
+                }
+                Map<ApplicationId, ApplicationReport> reports;
+                try {
+                    reports = YarnApplicationUtil.getApplicationReports(getYarnClient(),
+                            Collections.singleton(SPARK_APPLICATION_TYPE), sparkYarnConfig.getQueue(), appIdToJobId.keySet());
+                } catch (Exception e) {
+                    throw new PluginDefineException(e);
+                }
+                appIdToJobId.forEach((appId, jobId) -> {
+                    ApplicationReport report = reports.get(appId);
+                    try {
+                        statusMap.put(jobId, report == null ? TaskStatus.NOTFOUND : convertApplicationStatus(report));
+                    } catch (Exception e) {
+                        logger.error("jobId:{} convert status error", jobId, e);
+                        statusMap.put(jobId, TaskStatus.NOTFOUND);
+                    }
+                });
+                return statusMap;
+            }, yarnConf, false);
+        } catch (Exception e) {
+            logger.error("getBatchJobStatus error, size:{}", jobIdentifiers.size(), e);
+            jobIdentifiers.forEach(jobIdentifier -> statusMap.putIfAbsent(jobIdentifier.getJobId(), TaskStatus.NOTFOUND));
+            return statusMap;
+        }
+    }
+
+    private TaskStatus convertApplicationStatus(ApplicationReport report) {
+        YarnApplicationState applicationState = report.getYarnApplicationState();
+        switch(applicationState) {
+            case KILLED:
+                return TaskStatus.KILLED;
+            case NEW:
+            case NEW_SAVING:
+                return TaskStatus.CREATED;
+            case SUBMITTED:
+                //FIXME 特殊逻辑,认为已提交到计算引擎的状态为等待资源状态
+                return TaskStatus.WAITCOMPUTE;
+            case ACCEPTED:
+                return TaskStatus.SCHEDULED;
+            case RUNNING:
+                return TaskStatus.RUNNING;
+            case FINISHED:
+                //state 为finished状态下需要兼顾判断finalStatus.
+                FinalApplicationStatus finalApplicationStatus = report.getFinalApplicationStatus();
+                if(finalApplicationStatus == FinalApplicationStatus.FAILED){
+                    return TaskStatus.FAILED;
+                }else if(finalApplicationStatus == FinalApplicationStatus.SUCCEEDED){
+                    return TaskStatus.FINISHED;
+                }else if(finalApplicationStatus == FinalApplicationStatus.KILLED){
+                    return TaskStatus.KILLED;
+                }else{
+                    return TaskStatus.RUNNING;
+                }
+
+            case FAILED:
+                return TaskStatus.FAILED;
+            default:
+                throw new PluginDefineException("Unsupported application state");
+        }
+    }
+
     @Override
     public String getJobMaster(JobIdentifier jobIdentifier) {
         //解析config,获取web-address
@@ -769,6 +853,7 @@ public class SparkYarnClient extends AbstractClient {
                             .withYarnClient(getYarnClient())
                             .withQueueName(sparkYarnConfig.getQueue())
                             .withYarnAccepterTaskNumber(sparkYarnConfig.getYarnAccepterTaskNumber())
+                            .withResourceSnapshotService(resourceSnapshotService)
                             .build();
                     return resourceInfo.judgeSlots(jobClient);
             }, yarnConf, false);
@@ -77,6 +77,8 @@ public class SparkYarnConfig extends BaseConfig {
     private String jvmOptions = "-XX:+UseConcMarkSweepGC -XX:+CMSParallelRemarkEnabled -XX:+CMSIncrementalMode -XX:+CMSIncrementalPacing";
 
     private String carbonStorePath;
+    //judgeSlots 共享的 yarn 资源快照刷新间隔(ms), 小于等于 0 时不共享
+    private long yarnResourceRefreshInterval = 5 * 1000;
 
     private Map<String, String> kerberosConfig;
 
@@ -262,6 +264,14 @@ public class SparkYarnConfig extends BaseConfig {
         this.carbonStorePath = carbonStorePath;
     }
 
+    public long getYarnResourceRefreshInterval() {
+        return yarnResourceRefreshInterval;
+    }
+
+    public void setYarnResourceRefreshInterval(long yarnResourceRefreshInterval) {
+        this.yarnResourceRefreshInterval = yarnResourceRefreshInterval;
+    }
+
     public String getJvmOptions() {
         return jvmOptions;
     }
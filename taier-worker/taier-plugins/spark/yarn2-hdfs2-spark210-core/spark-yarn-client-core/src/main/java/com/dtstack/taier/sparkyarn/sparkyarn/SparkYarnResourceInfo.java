@@ -23,6 +23,7 @@ import com.dtstack.taier.pluginapi.util.MathUtil;
 import com.dtstack.taier.pluginapi.util.UnitConvertUtil;
 import com.dtstack.taier.pluginapi.JobClient;
 import com.dtstack.taier.base.resource.AbstractYarnResourceInfo;
+import com.dtstack.taier.base.resource.YarnResourceSnapshotService;
 import com.google.common.collect.Lists;
 import org.apache.hadoop.yarn.client.api.YarnClient;
 
@@ -131,6 +132,7 @@ public class SparkYarnResourceInfo extends AbstractYarnResourceInfo {
         private YarnClient yarnClient;
         private String queueName;
         private Integer yarnAccepterTaskNumber;
+        private YarnResourceSnapshotService resourceSnapshotService;
 
         public SparkYarnResourceInfoBuilder withYarnClient(YarnClient yarnClient) {
             this.yarnClient = yarnClient;
@@ -147,8 +149,15 @@ public class SparkYarnResourceInfo extends AbstractYarnResourceInfo {
             return this;
         }
 
+        public SparkYarnResourceInfoBuilder withResourceSnapshotService(YarnResourceSnapshotService resourceSnapshotService) {
+            this.resourceSnapshotService = resourceSnapshotService;
+            return this;
+        }
+
         public SparkYarnResourceInfo build() {
-            return new SparkYarnResourceInfo(yarnClient, queueName, yarnAccepterTaskNumber);
+            SparkYarnResourceInfo resourceInfo = new SparkYarnResourceInfo(yarnClient, queueName, yarnAccepterTaskNumber);
+            resourceInfo.setResourceSnapshotService(resourceSnapshotService);
+            return resourceInfo;
         }
     }
 